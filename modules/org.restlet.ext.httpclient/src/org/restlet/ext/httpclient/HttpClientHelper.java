@@ -34,6 +34,12 @@
 package org.restlet.ext.httpclient;
 
 import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
@@ -45,8 +51,10 @@ import org.apache.http.client.HttpRequestRetryHandler;
 import org.apache.http.client.params.HttpClientParams;
 import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRoute;
 import org.apache.http.conn.params.ConnPerRouteBean;
 import org.apache.http.conn.params.ConnRoutePNames;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
@@ -60,8 +68,10 @@ import org.apache.http.params.HttpParams;
 import org.restlet.Client;
 import org.restlet.Request;
 import org.restlet.data.Protocol;
+import org.restlet.data.Reference;
 import org.restlet.engine.Engine;
 import org.restlet.engine.adapter.ClientCall;
+import org.restlet.engine.log.LoggingThreadFactory;
 import org.restlet.engine.util.ReferenceUtils;
 import org.restlet.ext.httpclient.internal.HttpIdleConnectionReaper;
 import org.restlet.ext.httpclient.internal.HttpMethodCall;
@@ -76,6 +86,12 @@ import org.restlet.ext.ssl.internal.SslUtils;
  * surely release the underlying connection. Not doing so may cause future
  * requests to block.<br>
  * <br>
+ * Asynchronous calls release the calling thread, but they don't rely on
+ * non-blocking I/O: each call still blocks a worker thread while it is sent
+ * and its response headers are received. The number of worker threads is the
+ * "maxTotalConnections" value and the number of waiting calls is bounded by the
+ * "maxQueued" value.<br>
+ * <br>
  * Here is the list of parameters that are supported. They should be set in the
  * Client's context before it is started:
  * <table>
@@ -86,6 +102,14 @@ import org.restlet.ext.ssl.internal.SslUtils;
  * <th>Description</th>
  * </tr>
  * <tr>
+ * <td>connectionTimeToLive</td>
+ * <td>long</td>
+ * <td>-1</td>
+ * <td>The time to live in milliseconds of pooled connections. Once expired,
+ * a connection is closed instead of being reused. A negative value means that
+ * connections never expire.</td>
+ * </tr>
+ * <tr>
  * <td>followRedirects</td>
  * <td>boolean</td>
  * <td>false</td>
@@ -114,6 +138,24 @@ import org.restlet.ext.ssl.internal.SslUtils;
  * host.</td>
  * </tr>
  * <tr>
+ * <td>maxConnectionsPerRoute</td>
+ * <td>String</td>
+ * <td>null</td>
+ * <td>Overrides the maximum number of connections for a particular route, the
+ * value having the "scheme://host:port=max" format, for example
+ * "http://www.example.com:8080=50". This parameter can be repeated.</td>
+ * </tr>
+ * <tr>
+ * <td>maxQueued</td>
+ * <td>int</td>
+ * <td>100</td>
+ * <td>Maximum number of asynchronous calls waiting for a worker thread. Once
+ * reached, new asynchronous calls are answered with a
+ * {@link org.restlet.data.Status#CONNECTOR_ERROR_INTERNAL} status. If the
+ * value is '0', then no queue is used. If the value is '-1', then an unbounded
+ * queue is used and calls are never rejected.</td>
+ * </tr>
+ * <tr>
  * <td>maxTotalConnections</td>
  * <td>int</td>
  * <td>20 (uses HttpClient's default)</td>
@@ -187,6 +229,9 @@ public class HttpClientHelper extends
     /** the idle connection reaper. */
     private volatile HttpIdleConnectionReaper idleConnectionReaper;
 
+    /** The worker service sending the asynchronous calls. */
+    private volatile ExecutorService workerService;
+
     /**
      * Constructor.
      * 
@@ -308,9 +353,61 @@ public class HttpClientHelper extends
         return result;
     }
 
+    /**
+     * Configures the connection manager. By default, it sets the maximum
+     * number of connections in total and per route from the connection
+     * manager parameters, then the maximum number of connections of the
+     * routes specified by the "maxConnectionsPerRoute" parameter.
+     * 
+     * @param connectionManager
+     *            The connection manager to configure.
+     * @param params
+     *            The configuration parameters.
+     * @see ConnManagerParams
+     */
+    protected void configure(ThreadSafeClientConnManager connectionManager,
+            HttpParams params) {
+        connectionManager.setMaxTotal(ConnManagerParams
+                .getMaxTotalConnections(params));
+        ConnPerRoute connPerRoute = ConnManagerParams
+                .getMaxConnectionsPerRoute(params);
+
+        if (connPerRoute instanceof ConnPerRouteBean) {
+            connectionManager
+                    .setDefaultMaxPerRoute(((ConnPerRouteBean) connPerRoute)
+                            .getDefaultMax());
+        }
+
+        for (String value : getHelpedParameters().getValuesArray(
+                "maxConnectionsPerRoute")) {
+            int index = value.lastIndexOf('=');
+
+            try {
+                Reference ref = new Reference(value.substring(0, index).trim());
+                Protocol protocol = ref.getSchemeProtocol();
+                int port = ref.getHostPort();
+
+                if ((port == -1) && (protocol != null)) {
+                    port = protocol.getDefaultPort();
+                }
+
+                HttpHost host = new HttpHost(ref.getHostDomain(), port,
+                        ref.getScheme());
+                connectionManager.setMaxForRoute(new HttpRoute(host),
+                        Integer.parseInt(value.substring(index + 1).trim()));
+            } catch (Exception e) {
+                getLogger().log(Level.WARNING,
+                        "Invalid \"maxConnectionsPerRoute\" parameter: "
+                                + value, e);
+            }
+        }
+    }
+
     /**
      * Creates the connection manager. By default, it creates a thread safe
-     * connection manager.
+     * connection manager, expiring the connections after the time to live
+     * specified by the "connectionTimeToLive" parameter, and configures it
+     * with the given parameters.
      * 
      * @param params
      *            The configuration parameters.
@@ -320,7 +417,47 @@ public class HttpClientHelper extends
      */
     protected ClientConnectionManager createClientConnectionManager(
             HttpParams params, SchemeRegistry schemeRegistry) {
-        return new ThreadSafeClientConnManager(params, schemeRegistry);
+        ThreadSafeClientConnManager result = new ThreadSafeClientConnManager(
+                schemeRegistry, getConnectionTimeToLive(),
+                TimeUnit.MILLISECONDS);
+        configure(result, params);
+        return result;
+    }
+
+    /**
+     * Creates the worker service sending the asynchronous calls. By default,
+     * it creates a fixed pool of daemon threads, sized after the maximum
+     * number of active connections as additional threads would only wait for
+     * a pooled connection. The calls waiting for a thread are queued up to the
+     * "maxQueued" value, further calls being rejected.
+     * 
+     * @return The worker service.
+     */
+    protected ExecutorService createWorkerService() {
+        BlockingQueue<Runnable> queue = null;
+
+        if (getMaxQueued() == 0) {
+            queue = new SynchronousQueue<Runnable>();
+        } else if (getMaxQueued() < 0) {
+            queue = new LinkedBlockingQueue<Runnable>();
+        } else {
+            queue = new ArrayBlockingQueue<Runnable>(getMaxQueued());
+        }
+
+        return new ThreadPoolExecutor(getMaxTotalConnections(),
+                getMaxTotalConnections(), 0L, TimeUnit.MILLISECONDS, queue,
+                new LoggingThreadFactory(getLogger(), true));
+    }
+
+    /**
+     * Returns the time to live in milliseconds of pooled connections. A
+     * negative value means that connections never expire.
+     * 
+     * @return The time to live in milliseconds of pooled connections.
+     */
+    public long getConnectionTimeToLive() {
+        return Long.parseLong(getHelpedParameters().getFirstValue(
+                "connectionTimeToLive", "-1"));
     }
 
     /**
@@ -370,6 +507,19 @@ public class HttpClientHelper extends
                 "maxConnectionsPerHost", "10"));
     }
 
+    /**
+     * Returns the maximum number of asynchronous calls waiting for a worker
+     * thread. If the value is '0', then no queue is used. If the value is
+     * '-1', then an unbounded queue is used and calls are never rejected.
+     * 
+     * @return The maximum number of asynchronous calls waiting for a worker
+     *         thread.
+     */
+    public int getMaxQueued() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxQueued", "100"));
+    }
+
     /**
      * Returns the maximum number of active connections.
      * 
@@ -446,6 +596,15 @@ public class HttpClientHelper extends
                 "tcpNoDelay", "false"));
     }
 
+    /**
+     * Returns the worker service sending the asynchronous calls.
+     * 
+     * @return The worker service sending the asynchronous calls.
+     */
+    public ExecutorService getWorkerService() {
+        return this.workerService;
+    }
+
     /**
      * Indicates if the protocol will automatically follow redirects.
      * 
@@ -494,6 +653,7 @@ public class HttpClientHelper extends
 
         this.idleConnectionReaper = new HttpIdleConnectionReaper(httpClient,
                 getIdleCheckInterval(), getIdleTimeout());
+        this.workerService = createWorkerService();
 
         getLogger().info("Starting the Apache HTTP client");
     }
@@ -503,6 +663,10 @@ public class HttpClientHelper extends
         if (this.idleConnectionReaper != null) {
             this.idleConnectionReaper.stop();
         }
+        if (this.workerService != null) {
+            this.workerService.shutdown();
+            this.workerService = null;
+        }
         if (getHttpClient() != null) {
             getHttpClient().getConnectionManager().closeExpiredConnections();
             getHttpClient().getConnectionManager().closeIdleConnections(
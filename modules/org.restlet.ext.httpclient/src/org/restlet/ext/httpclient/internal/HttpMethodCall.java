@@ -41,6 +41,8 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 
 import org.apache.http.Header;
@@ -354,18 +356,90 @@ public class HttpMethodCall extends ClientCall {
         return result;
     }
 
-    @Override
-    public void sendRequest(Request request, Response response, Uniform callback)
-            throws Exception {
-        sendRequest(request);
+    /**
+     * Sends the request and invokes the callbacks. The status of the response
+     * is directly updated if the request couldn't be sent.
+     * 
+     * @param request
+     *            The high-level request.
+     * @param response
+     *            The high-level response.
+     * @param callback
+     *            The callback invoked upon request completion.
+     */
+    private void doSendRequest(Request request, Response response,
+            Uniform callback) {
+        Status status = sendRequest(request);
 
         if (request.getOnSent() != null) {
             request.getOnSent().handle(request, response);
         }
 
-        if (callback != null) {
+        if (getHttpResponse() == null) {
+            // No response was received, notify the user callback directly
+            onFailure(request, response, status);
+        } else if (callback != null) {
             // Transmit to the callback, if any.
             callback.handle(request, response);
         }
     }
+
+    /**
+     * Updates the status of a response that couldn't be received and notifies
+     * the user callback, if any.
+     * 
+     * @param request
+     *            The high-level request.
+     * @param response
+     *            The high-level response.
+     * @param status
+     *            The error status.
+     */
+    private void onFailure(Request request, Response response, Status status) {
+        response.setStatus(status);
+
+        if (request.getOnResponse() != null) {
+            request.getOnResponse().handle(request, response);
+        }
+    }
+
+    /**
+     * Sends the request asynchronously, using the worker service of the parent
+     * helper. The calling thread is released immediately, the callback being
+     * invoked by a worker thread once the response headers are received. The
+     * response entity is then streamed from the pooled connection as it is
+     * read. Note that the worker thread is blocked while the request is sent
+     * and the response headers are received. If the worker service can't
+     * queue more calls, the response gets a
+     * {@link Status#CONNECTOR_ERROR_INTERNAL} status.
+     * 
+     * @param request
+     *            The high-level request.
+     * @param response
+     *            The high-level response.
+     * @param callback
+     *            The callback invoked upon request completion.
+     */
+    @Override
+    public void sendRequest(final Request request, final Response response,
+            final Uniform callback) throws Exception {
+        ExecutorService workerService = this.clientHelper.getWorkerService();
+
+        if (workerService == null) {
+            doSendRequest(request, response, callback);
+        } else {
+            try {
+                workerService.execute(new Runnable() {
+                    public void run() {
+                        doSendRequest(request, response, callback);
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                getLogger().log(Level.WARNING,
+                        "Unable to queue the asynchronous call", ree);
+                onFailure(request, response, new Status(
+                        Status.CONNECTOR_ERROR_INTERNAL, ree));
+            }
+        }
+    }
 }
@@ -36,11 +36,15 @@ package org.restlet.ext.jdbc;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -55,6 +59,7 @@ import org.apache.commons.pool.impl.GenericObjectPool;
 import org.restlet.Client;
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Protocol;
 import org.restlet.data.Status;
@@ -116,9 +121,35 @@ import org.xml.sax.SAXException;
  * {@code </request>}
  * <p>
  * Several SQL Statements can be specified. A {@link RowSetRepresentation} of
- * the last correctly executed SQL request is returned to the Client.
+ * the last correctly executed SQL request is returned to the Client. If the
+ * client prefers the "application/json", "text/csv" or "application/xml" media
+ * types, a {@link ResultSetRepresentation} is returned instead. It streams the
+ * rows from the database cursor as they are written, so large results don't
+ * need to be loaded in memory.
+ * <p>
+ * Here is the list of parameters that are supported. They should be set in the
+ * Client's context before it is started:
+ * <table>
+ * <tr>
+ * <th>Parameter name</th>
+ * <th>Value type</th>
+ * <th>Default value</th>
+ * <th>Description</th>
+ * </tr>
+ * <tr>
+ * <td>fetchSize</td>
+ * <td>int</td>
+ * <td>100</td>
+ * <td>Number of rows that the JDBC driver should fetch from the database at
+ * once when streaming results. Zero lets the driver choose. The auto-commit
+ * mode is disabled while the rows are streamed, as some drivers only use
+ * database cursors in this case. Others may require a specific fetch size
+ * value.</td>
+ * </tr>
+ * </table>
  * 
  * @see org.restlet.ext.jdbc.RowSetRepresentation
+ * @see org.restlet.ext.jdbc.ResultSetRepresentation
  * 
  * @author Jerome Louvel
  * @author Thierry Boileau
@@ -197,8 +228,13 @@ public class JdbcClientHelper extends ClientHelper {
         return result.toString();
     }
 
-    /** Map of connection factories. */
-    private volatile List<ConnectionSource> connectionSources;
+    /** The media types of the streamed results. */
+    private static final List<MediaType> STREAMED_MEDIA_TYPES = Arrays.asList(
+            MediaType.TEXT_XML, MediaType.APPLICATION_JSON,
+            MediaType.TEXT_CSV, MediaType.APPLICATION_XML);
+
+    /** Map of connection sources, by connection key. */
+    private final ConcurrentMap<String, ConnectionSource> connectionSources;
 
     /**
      * Constructor.
@@ -211,8 +247,8 @@ public class JdbcClientHelper extends ClientHelper {
 
         getProtocols().add(Protocol.JDBC);
 
-        // Set up the list of factories
-        this.connectionSources = new ArrayList<ConnectionSource>();
+        // Set up the map of connection sources
+        this.connectionSources = new ConcurrentHashMap<String, ConnectionSource>();
     }
 
     /**
@@ -232,35 +268,22 @@ public class JdbcClientHelper extends ClientHelper {
         Connection result = null;
 
         if (usePooling) {
-            for (ConnectionSource c : this.connectionSources) {
-                // Check if the connection URI is identical
-                // and if the same number of properties is present
-                if ((result == null) && c.getUri().equalsIgnoreCase(uri)
-                        && (properties.size() == c.getProperties().size())) {
-                    // Check that the properties tables are equivalent
-                    boolean equal = true;
-                    for (Object key : c.getProperties().keySet()) {
-                        if (equal && properties.containsKey(key)) {
-                            equal = equal
-                                    && (properties.get(key).equals(c
-                                            .getProperties().get(key)));
-                        } else {
-                            equal = false;
-                        }
-                    }
-
-                    if (equal) {
-                        result = c.getConnection();
-                    }
+            String key = ConnectionSource.getKey(uri, properties);
+            ConnectionSource cs = this.connectionSources.get(key);
+
+            if (cs == null) {
+                // No existing connection source found. The pool of a source
+                // losing the race is empty so it can be simply discarded.
+                cs = new ConnectionSource(uri, properties);
+                ConnectionSource existing = this.connectionSources
+                        .putIfAbsent(key, cs);
+
+                if (existing != null) {
+                    cs = existing;
                 }
             }
 
-            if (result == null) {
-                // No existing connection source found
-                ConnectionSource cs = new ConnectionSource(uri, properties);
-                this.connectionSources.add(cs);
-                result = cs.getConnection();
-            }
+            result = cs.getConnection();
         } else {
             result = DriverManager.getConnection(uri, properties);
         }
@@ -268,6 +291,28 @@ public class JdbcClientHelper extends ClientHelper {
         return result;
     }
 
+    /**
+     * Returns the map of connection sources used for pooled connections, by
+     * connection key.
+     * 
+     * @return The map of connection sources.
+     * @see ConnectionSource#getKey(String, Properties)
+     */
+    public ConcurrentMap<String, ConnectionSource> getConnectionSources() {
+        return this.connectionSources;
+    }
+
+    /**
+     * Returns the number of rows that the JDBC driver should fetch from the
+     * database at once when streaming results.
+     * 
+     * @return The fetch size hint or 0 to let the driver choose.
+     */
+    public int getFetchSize() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "fetchSize", "100"));
+    }
+
     /**
      * Handles a call.
      * 
@@ -352,13 +397,27 @@ public class JdbcClientHelper extends ClientHelper {
                     sqlRequests.add(sqlRequest);
                 }
 
+                // Select the representation of the result
+                MediaType mediaType = request.getClientInfo()
+                        .getPreferredMediaType(STREAMED_MEDIA_TYPES);
+                boolean streaming = (mediaType != null)
+                        && !MediaType.TEXT_XML.equals(mediaType);
+
                 // Execute the List of SQL requests
                 connection = getConnection(connectionURI, properties,
                         usePooling);
-                JdbcResult result = handleSqlRequests(connection,
-                        returnGeneratedKeys, sqlRequests);
-                response.setEntity(new RowSetRepresentation(result, start,
-                        limit));
+
+                if (streaming) {
+                    JdbcResult result = handleSqlRequests(connection,
+                            returnGeneratedKeys, sqlRequests, start, limit);
+                    response.setEntity(new ResultSetRepresentation(result,
+                            mediaType, start, limit));
+                } else {
+                    JdbcResult result = handleSqlRequests(connection,
+                            returnGeneratedKeys, sqlRequests);
+                    response.setEntity(new RowSetRepresentation(result, start,
+                            limit));
+                }
             } catch (SQLException se) {
                 getLogger().log(Level.WARNING,
                         "Error while processing the SQL request", se);
@@ -394,7 +453,90 @@ public class JdbcClientHelper extends ClientHelper {
         JdbcResult result = null;
         try {
             connection.setAutoCommit(true);
-            Statement statement = connection.createStatement();
+            result = handleSqlRequests(connection.createStatement(),
+                    returnGeneratedKeys, sqlRequests, true);
+        } catch (SQLException se) {
+            getLogger().log(Level.WARNING,
+                    "Error while creating the SQL statement", se);
+        }
+        return result;
+    }
+
+    /**
+     * Executes the SQL requests with a forward only and read only statement,
+     * configured to fetch the rows of the result progressively. As some JDBC
+     * drivers only use a database cursor outside of the auto-commit mode, the
+     * transaction is kept open until the returned result is released when it
+     * has a result set, then the auto-commit mode is restored.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param returnGeneratedKeys
+     *            Indicates if the generated keys should be returned.
+     * @param sqlRequests
+     *            The SQL requests to execute.
+     * @param start
+     *            The start index of the page or 0 for the first result.
+     * @param limit
+     *            The page size or -1 if no limit is set.
+     * @return the result of the last executed SQL request
+     */
+    private JdbcResult handleSqlRequests(Connection connection,
+            boolean returnGeneratedKeys, List<String> sqlRequests, int start,
+            int limit) {
+        JdbcResult result = null;
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            Statement statement = connection.createStatement(
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+            if (getFetchSize() > 0) {
+                statement.setFetchSize(getFetchSize());
+            }
+
+            if (limit > -1) {
+                statement.setMaxRows(Math.max(start, 0) + limit);
+            }
+
+            result = handleSqlRequests(statement, returnGeneratedKeys,
+                    sqlRequests, false);
+
+            if ((result != null) && (result.getUpdateCount() == -1)) {
+                // Commit once the rows are read from the cursor
+                result = new JdbcResult(statement, autoCommit);
+            } else {
+                connection.commit();
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException se) {
+            getLogger().log(Level.WARNING,
+                    "Error while creating the SQL statement", se);
+        }
+        return result;
+    }
+
+    /**
+     * Executes the SQL requests with the given statement.
+     * 
+     * @param statement
+     *            The JDBC statement.
+     * @param returnGeneratedKeys
+     *            Indicates if the generated keys should be returned.
+     * @param sqlRequests
+     *            The SQL requests to execute.
+     * @param commit
+     *            Indicates if the transaction should be committed, unless the
+     *            connection is in auto-commit mode.
+     * @return the result of the last executed SQL request
+     */
+    private JdbcResult handleSqlRequests(Statement statement,
+            boolean returnGeneratedKeys, List<String> sqlRequests,
+            boolean commit) {
+        JdbcResult result = null;
+        Connection connection = null;
+        try {
+            connection = statement.getConnection();
             for (String sqlRequest : sqlRequests) {
                 statement.execute(sqlRequest,
                         returnGeneratedKeys ? Statement.RETURN_GENERATED_KEYS
@@ -403,14 +545,14 @@ public class JdbcClientHelper extends ClientHelper {
             }
 
             // Commit any changes to the database
-            if (!connection.getAutoCommit()) {
+            if (commit && !connection.getAutoCommit()) {
                 connection.commit();
             }
         } catch (SQLException se) {
             getLogger().log(Level.WARNING,
                     "Error while processing the SQL requests", se);
             try {
-                if (!connection.getAutoCommit()) {
+                if ((connection != null) && !connection.getAutoCommit()) {
                     connection.rollback();
                 }
             } catch (SQLException se2) {
@@ -40,6 +40,7 @@ import java.util.List;
 
 import javax.sql.rowset.WebRowSet;
 
+import org.restlet.data.MediaType;
 import org.restlet.engine.converter.ConverterHelper;
 import org.restlet.engine.resource.VariantInfo;
 import org.restlet.representation.Representation;
@@ -48,7 +49,9 @@ import org.restlet.resource.Resource;
 
 /**
  * A converter helper to convert from {@link WebRowSet}, {@link JdbcResult} or
- * {@link ResultSet} objects to Representation.
+ * {@link ResultSet} objects to Representation. JSON and CSV target variants of
+ * {@link JdbcResult} and {@link ResultSet} objects are converted to a streamed
+ * {@link ResultSetRepresentation}.
  * 
  * @author Thierry Boileau
  */
@@ -89,6 +92,25 @@ public class JdbcConverter extends ConverterHelper {
     @Override
     public Representation toRepresentation(Object source, Variant target,
             Resource resource) throws IOException {
+        MediaType mediaType = (target == null) ? null : target.getMediaType();
+
+        if (MediaType.APPLICATION_JSON.equals(mediaType, true)
+                || MediaType.TEXT_CSV.equals(mediaType, true)) {
+            if (source instanceof JdbcResult) {
+                try {
+                    return new ResultSetRepresentation((JdbcResult) source,
+                            mediaType);
+                } catch (SQLException e) {
+                    throw new IOException(
+                            "Cannot convert the JdbcResult source object as a ResultSetRepresentation due to:"
+                                    + e.getMessage());
+                }
+            } else if (source instanceof ResultSet) {
+                return new ResultSetRepresentation((ResultSet) source,
+                        mediaType);
+            }
+        }
+
         if (source instanceof WebRowSet) {
             return new RowSetRepresentation((WebRowSet) source);
         } else if (source instanceof JdbcResult) {
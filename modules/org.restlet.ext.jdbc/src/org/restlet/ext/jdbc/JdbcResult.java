@@ -34,6 +34,7 @@
 package org.restlet.ext.jdbc;
 
 import java.io.Serializable;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -47,6 +48,12 @@ import java.sql.Statement;
 public class JdbcResult implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The auto-commit mode to restore once the transaction kept open for the
+     * result is committed, or null if no transaction is kept open.
+     */
+    private volatile transient Boolean autoCommit;
+
     /** The JDBC statement. */
     private volatile transient Statement statement;
 
@@ -60,6 +67,22 @@ public class JdbcResult implements Serializable {
         this.statement = statement;
     }
 
+    /**
+     * Constructor for a result whose transaction is kept open until it is
+     * released, as some JDBC drivers only read the rows progressively from a
+     * database cursor outside of the auto-commit mode.
+     * 
+     * @param statement
+     *            The JDBC statement.
+     * @param autoCommit
+     *            The auto-commit mode to restore once the transaction is
+     *            committed.
+     */
+    public JdbcResult(Statement statement, boolean autoCommit) {
+        this.statement = statement;
+        this.autoCommit = autoCommit;
+    }
+
     /**
      * Returns the generated keys.
      * 
@@ -92,6 +115,7 @@ public class JdbcResult implements Serializable {
 
     /**
      * Release the statement connection. To call when result navigation is done.
+     * The transaction kept open for the result, if any, is committed first.
      * 
      * @throws SQLException
      */
@@ -99,7 +123,21 @@ public class JdbcResult implements Serializable {
         // One connection per jdbcResult
         // releasing the instance means releasing the connection too
         // and not only the statement.
-        this.statement.getConnection().close();
+        Connection connection = this.statement.getConnection();
+        Boolean restored = this.autoCommit;
+        this.autoCommit = null;
+
+        try {
+            if ((restored != null) && !connection.getAutoCommit()) {
+                try {
+                    connection.commit();
+                } finally {
+                    connection.setAutoCommit(restored);
+                }
+            }
+        } finally {
+            connection.close();
+        }
     }
 
 }
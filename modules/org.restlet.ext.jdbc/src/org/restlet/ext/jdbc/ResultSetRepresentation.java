@@ -0,0 +1,545 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.ext.jdbc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
+import org.restlet.representation.WriterRepresentation;
+
+/**
+ * Representation streaming the rows of an open ResultSet as they are read
+ * from the database cursor. Contrary to the {@link RowSetRepresentation}, the
+ * rows are never all loaded in memory, so large results can be exported with a
+ * constant memory footprint. The supported media types are:
+ * <ul>
+ * <li>{@link MediaType#APPLICATION_JSON}: array of objects whose members are
+ * named after the column labels.</li>
+ * <li>{@link MediaType#TEXT_CSV}: header line with the column labels followed
+ * by one line per row, as defined by RFC 4180.</li>
+ * <li>{@link MediaType#TEXT_XML} or {@link MediaType#APPLICATION_XML}:
+ * "resultSet" root element containing one "row" element per row, each having
+ * one "column" element per column, with a "name" attribute and either the
+ * value as text or a "null" attribute.</li>
+ * </ul>
+ * When the last statement isn't a query, a single row is written with an
+ * "updateCount" column holding the number of rows updated.<br>
+ * <br>
+ * The result set, its statement and its connection are released once the last
+ * row has been written, or when the representation is released without being
+ * written. Consequently, this representation can only be written once. In
+ * order to limit the memory used by the JDBC driver, the statement should be
+ * created with the {@link ResultSet#TYPE_FORWARD_ONLY} and
+ * {@link ResultSet#CONCUR_READ_ONLY} options and a fetch size hint.
+ * 
+ * @see JdbcClientHelper#getFetchSize()
+ * @author Jerome Louvel
+ */
+public class ResultSetRepresentation extends WriterRepresentation {
+
+    /** The JDBC result giving access to the result set. */
+    private volatile JdbcResult jdbcResult;
+
+    /** The maximum number of rows written or -1 if no limit is set. */
+    private final int limit;
+
+    /** The wrapped result set. */
+    private volatile ResultSet resultSet;
+
+    /** The number of rows skipped before the first row written. */
+    private final int start;
+
+    /** The update count of a statement that isn't a query, -1 otherwise. */
+    private volatile int updateCount;
+
+    /**
+     * Constructor.
+     * 
+     * @param jdbcResult
+     *            The JDBC result giving access to the result set.
+     * @param mediaType
+     *            The media type.
+     * @throws SQLException
+     */
+    public ResultSetRepresentation(JdbcResult jdbcResult, MediaType mediaType)
+            throws SQLException {
+        this(jdbcResult, mediaType, -1, -1);
+    }
+
+    /**
+     * Constructor with paging.
+     * 
+     * @param jdbcResult
+     *            The JDBC result giving access to the result set.
+     * @param mediaType
+     *            The media type.
+     * @param start
+     *            The start index of the page or 0 for the first result.
+     * @param limit
+     *            The page size or -1 if no limit is set.
+     * @throws SQLException
+     */
+    public ResultSetRepresentation(JdbcResult jdbcResult, MediaType mediaType,
+            int start, int limit) throws SQLException {
+        this((jdbcResult == null) ? null : jdbcResult.getResultSet(),
+                mediaType, start, limit);
+        this.jdbcResult = jdbcResult;
+
+        if ((this.resultSet == null) && (jdbcResult != null)) {
+            this.updateCount = jdbcResult.getUpdateCount();
+        }
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param resultSet
+     *            The result set to stream.
+     * @param mediaType
+     *            The media type.
+     */
+    public ResultSetRepresentation(ResultSet resultSet, MediaType mediaType) {
+        this(resultSet, mediaType, -1, -1);
+    }
+
+    /**
+     * Constructor with paging.
+     * 
+     * @param resultSet
+     *            The result set to stream.
+     * @param mediaType
+     *            The media type.
+     * @param start
+     *            The start index of the page or 0 for the first result.
+     * @param limit
+     *            The page size or -1 if no limit is set.
+     */
+    public ResultSetRepresentation(ResultSet resultSet, MediaType mediaType,
+            int start, int limit) {
+        super(mediaType);
+
+        if (!MediaType.APPLICATION_JSON.equals(mediaType, true)
+                && !MediaType.TEXT_CSV.equals(mediaType, true)
+                && !MediaType.TEXT_XML.equals(mediaType, true)
+                && !MediaType.APPLICATION_XML.equals(mediaType, true)) {
+            throw new IllegalArgumentException("Unsupported media type: "
+                    + mediaType);
+        }
+
+        this.resultSet = resultSet;
+        this.start = start;
+        this.limit = limit;
+        this.updateCount = -1;
+        setCharacterSet(CharacterSet.UTF_8);
+        setTransient(true);
+    }
+
+    /**
+     * Closes the result set, its statement and its connection.
+     * 
+     * @throws SQLException
+     */
+    protected void close() throws SQLException {
+        ResultSet rs = this.resultSet;
+        JdbcResult jr = this.jdbcResult;
+        this.resultSet = null;
+        this.jdbcResult = null;
+
+        if (rs != null) {
+            Statement statement = rs.getStatement();
+
+            try {
+                rs.close();
+            } finally {
+                if (jr != null) {
+                    jr.release();
+                } else if (statement != null) {
+                    statement.getConnection().close();
+                }
+            }
+        } else if (jr != null) {
+            jr.release();
+        }
+    }
+
+    /**
+     * Returns the JDBC result giving access to the result set or null.
+     * 
+     * @return The JDBC result giving access to the result set or null.
+     */
+    public JdbcResult getJdbcResult() {
+        return this.jdbcResult;
+    }
+
+    /**
+     * Returns the wrapped result set or null if it has been released.
+     * 
+     * @return The wrapped result set or null if it has been released.
+     */
+    public ResultSet getResultSet() {
+        return this.resultSet;
+    }
+
+    @Override
+    public void release() {
+        try {
+            close();
+        } catch (SQLException se) {
+            Context.getCurrentLogger().log(Level.WARNING,
+                    "Unable to release the result set", se);
+        }
+
+        super.release();
+    }
+
+    @Override
+    public void write(Writer writer) throws IOException {
+        ResultSet rs = this.resultSet;
+
+        try {
+            if (rs == null) {
+                writeStart(writer, null);
+
+                if (this.updateCount >= 0) {
+                    writeUpdateCount(writer, this.updateCount);
+                }
+            } else {
+                ResultSetMetaData metaData = rs.getMetaData();
+                writeStart(writer, metaData);
+                int skipped = 0;
+                int written = 0;
+
+                while (((this.limit < 0) || (written < this.limit))
+                        && rs.next()) {
+                    if (skipped < this.start) {
+                        skipped++;
+                    } else {
+                        writeRow(writer, rs, metaData, written++);
+                    }
+                }
+            }
+
+            writeEnd(writer);
+            writer.flush();
+        } catch (SQLException se) {
+            throw new IOException("Unable to read the result set. "
+                    + se.getMessage());
+        } finally {
+            try {
+                close();
+            } catch (SQLException se) {
+                throw new IOException(
+                        "Unable to release the result set after writing the representation. "
+                                + se.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a CSV field, quoting it if necessary.
+     * 
+     * @param writer
+     *            The writer.
+     * @param value
+     *            The field value or null.
+     * @throws IOException
+     */
+    private void writeCsv(Writer writer, String value) throws IOException {
+        if (value != null) {
+            boolean quote = false;
+
+            for (int i = 0; !quote && (i < value.length()); i++) {
+                char c = value.charAt(i);
+                quote = (c == ',') || (c == '"') || (c == '\r')
+                        || (c == '\n');
+            }
+
+            if (quote) {
+                writer.write('"');
+
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+
+                    if (c == '"') {
+                        writer.write('"');
+                    }
+
+                    writer.write(c);
+                }
+
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+    }
+
+    /**
+     * Writes the end of the document.
+     * 
+     * @param writer
+     *            The writer.
+     * @throws IOException
+     */
+    protected void writeEnd(Writer writer) throws IOException {
+        if (MediaType.APPLICATION_JSON.equals(getMediaType(), true)) {
+            writer.write(']');
+        } else if (!MediaType.TEXT_CSV.equals(getMediaType(), true)) {
+            writer.write("</resultSet>");
+        }
+    }
+
+    /**
+     * Writes a JSON string.
+     * 
+     * @param writer
+     *            The writer.
+     * @param value
+     *            The string value.
+     * @throws IOException
+     */
+    private void writeJson(Writer writer, String value) throws IOException {
+        writer.write('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+            case '"':
+                writer.write("\\\"");
+                break;
+            case '\\':
+                writer.write("\\\\");
+                break;
+            case '\n':
+                writer.write("\\n");
+                break;
+            case '\r':
+                writer.write("\\r");
+                break;
+            case '\t':
+                writer.write("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    String hex = Integer.toHexString(c);
+                    writer.write("\\u0000", 0, 6 - hex.length());
+                    writer.write(hex);
+                } else {
+                    writer.write(c);
+                }
+            }
+        }
+
+        writer.write('"');
+    }
+
+    /**
+     * Writes a row of the result set.
+     * 
+     * @param writer
+     *            The writer.
+     * @param rs
+     *            The result set, positioned on the row to write.
+     * @param metaData
+     *            The result set meta data.
+     * @param index
+     *            The index of the row written, starting at 0.
+     * @throws IOException
+     * @throws SQLException
+     */
+    protected void writeRow(Writer writer, ResultSet rs,
+            ResultSetMetaData metaData, int index) throws IOException,
+            SQLException {
+        int count = metaData.getColumnCount();
+
+        if (MediaType.APPLICATION_JSON.equals(getMediaType(), true)) {
+            writer.write((index == 0) ? "{" : ",{");
+
+            for (int i = 1; i <= count; i++) {
+                Object value = rs.getObject(i);
+
+                if (i > 1) {
+                    writer.write(',');
+                }
+
+                writeJson(writer, metaData.getColumnLabel(i));
+                writer.write(':');
+
+                if (value == null) {
+                    writer.write("null");
+                } else if ((value instanceof Boolean)
+                        || ((value instanceof Number) && !Double
+                                .isInfinite(((Number) value).doubleValue())
+                                && !Double.isNaN(((Number) value)
+                                        .doubleValue()))) {
+                    writer.write(value.toString());
+                } else {
+                    writeJson(writer, rs.getString(i));
+                }
+            }
+
+            writer.write('}');
+        } else if (MediaType.TEXT_CSV.equals(getMediaType(), true)) {
+            for (int i = 1; i <= count; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+
+                writeCsv(writer, rs.getString(i));
+            }
+
+            writer.write("\r\n");
+        } else {
+            writer.write("<row>");
+
+            for (int i = 1; i <= count; i++) {
+                String value = rs.getString(i);
+                writer.write("<column name=\"");
+                writeXml(writer, metaData.getColumnLabel(i));
+
+                if (value == null) {
+                    writer.write("\" null=\"true\"/>");
+                } else {
+                    writer.write("\">");
+                    writeXml(writer, value);
+                    writer.write("</column>");
+                }
+            }
+
+            writer.write("</row>");
+        }
+    }
+
+    /**
+     * Writes the start of the document.
+     * 
+     * @param writer
+     *            The writer.
+     * @param metaData
+     *            The result set meta data or null if there is no result set.
+     * @throws IOException
+     * @throws SQLException
+     */
+    protected void writeStart(Writer writer, ResultSetMetaData metaData)
+            throws IOException, SQLException {
+        if (MediaType.APPLICATION_JSON.equals(getMediaType(), true)) {
+            writer.write('[');
+        } else if (MediaType.TEXT_CSV.equals(getMediaType(), true)) {
+            if (metaData != null) {
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if (i > 1) {
+                        writer.write(',');
+                    }
+
+                    writeCsv(writer, metaData.getColumnLabel(i));
+                }
+
+                writer.write("\r\n");
+            }
+        } else {
+            writer.write("<?xml version=\"1.0\" encoding=\"");
+            writer.write(getCharacterSet().getName());
+            writer.write("\"?><resultSet>");
+        }
+    }
+
+    /**
+     * Writes the row holding the update count of a statement that isn't a
+     * query.
+     * 
+     * @param writer
+     *            The writer.
+     * @param count
+     *            The number of rows updated.
+     * @throws IOException
+     */
+    protected void writeUpdateCount(Writer writer, int count)
+            throws IOException {
+        if (MediaType.APPLICATION_JSON.equals(getMediaType(), true)) {
+            writer.write("{\"updateCount\":" + count + "}");
+        } else if (MediaType.TEXT_CSV.equals(getMediaType(), true)) {
+            writer.write("updateCount\r\n" + count + "\r\n");
+        } else {
+            writer.write("<row><column name=\"updateCount\">" + count
+                    + "</column></row>");
+        }
+    }
+
+    /**
+     * Writes an XML text or attribute value, escaping the markup characters.
+     * 
+     * @param writer
+     *            The writer.
+     * @param value
+     *            The text value.
+     * @throws IOException
+     */
+    private void writeXml(Writer writer, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+            case '&':
+                writer.write("&amp;");
+                break;
+            case '<':
+                writer.write("&lt;");
+                break;
+            case '>':
+                writer.write("&gt;");
+                break;
+            case '"':
+                writer.write("&quot;");
+                break;
+            default:
+                if ((c < 0x20) && (c != '\t') && (c != '\n') && (c != '\r')) {
+                    // Not allowed in XML 1.0 documents
+                    writer.write('\uFFFD');
+                } else {
+                    writer.write(c);
+                }
+            }
+        }
+    }
+}
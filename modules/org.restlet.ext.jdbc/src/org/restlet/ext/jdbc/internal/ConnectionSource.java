@@ -33,9 +33,16 @@
 
 package org.restlet.ext.jdbc.internal;
 
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 import org.apache.commons.dbcp.PoolingDataSource;
+import org.restlet.engine.io.BioUtils;
 import org.restlet.ext.jdbc.JdbcClientHelper;
 
 /**
@@ -44,6 +51,49 @@ import org.restlet.ext.jdbc.JdbcClientHelper;
  * @author Jerome Louvel
  */
 public class ConnectionSource extends PoolingDataSource {
+
+    /**
+     * Returns the key identifying the connection sources of a given connection
+     * configuration. The URI is compared ignoring case and the properties are
+     * compared regardless of their order. As the properties usually contain
+     * credentials, only their SHA-256 digest is part of the key.
+     * 
+     * @param uri
+     *            The connection URI.
+     * @param properties
+     *            The connection properties or null.
+     * @return The connection key.
+     */
+    public static String getKey(String uri, Properties properties) {
+        StringBuilder result = new StringBuilder(
+                uri.toLowerCase(Locale.ENGLISH));
+
+        if ((properties != null) && !properties.isEmpty()) {
+            StringBuilder content = new StringBuilder();
+
+            for (Map.Entry<Object, Object> entry : new TreeMap<Object, Object>(
+                    properties).entrySet()) {
+                content.append(entry.getKey()).append('\0')
+                        .append(entry.getValue()).append('\0');
+            }
+
+            try {
+                result.append('#').append(
+                        BioUtils.toHexString(MessageDigest.getInstance(
+                                "SHA-256").digest(
+                                content.toString().getBytes("UTF-8"))));
+            } catch (NoSuchAlgorithmException nsae) {
+                throw new IllegalStateException(
+                        "Unable to digest the connection properties", nsae);
+            } catch (UnsupportedEncodingException uee) {
+                throw new IllegalStateException(
+                        "Unable to digest the connection properties", uee);
+            }
+        }
+
+        return result.toString();
+    }
+
     /** The connection properties. */
     protected Properties properties;
 
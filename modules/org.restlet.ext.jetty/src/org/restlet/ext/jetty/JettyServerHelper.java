@@ -133,6 +133,16 @@ import org.restlet.ext.jetty.internal.JettyCall;
  * <td>The time (in ms) to wait for existing requests to complete before fully
  * stopping the server.</td>
  * </tr>
+ * <tr>
+ * <td>asyncTimeoutMs</td>
+ * <td>int</td>
+ * <td>30000</td>
+ * <td>Time in ms that a call can stay suspended, without holding a thread,
+ * while its response isn't committed. See
+ * {@link org.restlet.Response#setAutoCommitting(boolean)}. After this delay, a
+ * 503 (Service unavailable) status is returned. Zero or less to never expire.
+ * </td>
+ * </tr>
  * </table>
  * 
  * @see <a href="jetty.codehaus.org/">Jetty home page</a>
@@ -168,7 +178,7 @@ public abstract class JettyServerHelper extends
         public void handle(AbstractHttpConnection connection) throws IOException,
                 ServletException {
             this.helper.handle(new JettyCall(this.helper.getHelped(),
-                    connection));
+                    connection, this.helper.getAsyncTimeoutMs()));
         }
     }
 
@@ -239,6 +249,17 @@ public abstract class JettyServerHelper extends
                 "acceptQueueSize", "0"));
     }
 
+    /**
+     * Returns the time in ms that a call can stay suspended while its response
+     * isn't committed.
+     * 
+     * @return The time in ms that a call can stay suspended.
+     */
+    public int getAsyncTimeoutMs() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "asyncTimeoutMs", "30000"));
+    }
+
     /**
      * Returns the time (in ms) to wait for existing requests to complete before
      * fully stopping the server.
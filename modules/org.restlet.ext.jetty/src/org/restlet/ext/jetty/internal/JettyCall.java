@@ -43,6 +43,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 
+import org.eclipse.jetty.continuation.Continuation;
+import org.eclipse.jetty.continuation.ContinuationListener;
+import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.server.AbstractHttpConnection;
 import org.restlet.Response;
@@ -58,14 +61,26 @@ import org.restlet.util.Series;
  * @author Jerome Louvel
  */
 public class JettyCall extends ServerCall {
+    /** The time in ms that the call can stay suspended. */
+    private final long asyncTimeout;
+
     /** The wrapped Jetty HTTP connection. */
     private final AbstractHttpConnection connection;
 
+    /** The continuation of a suspended call. */
+    private volatile Continuation continuation;
+
     /** Indicates if the request headers were parsed and added. */
     private volatile boolean requestHeadersAdded;
 
+    /** Indicates if the sending of the response has started. */
+    private boolean sending;
+
+    /** Indicates if the suspended call timed out before being committed. */
+    private boolean timedOut;
+
     /**
-     * Constructor.
+     * Constructor. Suspended calls expire after 30 seconds.
      * 
      * @param server
      *            The parent server.
@@ -73,7 +88,24 @@ public class JettyCall extends ServerCall {
      *            The wrapped Jetty HTTP connection.
      */
     public JettyCall(Server server, AbstractHttpConnection connection) {
+        this(server, connection, 30000L);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param server
+     *            The parent server.
+     * @param connection
+     *            The wrapped Jetty HTTP connection.
+     * @param asyncTimeout
+     *            The time in ms that the call can stay suspended, zero or less
+     *            to never expire.
+     */
+    public JettyCall(Server server, AbstractHttpConnection connection,
+            long asyncTimeout) {
         super(server);
+        this.asyncTimeout = asyncTimeout;
         this.connection = connection;
         this.requestHeadersAdded = false;
     }
@@ -92,8 +124,54 @@ public class JettyCall extends ServerCall {
         return true;
     }
 
+    /**
+     * Waits until the continuation of the suspended call is completed by the
+     * thread sending the response. If interrupted, the continuation is
+     * completed by the current thread.
+     */
+    private synchronized void awaitCompletion() {
+        while (this.continuation != null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                complete();
+            }
+        }
+    }
+
+    /**
+     * Completes the response. In case the call was suspended, the Jetty
+     * continuation is completed so that Jetty finishes the response with one
+     * of its threads.
+     */
     @Override
     public void complete() {
+        Continuation suspended = this.continuation;
+
+        if (suspended != null) {
+            this.continuation = null;
+
+            try {
+                suspended.complete();
+            } catch (IllegalStateException ex) {
+                getLogger().log(Level.FINE,
+                        "Unable to complete the suspended call", ex);
+            }
+
+            // Release the timeout listener waiting for the completion
+            synchronized (this) {
+                notifyAll();
+            }
+        } else {
+            completeResponse();
+        }
+    }
+
+    /**
+     * Flushes and fully completes the response on the current thread.
+     */
+    private void completeResponse() {
         // Flush the response
         try {
             this.connection.flushResponse();
@@ -289,8 +367,79 @@ public class JettyCall extends ServerCall {
                 || super.isConnectionBroken(exception);
     }
 
+    /**
+     * Sends the response back to the client, unless the call was suspended and
+     * has timed out.
+     * 
+     * @param response
+     *            The high-level response.
+     */
     @Override
     public void sendResponse(Response response) throws IOException {
+        boolean expired;
+
+        synchronized (this) {
+            expired = this.timedOut;
+            this.sending = !expired;
+        }
+
+        if (expired) {
+            getLogger().fine(
+                    "The suspended call timed out. Ignoring the response for resource \""
+                            + response.getRequest().getResourceRef() + "\".");
+        } else {
+            writeResponse(response);
+        }
+    }
+
+    /**
+     * Suspends the Jetty request using a continuation, so that the Jetty
+     * thread is released until the response is committed.
+     */
+    @Override
+    public boolean suspend() {
+        Continuation result = ContinuationSupport.getContinuation(getConnection()
+                .getRequest());
+        result.setTimeout(this.asyncTimeout);
+        result.addContinuationListener(new ContinuationListener() {
+            public void onComplete(Continuation continuation) {
+            }
+
+            public void onTimeout(Continuation continuation) {
+                boolean expired;
+
+                synchronized (JettyCall.this) {
+                    expired = !sending;
+                    timedOut = expired;
+                }
+
+                if (expired) {
+                    getConnection().getRequest().setHandled(true);
+                    getConnection().getResponse().setStatus(
+                            Status.SERVER_ERROR_SERVICE_UNAVAILABLE.getCode());
+                    complete();
+                } else {
+                    // The response is being sent. Jetty would dispatch the
+                    // expired request again or finish the response too early
+                    // if the continuation wasn't completed by the sending
+                    // thread before returning.
+                    awaitCompletion();
+                }
+            }
+        });
+        result.suspend(getConnection().getResponse());
+        this.continuation = result;
+        return true;
+    }
+
+    /**
+     * Effectively sends the response back to the client.
+     * 
+     * @param response
+     *            The high-level response.
+     * @throws IOException
+     */
+    private void writeResponse(Response response) throws IOException {
         // Add call headers
         Header header;
 
@@ -118,7 +118,8 @@ public class JettyHandler extends AbstractHandler {
         final Request baseRequest = (servletRequest instanceof Request) ? (Request) servletRequest
                 : AbstractHttpConnection.getCurrentConnection().getRequest();
         this.helper.handle(new JettyCall(this.helper.getHelped(),
-                AbstractHttpConnection.getCurrentConnection()));
+                AbstractHttpConnection.getCurrentConnection(), this.helper
+                        .getAsyncTimeoutMs()));
         baseRequest.setHandled(true);
     }
 
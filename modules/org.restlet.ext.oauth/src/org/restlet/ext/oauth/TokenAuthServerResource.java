@@ -40,6 +40,7 @@ import org.restlet.ext.json.JsonRepresentation;
 import org.restlet.ext.oauth.internal.Scopes;
 import org.restlet.ext.oauth.internal.Token;
 import org.restlet.ext.oauth.internal.ServerToken;
+import org.restlet.ext.oauth.internal.memory.MemoryToken;
 import org.restlet.representation.Representation;
 import org.restlet.resource.Post;
 import org.restlet.resource.ResourceException;
@@ -53,6 +54,24 @@ public class TokenAuthServerResource extends OAuthServerResource {
 
     public static final String LOCAL_ACCESS_ONLY = "localOnly";
 
+    /**
+     * Returns the remaining lifetime of the token in seconds, so that the
+     * verifiers don't cache the validation beyond the token expiration.
+     * 
+     * @param token
+     *            The validated token.
+     * @return The remaining lifetime in seconds.
+     */
+    private static long getExpiresIn(Token token) {
+        if (token instanceof MemoryToken) {
+            long remaining = ((MemoryToken) token).getExpirationTime()
+                    - System.currentTimeMillis();
+            return Math.max(0, remaining / 1000);
+        }
+
+        return token.getExpirePeriod();
+    }
+
     private boolean isLocalAcessOnly() {
         String lo = (String) getContext().getAttributes()
                 .get(LOCAL_ACCESS_ONLY);
@@ -104,6 +123,7 @@ public class TokenAuthServerResource extends OAuthServerResource {
         JSONObject resp = new JSONObject();
         resp.put(USERNAME, ((ServerToken) token).getUsername());
         resp.put(SCOPE, Scopes.toString(token.getScope()));
+        resp.put(EXPIRES_IN, getExpiresIn(token));
 
         return new JsonRepresentation(resp);
     }
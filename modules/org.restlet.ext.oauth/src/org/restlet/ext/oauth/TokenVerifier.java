@@ -33,12 +33,16 @@
 
 package org.restlet.ext.oauth;
 
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.Restlet;
 import org.restlet.data.CacheDirective;
 import org.restlet.data.ChallengeResponse;
 import org.restlet.data.ChallengeScheme;
@@ -47,8 +51,12 @@ import org.restlet.data.Form;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Reference;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.util.LruCache;
 import org.restlet.ext.json.JsonRepresentation;
 import org.restlet.ext.oauth.internal.Scopes;
+import org.restlet.ext.oauth.internal.ServerToken;
+import org.restlet.ext.oauth.internal.TokenManager;
 import org.restlet.representation.Representation;
 import org.restlet.resource.ClientResource;
 import org.restlet.security.User;
@@ -57,7 +65,18 @@ import org.restlet.security.Verifier;
 /**
  * Verifier for OAuth 2.0 Protected Resources. Typically use with
  * ChallengeAuthenticator. "Bearer" and "MAC" challenge schemes are may
- * supported.
+ * supported.<br>
+ * <br>
+ * The tokens are validated by the token authentication resource of the
+ * authorization server, through a client connector shared by all the
+ * verifications, or the client set with {@link #setAuthClient(Restlet)}. The
+ * results are kept in a bounded cache keyed by the SHA-256 digest of the
+ * tokens, so that a token is only validated again when its cached result
+ * expires. Valid results are cached until the token expires, within the limit
+ * of {@link #getCacheTimeToLive()}, and invalid ones during
+ * {@link #getNegativeCacheTimeToLive()}. When the {@link TokenManager} of the
+ * authorization server lives in the same component, it can be set to validate
+ * the tokens locally instead.
  * 
  * @author Shotaro Uchida <fantom@xmaker.mx>
  * @see <a href="http://tools.ietf.org/html/draft-ietf-oauth-v2-bearer-22">
@@ -67,6 +86,34 @@ import org.restlet.security.Verifier;
  */
 public class TokenVerifier implements Verifier {
 
+    /**
+     * Result of the validation of a token.
+     */
+    private static final class Validation {
+
+        /** The expiration time of the result. */
+        private final long expirationTime;
+
+        /** The granted scope or null if the token is invalid. */
+        private final String scope;
+
+        /** The resource owner name or null if the token is invalid. */
+        private final String username;
+
+        private Validation(String username, String scope, long expirationTime) {
+            this.username = username;
+            this.scope = scope;
+            this.expirationTime = expirationTime;
+        }
+
+        private boolean isValid() {
+            return this.scope != null;
+        }
+    }
+
+    /** The default maximum number of cached validation results. */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
     // public static final ChallengeScheme HTTP_BEARER =
     // new ChallengeScheme("HTTP_BEARER", "Bearer",
     // "The OAuth 2.0 Authorization Framework: Bearer Token Usage");
@@ -80,43 +127,71 @@ public class TokenVerifier implements Verifier {
 
     private boolean acceptQueryMethod = false; // 2.3. URI Query Parameter
 
+    /** The client shared by the calls to the authorization server. */
+    private volatile Restlet authClient;
+
+    /** The validation results, by token digest. */
+    private final LruCache<String, Validation> cache;
+
+    /** The maximum time to live of the valid results, in milliseconds. */
+    private volatile long cacheTimeToLive;
+
+    /** The time to live of the invalid results, in milliseconds. */
+    private volatile long negativeCacheTimeToLive;
+
+    /** The token manager used to validate the tokens locally. */
+    private volatile TokenManager tokenManager;
+
     private static final Logger logger = Logger.getLogger(TokenVerifier.class
             .getName());
 
     public TokenVerifier(Reference authReference) {
         this.authReference = authReference;
+        this.cache = new LruCache<String, Validation>(DEFAULT_CACHE_SIZE);
+        this.cacheTimeToLive = 60000;
+        this.negativeCacheTimeToLive = 10000;
+    }
+
+    /**
+     * Constructor validating the tokens locally.
+     * 
+     * @param tokenManager
+     *            The token manager of the authorization server.
+     */
+    public TokenVerifier(TokenManager tokenManager) {
+        this((Reference) null);
+        this.tokenManager = tokenManager;
     }
 
     public int verify(Request request, Response response) {
-        final JSONObject authRequest;
+        final String bearer;
 
         try {
             ChallengeResponse cr = request.getChallengeResponse();
             if (cr == null) {
                 // Try Bearer alternative methods
-                String bearer = null;
+                String token = null;
                 if (acceptBodyMethod) {
-                    bearer = getAccessTokenFromBody(request);
+                    token = getAccessTokenFromBody(request);
                 }
-                if (bearer == null && acceptQueryMethod) {
-                    bearer = getAccessTokenFromQuery(request);
-                    if (bearer != null) {
+                if (token == null && acceptQueryMethod) {
+                    token = getAccessTokenFromQuery(request);
+                    if (token != null) {
                         OAuthServerResource.addCacheDirective(response,
                                 CacheDirective.privateInfo());
                     }
                 }
-                if (bearer == null) {
+                if (token == null) {
                     return RESULT_MISSING;
                 }
                 logger.config("Verify: Bearer (Alternative)");
-                authRequest = createBearerAuthRequest(bearer);
+                bearer = token;
             } else if (ChallengeScheme.HTTP_OAUTH_BEARER.equals(cr.getScheme())) {
                 logger.config("Verify: Bearer");
-                final String bearer = cr.getRawValue();
+                bearer = cr.getRawValue();
                 if (bearer == null || bearer.isEmpty()) {
                     return RESULT_MISSING;
                 }
-                authRequest = createBearerAuthRequest(bearer);
             }/*
               * else if (cr.getScheme().equals(HTTP_MAC)) { // TODO }
               */else {
@@ -126,19 +201,52 @@ public class TokenVerifier implements Verifier {
             return RESULT_INVALID;
         }
 
+        Validation validation;
+
+        if (getTokenManager() == null) {
+            validation = validateRemotely(bearer);
+        } else {
+            validation = validateLocally(bearer);
+        }
+
+        if ((validation == null) || !validation.isValid()) {
+            return RESULT_INVALID;
+        }
+
+        ClientInfo clientInfo = request.getClientInfo();
+        clientInfo.setUser(new User(validation.username));
+        clientInfo.setRoles(Scopes.toRoles(validation.scope));
+        return RESULT_VALID;
+    }
+
+    /**
+     * Posts a validation request to the authorization server.
+     * 
+     * @param bearer
+     *            The bearer token.
+     * @param now
+     *            The current time.
+     * @return The validation result or null if the server couldn't answer.
+     */
+    private Validation callAuthServer(String bearer, long now) {
         ClientResource authResource = new ClientResource(authReference);
-        JsonRepresentation jsonRepresentation;
+
+        if (getAuthClient() != null) {
+            authResource.setNext(getAuthClient());
+        }
         JSONObject jsonResponse;
 
         try {
             logger.fine("Post auth request to auth resource...");
-            Representation resp = authResource.post(new JsonRepresentation(
-                    authRequest));
-            jsonRepresentation = new JsonRepresentation(resp);
-            jsonResponse = jsonRepresentation.getJsonObject();
+            Representation resp = authResource
+                    .post(new JsonRepresentation(
+                            createBearerAuthRequest(bearer)));
+            jsonResponse = new JsonRepresentation(resp).getJsonObject();
         } catch (Exception ex) {
             logger.log(Level.SEVERE, null, ex);
-            return RESULT_INVALID;
+            return null;
+        } finally {
+            authResource.release();
         }
 
         if (jsonResponse.has(OAuthServerResource.ERROR)) {
@@ -152,20 +260,144 @@ public class TokenVerifier implements Verifier {
                 logger.log(Level.SEVERE, null, ex);
             }
             // TODO: Configure challenge request
-            return RESULT_INVALID;
+            return new Validation(null, null, now
+                    + getNegativeCacheTimeToLive());
         }
 
         try {
-            ClientInfo clientInfo = request.getClientInfo();
-            clientInfo.setUser(new User(jsonResponse
-                    .getString(OAuthServerResource.USERNAME)));
-            clientInfo.setRoles(Scopes.toRoles(jsonResponse
-                    .getString(OAuthServerResource.SCOPE)));
+            long timeToLive = getCacheTimeToLive();
+
+            if (jsonResponse.has(OAuthServerResource.EXPIRES_IN)) {
+                timeToLive = Math.min(timeToLive, jsonResponse
+                        .getLong(OAuthServerResource.EXPIRES_IN) * 1000L);
+            }
+
+            return new Validation(
+                    jsonResponse.getString(OAuthServerResource.USERNAME),
+                    jsonResponse.getString(OAuthServerResource.SCOPE), now
+                            + timeToLive);
         } catch (JSONException ex) {
-            return RESULT_INVALID;
+            return new Validation(null, null, now
+                    + getNegativeCacheTimeToLive());
         }
+    }
 
-        return RESULT_VALID;
+    /**
+     * Returns the client shared by the calls to the authorization server, or
+     * null if the calls use the client dispatcher of the current context or
+     * the client connector shared in the JVM for the protocol of the
+     * authorization server.
+     * 
+     * @return The client shared by the calls to the authorization server.
+     */
+    public Restlet getAuthClient() {
+        return authClient;
+    }
+
+    /**
+     * Returns the cache of validation results, keyed by the SHA-256 digest of
+     * the tokens.
+     * 
+     * @return The cache of validation results.
+     */
+    public LruCache<String, ?> getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the maximum time to live of the valid results, in milliseconds.
+     * Default value is one minute. A zero value disables the cache.
+     * 
+     * @return The maximum time to live of the valid results.
+     */
+    public long getCacheTimeToLive() {
+        return cacheTimeToLive;
+    }
+
+    /**
+     * Returns the key of a token in the cache, the hexadecimal SHA-256 digest
+     * of the token so that the tokens themselves aren't kept in memory.
+     * 
+     * @param bearer
+     *            The bearer token.
+     * @return The key of the token.
+     */
+    private static String getKey(String bearer) {
+        try {
+            return BioUtils.toHexString(MessageDigest.getInstance("SHA-256")
+                    .digest(bearer.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException ex) {
+            return bearer;
+        } catch (UnsupportedEncodingException ex) {
+            return bearer;
+        }
+    }
+
+    /**
+     * Returns the time to live of the invalid results, in milliseconds.
+     * Default value is ten seconds. A zero value disables the negative cache.
+     * 
+     * @return The time to live of the invalid results.
+     */
+    public long getNegativeCacheTimeToLive() {
+        return negativeCacheTimeToLive;
+    }
+
+    /**
+     * Returns the token manager used to validate the tokens locally, or null
+     * if the authorization server is called.
+     * 
+     * @return The token manager used to validate the tokens locally.
+     */
+    public TokenManager getTokenManager() {
+        return tokenManager;
+    }
+
+    /**
+     * Validates a token with the token manager.
+     * 
+     * @param bearer
+     *            The bearer token.
+     * @return The validation result.
+     */
+    private Validation validateLocally(String bearer) {
+        try {
+            ServerToken token = (ServerToken) getTokenManager().validateToken(
+                    bearer);
+            return new Validation(token.getUsername(),
+                    Scopes.toString(token.getScope()), 0);
+        } catch (OAuthException ex) {
+            logger.fine(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Validates a token with the authorization server, unless a cached result
+     * is still valid.
+     * 
+     * @param bearer
+     *            The bearer token.
+     * @return The validation result or null if the server couldn't answer.
+     */
+    private Validation validateRemotely(String bearer) {
+        long now = System.currentTimeMillis();
+        String key = getKey(bearer);
+        Validation result = this.cache.get(key);
+
+        if ((result != null) && (result.expirationTime > now)) {
+            return result;
+        }
+
+        result = callAuthServer(bearer, now);
+
+        if ((result != null) && (result.expirationTime > now)) {
+            this.cache.put(key, result);
+        } else {
+            this.cache.remove(key);
+        }
+
+        return result;
     }
 
     private static JSONObject createBearerAuthRequest(String token)
@@ -242,4 +474,45 @@ public class TokenVerifier implements Verifier {
     public void setAcceptQueryMethod(boolean acceptQueryMethod) {
         this.acceptQueryMethod = acceptQueryMethod;
     }
+
+    /**
+     * Sets the client shared by the calls to the authorization server.
+     * 
+     * @param authClient
+     *            The client shared by the calls to the authorization server.
+     */
+    public void setAuthClient(Restlet authClient) {
+        this.authClient = authClient;
+    }
+
+    /**
+     * Sets the maximum time to live of the valid results, in milliseconds.
+     * 
+     * @param cacheTimeToLive
+     *            The maximum time to live of the valid results.
+     */
+    public void setCacheTimeToLive(long cacheTimeToLive) {
+        this.cacheTimeToLive = cacheTimeToLive;
+    }
+
+    /**
+     * Sets the time to live of the invalid results, in milliseconds.
+     * 
+     * @param negativeCacheTimeToLive
+     *            The time to live of the invalid results.
+     */
+    public void setNegativeCacheTimeToLive(long negativeCacheTimeToLive) {
+        this.negativeCacheTimeToLive = negativeCacheTimeToLive;
+    }
+
+    /**
+     * Sets the token manager used to validate the tokens locally, instead of
+     * calling the authorization server.
+     * 
+     * @param tokenManager
+     *            The token manager of the authorization server.
+     */
+    public void setTokenManager(TokenManager tokenManager) {
+        this.tokenManager = tokenManager;
+    }
 }
@@ -122,6 +122,16 @@ public class MemoryToken implements ServerToken {
         this.refreshToken = refreshToken;
     }
 
+    /**
+     * Returns the time from which the token is expired according to
+     * {@link #isExpired()}, in milliseconds since the epoch.
+     * 
+     * @return The time from which the token is expired.
+     */
+    public long getExpirationTime() {
+        return timestamp + (expirePeriod * 1000L) + 1000L;
+    }
+
     /**
      * @return the scope
      */
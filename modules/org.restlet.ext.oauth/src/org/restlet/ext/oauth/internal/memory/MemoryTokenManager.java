@@ -35,8 +35,22 @@ package org.restlet.ext.oauth.internal.memory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.restlet.engine.log.LoggingThreadFactory;
 import org.restlet.ext.oauth.OAuthError;
 import org.restlet.ext.oauth.OAuthException;
 import org.restlet.ext.oauth.OAuthResourceDefs;
@@ -46,19 +60,118 @@ import org.restlet.ext.oauth.internal.Client;
 import org.restlet.ext.oauth.internal.Token;
 
 /**
- * Memory implementation of TokenManager interface.
+ * Memory implementation of TokenManager interface.<br>
+ * <br>
+ * The tokens are indexed by access token, refresh token, client and user, so
+ * that none of the lookups scans all the tokens. The expired tokens and the
+ * sessions older than their timeout are purged in the background by a daemon
+ * thread, every {@link #getPurgePeriod()} milliseconds. The purge only visits
+ * the slots of an expiry wheel whose time has passed, each slot holding the
+ * tokens and sessions expiring during the same second.
  * 
  * @author Shotaro Uchida <fantom@xmaker.mx>
  */
 public class MemoryTokenManager extends AbstractTokenManager {
 
+    /** The default period of the background purge, one minute. */
+    public static final long DEFAULT_PURGE_PERIOD = 60000L;
+
+    /** The duration of a slot of the expiry wheels, in milliseconds. */
+    private static final long SLOT_DURATION = 1000L;
+
+    private static final Logger logger = Logger
+            .getLogger(MemoryTokenManager.class.getName());
+
+    /**
+     * Adds an item to the slot of an expiry wheel matching its expiration
+     * time.
+     * 
+     * @param wheel
+     *            The expiry wheel.
+     * @param expirationTime
+     *            The expiration time of the item.
+     * @param item
+     *            The item to add.
+     */
+    private static <T> void schedule(
+            ConcurrentSkipListMap<Long, Queue<T>> wheel, long expirationTime,
+            T item) {
+        Long slot = Long.valueOf(expirationTime / SLOT_DURATION);
+        Queue<T> items = wheel.get(slot);
+
+        if (items == null) {
+            items = new ConcurrentLinkedQueue<T>();
+            Queue<T> current = wheel.putIfAbsent(slot, items);
+
+            if (current != null) {
+                items = current;
+            }
+        }
+
+        items.add(item);
+    }
+
     private final Map<String, MemoryToken> tokens = new ConcurrentHashMap<String, MemoryToken>();
 
     private final Map<String, AuthSession> sessions = new ConcurrentHashMap<String, AuthSession>();
 
+    /** The tokens by client. */
+    private final ConcurrentMap<String, Set<MemoryToken>> clientTokens = new ConcurrentHashMap<String, Set<MemoryToken>>();
+
+    /** The tokens by client and user. */
+    private final ConcurrentMap<String, MemoryToken> ownerTokens = new ConcurrentHashMap<String, MemoryToken>();
+
+    /** The tokens by refresh token. */
+    private final ConcurrentMap<String, MemoryToken> refreshTokens = new ConcurrentHashMap<String, MemoryToken>();
+
+    /** The tokens by user. */
+    private final ConcurrentMap<String, Set<MemoryToken>> userTokens = new ConcurrentHashMap<String, Set<MemoryToken>>();
+
+    /** The expiry wheel of the sessions, by slot. */
+    private final ConcurrentSkipListMap<Long, Queue<String>> sessionExpirations = new ConcurrentSkipListMap<Long, Queue<String>>();
+
+    /** The expiry wheel of the tokens, by slot. */
+    private final ConcurrentSkipListMap<Long, Queue<MemoryToken>> tokenExpirations = new ConcurrentSkipListMap<Long, Queue<MemoryToken>>();
+
+    /** The number of purged sessions. */
+    private final AtomicLong purgedSessionCount = new AtomicLong();
+
+    /** The number of purged tokens. */
+    private final AtomicLong purgedTokenCount = new AtomicLong();
+
+    /** The period of the background purge, in milliseconds. */
+    private volatile long purgePeriod = DEFAULT_PURGE_PERIOD;
+
+    /** The service running the background purge. */
+    private volatile ScheduledExecutorService purgeService;
+
+    /**
+     * Adds a token to the indexes and schedules its purge.
+     * 
+     * @param token
+     *            The token to add.
+     */
+    private synchronized void addToken(MemoryToken token) {
+        tokens.put(token.getAccessToken(), token);
+        ownerTokens.put(getOwnerKey(token.getClientId(), token.getUsername()),
+                token);
+
+        if (token.getRefreshToken() != null) {
+            refreshTokens.put(token.getRefreshToken(), token);
+        }
+
+        getTokens(clientTokens, token.getClientId()).add(token);
+
+        if (token.getUsername() != null) {
+            getTokens(userTokens, token.getUsername()).add(token);
+        }
+
+        schedule(tokenExpirations, token.getExpirationTime(), token);
+        startPurge();
+    }
+
     public Token generateToken(Client client, String username, String[] scope)
             throws OAuthException {
-        revokeToken(client, username);
         MemoryToken token = new MemoryToken();
         token.setClientId(client.getClientId());
         token.setUsername(username);
@@ -67,7 +180,12 @@ public class MemoryTokenManager extends AbstractTokenManager {
         token.setTokenType(OAuthResourceDefs.TOKEN_TYPE_BEARER);
         token.setAccessToken(generateRawToken());
         token.setRefreshToken(generateRawToken());
-        tokens.put(token.getAccessToken(), token);
+
+        synchronized (this) {
+            revokeToken(client, username);
+            addToken(token);
+        }
+
         return token;
     }
 
@@ -119,8 +237,8 @@ public class MemoryTokenManager extends AbstractTokenManager {
         }
 
         synchronized (this) {
-            if (tokens.remove(token.getAccessToken()) != null) {
-                tokens.put(newToken.getAccessToken(), newToken);
+            if (removeToken(token)) {
+                addToken(newToken);
                 return newToken;
             }
         }
@@ -131,6 +249,9 @@ public class MemoryTokenManager extends AbstractTokenManager {
     public String storeSession(AuthSession session) throws OAuthException {
         String code = generateRawCode();
         sessions.put(code, session);
+        schedule(sessionExpirations, System.currentTimeMillis()
+                + (session.getSessionTimeout() * 1000L), code);
+        startPurge();
         return code;
     }
 
@@ -157,63 +278,263 @@ public class MemoryTokenManager extends AbstractTokenManager {
     }
 
     public Token findToken(Client client, String username) {
-        for (MemoryToken token : tokens.values()) {
-            if (token.getClientId().equals(client.getClientId())
-                    && ((username == null && token.getUsername() == null) || (username != null && username
-                            .equals(token.getUsername())))) {
-                return token;
-            }
-        }
-        return null;
+        return ownerTokens.get(getOwnerKey(client.getClientId(), username));
     }
 
     protected MemoryToken findTokenByRefreshToken(String refreshToken) {
-        for (MemoryToken token : tokens.values()) {
-            if (token.getRefreshToken().equals(refreshToken)) {
-                return token;
+        return refreshTokens.get(refreshToken);
+    }
+
+    public Token[] findTokens(String username) {
+        return toArray(userTokens.get(username));
+    }
+
+    public Token[] findTokens(Client client) {
+        return toArray(clientTokens.get(client.getClientId()));
+    }
+
+    /**
+     * Returns the key of the token of a client and a user.
+     * 
+     * @param clientId
+     *            The client identifier.
+     * @param username
+     *            The user name or null.
+     * @return The key of the token.
+     */
+    private String getOwnerKey(String clientId, String username) {
+        return (username == null) ? clientId : clientId + '\n' + username;
+    }
+
+    /**
+     * Returns the period of the background purge, in milliseconds.
+     * 
+     * @return The period of the background purge.
+     */
+    public long getPurgePeriod() {
+        return purgePeriod;
+    }
+
+    /**
+     * Returns the number of sessions purged since the creation of the manager.
+     * 
+     * @return The number of purged sessions.
+     */
+    public long getPurgedSessionCount() {
+        return purgedSessionCount.get();
+    }
+
+    /**
+     * Returns the number of expired tokens purged since the creation of the
+     * manager.
+     * 
+     * @return The number of purged tokens.
+     */
+    public long getPurgedTokenCount() {
+        return purgedTokenCount.get();
+    }
+
+    /**
+     * Returns the number of stored sessions.
+     * 
+     * @return The number of stored sessions.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of stored tokens, including the expired tokens not
+     * purged yet.
+     * 
+     * @return The number of stored tokens.
+     */
+    public int getTokenCount() {
+        return tokens.size();
+    }
+
+    /**
+     * Returns the tokens indexed under a key, creating the set if needed.
+     * 
+     * @param index
+     *            The index.
+     * @param key
+     *            The index key.
+     * @return The tokens indexed under the key.
+     */
+    private Set<MemoryToken> getTokens(
+            ConcurrentMap<String, Set<MemoryToken>> index, String key) {
+        Set<MemoryToken> result = index.get(key);
+
+        if (result == null) {
+            result = Collections
+                    .newSetFromMap(new ConcurrentHashMap<MemoryToken, Boolean>());
+            Set<MemoryToken> current = index.putIfAbsent(key, result);
+
+            if (current != null) {
+                result = current;
             }
         }
-        return null;
+
+        return result;
     }
 
-    public Token[] findTokens(String username) {
-        ArrayList<Token> list = new ArrayList<Token>();
-        for (MemoryToken token : tokens.values()) {
-            if (/* !token.isExpired() && */
-            token.getUsername() != null && token.getUsername().equals(username)) {
-                list.add(token);
+    /**
+     * Purges the expired tokens and the sessions older than their timeout.
+     * This method is invoked periodically in the background, but can also be
+     * invoked directly.
+     */
+    public void purge() {
+        long now = System.currentTimeMillis();
+        Long slot = Long.valueOf(now / SLOT_DURATION);
+        Map.Entry<Long, Queue<MemoryToken>> tokenEntry;
+
+        while (((tokenEntry = tokenExpirations.firstEntry()) != null)
+                && (tokenEntry.getKey() < slot)
+                && tokenExpirations.remove(tokenEntry.getKey(),
+                        tokenEntry.getValue())) {
+            for (MemoryToken token : tokenEntry.getValue()) {
+                if (token.isExpired() && removeToken(token)) {
+                    purgedTokenCount.incrementAndGet();
+                }
+            }
+        }
+
+        Map.Entry<Long, Queue<String>> sessionEntry;
+
+        while (((sessionEntry = sessionExpirations.firstEntry()) != null)
+                && (sessionEntry.getKey() < slot)
+                && sessionExpirations.remove(sessionEntry.getKey(),
+                        sessionEntry.getValue())) {
+            for (String code : sessionEntry.getValue()) {
+                if (sessions.remove(code) != null) {
+                    purgedSessionCount.incrementAndGet();
+                }
             }
         }
-        return list.toArray(new Token[list.size()]);
     }
 
-    public Token[] findTokens(Client client) {
-        ArrayList<Token> list = new ArrayList<Token>();
-        for (MemoryToken token : tokens.values()) {
-            if (/* !token.isExpired() && */
-            token.getClientId().equals(client.getClientId())) {
-                list.add(token);
+    /**
+     * Removes a token from the indexes, if it is still stored.
+     * 
+     * @param token
+     *            The token to remove.
+     * @return True if the token was removed.
+     */
+    private synchronized boolean removeToken(MemoryToken token) {
+        if (!tokens.remove(token.getAccessToken(), token)) {
+            return false;
+        }
+
+        // Keep the entries already replaced by a newer token
+        ownerTokens.remove(
+                getOwnerKey(token.getClientId(), token.getUsername()), token);
+
+        if (token.getRefreshToken() != null) {
+            refreshTokens.remove(token.getRefreshToken(), token);
+        }
+
+        Set<MemoryToken> set = clientTokens.get(token.getClientId());
+
+        if ((set != null) && set.remove(token) && set.isEmpty()) {
+            clientTokens.remove(token.getClientId());
+        }
+
+        if (token.getUsername() != null) {
+            set = userTokens.get(token.getUsername());
+
+            if ((set != null) && set.remove(token) && set.isEmpty()) {
+                userTokens.remove(token.getUsername());
             }
         }
-        return list.toArray(new Token[list.size()]);
+
+        return true;
     }
 
     public void revokeToken(Client client, String username) {
-        Token token = findToken(client, username);
+        MemoryToken token = ownerTokens.get(getOwnerKey(client.getClientId(),
+                username));
         if (token != null) {
-            tokens.remove(token.getAccessToken());
+            removeToken(token);
         }
     }
 
     public void revokeAllTokens(String username) {
-        for (Token token : findTokens(username)) {
-            tokens.remove(token.getAccessToken());
+        Set<MemoryToken> set = userTokens.get(username);
+        if (set != null) {
+            for (MemoryToken token : set) {
+                removeToken(token);
+            }
         }
     }
 
     public void revokeAllTokens(Client client) {
-        for (Token token : findTokens(client)) {
-            tokens.remove(token.getAccessToken());
+        Set<MemoryToken> set = clientTokens.get(client.getClientId());
+        if (set != null) {
+            for (MemoryToken token : set) {
+                removeToken(token);
+            }
         }
     }
+
+    /**
+     * Sets the period of the background purge, in milliseconds. It must be set
+     * before the first token or session is stored.
+     * 
+     * @param purgePeriod
+     *            The period of the background purge.
+     */
+    public void setPurgePeriod(long purgePeriod) {
+        this.purgePeriod = purgePeriod;
+    }
+
+    /**
+     * Starts the background purge, unless it is already started.
+     */
+    private void startPurge() {
+        if ((purgeService == null) && (getPurgePeriod() > 0)) {
+            synchronized (this) {
+                if (purgeService == null) {
+                    purgeService = Executors
+                            .newSingleThreadScheduledExecutor(new LoggingThreadFactory(
+                                    logger, true));
+                    purgeService.scheduleWithFixedDelay(new Runnable() {
+                        public void run() {
+                            try {
+                                purge();
+                            } catch (Throwable t) {
+                                logger.log(Level.WARNING,
+                                        "Unable to purge the tokens", t);
+                            }
+                        }
+                    }, getPurgePeriod(), getPurgePeriod(),
+                            TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the background purge. It is restarted when the next token or
+     * session is stored.
+     */
+    public synchronized void stop() {
+        if (purgeService != null) {
+            purgeService.shutdown();
+            purgeService = null;
+        }
+    }
+
+    /**
+     * Returns a snapshot of a set of tokens.
+     * 
+     * @param set
+     *            The set of tokens or null.
+     * @return The array of tokens.
+     */
+    private Token[] toArray(Set<MemoryToken> set) {
+        ArrayList<Token> list = (set == null) ? new ArrayList<Token>()
+                : new ArrayList<Token>(set);
+        return list.toArray(new Token[list.size()]);
+    }
 }
@@ -178,7 +178,14 @@ public class ServletAdapter extends ServerAdapter {
 
     /**
      * Services a HTTP Servlet request as a Restlet request handled by the
-     * "target" Restlet.
+     * "target" Restlet.<br>
+     * <br>
+     * If the Restlet response isn't automatically committed, as indicated by
+     * {@link org.restlet.Response#isAutoCommitting()}, and if the Servlet
+     * supports asynchronous processing, the Servlet request is put in
+     * asynchronous mode and the container thread is released. The Servlet
+     * response is then sent when {@link org.restlet.Response#commit()} is
+     * invoked.
      * 
      * @param request
      *            The HTTP Servlet request.
@@ -205,9 +212,13 @@ public class ServletAdapter extends ServerAdapter {
                 // Adjust the root reference
                 httpRequest.setRootRef(getRootRef(request));
 
-                // Handle the request and commit the response
+                // Handle the request and commit the response, unless the call
+                // is suspended until the response is committed
                 getNext().handle(httpRequest, httpResponse);
-                commit(httpResponse);
+
+                if (!suspend(httpResponse)) {
+                    commit(httpResponse);
+                }
             } finally {
                 Engine.clearThreadLocalVariables();
             }
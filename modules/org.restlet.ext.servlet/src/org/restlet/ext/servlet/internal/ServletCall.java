@@ -46,6 +46,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Level;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -71,6 +74,9 @@ import org.restlet.util.Series;
  */
 public class ServletCall extends ServerCall {
 
+    /** The asynchronous context of a suspended call. */
+    private volatile AsyncContext asyncContext;
+
     /** The HTTP Servlet request to wrap. */
     private volatile HttpServletRequest request;
 
@@ -80,6 +86,12 @@ public class ServletCall extends ServerCall {
     /** The HTTP Servlet response to wrap. */
     private volatile HttpServletResponse response;
 
+    /** Indicates if the sending of the response has started. */
+    private boolean sending;
+
+    /** Indicates if the suspended call timed out before being committed. */
+    private boolean timedOut;
+
     /**
      * Constructor.
      * 
@@ -129,6 +141,26 @@ public class ServletCall extends ServerCall {
         return false;
     }
 
+    /**
+     * Completes the asynchronous processing of the Servlet request, if the
+     * call was suspended.
+     */
+    @Override
+    public void complete() {
+        AsyncContext context = this.asyncContext;
+
+        if (context != null) {
+            this.asyncContext = null;
+
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                getLogger().log(Level.FINE,
+                        "Unable to complete the suspended Servlet call", e);
+            }
+        }
+    }
+
     @Override
     public List<Certificate> getCertificates() {
         Certificate[] certificateArray = (Certificate[]) getRequest()
@@ -403,8 +435,7 @@ public class ServletCall extends ServerCall {
      * @param response
      *            The high-level response.
      */
-    @Override
-    public void sendResponse(Response response) throws IOException {
+    private void doSendResponse(Response response) throws IOException {
         // Set the status code in the response. We do this after adding the
         // headers because when we have to rely on the 'sendError' method,
         // the Servlet containers are expected to commit their response.
@@ -464,4 +495,79 @@ public class ServletCall extends ServerCall {
         }
     }
 
+    /**
+     * Sends the response back to the client, unless the call was suspended and
+     * has timed out.
+     * 
+     * @param response
+     *            The high-level response.
+     */
+    @Override
+    public void sendResponse(Response response) throws IOException {
+        boolean expired;
+
+        synchronized (this) {
+            expired = this.timedOut;
+            this.sending = !expired;
+        }
+
+        if (expired) {
+            getLogger().fine(
+                    "The suspended Servlet call timed out. Ignoring the response for resource \""
+                            + response.getRequest().getResourceRef() + "\".");
+        } else {
+            doSendResponse(response);
+        }
+    }
+
+    /**
+     * Suspends the call by starting the asynchronous processing of the Servlet
+     * request, if supported by the container and by the Servlet. The
+     * asynchronous timeout of the container applies, after which a 503
+     * (Service unavailable) status is returned.
+     */
+    @Override
+    public boolean suspend() {
+        boolean result = false;
+
+        try {
+            result = getRequest().isAsyncSupported();
+        } catch (IncompatibleClassChangeError e) {
+            // Servlet 2.x container
+        }
+
+        if (result) {
+            this.asyncContext = getRequest().startAsync(getRequest(),
+                    getResponse());
+            this.asyncContext.addListener(new AsyncListener() {
+                public void onComplete(AsyncEvent event) {
+                }
+
+                public void onError(AsyncEvent event) {
+                    asyncContext = null;
+                }
+
+                public void onStartAsync(AsyncEvent event) {
+                }
+
+                public void onTimeout(AsyncEvent event) throws IOException {
+                    boolean expired;
+
+                    synchronized (ServletCall.this) {
+                        expired = !sending;
+                        timedOut = expired;
+                    }
+
+                    if (expired) {
+                        getResponse().sendError(
+                                Status.SERVER_ERROR_SERVICE_UNAVAILABLE
+                                        .getCode());
+                        complete();
+                    }
+                }
+            });
+        }
+
+        return result;
+    }
 }
@@ -89,7 +89,7 @@ public class ServletWarClientHelper extends EntityClientHelper {
     @Override
     public Entity getEntity(String decodedPath) {
         return new ServletWarEntity(getServletContext(), decodedPath,
-                getMetadataService());
+                getMetadataService(), getContentCache());
     }
 
     /**
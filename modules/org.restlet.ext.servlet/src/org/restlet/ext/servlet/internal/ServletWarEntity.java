@@ -34,8 +34,11 @@
 package org.restlet.ext.servlet.internal;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -46,6 +49,8 @@ import javax.servlet.ServletContext;
 
 import org.restlet.Context;
 import org.restlet.data.MediaType;
+import org.restlet.engine.local.CachedRepresentation;
+import org.restlet.engine.local.ContentCache;
 import org.restlet.engine.local.Entity;
 import org.restlet.representation.InputRepresentation;
 import org.restlet.representation.Representation;
@@ -64,6 +69,9 @@ public class ServletWarEntity extends Entity {
      */
     private List<Entity> children = null;
 
+    /** The optional cache of resource contents. */
+    private final ContentCache contentCache;
+
     /** Is this file a directory? */
     private final boolean directory;
 
@@ -88,8 +96,26 @@ public class ServletWarEntity extends Entity {
      */
     public ServletWarEntity(ServletContext servletContext, String path,
             MetadataService metadataService) {
+        this(servletContext, path, metadataService, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param servletContext
+     *            The parent Servlet context.
+     * @param path
+     *            The entity path.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param contentCache
+     *            The optional cache of resource contents.
+     */
+    public ServletWarEntity(ServletContext servletContext, String path,
+            MetadataService metadataService, ContentCache contentCache) {
         super(metadataService);
         this.children = null;
+        this.contentCache = contentCache;
         this.servletContext = servletContext;
         this.path = path;
 
@@ -105,7 +131,7 @@ public class ServletWarEntity extends Entity {
                     if (!childPath.equals(this.path)) {
                         this.children.add(new ServletWarEntity(
                                 this.servletContext, (String) childPath,
-                                metadataService));
+                                metadataService, contentCache));
                     }
                 }
             }
@@ -121,7 +147,7 @@ public class ServletWarEntity extends Entity {
                     if (!childPath.equals(this.path)) {
                         this.children.add(new ServletWarEntity(
                                 this.servletContext, (String) childPath,
-                                metadataService));
+                                metadataService, contentCache));
                     }
                 }
             } else {
@@ -169,7 +195,8 @@ public class ServletWarEntity extends Entity {
 
         if (index != -1) {
             result = new ServletWarEntity(getServletContext(), this.fullName
-                    .substring(0, index + 1), getMetadataService());
+                    .substring(0, index + 1), getMetadataService(),
+                    getContentCache());
         }
 
         return result;
@@ -180,6 +207,37 @@ public class ServletWarEntity extends Entity {
             int timeToLive) {
         Representation result = null;
 
+        if (getContentCache() != null) {
+            try {
+                ContentCache.Entry entry = getContentCache().get(this.path);
+
+                if (entry == null) {
+                    URL url = getServletContext().getResource(this.path);
+
+                    if (url != null) {
+                        String realPath = getServletContext().getRealPath(
+                                this.path);
+                        File file = (realPath == null) ? null : new File(
+                                realPath);
+                        URLConnection connection = url.openConnection();
+                        entry = getContentCache().put(this.path,
+                                connection.getInputStream(),
+                                connection.getContentLength(),
+                                (file == null) ? 0 : file.lastModified(), file);
+                    }
+                }
+
+                if (entry != null) {
+                    return new CachedRepresentation(entry, defaultMediaType,
+                            -1);
+                }
+            } catch (IOException ioe) {
+                Context.getCurrentLogger().log(Level.FINE,
+                        "Unable to cache the content of the WAR resource",
+                        ioe);
+            }
+        }
+
         InputStream ris = getServletContext().getResourceAsStream(path);
         if (ris != null) {
             result = new InputRepresentation(ris, defaultMediaType);
@@ -195,6 +253,15 @@ public class ServletWarEntity extends Entity {
         return result;
     }
 
+    /**
+     * Returns the optional cache of resource contents.
+     * 
+     * @return The optional cache of resource contents.
+     */
+    public ContentCache getContentCache() {
+        return contentCache;
+    }
+
     /**
      * Returns the Servlet context to use.
      * 
@@ -38,6 +38,7 @@ import junit.framework.TestSuite;
 
 import org.restlet.test.component.ComponentXmlConfigTestCase;
 import org.restlet.test.component.ComponentXmlTestCase;
+import org.restlet.test.component.VirtualHostTestCase;
 import org.restlet.test.connector.FileClientTestCase;
 import org.restlet.test.connector.RestartTestCase;
 import org.restlet.test.connector.RiapTestCase;
@@ -62,10 +63,13 @@ import org.restlet.test.ext.emf.EmfTestSuite;
 import org.restlet.test.ext.freemarker.FreeMarkerTestCase;
 import org.restlet.test.ext.gwt.GwtConverterTestCase;
 import org.restlet.test.ext.html.HtmlTestSuite;
+import org.restlet.test.ext.httpclient.HttpClientHelperTestCase;
 import org.restlet.test.ext.jackson.JacksonTestCase;
 import org.restlet.test.ext.jaxb.JaxbBasicConverterTestCase;
 import org.restlet.test.ext.jaxb.JaxbIntegrationConverterTestCase;
 import org.restlet.test.ext.jaxrs.JaxRsTestSuite;
+import org.restlet.test.ext.jdbc.JdbcClientTestCase;
+import org.restlet.test.ext.jetty.ContinuationTestCase;
 import org.restlet.test.ext.json.JsonTestSuite;
 import org.restlet.test.ext.odata.ODataTestSuite;
 import org.restlet.test.ext.sip.SipTestSuite;
@@ -76,8 +80,10 @@ import org.restlet.test.ext.xml.XmlTestSuite;
 import org.restlet.test.regression.RegressionTestSuite;
 import org.restlet.test.representation.AppendableRepresentationTestCase;
 import org.restlet.test.representation.DigesterRepresentationTestCase;
+import org.restlet.test.representation.EncodeRepresentationTestCase;
 import org.restlet.test.representation.RangeRepresentationTestCase;
 import org.restlet.test.routing.FilterTestCase;
+import org.restlet.test.routing.RateLimiterTestCase;
 import org.restlet.test.routing.RedirectTestCase;
 import org.restlet.test.routing.RouteListTestCase;
 import org.restlet.test.routing.ValidatorTestCase;
@@ -122,10 +128,12 @@ public class RestletTestSuite extends TestSuite {
         addTestSuite(JacksonTestCase.class);
         addTestSuite(JaxbBasicConverterTestCase.class);
         addTestSuite(JaxbIntegrationConverterTestCase.class);
+        addTestSuite(JdbcClientTestCase.class);
         addTestSuite(LanguageTestCase.class);
         addTestSuite(MediaTypeTestCase.class);
         addTestSuite(ProductTokenTestCase.class);
         addTestSuite(ReferenceTestCase.class);
+        addTestSuite(RateLimiterTestCase.class);
         addTestSuite(RestartTestCase.class);
         addTestSuite(RiapTestCase.class);
         addTestSuite(RouteListTestCase.class);
@@ -164,11 +172,15 @@ public class RestletTestSuite extends TestSuite {
         // edition.
         // [ifndef gae]
         addTestSuite(ComponentXmlTestCase.class);
+        addTestSuite(VirtualHostTestCase.class);
         addTestSuite(DigesterRepresentationTestCase.class);
         addTestSuite(HeaderTestCase.class);
         addTestSuite(HttpBasicTestCase.class);
         addTestSuite(HttpDigestTestCase.class);
+        addTestSuite(HttpClientHelperTestCase.class);
+        addTestSuite(ContinuationTestCase.class);
         addTestSuite(RangeTestCase.class);
+        addTestSuite(EncodeRepresentationTestCase.class);
         addTestSuite(RangeRepresentationTestCase.class);
         addTestSuite(RedirectTestCase.class);
         addTestSuite(SecurityTestCase.class);
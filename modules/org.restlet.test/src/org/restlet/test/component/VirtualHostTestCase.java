@@ -0,0 +1,143 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.component;
+
+import org.restlet.Component;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
+import org.restlet.engine.component.HostRoute;
+import org.restlet.engine.component.ServerRouter;
+import org.restlet.routing.VirtualHost;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.RouteList;
+
+/**
+ * Unit test case for the selection of virtual hosts by the server router.
+ * 
+ * @author Jerome Louvel
+ */
+public class VirtualHostTestCase extends RestletTestCase {
+
+    private VirtualHost select(ServerRouter router, String uri) {
+        Request request = new Request(Method.GET, uri);
+        request.setHostRef(request.getResourceRef().getHostIdentifier());
+        Restlet next = router.getNext(request, new Response(request));
+        return (next instanceof HostRoute) ? ((HostRoute) next)
+                .getVirtualHost() : null;
+    }
+
+    public void testRouteChanges() throws Exception {
+        Component component = new Component();
+        VirtualHost comHost = new VirtualHost(component.getContext());
+        comHost.setHostDomain("www.example.com");
+        component.getHosts().add(comHost);
+
+        ServerRouter router = new ServerRouter(component);
+        router.start();
+        assertSame(comHost, select(router, "http://www.example.com/"));
+        assertSame(component.getDefaultHost(),
+                select(router, "http://www.example.org/"));
+
+        // Routes added after the start are taken into account
+        VirtualHost orgHost = new VirtualHost(component.getContext());
+        orgHost.setHostDomain("www.example.org");
+        router.getRoutes().add(0, new HostRoute(router, orgHost));
+        assertSame(orgHost, select(router, "http://www.example.org/"));
+
+        // So are changes of a literal host domain
+        comHost.setHostDomain("api.example.com");
+        assertSame(comHost, select(router, "http://api.example.com/"));
+        assertSame(component.getDefaultHost(),
+                select(router, "http://www.example.com/"));
+
+        // And removed routes
+        router.getRoutes().remove(0);
+        assertSame(component.getDefaultHost(),
+                select(router, "http://www.example.org/"));
+
+        // And replaced routes
+        RouteList routes = new RouteList();
+        routes.add(new HostRoute(router, orgHost));
+        router.setRoutes(routes);
+        assertSame(orgHost, select(router, "http://www.example.org/"));
+        assertNull(select(router, "http://api.example.com/"));
+
+        router.stop();
+    }
+
+    public void testSelection() throws Exception {
+        Component component = new Component();
+
+        VirtualHost orgHost = new VirtualHost(component.getContext());
+        orgHost.setHostDomain(".*\\.example\\.org");
+        component.getHosts().add(orgHost);
+
+        VirtualHost comHost = new VirtualHost(component.getContext());
+        comHost.setHostDomain("www\\.example\\.com");
+        component.getHosts().add(comHost);
+
+        VirtualHost portHost = new VirtualHost(component.getContext());
+        portHost.setHostDomain("api.example.com");
+        portHost.setHostPort("8182");
+        component.getHosts().add(portHost);
+
+        VirtualHost apiHost = new VirtualHost(component.getContext());
+        apiHost.setHostDomain("API\\.example\\.com");
+        component.getHosts().add(apiHost);
+
+        component.getDefaultHost().setHostDomain("localhost|127\\.0\\.0\\.1");
+
+        ServerRouter router = new ServerRouter(component);
+        router.start();
+
+        assertSame(comHost, select(router, "http://www.example.com/path"));
+        assertSame(comHost, select(router, "http://WWW.Example.com/path"));
+        assertSame(orgHost, select(router, "http://www.example.org/path"));
+        assertSame(portHost, select(router, "http://api.example.com:8182/"));
+        assertSame(apiHost, select(router, "http://api.example.com/"));
+        assertSame(component.getDefaultHost(),
+                select(router, "http://127.0.0.1/"));
+        assertNull(select(router, "http://wwwXexample.com/"));
+        assertNull(select(router, "http://www.example.net/"));
+
+        // Changing a virtual host recompiles its criteria
+        orgHost.setHostDomain(".*\\.example\\.net");
+        assertSame(orgHost, select(router, "http://www.example.net/"));
+
+        router.stop();
+    }
+
+}
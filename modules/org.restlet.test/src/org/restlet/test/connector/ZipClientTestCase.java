@@ -34,12 +34,23 @@
 package org.restlet.test.connector;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.restlet.Client;
+import org.restlet.Request;
+import org.restlet.Response;
 import org.restlet.data.LocalReference;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
 import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.local.ZipArchive;
+import org.restlet.engine.local.ZipClientHelper;
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.ClientResource;
@@ -67,6 +78,23 @@ public class ZipClientTestCase extends RestletTestCase {
         zipFile = new File(testDir, "test.zip");
     }
 
+    private void writeZip(String... namesAndContents) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(
+                zipFile));
+
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            zos.putNextEntry(new ZipEntry(namesAndContents[i]));
+
+            if (namesAndContents[i + 1] != null) {
+                zos.write(namesAndContents[i + 1].getBytes("US-ASCII"));
+            }
+
+            zos.closeEntry();
+        }
+
+        zos.close();
+    }
+
     @Override
     protected void tearDown() throws Exception {
         // BioUtils.delete(testDir, true);
@@ -137,4 +165,67 @@ public class ZipClientTestCase extends RestletTestCase {
         } catch (ResourceException e) {
         }
     }
+
+    public void testArchive() throws Exception {
+        writeZip("a.txt", "a", "dir/", null, "dir/b.txt", "b");
+        ZipArchive archive = new ZipArchive(zipFile);
+        assertTrue(archive.isValid());
+        assertNotNull(archive.getEntry("dir/b.txt"));
+        assertNull(archive.getEntry("c.txt"));
+        assertEquals(3, archive.getDescendants("").size());
+        assertEquals(1, archive.getDescendants("dir/").size());
+        assertEquals("dir/b.txt", archive.getDescendants("dir/").get(0)
+                .getName());
+
+        zipFile.setLastModified(zipFile.lastModified() + 2000);
+        assertFalse(archive.isValid());
+        archive.evict();
+    }
+
+    public void testArchiveLease() throws Exception {
+        writeZip("a.txt", "a");
+        ZipClientHelper helper = new ZipClientHelper(new Client(Protocol.ZIP)) {
+            @Override
+            protected ZipArchive getArchive(File file) throws IOException {
+                ZipArchive result = super.getArchive(file);
+
+                // Simulates a concurrent invalidation right after the lookup
+                invalidate(file);
+                return result;
+            }
+        };
+
+        Request request = new Request(Method.GET, "zip:"
+                + LocalReference.createFileReference(zipFile) + "!/a.txt");
+        Response response = new Response(request);
+        helper.handle(request, response);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+
+        // The evicted archive stays open until the entity is released
+        assertEquals("a", response.getEntity().getText());
+        response.getEntity().release();
+    }
+
+    public void testModifiedArchive() throws Exception {
+        LocalReference fr = LocalReference.createFileReference(zipFile);
+        String uri = "zip:" + fr.toString() + "!/a.txt";
+
+        writeZip("a.txt", "first");
+        ClientResource r = new ClientResource(uri);
+        assertEquals("first", r.get().getText());
+        r.release();
+        assertEquals("first", r.get().getText());
+        r.release();
+
+        // The archive is reopened once modified
+        long lastModified = zipFile.lastModified();
+        writeZip("a.txt", "second");
+        zipFile.setLastModified(lastModified + 2000);
+        assertEquals("second", r.get().getText());
+        r.release();
+
+        r = new ClientResource("zip:" + fr.toString() + "!/");
+        assertTrue(MediaType.TEXT_URI_LIST.equals(r.get().getMediaType()));
+    }
+
 }
@@ -37,7 +37,9 @@ import java.io.IOException;
 
 import org.restlet.data.CharacterSet;
 import org.restlet.data.Form;
+import org.restlet.data.MediaType;
 import org.restlet.engine.util.FormReader;
+import org.restlet.representation.StringRepresentation;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -82,4 +84,32 @@ public class FormTestCase extends RestletTestCase {
         assertNull(form.getFirstValue("unknownParam"));
     }
 
+    public void testDecoding() throws IOException {
+        Form form = new Form("a=1+2&b=%C3%A9t%C3%A9&c=100%&d=%zz&e=caf%E9",
+                CharacterSet.UTF_8);
+        assertEquals("1 2", form.getFirstValue("a"));
+        assertEquals("\u00e9t\u00e9", form.getFirstValue("b"));
+        assertEquals("100%", form.getFirstValue("c"));
+        assertEquals("%zz", form.getFirstValue("d"));
+
+        form = new Form("e=caf%E9", CharacterSet.ISO_8859_1);
+        assertEquals("caf\u00e9", form.getFirstValue("e"));
+
+        form = new Form("a=1+2&b=%C3%A9", false);
+        assertEquals("1+2", form.getFirstValue("a"));
+        assertEquals("%C3%A9", form.getFirstValue("b"));
+    }
+
+    public void testRepresentationParsing() throws IOException {
+        StringRepresentation rep = new StringRepresentation(
+                "name=J%C3%A9r%C3%B4me&raw=\u00e9&&flag",
+                MediaType.APPLICATION_WWW_FORM, null, CharacterSet.UTF_8);
+        Form form = new Form(rep);
+        assertEquals(3, form.size());
+        assertEquals("J\u00e9r\u00f4me", form.getFirstValue("name"));
+        assertEquals("\u00e9", form.getFirstValue("raw"));
+        assertNotNull(form.getFirst("flag"));
+        assertNull(form.getFirstValue("flag"));
+    }
+
 }
@@ -468,14 +468,56 @@ public class RangeTestCase extends RestletTestCase {
         assertTrue(response.getStatus().isSuccess());
         response.getEntity().exhaust();
 
-        // Multiple ranges are not supported yet.
-        // request = new Request(Method.GET, "http://localhost:" + TEST_PORT
-        // + "/test?range=500-1000&range=500-");
-        // request.setRanges(Arrays.asList(new Range(500, 500), new Range(500,
-        // Range.SIZE_MAX)));
-        // assertTrue(client.handle(request).getStatus().isSuccess());
+        request = new Request(Method.GET, "http://localhost:" + TEST_PORT
+                + "/test?range=500-1000&range=500-");
+        request.setRanges(Arrays.asList(new Range(500, 500), new Range(500,
+                Range.SIZE_MAX)));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        response.getEntity().exhaust();
+
+        client.stop();
+    }
+
+    /**
+     * Tests multiple ranges requests.
+     * 
+     * @throws Exception
+     */
+    public void testMultipleRanges() throws Exception {
+        Client client = new Client(Protocol.HTTP);
+        Request request = new Request(Method.GET, "http://localhost:"
+                + TEST_PORT + "/testGet");
+        request.setRanges(Arrays.asList(new Range(0, 2), new Range(
+                Range.INDEX_LAST, 3)));
+        Response response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertTrue(MediaType.MULTIPART_BYTERANGES.equals(response.getEntity()
+                .getMediaType(), true));
+        assertNull(response.getEntity().getRange());
+
+        String boundary = response.getEntity().getMediaType().getParameters()
+                .getFirstValue("boundary");
+        assertNotNull(boundary);
+        String text = response.getEntity().getText();
+        assertTrue(text.startsWith("--" + boundary + "\r\n"));
+        assertTrue(text
+                .contains("Content-Range: bytes 0-1/10\r\n\r\n12\r\n"));
+        assertTrue(text
+                .contains("Content-Range: bytes 7-9/10\r\n\r\n890\r\n"));
+        assertTrue(text.endsWith("--" + boundary + "--\r\n"));
+
+        // Unsatisfiable ranges are ignored
+        request.setRanges(Arrays.asList(new Range(2, 2), new Range(20, 5)));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("34", response.getEntity().getText());
 
-        // client.stop();
+        request.setRanges(Arrays.asList(new Range(20, 2), new Range(30, 5)));
+        response = client.handle(request);
+        assertEquals(Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE,
+                response.getStatus());
 
+        client.stop();
     }
 }
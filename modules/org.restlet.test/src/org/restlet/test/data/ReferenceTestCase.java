@@ -498,6 +498,19 @@ public class ReferenceTestCase extends RestletTestCase {
         Form queryForm = ref1.getQueryAsForm();
         assertEquals("anythingelse%", queryForm.getFirstValue("q"));
 
+        // The cached query form must not be affected by modifications
+        queryForm.getFirst("q").setValue("modified");
+        queryForm.add("r", "added");
+        queryForm = ref1.getQueryAsForm();
+        assertEquals(1, queryForm.size());
+        assertEquals("anythingelse%", queryForm.getFirstValue("q"));
+
+        // The cached query form must be reset when the query changes
+        ref1.setQuery("q=other");
+        assertEquals("other", ref1.getQueryAsForm().getFirstValue("q"));
+        ref1.addQueryParameter("r", "1");
+        assertEquals("1", ref1.getQueryAsForm().getFirstValue("r"));
+
         Form extJsQuery = new Form(
                 "&_dc=1244741620627&callback=stcCallback1001");
         assertEquals("1244741620627", extJsQuery.getFirstValue("_dc"));
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine;
+
+import org.restlet.Restlet;
+import org.restlet.data.Form;
+import org.restlet.data.Protocol;
+import org.restlet.engine.ClientRegistry;
+import org.restlet.resource.ClientResource;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link ClientRegistry} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class ClientRegistryTestCase extends RestletTestCase {
+
+    public void testIdleShutdown() throws Exception {
+        ClientRegistry registry = new ClientRegistry();
+        registry.setIdleTimeout(50);
+
+        Restlet lease = registry.createLease(Protocol.FILE);
+        assertEquals(-1, registry.getReferences(Protocol.FILE, null));
+        lease.start();
+        assertEquals(1, registry.getReferences(Protocol.FILE, null));
+        lease.stop();
+        assertEquals(0, registry.getReferences(Protocol.FILE, null));
+
+        // Acquiring again before the idle timeout reuses the client
+        lease.start();
+        assertEquals(1, registry.getReferences(Protocol.FILE, null));
+        lease.stop();
+
+        Thread.sleep(500);
+        assertEquals(-1, registry.getReferences(Protocol.FILE, null));
+        registry.stop();
+    }
+
+    public void testReferenceCounting() throws Exception {
+        ClientRegistry registry = new ClientRegistry();
+        registry.setIdleTimeout(0);
+
+        Restlet lease1 = registry.createLease(Protocol.FILE);
+        Restlet lease2 = registry.createLease(Protocol.FILE);
+        lease1.start();
+        lease2.start();
+        assertEquals(2, registry.getReferences(Protocol.FILE, null));
+
+        Form parameters = new Form();
+        parameters.add("timeToLive", "0");
+        Restlet lease3 = registry.createLease(Protocol.FILE, parameters);
+        lease3.start();
+        assertEquals(2, registry.getReferences(Protocol.FILE, null));
+        assertEquals(1, registry.getReferences(Protocol.FILE, parameters));
+
+        // Stopping twice the same lease releases a single reference
+        lease1.stop();
+        lease1.stop();
+        assertEquals(1, registry.getReferences(Protocol.FILE, null));
+
+        // A stopped lease acquires a new reference when restarted
+        lease1.start();
+        assertEquals(2, registry.getReferences(Protocol.FILE, null));
+
+        lease1.stop();
+        lease2.stop();
+        lease3.stop();
+        assertEquals(-1, registry.getReferences(Protocol.FILE, null));
+        assertEquals(-1, registry.getReferences(Protocol.FILE, parameters));
+        registry.stop();
+    }
+
+    public void testSharedByClientResources() throws Exception {
+        ClientResource resource1 = new ClientResource("file:///tmp");
+        ClientResource resource2 = new ClientResource("file:///tmp");
+        int references = Math.max(0, ClientRegistry.getInstance()
+                .getReferences(Protocol.FILE, null));
+
+        resource1.get();
+        resource2.get();
+        assertEquals(references + 2, ClientRegistry.getInstance()
+                .getReferences(Protocol.FILE, null));
+
+        resource1.release();
+        resource2.release();
+        assertEquals(references, ClientRegistry.getInstance().getReferences(
+                Protocol.FILE, null));
+    }
+
+}
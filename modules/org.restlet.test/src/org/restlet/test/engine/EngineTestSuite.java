@@ -36,12 +36,19 @@ package org.restlet.test.engine;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.restlet.test.engine.cache.CacheFilterTestCase;
+import org.restlet.test.engine.connector.AddressCacheTestCase;
 import org.restlet.test.engine.connector.AsynchroneTestCase;
 import org.restlet.test.engine.connector.HttpInboundRequestTestCase;
+import org.restlet.test.engine.connector.PipeliningTestCase;
+import org.restlet.test.engine.connector.WorkerSchedulingTestCase;
 import org.restlet.test.engine.io.BioUtilsTestCase;
 import org.restlet.test.engine.io.BufferTestCase;
 import org.restlet.test.engine.io.ReaderInputStreamTestCase;
+import org.restlet.test.engine.local.ContentCacheTestCase;
+import org.restlet.test.engine.local.FileMetadataCacheTestCase;
 import org.restlet.test.engine.util.Base64TestCase;
+import org.restlet.test.engine.util.LruCacheTestCase;
 
 /**
  * Suite of unit tests for the Restlet Framework.
@@ -65,14 +72,23 @@ public class EngineTestSuite extends TestSuite {
         addTestSuite(AlphaNumericComparatorTestCase.class);
         addTestSuite(AnnotationUtilsTestCase.class);
         addTestSuite(Base64TestCase.class);
+        addTestSuite(LruCacheTestCase.class);
+        addTestSuite(FileMetadataCacheTestCase.class);
+        addTestSuite(ContentCacheTestCase.class);
+        addTestSuite(CacheFilterTestCase.class);
         addTestSuite(BufferTestCase.class);
         addTestSuite(BioUtilsTestCase.class);
+        addTestSuite(ClientRegistryTestCase.class);
         addTestSuite(CookiesTestCase.class);
         addTestSuite(ContentTypeTestCase.class);
         addTestSuite(HeaderTestCase.class);
         addTestSuite(HttpCallTestCase.class);
+        addTestSuite(SuspendedCallTestCase.class);
+        addTestSuite(AddressCacheTestCase.class);
         addTestSuite(AsynchroneTestCase.class);
         addTestSuite(HttpInboundRequestTestCase.class);
+        addTestSuite(PipeliningTestCase.class);
+        addTestSuite(WorkerSchedulingTestCase.class);
         addTestSuite(ImmutableDateTestCase.class);
         addTestSuite(UnclosableInputStreamTestCase.class);
         addTestSuite(UnclosableOutputStreamTestCase.class);
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.restlet.Context;
+import org.restlet.Response;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.adapter.HttpRequest;
+import org.restlet.engine.adapter.HttpResponse;
+import org.restlet.engine.adapter.ServerAdapter;
+import org.restlet.engine.adapter.ServerCall;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the suspension of server calls whose response is committed
+ * later.
+ * 
+ * @author Jerome Louvel
+ */
+public class SuspendedCallTestCase extends RestletTestCase {
+
+    /**
+     * Server call recording its life cycle.
+     */
+    private static class TestCall extends ServerCall {
+
+        private volatile int completed;
+
+        private volatile int sent;
+
+        private final boolean suspendable;
+
+        private volatile boolean suspended;
+
+        public TestCall(boolean suspendable) {
+            super("localhost", 8182);
+            this.suspendable = suspendable;
+            setMethod("GET");
+            setProtocol(Protocol.HTTP);
+            setRequestUri("/test");
+            getRequestHeaders().add(HeaderConstants.HEADER_HOST,
+                    "localhost:8182");
+        }
+
+        @Override
+        public boolean abort() {
+            return false;
+        }
+
+        @Override
+        public void complete() {
+            this.completed++;
+        }
+
+        @Override
+        public InputStream getRequestEntityStream(long size) {
+            return null;
+        }
+
+        @Override
+        public InputStream getRequestHeadStream() {
+            return null;
+        }
+
+        @Override
+        public OutputStream getResponseEntityStream() {
+            return null;
+        }
+
+        @Override
+        public void sendResponse(Response response) {
+            this.sent++;
+        }
+
+        @Override
+        public boolean suspend() {
+            this.suspended = this.suspendable;
+            return this.suspendable;
+        }
+    }
+
+    private ServerAdapter adapter;
+
+    private HttpResponse createResponse(TestCall call) {
+        HttpRequest request = this.adapter.toRequest(call);
+        return new HttpResponse(call, request);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.adapter = new ServerAdapter(new Context());
+    }
+
+    public void testAutoCommitting() {
+        TestCall call = new TestCall(true);
+        HttpResponse response = createResponse(call);
+        assertFalse(this.adapter.suspend(response));
+        assertFalse(call.suspended);
+    }
+
+    public void testCommittedDuringHandling() {
+        TestCall call = new TestCall(true);
+        HttpResponse response = createResponse(call);
+        response.setAutoCommitting(false);
+        response.commit();
+        assertTrue(response.isCommitted());
+        assertEquals(0, call.sent);
+
+        // The connector commits the response itself
+        assertFalse(this.adapter.suspend(response));
+        assertFalse(call.suspended);
+    }
+
+    public void testSuspended() {
+        TestCall call = new TestCall(true);
+        HttpResponse response = createResponse(call);
+        response.setAutoCommitting(false);
+        response.setStatus(Status.SUCCESS_NO_CONTENT);
+        assertTrue(this.adapter.suspend(response));
+        assertTrue(call.suspended);
+        assertEquals(0, call.sent);
+
+        response.commit();
+        assertEquals(1, call.sent);
+        assertEquals(1, call.completed);
+
+        // Further commits are ignored
+        response.commit();
+        assertEquals(1, call.sent);
+    }
+
+    public void testUnsuspendable() {
+        TestCall call = new TestCall(false);
+        HttpResponse response = createResponse(call);
+        response.setAutoCommitting(false);
+        assertFalse(this.adapter.suspend(response));
+    }
+
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.cache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.cache.CacheEntry;
+import org.restlet.engine.cache.CacheFilter;
+import org.restlet.engine.cache.FileCacheStore;
+import org.restlet.engine.cache.MemoryCacheStore;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link CacheFilter} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheFilterTestCase extends RestletTestCase {
+
+    /**
+     * Origin Restlet counting the GET requests it answers.
+     */
+    private static class Origin extends Restlet {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private final List<CacheDirective> directives = new ArrayList<CacheDirective>();
+
+        private volatile long delay;
+
+        @Override
+        public void handle(Request request, Response response) {
+            if (Method.GET.equals(request.getMethod())) {
+                int count = this.count.incrementAndGet();
+
+                if (this.delay > 0) {
+                    try {
+                        Thread.sleep(this.delay);
+                    } catch (InterruptedException e) {
+                        // Continue
+                    }
+                }
+
+                response.getCacheDirectives().addAll(this.directives);
+                Tag tag = new Tag("v1");
+
+                if (request.getConditions().getNoneMatch().contains(tag)) {
+                    response.setStatus(Status.REDIRECTION_NOT_MODIFIED);
+                } else {
+                    response.setEntity(new StringRepresentation("content "
+                            + count, MediaType.TEXT_PLAIN));
+                    response.getEntity().setTag(tag);
+                }
+            } else {
+                response.setStatus(Status.SUCCESS_NO_CONTENT);
+            }
+        }
+    }
+
+    private CacheFilter filter;
+
+    private Origin origin;
+
+    private Response get() throws Exception {
+        return get(null);
+    }
+
+    private Response get(MediaType accepted) throws Exception {
+        Request request = new Request(Method.GET, "http://localhost/data");
+
+        if (accepted != null) {
+            request.getClientInfo().accept(accepted);
+        }
+
+        Response response = new Response(request);
+        this.filter.handle(request, response);
+        return response;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.origin = new Origin();
+        this.filter = new CacheFilter(null, this.origin);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.filter.stop();
+        super.tearDown();
+    }
+
+    public void testCollapse() throws Exception {
+        this.origin.directives.add(CacheDirective.maxAge(60));
+        this.origin.delay = 300;
+        final List<String> texts = new ArrayList<String>();
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < 5; i++) {
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        String text = get().getEntity().getText();
+
+                        synchronized (texts) {
+                            texts.add(text);
+                        }
+                    } catch (Exception e) {
+                        // Counted as missing
+                    }
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, this.origin.count.get());
+        assertEquals(5, texts.size());
+
+        for (String text : texts) {
+            assertEquals("content 1", text);
+        }
+    }
+
+    public void testFileStore() throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"),
+                "CacheFilterTestCase");
+        BioUtils.delete(dir, true);
+
+        try {
+            FileCacheStore disk = new FileCacheStore(dir);
+            MemoryCacheStore memory = new MemoryCacheStore(2048, disk);
+            this.filter.setStore(memory);
+            this.origin.directives.add(CacheDirective.maxAge(60));
+            assertEquals("content 1", get().getEntity().getText());
+
+            // Evict the entry to the disk store
+            Response other = new Response(new Request(Method.GET,
+                    "http://localhost/other"));
+            other.setEntity(new StringRepresentation(new String(
+                    new char[2000])));
+            memory.put(new CacheEntry("other", other, new byte[2000], 0, 0));
+            assertTrue(disk.getCurrentSize() > 0);
+
+            Response response = get();
+            assertEquals(1, this.origin.count.get());
+            assertEquals("content 1", response.getEntity().getText());
+            assertEquals(MediaType.TEXT_PLAIN, response.getEntity()
+                    .getMediaType());
+            assertEquals(new Tag("v1"), response.getEntity().getTag());
+        } finally {
+            BioUtils.delete(dir, true);
+        }
+    }
+
+    public void testFresh() throws Exception {
+        this.origin.directives.add(CacheDirective.maxAge(60));
+        assertEquals("content 1", get().getEntity().getText());
+
+        Response response = get();
+        assertEquals(1, this.origin.count.get());
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("content 1", response.getEntity().getText());
+        assertEquals(new Tag("v1"), response.getEntity().getTag());
+    }
+
+    public void testInvalidation() throws Exception {
+        this.origin.directives.add(CacheDirective.maxAge(60));
+        get().getEntity().exhaust();
+        this.filter.handle(new Request(Method.PUT, "http://localhost/data",
+                new StringRepresentation("update")));
+        assertEquals("content 2", get().getEntity().getText());
+    }
+
+    public void testNoStore() throws Exception {
+        this.origin.directives.add(CacheDirective.noStore());
+        get().getEntity().exhaust();
+        assertEquals("content 2", get().getEntity().getText());
+    }
+
+    public void testOnlyIfCached() throws Exception {
+        Request request = new Request(Method.GET, "http://localhost/data");
+        request.getCacheDirectives().add(CacheDirective.onlyIfCached());
+        Response response = this.filter.handle(request);
+        assertEquals(Status.SERVER_ERROR_GATEWAY_TIMEOUT, response.getStatus());
+        assertEquals(0, this.origin.count.get());
+    }
+
+    public void testRevalidation() throws Exception {
+        this.origin.directives.add(CacheDirective.maxAge(0));
+        assertEquals("content 1", get().getEntity().getText());
+
+        Response response = get();
+        assertEquals(2, this.origin.count.get());
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("content 1", response.getEntity().getText());
+    }
+
+    public void testStaleWhileRevalidate() throws Exception {
+        this.origin.directives.add(CacheDirective.maxAge(0));
+        this.origin.directives.add(new CacheDirective(
+                CacheFilter.CACHE_STALE_WHILE_REVALIDATE, "60", true));
+        this.origin.delay = 200;
+        assertEquals("content 1", get().getEntity().getText());
+
+        long start = System.currentTimeMillis();
+        assertEquals("content 1", get().getEntity().getText());
+        assertTrue(System.currentTimeMillis() - start < 200);
+
+        // Wait for the background revalidation
+        Thread.sleep(500);
+        assertEquals(2, this.origin.count.get());
+    }
+
+    public void testVary() throws Exception {
+        this.origin.directives.add(CacheDirective.maxAge(60));
+        Restlet next = this.filter.getNext();
+        this.filter.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                origin.handle(request, response);
+                response.getDimensions().add(
+                        org.restlet.data.Dimension.MEDIA_TYPE);
+            }
+        });
+
+        try {
+            get(MediaType.TEXT_PLAIN).getEntity().exhaust();
+            get(MediaType.TEXT_HTML).getEntity().exhaust();
+            assertEquals(2, this.origin.count.get());
+            assertEquals("content 2", get(MediaType.TEXT_HTML).getEntity()
+                    .getText());
+            assertEquals(2, this.origin.count.get());
+        } finally {
+            this.filter.setNext(next);
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.restlet.engine.connector.AddressCache;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the cache of resolved host addresses.
+ * 
+ * @author Jerome Louvel
+ */
+public class AddressCacheTestCase extends RestletTestCase {
+
+    public void testResolve() throws Exception {
+        AddressCache cache = new AddressCache(2);
+        InetAddress address = cache.resolve("127.0.0.1", 60000, false);
+        assertEquals("127.0.0.1", address.getHostAddress());
+        assertSame(address, cache.resolve("127.0.0.1", 60000, false));
+
+        // Eviction when the cache is full
+        cache.resolve("127.0.0.2", 60000, true);
+        cache.resolve("127.0.0.3", 60000, true);
+        assertEquals("127.0.0.1", cache.resolve("127.0.0.1", 60000, false)
+                .getHostAddress());
+    }
+
+    public void testUnknownHost() {
+        AddressCache cache = new AddressCache(2);
+
+        try {
+            cache.resolve("unknown.invalid", 60000, false);
+            fail("Host shouldn't be resolved");
+        } catch (UnknownHostException uhe) {
+            // Expected
+        }
+    }
+
+}
@@ -0,0 +1,447 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Client;
+import org.restlet.Component;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Uniform;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Reference;
+import org.restlet.data.Status;
+import org.restlet.engine.connector.Connection;
+import org.restlet.engine.connector.HttpClientHelper;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for pipelined requests sent by the internal client connector.
+ * The origin server is a plain socket server, so that the requests received
+ * on each connection before any response is sent can be observed.
+ * 
+ * @author Jerome Louvel
+ */
+public class PipeliningTestCase extends RestletTestCase {
+
+    /**
+     * Client helper exposing its connections indexed per host.
+     */
+    private static class IndexedClientHelper extends HttpClientHelper {
+
+        public IndexedClientHelper(Client client) {
+            super(client);
+        }
+
+        public List<Connection<Client>> getHostConnections(Request request)
+                throws Exception {
+            return getHostConnections(getSocketAddress(request));
+        }
+    }
+
+    /**
+     * Connection accepted by the origin server.
+     */
+    private static class OriginConnection extends Thread {
+
+        private final List<String> items = new ArrayList<String>();
+
+        private final Origin origin;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final Socket socket;
+
+        public OriginConnection(Origin origin, Socket socket) {
+            this.origin = origin;
+            this.socket = socket;
+        }
+
+        public void close() throws IOException {
+            this.socket.close();
+        }
+
+        public void respond(String item) throws IOException {
+            byte[] entity = item.getBytes("US-ASCII");
+            OutputStream os = this.socket.getOutputStream();
+            os.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n"
+                    + "Content-Length: " + entity.length + "\r\n\r\n")
+                    .getBytes("US-ASCII"));
+            os.write(entity);
+            os.flush();
+            this.outstanding.decrementAndGet();
+            this.origin.outstanding.decrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            try {
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(this.socket.getInputStream(),
+                                "US-ASCII"));
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    // Only the request line and headers of GET requests
+                    String uri = line.split(" ")[1];
+                    String item = uri.substring(uri.indexOf('=') + 1);
+
+                    while ((line = reader.readLine()) != null
+                            && (line.length() > 0)) {
+                    }
+
+                    synchronized (this.origin) {
+                        this.outstanding.incrementAndGet();
+                        int count = this.origin.outstanding.incrementAndGet();
+                        this.origin.maxOutstanding = Math.max(
+                                this.origin.maxOutstanding, count);
+                    }
+
+                    this.items.add(item);
+                    this.origin.requests.add(new OriginRequest(this, item));
+                }
+            } catch (IOException e) {
+                // Connection closed
+            }
+        }
+    }
+
+    /**
+     * Plain socket origin server, letting the test decide when to respond.
+     */
+    private static class Origin extends Thread {
+
+        private final List<OriginConnection> connections = new ArrayList<OriginConnection>();
+
+        private volatile int maxOutstanding;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final BlockingQueue<OriginRequest> requests = new LinkedBlockingQueue<OriginRequest>();
+
+        private final ServerSocket serverSocket;
+
+        public Origin() throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            setDaemon(true);
+        }
+
+        public void close() throws IOException {
+            this.serverSocket.close();
+
+            for (OriginConnection connection : getConnections()) {
+                connection.close();
+            }
+        }
+
+        public synchronized List<OriginConnection> getConnections() {
+            return new ArrayList<OriginConnection>(this.connections);
+        }
+
+        public int getPort() {
+            return this.serverSocket.getLocalPort();
+        }
+
+        /**
+         * Returns the next request received, failing after a timeout.
+         */
+        public OriginRequest next() throws InterruptedException {
+            OriginRequest result = this.requests.poll(10, TimeUnit.SECONDS);
+            assertNotNull("No request received", result);
+            return result;
+        }
+
+        /**
+         * Returns the next request received within a short delay, or null.
+         */
+        public OriginRequest poll() throws InterruptedException {
+            return this.requests.poll(300, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    OriginConnection connection = new OriginConnection(this,
+                            this.serverSocket.accept());
+                    connection.setDaemon(true);
+
+                    synchronized (this) {
+                        this.connections.add(connection);
+                    }
+
+                    connection.start();
+                }
+            } catch (IOException e) {
+                // Server socket closed
+            }
+        }
+    }
+
+    /**
+     * Request received by the origin server.
+     */
+    private static class OriginRequest {
+
+        private final OriginConnection connection;
+
+        private final String item;
+
+        public OriginRequest(OriginConnection connection, String item) {
+            this.connection = connection;
+            this.item = item;
+        }
+
+        public void respond() throws IOException {
+            this.connection.respond(this.item);
+        }
+    }
+
+    private Component clientComponent;
+
+    private AtomicInteger errors;
+
+    private CountDownLatch latch;
+
+    private Origin origin;
+
+    private Context createClient(String... parameters) throws Exception {
+        Client client = clientComponent.getClients().add(Protocol.HTTP);
+        Context result = client.getContext();
+        result.getParameters().add("maxQueued", "-1");
+        result.getParameters().add("pipeliningConnections", "true");
+
+        for (int i = 0; i < parameters.length; i += 2) {
+            result.getParameters().add(parameters[i], parameters[i + 1]);
+        }
+
+        clientComponent.start();
+        return result;
+    }
+
+    /**
+     * Sends asynchronous GET requests, each echoed item being checked by the
+     * response handler.
+     */
+    private void send(Context context, int count) {
+        this.latch = new CountDownLatch(count);
+        this.errors = new AtomicInteger();
+
+        Uniform responseHandler = new Uniform() {
+            public void handle(Request request, Response response) {
+                String item = request.getResourceRef().getQueryAsForm()
+                        .getFirstValue("item");
+
+                try {
+                    if (!Status.SUCCESS_OK.equals(response.getStatus())
+                            || !item.equals(response.getEntityAsText())) {
+                        errors.incrementAndGet();
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }
+        };
+
+        Restlet client = context.getClientDispatcher();
+
+        for (int i = 0; i < count; i++) {
+            Request request = new Request(Method.GET, new Reference(
+                    "http://localhost:" + this.origin.getPort() + "/?item="
+                            + i));
+            request.setOnResponse(responseHandler);
+            client.handle(request);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        clientComponent = new Component();
+        origin = new Origin();
+        origin.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        clientComponent.stop();
+        origin.close();
+        clientComponent = null;
+        origin = null;
+        super.tearDown();
+    }
+
+    /**
+     * Waits for all the responses and checks them.
+     */
+    private void verify() throws InterruptedException {
+        assertTrue(this.latch.await(30, TimeUnit.SECONDS));
+        assertEquals(0, this.errors.get());
+    }
+
+    public void testHostConnectionsRemoved() throws Exception {
+        Client client = new Client(new Context(), Protocol.HTTP);
+        client.getContext().getParameters().add("controllerSleepTimeMs", "100");
+        client.getContext().getParameters().add("maxIoIdleTimeMs", "500");
+        IndexedClientHelper helper = new IndexedClientHelper(client);
+        helper.start();
+
+        try {
+            final CountDownLatch responded = new CountDownLatch(1);
+            Request request = new Request(Method.GET, new Reference(
+                    "http://localhost:" + this.origin.getPort() + "/?item=0"));
+            request.setOnResponse(new Uniform() {
+                public void handle(Request request, Response response) {
+                    response.getEntityAsText();
+                    responded.countDown();
+                }
+            });
+            helper.handle(request, new Response(request));
+
+            OriginRequest received = origin.next();
+            assertEquals(1, helper.getHostConnections(request).size());
+
+            received.respond();
+            assertTrue(responded.await(10, TimeUnit.SECONDS));
+
+            // Once its last connection is closed as idle, the host is forgotten
+            for (int i = 0; (i < 100)
+                    && !helper.getHostConnections(request).isEmpty(); i++) {
+                Thread.sleep(100);
+            }
+
+            assertSame(Collections.emptyList(),
+                    helper.getHostConnections(request));
+        } finally {
+            helper.stop();
+        }
+    }
+
+    public void testInFlightLimit() throws Exception {
+        send(createClient("maxConnectionsPerHost", "4", "maxInFlightPerHost",
+                "2"), 10);
+
+        // Only two requests are sent before any response
+        List<OriginRequest> received = new ArrayList<OriginRequest>();
+        received.add(origin.next());
+        received.add(origin.next());
+        assertNull(origin.poll());
+        assertEquals(2, origin.outstanding.get());
+
+        // Each response lets a new request in
+        for (int i = 0; i < 10; i++) {
+            received.remove(0).respond();
+
+            if (i < 8) {
+                received.add(origin.next());
+            }
+        }
+
+        verify();
+        assertEquals(2, origin.maxOutstanding);
+    }
+
+    public void testPipelinedGet() throws Exception {
+        send(createClient("maxConnectionsPerHost", "1", "pipelineDepth", "4"),
+                12);
+
+        // Four requests are outstanding on the connection before any response
+        List<OriginRequest> received = new ArrayList<OriginRequest>();
+
+        for (int i = 0; i < 4; i++) {
+            received.add(origin.next());
+        }
+
+        assertNull(origin.poll());
+        assertEquals(1, origin.getConnections().size());
+        assertEquals(4, origin.getConnections().get(0).outstanding.get());
+
+        for (int i = 0; i < 12; i++) {
+            received.remove(0).respond();
+
+            if (i < 8) {
+                received.add(origin.next());
+            }
+        }
+
+        verify();
+        assertEquals(4, origin.maxOutstanding);
+        assertEquals(1, origin.getConnections().size());
+    }
+
+    public void testReplay() throws Exception {
+        send(createClient("maxConnectionsPerHost", "1", "pipelineDepth", "4"),
+                4);
+
+        OriginRequest first = origin.next();
+
+        for (int i = 1; i < 4; i++) {
+            origin.next();
+        }
+
+        // Answer the first request then close the connection
+        first.respond();
+        first.connection.close();
+
+        // The other requests are replayed on a new connection
+        for (int i = 1; i < 4; i++) {
+            OriginRequest request = origin.next();
+            assertNotSame(first.connection, request.connection);
+            request.respond();
+        }
+
+        verify();
+        assertEquals(2, origin.getConnections().size());
+        assertEquals("[1, 2, 3]", origin.getConnections().get(1).items
+                .toString());
+    }
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.connector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Client;
+import org.restlet.Component;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.connector.InboundTask;
+import org.restlet.engine.connector.PriorityClassifier;
+import org.restlet.engine.connector.WeightedBlockingQueue;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.Series;
+
+/**
+ * Unit tests for the priority scheduling and the queue time shedding of the
+ * worker service.
+ * 
+ * @author Jerome Louvel
+ */
+public class WorkerSchedulingTestCase extends RestletTestCase {
+
+    public void testClassifier() {
+        PriorityClassifier classifier = new PriorityClassifier(1);
+        classifier.addRule("0 GET /health");
+        classifier.addRule("2 POST /reports/{id}");
+        classifier.addRule("2 * * X-Batch=true");
+
+        assertEquals(0, classifier.classify(new Request(Method.GET,
+                "http://localhost/health")));
+        assertEquals(1, classifier.classify(new Request(Method.POST,
+                "http://localhost/health")));
+        assertEquals(2, classifier.classify(new Request(Method.POST,
+                "http://localhost/reports/123")));
+        assertEquals(1, classifier.classify(new Request(Method.POST,
+                "http://localhost/reports")));
+
+        Request request = new Request(Method.GET, "http://localhost/items");
+        assertEquals(1, classifier.classify(request));
+        Series<Header> headers = new Series<Header>(Header.class);
+        headers.add("x-batch", "TRUE");
+        request.getAttributes().put(HeaderConstants.ATTRIBUTE_HEADERS, headers);
+        assertEquals(2, classifier.classify(request));
+
+        try {
+            classifier.addRule("high GET /");
+            fail("The invalid rule should be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    public void testQueue() throws Exception {
+        WeightedBlockingQueue queue = new WeightedBlockingQueue(new int[] {
+                3, 1 }, -1);
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(new InboundTask(null, null, 1)));
+            assertTrue(queue.offer(new InboundTask(null, null, 0)));
+        }
+
+        assertEquals(16, queue.size());
+        assertEquals(8, queue.size(1));
+
+        // The classes are dequeued in proportion of their weights
+        int high = 0;
+
+        for (int i = 0; i < 8; i++) {
+            if (((InboundTask) queue.take()).getPriority() == 0) {
+                high++;
+            }
+        }
+
+        assertEquals(6, high);
+
+        // The low priority class isn't starved
+        List<Runnable> rest = new ArrayList<Runnable>();
+        assertEquals(8, queue.drainTo(rest));
+        assertEquals(0, queue.size());
+        assertEquals(1, ((InboundTask) rest.get(rest.size() - 1))
+                .getPriority());
+
+        // Bounded queue
+        queue = new WeightedBlockingQueue(new int[] { 2, 1 }, 2);
+        InboundTask task = new InboundTask(null, null, 5);
+        assertTrue(queue.offer(task));
+        assertTrue(queue.offer(new InboundTask(null, null, 0)));
+        assertFalse(queue.offer(new InboundTask(null, null, 0)));
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(1, queue.size(1));
+        assertTrue(queue.remove(task));
+        assertEquals(1, queue.remainingCapacity());
+        assertNotNull(queue.poll());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    public void testShedding() throws Exception {
+        Component component = new Component();
+        component.getDefaultHost().attach("", new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+
+                response.setStatus(Status.SUCCESS_NO_CONTENT);
+            }
+        });
+
+        Server server = component.getServers().add(Protocol.HTTP, TEST_PORT);
+        server.getContext().getParameters().add("minThreads", "1");
+        server.getContext().getParameters().add("maxThreads", "1");
+        server.getContext().getParameters().add("maxQueued", "-1");
+        server.getContext().getParameters().add("maxQueuedTimeMs", "200");
+        component.start();
+
+        final Client client = new Client(Protocol.HTTP);
+        client.start();
+
+        try {
+            final List<Status> statuses = new ArrayList<Status>();
+            List<Thread> threads = new ArrayList<Thread>();
+
+            for (int i = 0; i < 2; i++) {
+                Thread thread = new Thread() {
+                    @Override
+                    public void run() {
+                        Response response = client.handle(new Request(
+                                Method.GET, "http://localhost:" + TEST_PORT
+                                        + "/"));
+
+                        synchronized (statuses) {
+                            statuses.add(response.getStatus());
+                        }
+                    }
+                };
+                threads.add(thread);
+                thread.start();
+            }
+
+            for (Thread thread : threads) {
+                thread.join(10000);
+            }
+
+            assertEquals(2, statuses.size());
+            assertTrue(statuses.contains(Status.SUCCESS_NO_CONTENT));
+            assertTrue(statuses
+                    .contains(Status.SERVER_ERROR_SERVICE_UNAVAILABLE));
+        } finally {
+            client.stop();
+            component.stop();
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.local;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Encoding;
+import org.restlet.data.LocalReference;
+import org.restlet.data.Method;
+import org.restlet.data.Preference;
+import org.restlet.data.Protocol;
+import org.restlet.data.Range;
+import org.restlet.engine.application.Encoder;
+import org.restlet.engine.application.PreEncodedRepresentation;
+import org.restlet.engine.application.RangeRepresentation;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.local.CachedRepresentation;
+import org.restlet.engine.local.ContentCache;
+import org.restlet.engine.resource.FileTagStrategy;
+import org.restlet.engine.resource.TagStrategy;
+import org.restlet.representation.Representation;
+import org.restlet.service.EncoderService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link ContentCache} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class ContentCacheTestCase extends RestletTestCase {
+
+    private File testDir;
+
+    private File createArchive(String name, String entry, String content)
+            throws Exception {
+        File result = new File(this.testDir, name);
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(result));
+        zos.putNextEntry(new ZipEntry(entry));
+        zos.write(content.getBytes("US-ASCII"));
+        zos.close();
+        return result;
+    }
+
+    private File createFile(String name, String content) throws Exception {
+        File result = new File(this.testDir, name);
+        FileOutputStream fos = new FileOutputStream(result);
+        fos.write(content.getBytes("US-ASCII"));
+        fos.close();
+        return result;
+    }
+
+    private Response getClap(Client client, ClassLoader classLoader,
+            String path) {
+        Request request = new Request(Method.GET,
+                LocalReference.createClapReference(LocalReference.CLAP_CLASS,
+                        path));
+        request.getAttributes().put("org.restlet.clap.classLoader",
+                classLoader);
+        return client.handle(request);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "ContentCacheTestCase");
+        BioUtils.delete(this.testDir, true);
+        this.testDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BioUtils.delete(this.testDir, true);
+        super.tearDown();
+    }
+
+    public void testArchive() throws Exception {
+        File jar = createArchive("test.jar", "a.txt", "first");
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { jar
+                .toURI().toURL() }, null);
+        URLConnection connection = jar.toURI().toURL().openConnection();
+        boolean useCaches = connection.getDefaultUseCaches();
+        connection.setDefaultUseCaches(false);
+        Client client = new Client(new Context(), Protocol.CLAP);
+        client.getContext().getParameters().add("contentCacheSize", "1024");
+        client.getContext().getParameters()
+                .add("contentCacheTimeToLive", "0");
+
+        try {
+            client.start();
+            Response response = getClap(client, classLoader, "/a.txt");
+            assertTrue(response.getEntity() instanceof CachedRepresentation);
+            assertEquals("first", response.getEntity().getText());
+
+            // Entries read from an archive are revalidated against it
+            long lastModified = jar.lastModified();
+            createArchive("test.jar", "a.txt", "second");
+            jar.setLastModified(lastModified + 2000);
+            response = getClap(client, classLoader, "/a.txt");
+            assertEquals("second", response.getEntity().getText());
+        } finally {
+            client.stop();
+            connection.setDefaultUseCaches(useCaches);
+        }
+    }
+
+    public void testClassLoaders() throws Exception {
+        File dirA = new File(this.testDir, "a");
+        File dirB = new File(this.testDir, "b");
+        dirA.mkdirs();
+        dirB.mkdirs();
+        createFile("a/test.txt", "from a");
+        createFile("b/test.txt", "from b");
+        ClassLoader loaderA = new URLClassLoader(new URL[] { dirA.toURI()
+                .toURL() }, null);
+        ClassLoader loaderB = new URLClassLoader(new URL[] { dirB.toURI()
+                .toURL() }, null);
+        Client client = new Client(new Context(), Protocol.CLAP);
+        client.getContext().getParameters().add("contentCacheSize", "1024");
+        client.start();
+
+        // Each class loader has its own entries
+        for (int i = 0; i < 2; i++) {
+            assertEquals("from a", getClap(client, loaderA, "/test.txt")
+                    .getEntity().getText());
+            assertEquals("from b", getClap(client, loaderB, "/test.txt")
+                    .getEntity().getText());
+        }
+
+        client.stop();
+    }
+
+    public void testClient() throws Exception {
+        File file = createFile("test.txt", "1234567890");
+        Client client = new Client(new Context(), Protocol.FILE);
+        client.getContext().getParameters().add("contentCacheSize", "1024");
+        client.start();
+
+        String uri = LocalReference.createFileReference(file).toString();
+        Response response = client.handle(new Request(Method.GET, uri));
+        assertTrue(response.getEntity() instanceof CachedRepresentation);
+        assertEquals("1234567890", response.getEntity().getText());
+        assertEquals(10, response.getEntity().getSize());
+        assertNotNull(response.getEntity().getTag());
+        assertEquals("test.txt", response.getEntity().getDisposition()
+                .getFilename());
+
+        // The representation can be read again
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        response.getEntity().write(Channels.newChannel(baos));
+        assertEquals("1234567890", baos.toString("US-ASCII"));
+        client.stop();
+    }
+
+    public void testEviction() throws Exception {
+        ContentCache cache = new ContentCache(10, 10, 0);
+        cache.put("a", new ByteArrayInputStream(new byte[4]), 4, 0, null);
+        cache.put("b", new ByteArrayInputStream(new byte[4]), 4, 0, null);
+        assertNotNull(cache.get("a"));
+
+        // The least recently used entry is evicted to respect the maximum size
+        cache.put("c", new ByteArrayInputStream(new byte[4]), 4, 0, null);
+        assertEquals(8, cache.getCurrentSize());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+
+        // Too large contents aren't cached
+        assertNull(cache.put("d", new ByteArrayInputStream(new byte[11]), 11,
+                0, null));
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.getCurrentSize());
+    }
+
+    public void testFile() throws Exception {
+        File file = createFile("a.txt", "abcdef");
+        ContentCache cache = new ContentCache(1024, 1024, 0);
+        ContentCache.Entry entry = cache.get(file);
+        assertEquals(6, entry.getSize());
+        assertSame(entry, cache.get(file));
+        assertEquals("abcdef", new CachedRepresentation(entry, null, -1)
+                .getText());
+
+        // Modifications of the file are detected
+        createFile("a.txt", "abcdefgh");
+        file.setLastModified(entry.getModificationDate() + 2000);
+        ContentCache.Entry updated = cache.get(file);
+        assertNotSame(entry, updated);
+        assertEquals(8, updated.getSize());
+        assertFalse(entry.getTag().equals(updated.getTag()));
+        assertEquals(8, cache.getCurrentSize());
+    }
+
+    public void testFileRepresentation() throws Exception {
+        File file = createFile("app.js", "1234567890");
+        File gzFile = new File(this.testDir, "app.js.gz");
+        GZIPOutputStream gos = new GZIPOutputStream(new FileOutputStream(
+                gzFile));
+        gos.write("1234567890".getBytes("US-ASCII"));
+        gos.close();
+        gzFile.setLastModified(file.lastModified());
+
+        Client client = new Client(new Context(), Protocol.FILE);
+        client.getContext().getParameters().add("contentCacheSize", "1024");
+        client.start();
+        String uri = LocalReference.createFileReference(file).toString();
+        Representation entity = client.handle(new Request(Method.GET, uri))
+                .getEntity();
+        client.stop();
+        assertTrue(entity instanceof CachedRepresentation);
+        assertEquals(file, ((CachedRepresentation) entity).getFile());
+
+        // The precompressed file is found
+        EncoderService encoderService = new EncoderService();
+        encoderService.setCache(null);
+        encoderService.setPrecompressed(true);
+        Encoder encoder = new Encoder(new Context(), false, true,
+                encoderService);
+        ClientInfo clientInfo = new ClientInfo();
+        clientInfo.getAcceptedEncodings().add(
+                new Preference<Encoding>(Encoding.GZIP));
+        Representation encoded = encoder.encode(clientInfo, entity);
+        assertTrue(encoded instanceof PreEncodedRepresentation);
+        assertEquals(gzFile.length(), encoded.getSize());
+
+        // The tag is computed from the file
+        assertEquals(TagStrategy.createWeakTag(
+                new Date(file.lastModified()), file.length()),
+                new FileTagStrategy().getTag(null, entity));
+
+        // The range is written from the cached content
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new RangeRepresentation(entity, new Range(3, 4)).write(Channels
+                .newChannel(baos));
+        assertEquals("4567", baos.toString("US-ASCII"));
+    }
+
+    public void testMapped() throws Exception {
+        File file = createFile("b.txt", "0123456789");
+        ContentCache cache = new ContentCache(1024, 1024, 60000);
+        cache.setMapThreshold(5);
+        ContentCache.Entry entry = cache.get(file);
+        assertTrue(entry.getContent().isReadOnly());
+
+        CachedRepresentation cr = new CachedRepresentation(entry, null, -1);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        cr.write(baos);
+        assertEquals("0123456789", baos.toString("US-ASCII"));
+        assertEquals("0123456789", cr.getText());
+    }
+
+}
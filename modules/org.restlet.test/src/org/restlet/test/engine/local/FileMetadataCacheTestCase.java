@@ -0,0 +1,139 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.local;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.local.FileMetadataCache;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link FileMetadataCache} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileMetadataCacheTestCase extends RestletTestCase {
+
+    private File testDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "FileMetadataCacheTestCase");
+        BioUtils.delete(this.testDir, true);
+        this.testDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BioUtils.delete(this.testDir, true);
+        super.tearDown();
+    }
+
+    public void testPolling() throws Exception {
+        FileMetadataCache cache = new FileMetadataCache(10, 0);
+        File file = new File(this.testDir, "a.txt");
+
+        assertFalse(cache.get(file).isExisting());
+        assertTrue(cache.get(this.testDir).isDirectory());
+        assertEquals(0, cache.getChildNames(this.testDir).length);
+
+        // Changes made within the granularity of the modification dates
+        // are detected as such recent entries are never trusted
+        assertTrue(file.createNewFile());
+        assertTrue(cache.get(file).isExisting());
+        assertTrue(cache.get(file).isNormal());
+        assertFalse(cache.get(file).isDirectory());
+        assertEquals(Arrays.asList("a.txt"),
+                Arrays.asList(cache.getChildNames(this.testDir)));
+
+        // Older changes are detected by polling the modification dates
+        long past = System.currentTimeMillis() - 60000;
+        File other = new File(this.testDir, "b.txt");
+        assertTrue(other.createNewFile());
+        assertTrue(this.testDir.setLastModified(past));
+        assertEquals(2, cache.getChildNames(this.testDir).length);
+        assertTrue(other.delete());
+        assertTrue(this.testDir.setLastModified(past + 2000));
+        assertEquals(Arrays.asList("a.txt"),
+                Arrays.asList(cache.getChildNames(this.testDir)));
+
+        // Unchanged entries are reused
+        assertTrue(file.setLastModified(past));
+        FileMetadataCache.Entry entry = cache.get(file);
+        assertSame(entry, cache.get(file));
+        assertEquals(2, cache.size());
+    }
+
+    public void testSize() throws Exception {
+        FileMetadataCache cache = new FileMetadataCache(10, 0);
+        File file = new File(this.testDir, "c.txt");
+        write(file, "abc");
+        assertEquals(3, cache.get(file).getSize());
+
+        // A rewrite that keeps the modification date is seen while recent
+        long modified = file.lastModified();
+        write(file, "abcdef");
+        file.setLastModified(modified);
+        assertEquals(6, cache.get(file).getSize());
+        assertEquals(0, cache.get(this.testDir).getSize());
+    }
+
+    private void write(File file, String content) throws Exception {
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(content.getBytes("US-ASCII"));
+        fos.close();
+    }
+
+    public void testTimeToLive() throws Exception {
+        FileMetadataCache cache = new FileMetadataCache(10, 60000);
+        File file = new File(this.testDir, "b.txt");
+        assertTrue(file.createNewFile());
+        assertTrue(file.setLastModified(System.currentTimeMillis() - 60000));
+        assertTrue(cache.get(file).isExisting());
+
+        // The entry is trusted until it expires
+        assertTrue(file.delete());
+        assertTrue(cache.get(file).isExisting());
+
+        cache.clear();
+        assertFalse(cache.get(file).isExisting());
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.util;
+
+import org.restlet.engine.util.LruCache;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link LruCache} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class LruCacheTestCase extends RestletTestCase {
+
+    public void testEviction() {
+        LruCache<String, String> cache = new LruCache<String, String>(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        // Touch "a" so that "b" becomes the least recently used entry
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    public void testStatistics() {
+        LruCache<String, String> cache = new LruCache<String, String>(10);
+        assertEquals(0F, cache.getHitRate());
+
+        cache.put("a", "1");
+        cache.get("a");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.75F, cache.getHitRate());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    public void testWeight() {
+        LruCache<String, String> cache = new LruCache<String, String>(10, 5) {
+            @Override
+            protected long getWeight(String value) {
+                return value.length();
+            }
+        };
+        cache.put("a", "11");
+        cache.put("b", "22");
+        assertEquals(4, cache.getWeight());
+
+        // The least recently used entries are evicted to make room
+        cache.put("c", "333");
+        assertEquals(5, cache.getWeight());
+        assertNull(cache.get("a"));
+        assertEquals("22", cache.get("b"));
+
+        // Values heavier than the maximum aren't cached
+        cache.put("d", "666666");
+        assertNull(cache.get("d"));
+        assertEquals("333", cache.get("c"));
+
+        cache.remove("c");
+        assertEquals(2, cache.getWeight());
+    }
+
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.httpclient;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.HttpParams;
+import org.restlet.Client;
+import org.restlet.Component;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Uniform;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.ext.httpclient.HttpClientHelper;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the connection pooling and the asynchronous calls of the
+ * {@link HttpClientHelper} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class HttpClientHelperTestCase extends RestletTestCase {
+
+    /**
+     * Response handler noting the response and its thread.
+     */
+    private static class ResponseHandler implements Uniform {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile Response response;
+
+        private volatile String text;
+
+        private volatile Thread thread;
+
+        public void handle(Request request, Response response) {
+            try {
+                this.response = response;
+                this.thread = Thread.currentThread();
+
+                if (response.isEntityAvailable()) {
+                    this.text = response.getEntity().getText();
+                }
+            } catch (Exception e) {
+                this.text = null;
+            } finally {
+                this.latch.countDown();
+            }
+        }
+
+        private void await() throws InterruptedException {
+            assertTrue(this.latch.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private Component component;
+
+    /** Releases the calls to the slow resource. */
+    private volatile CountDownLatch slowLatch;
+
+    private HttpClientHelper createHelper(String... parameters) {
+        Client client = new Client(new Context(), Protocol.HTTP);
+
+        for (int i = 0; i < parameters.length; i += 2) {
+            client.getContext().getParameters()
+                    .add(parameters[i], parameters[i + 1]);
+        }
+
+        return new HttpClientHelper(client);
+    }
+
+    private ThreadSafeClientConnManager getConnectionManager(
+            HttpClientHelper helper) {
+        return (ThreadSafeClientConnManager) helper.getHttpClient()
+                .getConnectionManager();
+    }
+
+    private ResponseHandler getAsync(HttpClientHelper helper, String uri)
+            throws Exception {
+        ResponseHandler result = new ResponseHandler();
+        Request request = new Request(Method.GET, uri);
+        request.setOnResponse(result);
+        helper.handle(request, new Response(request));
+        return result;
+    }
+
+    private void get(HttpClientHelper helper) throws Exception {
+        Request request = new Request(Method.GET, "http://localhost:"
+                + TEST_PORT + "/");
+        Response response = new Response(request);
+        helper.handle(request, response);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("hello", response.getEntity().getText());
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.component = new Component();
+        this.component.getServers().add(Protocol.HTTP, TEST_PORT);
+        this.slowLatch = new CountDownLatch(1);
+        this.component.getDefaultHost().attach(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                if ("/slow".equals(request.getResourceRef().getPath())) {
+                    try {
+                        slowLatch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                response.setEntity("hello", MediaType.TEXT_PLAIN);
+            }
+        });
+        this.component.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.slowLatch.countDown();
+        this.component.stop();
+        this.component = null;
+        super.tearDown();
+    }
+
+    public void testAsyncFailure() throws Exception {
+        HttpClientHelper helper = createHelper();
+        helper.start();
+
+        try {
+            // Nothing listens on this port, the callback gets the error
+            ResponseHandler handler = getAsync(helper, "http://localhost:"
+                    + (TEST_PORT + 1) + "/");
+            handler.await();
+            assertTrue(handler.response.getStatus().isConnectorError());
+            assertNotSame(Thread.currentThread(), handler.thread);
+        } finally {
+            helper.stop();
+        }
+    }
+
+    public void testAsyncQueueFull() throws Exception {
+        HttpClientHelper helper = createHelper("maxTotalConnections", "1",
+                "maxQueued", "0");
+        helper.start();
+
+        try {
+            // The only worker thread waits for the slow resource
+            ResponseHandler slow = getAsync(helper, "http://localhost:"
+                    + TEST_PORT + "/slow");
+
+            // Further calls are rejected rather than queued
+            ResponseHandler rejected = getAsync(helper, "http://localhost:"
+                    + TEST_PORT + "/");
+            rejected.await();
+            assertEquals(Status.CONNECTOR_ERROR_INTERNAL,
+                    rejected.response.getStatus());
+            assertSame(Thread.currentThread(), rejected.thread);
+
+            this.slowLatch.countDown();
+            slow.await();
+            assertEquals(Status.SUCCESS_OK, slow.response.getStatus());
+            assertEquals("hello", slow.text);
+        } finally {
+            helper.stop();
+        }
+    }
+
+    public void testAsyncSuccess() throws Exception {
+        HttpClientHelper helper = createHelper();
+        helper.start();
+
+        try {
+            // The callback is invoked by a worker thread
+            ResponseHandler handler = getAsync(helper, "http://localhost:"
+                    + TEST_PORT + "/");
+            handler.await();
+            assertEquals(Status.SUCCESS_OK, handler.response.getStatus());
+            assertEquals("hello", handler.text);
+            assertNotSame(Thread.currentThread(), handler.thread);
+        } finally {
+            helper.stop();
+        }
+    }
+
+    public void testParams() throws Exception {
+        HttpClientHelper helper = new HttpClientHelper(new Client(null,
+                Protocol.HTTP)) {
+            @Override
+            protected void configure(HttpParams params) {
+                super.configure(params);
+                ConnManagerParams.setMaxTotalConnections(params, 7);
+            }
+        };
+        helper.start();
+
+        try {
+            // The connection manager parameters are honored
+            assertEquals(7, getConnectionManager(helper).getMaxTotal());
+        } finally {
+            helper.stop();
+        }
+    }
+
+    public void testPooling() throws Exception {
+        HttpClientHelper helper = createHelper("maxTotalConnections", "5",
+                "maxConnectionsPerHost", "2", "maxConnectionsPerRoute",
+                "http://localhost:" + TEST_PORT + "=3");
+        helper.start();
+
+        try {
+            ThreadSafeClientConnManager manager = getConnectionManager(helper);
+            assertEquals(5, manager.getMaxTotal());
+            assertEquals(2, manager.getDefaultMaxPerRoute());
+            assertEquals(3, manager.getMaxForRoute(new HttpRoute(
+                    new HttpHost("localhost", TEST_PORT, "http"))));
+
+            // The connection is kept in the pool between calls
+            get(helper);
+            get(helper);
+            assertEquals(1, manager.getConnectionsInPool());
+        } finally {
+            helper.stop();
+        }
+    }
+
+    public void testTimeToLive() throws Exception {
+        HttpClientHelper helper = createHelper("connectionTimeToLive", "100");
+        helper.start();
+
+        try {
+            ThreadSafeClientConnManager manager = getConnectionManager(helper);
+            get(helper);
+            assertEquals(1, manager.getConnectionsInPool());
+
+            // Expired connections are closed
+            Thread.sleep(200);
+            manager.closeExpiredConnections();
+            assertEquals(0, manager.getConnectionsInPool());
+        } finally {
+            helper.stop();
+        }
+    }
+
+}
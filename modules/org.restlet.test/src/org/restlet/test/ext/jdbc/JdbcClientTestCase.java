@@ -0,0 +1,348 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.restlet.Client;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.MediaType;
+import org.restlet.data.Preference;
+import org.restlet.data.Protocol;
+import org.restlet.ext.jdbc.JdbcClientHelper;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the streamed results of the JDBC client connector, based on
+ * a minimal in-memory database driver.
+ * 
+ * @author Jerome Louvel
+ */
+public class JdbcClientTestCase extends RestletTestCase {
+
+    /**
+     * In-memory database driver serving a table of five rows with an "ID" and
+     * a "NAME" column. It records the state of the last connection.
+     */
+    private static class MemoryDriver implements Driver {
+
+        /** The auto-commit mode of the last connection. */
+        private volatile boolean autoCommit;
+
+        /** Indicates if rows were read in auto-commit mode. */
+        private volatile boolean autoCommitRead;
+
+        /** Indicates if the last connection is closed. */
+        private volatile boolean closed;
+
+        /** The number of commits. */
+        private volatile int commits;
+
+        /** The number of connections opened. */
+        private volatile int connections;
+
+        /** The maximum number of rows of the last statement. */
+        private volatile int maxRows;
+
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:memory:");
+        }
+
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+
+            this.autoCommit = true;
+            this.closed = false;
+            this.connections++;
+            return (Connection) proxy(Connection.class,
+                    new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method,
+                                Object[] args) {
+                            String name = method.getName();
+
+                            if (name.equals("createStatement")) {
+                                return createStatement((Connection) proxy);
+                            } else if (name.equals("setAutoCommit")) {
+                                autoCommit = (Boolean) args[0];
+                            } else if (name.equals("getAutoCommit")) {
+                                return autoCommit;
+                            } else if (name.equals("commit")) {
+                                commits++;
+                            } else if (name.equals("close")) {
+                                closed = true;
+                            } else if (name.equals("isClosed")) {
+                                return closed;
+                            }
+
+                            return defaultValue(method);
+                        }
+                    });
+        }
+
+        private ResultSet createResultSet(final Statement statement,
+                final int size) {
+            final ResultSetMetaData metaData = (ResultSetMetaData) proxy(
+                    ResultSetMetaData.class, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method,
+                                Object[] args) {
+                            String name = method.getName();
+
+                            if (name.equals("getColumnCount")) {
+                                return 2;
+                            } else if (name.equals("getColumnLabel")
+                                    || name.equals("getColumnName")) {
+                                return ((Integer) args[0] == 1) ? "ID"
+                                        : "NAME";
+                            }
+
+                            return defaultValue(method);
+                        }
+                    });
+
+            return (ResultSet) proxy(ResultSet.class, new InvocationHandler() {
+                private int row = 0;
+
+                public Object invoke(Object proxy, Method method,
+                        Object[] args) {
+                    String name = method.getName();
+
+                    if (name.equals("next")) {
+                        autoCommitRead |= autoCommit;
+                        return ++row <= size;
+                    } else if (name.equals("getObject")) {
+                        return ((Integer) args[0] == 1) ? (Object) row
+                                : String.valueOf((char) ('a' + row - 1));
+                    } else if (name.equals("getString")) {
+                        return ((Integer) args[0] == 1) ? String.valueOf(row)
+                                : String.valueOf((char) ('a' + row - 1));
+                    } else if (name.equals("getMetaData")) {
+                        return metaData;
+                    } else if (name.equals("getStatement")) {
+                        return statement;
+                    }
+
+                    return defaultValue(method);
+                }
+            });
+        }
+
+        private Statement createStatement(final Connection connection) {
+            maxRows = 0;
+            return (Statement) proxy(Statement.class, new InvocationHandler() {
+                private ResultSet resultSet;
+
+                private int updateCount = -1;
+
+                public Object invoke(Object proxy, Method method,
+                        Object[] args) {
+                    String name = method.getName();
+
+                    if (name.equals("execute")) {
+                        String sql = (String) args[0];
+
+                        if (sql.startsWith("SELECT")) {
+                            resultSet = createResultSet((Statement) proxy,
+                                    (maxRows > 0) ? Math.min(5, maxRows) : 5);
+                            updateCount = -1;
+                        } else {
+                            resultSet = null;
+                            updateCount = 2;
+                        }
+
+                        return resultSet != null;
+                    } else if (name.equals("getResultSet")) {
+                        return resultSet;
+                    } else if (name.equals("getUpdateCount")) {
+                        return updateCount;
+                    } else if (name.equals("setMaxRows")) {
+                        maxRows = (Integer) args[0];
+                    } else if (name.equals("getConnection")) {
+                        return connection;
+                    }
+
+                    return defaultValue(method);
+                }
+            });
+        }
+
+        private Object defaultValue(Method method) {
+            Class<?> type = method.getReturnType();
+
+            if (type == Boolean.TYPE) {
+                return Boolean.FALSE;
+            } else if (type == Integer.TYPE) {
+                return 0;
+            } else if (type == Long.TYPE) {
+                return 0L;
+            }
+
+            return null;
+        }
+
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        public DriverPropertyInfo[] getPropertyInfo(String url,
+                Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        private Object proxy(Class<?> type, InvocationHandler handler) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { type }, handler);
+        }
+    }
+
+    private MemoryDriver driver;
+
+    private JdbcClientHelper helper;
+
+    private Response handle(String statement, String paging,
+            boolean usePooling) {
+        String xml = "<?xml version=\"1.0\"?><request><header><connection>"
+                + "<usePooling>" + usePooling + "</usePooling>"
+                + "<property name=\"user\">scott</property>"
+                + "<property name=\"password\">tiger</property>"
+                + "</connection>" + paging
+                + "<returnGeneratedKeys>false</returnGeneratedKeys>"
+                + "</header><body><statement>" + statement
+                + "</statement></body></request>";
+        Request request = JdbcClientHelper.create("jdbc:memory:test",
+                new StringRepresentation(xml, MediaType.TEXT_XML));
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_JSON));
+        Response response = new Response(request);
+        this.helper.handle(request, response);
+        return response;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.driver = new MemoryDriver();
+        DriverManager.registerDriver(this.driver);
+        this.helper = new JdbcClientHelper(new Client(Protocol.JDBC));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DriverManager.deregisterDriver(this.driver);
+        this.driver = null;
+        this.helper = null;
+        super.tearDown();
+    }
+
+    public void testPaging() throws Exception {
+        Response response = handle("SELECT ID, NAME FROM T",
+                "<start>1</start><limit>2</limit>", false);
+        assertEquals(MediaType.APPLICATION_JSON, response.getEntity()
+                .getMediaType());
+        assertEquals(3, this.driver.maxRows);
+
+        // The cursor is read outside of the auto-commit mode
+        assertFalse(this.driver.autoCommit);
+        assertEquals(0, this.driver.commits);
+        assertEquals("[{\"ID\":2,\"NAME\":\"b\"},{\"ID\":3,\"NAME\":\"c\"}]",
+                response.getEntity().getText());
+        assertFalse(this.driver.autoCommitRead);
+
+        // Then the transaction is committed and the mode restored
+        assertEquals(1, this.driver.commits);
+        assertTrue(this.driver.autoCommit);
+        assertTrue(this.driver.closed);
+    }
+
+    public void testPooling() throws Exception {
+        handle("SELECT ID, NAME FROM T", "", true).getEntity().getText();
+        handle("SELECT ID, NAME FROM T", "", true).getEntity().getText();
+        assertEquals(1, this.driver.connections);
+        assertEquals(1, this.helper.getConnectionSources().size());
+
+        // Credentials aren't exposed by the connection keys
+        String key = this.helper.getConnectionSources().keySet().iterator()
+                .next();
+        assertTrue(key.startsWith("jdbc:memory:test#"));
+        assertFalse(key.contains("tiger"));
+    }
+
+    public void testRelease() throws Exception {
+        Response response = handle("SELECT ID, NAME FROM T", "", false);
+        assertFalse(this.driver.autoCommit);
+        response.getEntity().release();
+        assertTrue(this.driver.autoCommit);
+        assertTrue(this.driver.closed);
+    }
+
+    public void testUpdate() throws Exception {
+        Response response = handle("UPDATE T SET NAME = 'z'", "", false);
+
+        // Committed right away as there is no cursor to read
+        assertEquals(1, this.driver.commits);
+        assertTrue(this.driver.autoCommit);
+        assertEquals("[{\"updateCount\":2}]", response.getEntity().getText());
+        assertTrue(this.driver.closed);
+    }
+
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.jetty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Client;
+import org.restlet.Component;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.Engine;
+import org.restlet.engine.connector.HttpClientHelper;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the Jetty calls suspended with continuations until their
+ * response is committed.
+ * 
+ * @author Jerome Louvel
+ */
+public class ContinuationTestCase extends RestletTestCase {
+
+    /**
+     * Entity sending its first bytes at once and the last ones after the
+     * timeout of the suspended calls.
+     */
+    private static class SlowRepresentation extends OutputRepresentation {
+
+        public SlowRepresentation() {
+            super(MediaType.TEXT_PLAIN);
+        }
+
+        @Override
+        public void write(OutputStream outputStream) throws IOException {
+            outputStream.write("sl".getBytes());
+            outputStream.flush();
+
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                // Finish anyway
+            }
+
+            outputStream.write("ow".getBytes());
+        }
+    }
+
+    private Client client;
+
+    private Component component;
+
+    /** The number of calls handled by the server. */
+    private AtomicInteger handled;
+
+    private String uri;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Engine engine = Engine.register(false);
+        engine.getRegisteredServers().add(
+                new org.restlet.ext.jetty.HttpServerHelper(null));
+        engine.getRegisteredClients().add(new HttpClientHelper(null));
+
+        this.component = new Component();
+        Server server = this.component.getServers().add(Protocol.HTTP, 0);
+        server.getContext().getParameters().add("asyncTimeoutMs", "500");
+
+        // Commits the response later, unless a negative delay is requested.
+        // The "slow" resource is committed soon but only finishes sending
+        // its entity after the timeout.
+        this.handled = new AtomicInteger();
+        this.component.getDefaultHost().attach(new Restlet() {
+            @Override
+            public void handle(Request request, final Response response) {
+                final boolean slow = "slow".equals(request.getResourceRef()
+                        .getLastSegment());
+                final long delay = slow ? 100 : Long.parseLong(request
+                        .getResourceRef().getLastSegment());
+                handled.incrementAndGet();
+                response.setAutoCommitting(false);
+
+                if (delay >= 0) {
+                    new Thread() {
+                        @Override
+                        public void run() {
+                            try {
+                                Thread.sleep(delay);
+                            } catch (InterruptedException e) {
+                                // Commit anyway
+                            }
+
+                            if (slow) {
+                                response.setEntity(new SlowRepresentation());
+                            } else {
+                                response.setEntity("late",
+                                        MediaType.TEXT_PLAIN);
+                            }
+
+                            response.setStatus(Status.SUCCESS_OK);
+                            response.commit();
+                        }
+                    }.start();
+                }
+            }
+        });
+        this.component.start();
+        this.uri = "http://localhost:" + server.getEphemeralPort() + "/";
+
+        this.client = new Client(new Context(), Protocol.HTTP);
+        this.client.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.client.stop();
+        this.component.stop();
+        this.client = null;
+        this.component = null;
+        this.handled = null;
+
+        // Restore a clean engine
+        Engine.register();
+        super.tearDown();
+    }
+
+    public void testLateCommit() throws Exception {
+        Response response = this.client.handle(new Request(Method.GET,
+                this.uri + "200"));
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("late", response.getEntity().getText());
+        assertEquals(1, this.handled.get());
+    }
+
+    public void testTimeoutWhileSending() throws Exception {
+        Response response = this.client.handle(new Request(Method.GET,
+                this.uri + "slow"));
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("slow", response.getEntity().getText());
+
+        // The expired call isn't dispatched again
+        Thread.sleep(1000);
+        assertEquals(1, this.handled.get());
+    }
+
+    public void testTimeout() throws Exception {
+        Response response = this.client.handle(new Request(Method.GET,
+                this.uri + "-1"));
+        assertEquals(Status.SERVER_ERROR_SERVICE_UNAVAILABLE,
+                response.getStatus());
+        assertEquals(1, this.handled.get());
+    }
+
+}
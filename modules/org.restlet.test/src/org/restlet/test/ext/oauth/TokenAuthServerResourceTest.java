@@ -40,6 +40,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.restlet.ext.oauth.OAuthResourceDefs.ACCESS_TOKEN;
 import static org.restlet.ext.oauth.OAuthResourceDefs.ERROR;
+import static org.restlet.ext.oauth.OAuthResourceDefs.EXPIRES_IN;
 import static org.restlet.ext.oauth.OAuthResourceDefs.SCOPE;
 import static org.restlet.ext.oauth.OAuthResourceDefs.TOKEN_TYPE;
 import static org.restlet.ext.oauth.OAuthResourceDefs.TOKEN_TYPE_BEARER;
@@ -58,9 +59,12 @@ import org.restlet.Restlet;
 import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.ext.json.JsonRepresentation;
+import org.restlet.ext.oauth.OAuthException;
 import org.restlet.ext.oauth.TokenAuthServerResource;
 import org.restlet.ext.oauth.internal.Scopes;
+import org.restlet.ext.oauth.internal.Token;
 import org.restlet.ext.oauth.internal.TokenManager;
+import org.restlet.ext.oauth.internal.memory.MemoryToken;
 import org.restlet.resource.ClientResource;
 import org.restlet.routing.Router;
 
@@ -70,6 +74,10 @@ import org.restlet.routing.Router;
  */
 public class TokenAuthServerResourceTest extends OAuthTestBase {
 
+    private static final String NEAR_ACCESS_TOKEN = "near";
+
+    private static volatile MemoryToken nearToken;
+
     private Reference tokenAuthURI = new Reference(baseURI, "/oauth/token_auth");
 
     public static class StubApplication extends Application {
@@ -78,7 +86,17 @@ public class TokenAuthServerResourceTest extends OAuthTestBase {
         public synchronized Restlet createInboundRoot() {
             Router router = new Router(getContext());
             getContext().getAttributes().put(TokenManager.class.getName(),
-                    new StubTokenManager());
+                    new StubTokenManager() {
+                        @Override
+                        public Token validateToken(String accessToken)
+                                throws OAuthException {
+                            if (accessToken.equals(NEAR_ACCESS_TOKEN)) {
+                                return nearToken;
+                            }
+
+                            return super.validateToken(accessToken);
+                        }
+                    });
             router.attach("/token_auth", TokenAuthServerResource.class);
             return router;
         }
@@ -156,4 +174,28 @@ public class TokenAuthServerResourceTest extends OAuthTestBase {
         assertThat(Scopes.parseScope(response.getString(SCOPE)),
                 is(arrayContainingInAnyOrder("a", "b")));
     }
+
+    /**
+     * Test case 5: Valid request(Remaining lifetime of a token close to
+     * expiry).
+     */
+    @Test
+    public void testCase5() throws Exception {
+        nearToken = new MemoryToken() {
+        };
+        nearToken.setAccessToken(NEAR_ACCESS_TOKEN);
+        nearToken.setExpirePeriod(2);
+        nearToken.setScope(new String[] { "a" });
+        nearToken.setUsername(STUB_USERNAME);
+        Thread.sleep(1100);
+
+        ClientResource resource = new ClientResource(tokenAuthURI);
+        JSONObject request = new JSONObject();
+        request.put(TOKEN_TYPE, TOKEN_TYPE_BEARER);
+        request.put(ACCESS_TOKEN, NEAR_ACCESS_TOKEN);
+        JSONObject response = new JsonRepresentation(
+                resource.post(new JsonRepresentation(request))).getJsonObject();
+        assertFalse(response.has(ERROR));
+        assertTrue(response.getLong(EXPIRES_IN) <= 1);
+    }
 }
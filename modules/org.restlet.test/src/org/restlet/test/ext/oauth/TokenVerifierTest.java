@@ -35,11 +35,15 @@ package org.restlet.test.ext.oauth;
 
 import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.restlet.ext.oauth.OAuthResourceDefs.ACCESS_TOKEN;
+import static org.restlet.ext.oauth.OAuthResourceDefs.EXPIRES_IN;
 import static org.restlet.ext.oauth.OAuthResourceDefs.SCOPE;
 import static org.restlet.ext.oauth.OAuthResourceDefs.USERNAME;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.json.JSONObject;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -84,11 +88,14 @@ public class TokenVerifierTest extends OAuthTestBase {
         }
     }
 
+    private static final AtomicInteger CALLS = new AtomicInteger();
+
     public static class StubServerResource extends ServerResource {
 
         @Post
         public Representation authenticate(Representation input)
                 throws Exception {
+            CALLS.incrementAndGet();
             JSONObject call = new JsonRepresentation(input).getJsonObject();
 
             if (call.getString(ACCESS_TOKEN).equals(STUB_ACCESS_TOKEN)) {
@@ -96,6 +103,13 @@ public class TokenVerifierTest extends OAuthTestBase {
                 resp.put(USERNAME, "testuser");
                 resp.put(SCOPE, "a b");
                 return new JsonRepresentation(resp);
+            } else if (call.getString(ACCESS_TOKEN).equals("near")) {
+                // Token expiring in one second
+                JSONObject resp = new JSONObject();
+                resp.put(USERNAME, "testuser");
+                resp.put(SCOPE, "a b");
+                resp.put(EXPIRES_IN, 1);
+                return new JsonRepresentation(resp);
             } else {
                 OAuthException oex = new OAuthException(
                         OAuthError.invalid_token, "Invalid Token", null);
@@ -225,4 +239,115 @@ public class TokenVerifierTest extends OAuthTestBase {
         assertThat(Scopes.parseScope(info.getRoles()),
                 is(arrayContainingInAnyOrder("a", "b")));
     }
+
+    /**
+     * Test case 7: Valid access_token validated once while cached.
+     */
+    @Test
+    public void testCase7() {
+        TokenVerifier verifier = new TokenVerifier(tokenAuthURI);
+        CALLS.set(0);
+
+        for (int i = 0; i < 3; i++) {
+            Request request = createBearerRequest(STUB_ACCESS_TOKEN);
+            int result = verifier.verify(request, new Response(request));
+            assertThat(result, is(Verifier.RESULT_VALID));
+            assertThat(request.getClientInfo().getUser().getIdentifier(),
+                    is("testuser"));
+        }
+
+        assertThat(CALLS.get(), is(1));
+
+        verifier = new TokenVerifier(tokenAuthURI);
+        verifier.setCacheTimeToLive(0);
+
+        for (int i = 0; i < 2; i++) {
+            Request request = createBearerRequest(STUB_ACCESS_TOKEN);
+            int result = verifier.verify(request, new Response(request));
+            assertThat(result, is(Verifier.RESULT_VALID));
+        }
+
+        assertThat(CALLS.get(), is(3));
+    }
+
+    /**
+     * Test case 8: Invalid access_token negatively cached.
+     */
+    @Test
+    public void testCase8() {
+        TokenVerifier verifier = new TokenVerifier(tokenAuthURI);
+        CALLS.set(0);
+
+        for (int i = 0; i < 3; i++) {
+            Request request = createBearerRequest("qux");
+            int result = verifier.verify(request, new Response(request));
+            assertThat(result, is(Verifier.RESULT_INVALID));
+        }
+
+        assertThat(CALLS.get(), is(1));
+
+        verifier = new TokenVerifier(tokenAuthURI);
+        verifier.setNegativeCacheTimeToLive(0);
+
+        for (int i = 0; i < 2; i++) {
+            Request request = createBearerRequest("qux");
+            int result = verifier.verify(request, new Response(request));
+            assertThat(result, is(Verifier.RESULT_INVALID));
+        }
+
+        assertThat(CALLS.get(), is(3));
+    }
+
+    /**
+     * Test case 9: Local validation with the token manager.
+     */
+    @Test
+    public void testCase9() {
+        TokenVerifier verifier = new TokenVerifier(new StubTokenManager());
+        CALLS.set(0);
+
+        Request request = createBearerRequest(STUB_ACCESS_TOKEN);
+        int result = verifier.verify(request, new Response(request));
+        assertThat(result, is(Verifier.RESULT_VALID));
+        assertThat(request.getClientInfo().getUser().getIdentifier(),
+                is(STUB_USERNAME));
+
+        request = createBearerRequest("qux");
+        result = verifier.verify(request, new Response(request));
+        assertThat(result, is(Verifier.RESULT_INVALID));
+        assertThat(request.getClientInfo().getUser(), is(nullValue()));
+        assertThat(CALLS.get(), is(0));
+    }
+
+    /**
+     * Test case 10: Valid access_token close to expiry not cached beyond its
+     * expiration.
+     */
+    @Test
+    public void testCase10() throws Exception {
+        TokenVerifier verifier = new TokenVerifier(tokenAuthURI);
+        CALLS.set(0);
+
+        for (int i = 0; i < 2; i++) {
+            Request request = createBearerRequest("near");
+            int result = verifier.verify(request, new Response(request));
+            assertThat(result, is(Verifier.RESULT_VALID));
+        }
+
+        assertThat(CALLS.get(), is(1));
+        Thread.sleep(1100);
+
+        Request request = createBearerRequest("near");
+        verifier.verify(request, new Response(request));
+        assertThat(CALLS.get(), is(2));
+    }
+
+    private static Request createBearerRequest(String token) {
+        Request request = new Request();
+        ChallengeResponse cr = new ChallengeResponse(
+                ChallengeScheme.HTTP_OAUTH_BEARER);
+        cr.setRawValue(token);
+        request.setChallengeResponse(cr);
+        return request;
+    }
 }
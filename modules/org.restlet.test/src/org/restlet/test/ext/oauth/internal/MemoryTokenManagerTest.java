@@ -0,0 +1,193 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.oauth.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restlet.ext.oauth.OAuthException;
+import org.restlet.ext.oauth.internal.AuthSession;
+import org.restlet.ext.oauth.internal.Client;
+import org.restlet.ext.oauth.internal.Token;
+import org.restlet.ext.oauth.internal.memory.MemoryClientManager;
+import org.restlet.ext.oauth.internal.memory.MemoryTokenManager;
+
+/**
+ * Unit tests for the {@link MemoryTokenManager} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class MemoryTokenManagerTest {
+
+    private Client client1;
+
+    private Client client2;
+
+    private MemoryTokenManager manager;
+
+    @Before
+    public void setUp() {
+        MemoryClientManager clients = new MemoryClientManager();
+        client1 = clients.createClient(Client.ClientType.CONFIDENTIAL, null,
+                null);
+        client2 = clients.createClient(Client.ClientType.CONFIDENTIAL, null,
+                null);
+        manager = new MemoryTokenManager();
+    }
+
+    @After
+    public void tearDown() {
+        manager.stop();
+    }
+
+    @Test
+    public void testConcurrentGeneration() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Token>> tasks = new ArrayList<Callable<Token>>();
+
+        for (int i = 0; i < 200; i++) {
+            tasks.add(new Callable<Token>() {
+                public Token call() throws Exception {
+                    return manager.generateToken(client1, "alice",
+                            new String[] { "a" });
+                }
+            });
+        }
+
+        try {
+            for (Future<Token> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Only the last token of the owner is kept, and it is indexed
+        assertThat(manager.getTokenCount(), is(1));
+        Token token = manager.findToken(client1, "alice");
+        assertThat(manager.validateToken(token.getAccessToken()),
+                sameInstance(token));
+        assertThat(manager.refreshToken(client1, token.getRefreshToken(),
+                null), notNullValue());
+
+        manager.revokeToken(client1, "alice");
+        assertThat(manager.getTokenCount(), is(0));
+        assertThat(manager.findToken(client1, "alice"), nullValue());
+    }
+
+    @Test
+    public void testIndexes() throws Exception {
+        Token token1 = manager.generateToken(client1, "alice",
+                new String[] { "a" });
+        Token token2 = manager.generateToken(client2, "alice",
+                new String[] { "a" });
+        Token token3 = manager.generateToken(client1, new String[] { "b" });
+        assertThat(manager.getTokenCount(), is(3));
+
+        assertThat(manager.findToken(client1, "alice"), sameInstance(token1));
+        assertThat(manager.findToken(client1), sameInstance(token3));
+        assertThat(manager.findTokens("alice").length, is(2));
+        assertThat(manager.findTokens(client1).length, is(2));
+
+        // Generating a new token for the same owner replaces the previous one
+        Token token4 = manager.generateToken(client1, "alice",
+                new String[] { "c" });
+        assertThat(manager.getTokenCount(), is(3));
+        assertThat(manager.findToken(client1, "alice"), sameInstance(token4));
+
+        // Refreshing replaces the token in all the indexes
+        Token token5 = manager.refreshToken(client2, token2.getRefreshToken(),
+                null);
+        assertThat(manager.findToken(client2, "alice"), sameInstance(token5));
+        assertThat(manager.validateToken(token5.getAccessToken()),
+                sameInstance(token5));
+
+        try {
+            manager.refreshToken(client2, token2.getRefreshToken(), null);
+            fail("The refresh token should be replaced");
+        } catch (OAuthException e) {
+            // Expected
+        }
+
+        manager.revokeAllTokens("alice");
+        assertThat(manager.findTokens("alice").length, is(0));
+        assertThat(manager.findTokens(client1).length, is(1));
+
+        manager.revokeAllTokens(client1);
+        assertThat(manager.findToken(client1), nullValue());
+        assertThat(manager.getTokenCount(), is(0));
+    }
+
+    @Test
+    public void testPurge() throws Exception {
+        manager.setExpirePeriod(0);
+        manager.generateToken(client1, "alice", new String[] { "a" });
+        manager.setExpirePeriod(3600);
+        Token token = manager.generateToken(client2, "bob",
+                new String[] { "a" });
+
+        AuthSession session = AuthSession.newAuthSession();
+        session.setSessionTimeout(0);
+        manager.storeSession(session);
+        session = AuthSession.newAuthSession();
+        String code = manager.storeSession(session);
+        assertThat(manager.getSessionCount(), is(2));
+
+        Thread.sleep(2100);
+        manager.purge();
+
+        assertThat(manager.getTokenCount(), is(1));
+        assertThat(manager.getPurgedTokenCount(), is(1L));
+        assertThat(manager.findTokens("alice").length, is(0));
+        assertThat(manager.findToken(client2, "bob"), sameInstance(token));
+        assertThat(manager.getSessionCount(), is(1));
+        assertThat(manager.getPurgedSessionCount(), is(1L));
+        assertThat(manager.restoreSession(code), sameInstance(session));
+    }
+}
@@ -0,0 +1,337 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.representation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Preference;
+import org.restlet.data.Reference;
+import org.restlet.data.Tag;
+import org.restlet.engine.application.DecodeRepresentation;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.engine.application.Encoder;
+import org.restlet.engine.application.EncoderCache;
+import org.restlet.engine.application.PreEncodedRepresentation;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.InputRepresentation;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.service.EncoderService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link EncodeRepresentation} and
+ * {@link DecodeRepresentation} classes.
+ * 
+ * @author Jerome Louvel
+ */
+public class EncodeRepresentationTestCase extends RestletTestCase {
+
+    /** Sample text, large enough to span several buffers once encoded. */
+    private static final String TEXT = createText();
+
+    private static String createText() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 20000; i++) {
+            sb.append("Line ").append(i).append(" of the sample text.\n");
+        }
+
+        return sb.toString();
+    }
+
+    private String decode(Encoding encoding, byte[] encoded)
+            throws IOException {
+        Representation rep = new InputRepresentation(new ByteArrayInputStream(
+                encoded), MediaType.TEXT_PLAIN);
+        rep.getEncodings().add(encoding);
+        return new DecodeRepresentation(rep).getText();
+    }
+
+    private byte[] encode(Encoding encoding, boolean stream)
+            throws IOException {
+        EncodeRepresentation rep = new EncodeRepresentation(encoding,
+                new StringRepresentation(TEXT), Deflater.BEST_SPEED,
+                Deflater.DEFAULT_STRATEGY, false);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        if (stream) {
+            BioUtils.copy(rep.getStream(), baos);
+        } else {
+            rep.write(baos);
+        }
+
+        return baos.toByteArray();
+    }
+
+    private ClientInfo createClientInfo() {
+        ClientInfo result = new ClientInfo();
+        result.getAcceptedEncodings().add(
+                new Preference<Encoding>(Encoding.GZIP));
+        return result;
+    }
+
+    private byte[] toByteArray(Representation representation)
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        representation.write(baos);
+        return baos.toByteArray();
+    }
+
+    public void testCache() throws IOException {
+        EncoderService encoderService = new EncoderService();
+        Encoder encoder = new Encoder(new Context(), false, true,
+                encoderService);
+        Reference ref = new Reference("http://localhost/text");
+
+        for (int i = 0; i < 2; i++) {
+            Representation source = new StringRepresentation(TEXT);
+            source.setTag(new Tag("v1", false));
+            Representation encoded = encoder.encode(createClientInfo(),
+                    source, ref);
+            assertTrue(encoded instanceof PreEncodedRepresentation);
+            assertEquals(Encoding.GZIP, encoded.getEncodings().get(0));
+            assertEquals(TEXT, decode(Encoding.GZIP,
+                    toByteArray(encoded)));
+        }
+
+        assertEquals(1, encoderService.getCache().getHitCount());
+
+        // Weak tags don't identify the content
+        Representation source = new StringRepresentation(TEXT);
+        source.setTag(new Tag("v1", true));
+        assertTrue(encoder.encode(createClientInfo(), source, ref)
+                instanceof EncodeRepresentation);
+    }
+
+    public void testCacheHead() throws IOException {
+        EncoderService encoderService = new EncoderService();
+        Encoder encoder = new Encoder(new Context(), false, true,
+                encoderService);
+        Request request = new Request(Method.HEAD, "http://localhost/text");
+        request.getClientInfo().getAcceptedEncodings()
+                .add(new Preference<Encoding>(Encoding.GZIP));
+        Response response = new Response(request);
+        Representation source = new StringRepresentation(TEXT);
+        source.setTag(new Tag("v1", false));
+        response.setEntity(source);
+
+        // The entity of HEAD responses isn't encoded in the cache
+        encoder.afterHandle(request, response);
+        assertTrue(response.getEntity() instanceof EncodeRepresentation);
+        assertEquals(0, encoderService.getCache().size());
+    }
+
+    public void testCacheSize() throws IOException {
+        EncoderService encoderService = new EncoderService();
+        encoderService.setCache(new EncoderCache(10, TEXT.length(), 1024));
+        Encoder encoder = new Encoder(new Context(), false, true,
+                encoderService);
+        Representation source = new StringRepresentation(TEXT);
+        source.setTag(new Tag("v1", false));
+
+        // The encoded content exceeds the maximum total size
+        encoder.encode(createClientInfo(), source, new Reference(
+                "http://localhost/text"));
+        assertEquals(0, encoderService.getCache().size());
+    }
+
+    public void testDecodeJdkGzip() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        GZIPOutputStream gos = new GZIPOutputStream(baos);
+        gos.write(TEXT.getBytes("UTF-8"));
+        gos.close();
+        assertEquals(TEXT, decode(Encoding.GZIP, baos.toByteArray()));
+
+        // Corrupt the CRC of the trailer
+        byte[] corrupted = baos.toByteArray();
+        corrupted[corrupted.length - 8]++;
+
+        Representation rep = new InputRepresentation(new ByteArrayInputStream(
+                corrupted), MediaType.TEXT_PLAIN);
+        rep.getEncodings().add(Encoding.GZIP);
+        InputStream decoded = new DecodeRepresentation(rep).getStream();
+
+        try {
+            while (decoded.read() != -1) {
+                // Consume the decoded bytes
+            }
+
+            fail("The corrupted trailer should be detected");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    public void testDeflate() throws IOException {
+        for (boolean stream : new boolean[] { false, true }) {
+            byte[] encoded = encode(Encoding.DEFLATE, stream);
+            assertEquals(TEXT, BioUtils.toString(new InflaterInputStream(
+                    new ByteArrayInputStream(encoded))));
+            assertEquals(TEXT, decode(Encoding.DEFLATE, encoded));
+        }
+    }
+
+    public void testGzip() throws IOException {
+        for (boolean stream : new boolean[] { false, true }) {
+            byte[] encoded = encode(Encoding.GZIP, stream);
+            assertTrue(encoded.length < TEXT.length());
+            assertEquals(TEXT, BioUtils.toString(new GZIPInputStream(
+                    new ByteArrayInputStream(encoded))));
+            assertEquals(TEXT, decode(Encoding.GZIP, encoded));
+        }
+    }
+
+    public void testPrecompressed() throws IOException {
+        File dir = new File(System.getProperty("java.io.tmpdir"),
+                "restlet-precompressed-" + System.currentTimeMillis());
+        dir.mkdirs();
+
+        try {
+            File file = new File(dir, "app.js");
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write(TEXT.getBytes("UTF-8"));
+            fos.close();
+
+            File gzFile = new File(dir, "app.js.gz");
+            GZIPOutputStream gos = new GZIPOutputStream(new FileOutputStream(
+                    gzFile));
+            gos.write(TEXT.getBytes("UTF-8"));
+            gos.close();
+            gzFile.setLastModified(file.lastModified());
+
+            EncoderService encoderService = new EncoderService();
+            encoderService.setCache(null);
+            Encoder encoder = new Encoder(new Context(), false, true,
+                    encoderService);
+
+            // Disabled by default
+            assertTrue(encoder.encode(createClientInfo(),
+                    new FileRepresentation(file, MediaType.TEXT_JAVASCRIPT))
+                    instanceof EncodeRepresentation);
+
+            encoderService.setPrecompressed(true);
+            Representation encoded = encoder.encode(createClientInfo(),
+                    new FileRepresentation(file, MediaType.TEXT_JAVASCRIPT));
+            assertTrue(encoded instanceof PreEncodedRepresentation);
+            assertEquals(MediaType.TEXT_JAVASCRIPT, encoded.getMediaType());
+            assertEquals(gzFile.length(), encoded.getSize());
+            assertEquals(TEXT, decode(Encoding.GZIP,
+                    toByteArray(encoded)));
+
+            // Stale precompressed file
+            gzFile.setLastModified(file.lastModified() - 10000);
+            assertTrue(encoder.encode(createClientInfo(),
+                    new FileRepresentation(file, MediaType.TEXT_JAVASCRIPT))
+                    instanceof EncodeRepresentation);
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+
+            dir.delete();
+        }
+    }
+
+    public void testSyncFlush() throws IOException {
+        Representation source = new OutputRepresentation(
+                MediaType.TEXT_PLAIN) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                outputStream.write("first".getBytes("UTF-8"));
+                outputStream.flush();
+            }
+        };
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new EncodeRepresentation(Encoding.GZIP, source,
+                Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, true)
+                .write(new OutputStream() {
+                    ByteArrayOutputStream flushed = null;
+
+                    @Override
+                    public void flush() throws IOException {
+                        if (flushed == null) {
+                            // The flushed bytes can already be decoded
+                            InputStream in = new GZIPInputStream(
+                                    new ByteArrayInputStream(baos
+                                            .toByteArray()));
+                            byte[] b = new byte[5];
+                            int count = 0;
+
+                            while (count < 5) {
+                                count += in.read(b, count, 5 - count);
+                            }
+
+                            assertEquals("first", new String(b, "UTF-8"));
+                            flushed = baos;
+                        }
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        baos.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len)
+                            throws IOException {
+                        baos.write(b, off, len);
+                    }
+                });
+
+        assertEquals("first", BioUtils.toString(new GZIPInputStream(
+                new ByteArrayInputStream(baos.toByteArray()))));
+    }
+
+}
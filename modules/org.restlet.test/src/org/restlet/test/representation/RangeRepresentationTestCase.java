@@ -33,8 +33,17 @@
 
 package org.restlet.test.representation;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import org.restlet.data.MediaType;
 import org.restlet.data.Range;
+import org.restlet.engine.application.MultipartRangeRepresentation;
 import org.restlet.engine.application.RangeRepresentation;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.test.RestletTestCase;
 
@@ -67,4 +76,58 @@ public class RangeRepresentationTestCase extends RestletTestCase {
         assertEquals("67890", rr.getText());
     }
 
+    public void testFile() throws Exception {
+        File file = File.createTempFile("range", ".txt");
+
+        try {
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write("1234567890".getBytes("US-ASCII"));
+            fos.close();
+
+            FileRepresentation fr = new FileRepresentation(file,
+                    MediaType.TEXT_PLAIN);
+            RangeRepresentation rr = new RangeRepresentation(fr, new Range(
+                    Range.INDEX_LAST, 4));
+            assertEquals("7890", rr.getText());
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            new RangeRepresentation(fr, new Range(3, 4)).write(Channels
+                    .newChannel(baos));
+            assertEquals("4567", baos.toString("US-ASCII"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testMultipart() throws Exception {
+        StringRepresentation sr = new StringRepresentation("1234567890");
+        MultipartRangeRepresentation mr = new MultipartRangeRepresentation(sr,
+                Arrays.asList(new Range(0, 2), new Range(Range.INDEX_LAST, 3),
+                        new Range(20, 5)));
+        String boundary = mr.getBoundary();
+        String expected = "--" + boundary + "\r\n"
+                + "Content-Type: text/plain; charset=UTF-8\r\n"
+                + "Content-Range: bytes 0-1/10\r\n\r\n12\r\n--" + boundary
+                + "\r\nContent-Type: text/plain; charset=UTF-8\r\n"
+                + "Content-Range: bytes 7-9/10\r\n\r\n890\r\n--"
+                + boundary + "--\r\n";
+
+        assertEquals(2, mr.getRanges().size());
+        assertNull(mr.getRange());
+        assertTrue(MediaType.MULTIPART_BYTERANGES.equals(mr.getMediaType(),
+                true));
+        assertEquals(boundary,
+                mr.getMediaType().getParameters().getFirstValue("boundary"));
+        assertEquals(expected.length(), mr.getSize());
+        assertEquals(expected, mr.getText());
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        mr.write(baos);
+        assertEquals(expected, baos.toString("US-ASCII"));
+
+        baos = new ByteArrayOutputStream();
+        mr.write(Channels.newChannel(baos));
+        assertEquals(expected, baos.toString("US-ASCII"));
+    }
+
 }
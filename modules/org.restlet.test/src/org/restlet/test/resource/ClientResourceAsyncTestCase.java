@@ -0,0 +1,303 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.resource;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Client;
+import org.restlet.Component;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Uniform;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.ClientHelper;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.resource.ClientResource;
+import org.restlet.resource.ResourceException;
+import org.restlet.resource.Result;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test the asynchronous API of the client resource.
+ * 
+ * @author Jerome Louvel
+ */
+public class ClientResourceAsyncTestCase extends RestletTestCase {
+
+    /**
+     * Asynchronous handler answering from another thread, like a connector.
+     * The first calls fail with a 503 status, then a successful response is
+     * sent.
+     */
+    private static class AsyncHandler implements Uniform {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final long delay;
+
+        private final int failures;
+
+        public AsyncHandler(int failures, long delay) {
+            this.failures = failures;
+            this.delay = delay;
+        }
+
+        public void handle(final Request request, final Response response) {
+            final int call = calls.incrementAndGet();
+            request.getAttributes().put(ClientHelper.ATTRIBUTE_ASYNC_PENDING,
+                    Boolean.TRUE);
+
+            new Thread() {
+                public void run() {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    if (call <= failures) {
+                        response.setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+                    } else {
+                        response.setEntity(new StringRepresentation("call "
+                                + call));
+                    }
+
+                    request.getOnResponse().handle(request, response);
+                }
+            }.start();
+        }
+    }
+
+    private ClientResource createResource(AsyncHandler handler) {
+        ClientResource result = new ClientResource("http://local/test");
+        result.setNext(handler);
+        result.setRetryDelay(10);
+        return result;
+    }
+
+    public void testCallback() throws Exception {
+        ClientResource resource = createResource(new AsyncHandler(0, 10));
+        final StringBuilder received = new StringBuilder();
+        Future<String> future = resource.getAsync(String.class,
+                new Result<String>() {
+                    public void onFailure(Throwable caught) {
+                        received.append("failure");
+                    }
+
+                    public void onSuccess(String result) {
+                        received.append(result);
+                    }
+                });
+
+        assertEquals("call 1", future.get(5, TimeUnit.SECONDS));
+        assertEquals("call 1", received.toString());
+    }
+
+    public void testCancel() throws Exception {
+        ClientResource resource = createResource(new AsyncHandler(0, 500));
+        Future<String> future = resource.getAsync(String.class);
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+
+        try {
+            future.get();
+            fail("Cancelled call must not return a result");
+        } catch (CancellationException ce) {
+            // Expected
+        }
+    }
+
+    public void testFailure() throws Exception {
+        ClientResource resource = createResource(new AsyncHandler(5, 10));
+        Future<String> future = resource.getAsync(String.class);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Failed call must not return a result");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof ResourceException);
+            assertEquals(Status.SERVER_ERROR_SERVICE_UNAVAILABLE,
+                    ((ResourceException) ee.getCause()).getStatus());
+        }
+    }
+
+    public void testRetry() throws Exception {
+        ClientResource resource = createResource(new AsyncHandler(2, 10));
+        Future<String> future = resource.getAsync(String.class);
+        assertEquals("call 3", future.get(5, TimeUnit.SECONDS));
+    }
+
+    public void testHttp() throws Exception {
+        Component component = new Component();
+        component.getServers().add(Protocol.HTTP, TEST_PORT);
+        component.getDefaultHost().attach("/slow", new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+
+                response.setEntity(new StringRepresentation("slow"));
+            }
+        });
+        component.start();
+        Client client = new Client(Protocol.HTTP);
+        client.start();
+
+        try {
+            ClientResource resource = new ClientResource("http://localhost:"
+                    + TEST_PORT + "/slow");
+            resource.setNext(client);
+            assertEquals("slow",
+                    resource.getAsync(String.class).get(5, TimeUnit.SECONDS));
+        } finally {
+            client.stop();
+            component.stop();
+        }
+    }
+
+    public void testRedirect() throws Exception {
+        ClientResource resource = new ClientResource("http://local/old");
+        resource.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                if (request.getResourceRef().getPath().equals("/old")) {
+                    response.redirectTemporary("http://local/new");
+                } else {
+                    response.setEntity(new StringRepresentation(request
+                            .getResourceRef().getPath()));
+                }
+            }
+        });
+
+        assertEquals("/new",
+                resource.getAsync(String.class).get(5, TimeUnit.SECONDS));
+
+        // Redirections can be disabled
+        resource.setFollowingRedirects(false);
+
+        try {
+            resource.getAsync(String.class).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException ee) {
+            fail("Redirection responses aren't errors");
+        }
+
+        assertEquals(Status.REDIRECTION_TEMPORARY, resource.getStatus());
+    }
+
+    public void testSynchronousHandler() throws Exception {
+        ClientResource resource = new ClientResource("http://local/test");
+        resource.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                response.setEntity(new StringRepresentation("hello"));
+            }
+        });
+
+        assertEquals("hello", resource.get(String.class));
+        assertEquals("hello",
+                resource.getAsync(String.class).get(5, TimeUnit.SECONDS));
+
+        // Answers keeping the default status without entity complete too
+        resource.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+            }
+        });
+
+        assertNull(resource.getAsync(String.class).get(5, TimeUnit.SECONDS));
+        assertEquals(Status.SUCCESS_OK, resource.getStatus());
+
+        // Synchronous errors fail the future
+        resource.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+            }
+        });
+
+        try {
+            resource.getAsync(String.class).get(5, TimeUnit.SECONDS);
+            fail("Failed call must not return a result");
+        } catch (ExecutionException ee) {
+            assertEquals(Status.CLIENT_ERROR_NOT_FOUND,
+                    ((ResourceException) ee.getCause()).getStatus());
+        }
+    }
+
+    public void testRiap() throws Exception {
+        Component component = new Component();
+        component.getInternalRouter().attach("/hello", new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                response.setEntity(new StringRepresentation("hello"));
+            }
+        });
+        component.start();
+
+        try {
+            ClientResource resource = new ClientResource(
+                    "riap://component/hello");
+            resource.setNext(component.getContext().getClientDispatcher());
+            assertEquals("hello",
+                    resource.getAsync(String.class).get(5, TimeUnit.SECONDS));
+        } finally {
+            component.stop();
+        }
+    }
+
+    public void testTimeout() throws Exception {
+        ClientResource resource = createResource(new AsyncHandler(0, 2000));
+        resource.setAsyncTimeout(50);
+        Future<String> future = resource.getAsync(String.class);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Timed out call must not return a result");
+        } catch (ExecutionException ee) {
+            assertEquals(Status.CONNECTOR_ERROR_COMMUNICATION,
+                    ((ResourceException) ee.getCause()).getStatus());
+        }
+    }
+
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.resource.DigestTagStrategy;
+import org.restlet.engine.resource.FileTagStrategy;
+import org.restlet.engine.resource.TagStrategy;
+import org.restlet.engine.resource.VersionTagStrategy;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.resource.Finder;
+import org.restlet.resource.ServerResource;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the tag strategies and the evaluation of the conditions before
+ * the resource invocation.
+ * 
+ * @author Jerome Louvel
+ */
+public class TagStrategyTestCase extends RestletTestCase {
+
+    /**
+     * Resource counting its invocations.
+     */
+    public static class TaggedResource extends ServerResource {
+
+        @Override
+        protected void doInit() {
+            setNegotiated(false);
+            setTagStrategy(strategy);
+        }
+
+        @Override
+        protected Representation get() {
+            invocations++;
+            return new StringRepresentation(content);
+        }
+
+        @Override
+        protected Representation post(Representation entity) {
+            invocations++;
+            content = "updated";
+            return null;
+        }
+
+        @Override
+        protected Representation put(Representation entity) {
+            invocations++;
+            return null;
+        }
+    }
+
+    private static volatile String content;
+
+    private static volatile int invocations;
+
+    private static volatile TagStrategy strategy;
+
+    private static volatile int version;
+
+    private Response handle(Method method, Tag match, Tag noneMatch)
+            throws IOException {
+        Request request = new Request(method, "http://localhost/test");
+
+        if (match != null) {
+            request.getConditions().getMatch().add(match);
+        }
+
+        if (noneMatch != null) {
+            request.getConditions().getNoneMatch().add(noneMatch);
+        }
+
+        Response response = new Response(request);
+        new Finder(null, TaggedResource.class).handle(request, response);
+
+        if (response.isEntityAvailable()) {
+            // Consume the entity as a connector would do
+            response.getEntity().write(new ByteArrayOutputStream());
+        }
+
+        return response;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        content = "content";
+        invocations = 0;
+        version = 1;
+    }
+
+    public void testDigest() throws Exception {
+        DigestTagStrategy digestStrategy = new DigestTagStrategy();
+        digestStrategy.setTimeToLive(60000L);
+        strategy = digestStrategy;
+        Response response = handle(Method.GET, null, null);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertNull(response.getEntity().getTag());
+        assertEquals(1, invocations);
+
+        // The tag computed while writing is now known
+        response = handle(Method.GET, null, null);
+        Tag tag = response.getEntity().getTag();
+        assertNotNull(tag);
+        assertFalse(tag.isWeak());
+        assertEquals(2, invocations);
+
+        response = handle(Method.GET, null, tag);
+        assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+        assertEquals(tag, response.getEntity().getTag());
+        assertEquals(2, invocations);
+
+        // Non-safe methods forget the tag
+        response = handle(Method.POST, null, null);
+        assertEquals(3, invocations);
+        response = handle(Method.GET, null, tag);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(4, invocations);
+
+        response = handle(Method.GET, null, tag);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertFalse(tag.equals(response.getEntity().getTag()));
+    }
+
+    public void testDigestChanged() throws Exception {
+        strategy = new DigestTagStrategy();
+        content = "v1";
+        handle(Method.GET, null, null);
+        content = "v2-changed";
+
+        // Without modification date nor time to live, the digest can't be
+        // reused and is computed again
+        Response response = handle(Method.GET, null, null);
+        assertNull(response.getEntity().getTag());
+        response = handle(Method.GET, null, null);
+        assertNull(response.getEntity().getTag());
+        assertEquals(3, invocations);
+
+        DigestTagStrategy digestStrategy = new DigestTagStrategy();
+        strategy = digestStrategy;
+        content = "v1";
+        digestStrategy.setTimeToLive(60000L);
+        handle(Method.GET, null, null);
+        Tag tag = handle(Method.GET, null, null).getEntity().getTag();
+        assertNotNull(tag);
+
+        // The old tag isn't trusted once the time to live is disabled
+        digestStrategy.setTimeToLive(0L);
+        content = "v2-changed";
+        response = handle(Method.GET, null, tag);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertNull(response.getEntity().getTag());
+        assertEquals(6, invocations);
+    }
+
+    public void testDigestText() throws Exception {
+        DigestTagStrategy digestStrategy = new DigestTagStrategy();
+        digestStrategy.setTimeToLive(60000L);
+        strategy = digestStrategy;
+
+        Request request = new Request(Method.GET, "http://localhost/test");
+        Response response = new Response(request);
+        new Finder(null, TaggedResource.class).handle(request, response);
+        assertEquals("content", response.getEntity().getText());
+
+        // The digest was computed while reading the text
+        Tag tag = handle(Method.GET, null, null).getEntity().getTag();
+        assertNotNull(tag);
+        assertEquals(Status.REDIRECTION_NOT_MODIFIED,
+                handle(Method.GET, null, tag).getStatus());
+    }
+
+    public void testFile() throws Exception {
+        File file = File.createTempFile("tag", ".txt");
+
+        try {
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write(BioUtils.toHexString(new byte[] { 1, 2, 3 }).getBytes());
+            fos.close();
+            file.setLastModified(1000000000000L);
+            strategy = new FileTagStrategy(file);
+
+            Response response = handle(Method.GET, null, null);
+            Tag tag = response.getEntity().getTag();
+            assertNotNull(tag);
+            assertTrue(tag.isWeak());
+
+            response = handle(Method.GET, null, tag);
+            assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+            assertEquals(1, invocations);
+
+            file.setLastModified(1000000001000L);
+            response = handle(Method.GET, null, tag);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals(2, invocations);
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testVersion() throws Exception {
+        strategy = new VersionTagStrategy() {
+            @Override
+            protected Object getVersion(ServerResource resource) {
+                return "v" + version;
+            }
+        };
+
+        Response response = handle(Method.GET, null, null);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(new Tag("v1", false), response.getEntity().getTag());
+        assertEquals(1, invocations);
+
+        response = handle(Method.GET, null, new Tag("v1", false));
+        assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+        assertEquals(new Tag("v1", false), response.getEntity().getTag());
+        assertEquals(1, invocations);
+
+        response = handle(Method.PUT, new Tag("v0", false), null);
+        assertEquals(Status.CLIENT_ERROR_PRECONDITION_FAILED,
+                response.getStatus());
+        assertEquals(1, invocations);
+
+        response = handle(Method.PUT, new Tag("v1", false), null);
+        assertTrue(response.getStatus().isSuccess());
+        assertEquals(2, invocations);
+
+        version = 2;
+        response = handle(Method.GET, null, new Tag("v1", false));
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(3, invocations);
+    }
+
+}
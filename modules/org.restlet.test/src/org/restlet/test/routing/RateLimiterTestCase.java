@@ -0,0 +1,244 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.routing;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Status;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.routing.RateLimiter;
+import org.restlet.security.User;
+import org.restlet.test.RestletTestCase;
+import org.restlet.test.TraceRestlet;
+import org.restlet.util.Series;
+
+/**
+ * Test {@link org.restlet.routing.RateLimiter}.
+ * 
+ * @author Jerome Louvel
+ */
+public class RateLimiterTestCase extends RestletTestCase {
+
+    /**
+     * Handles a call from the given client address.
+     * 
+     * @param limiter
+     *            The rate limiter.
+     * @param address
+     *            The client address.
+     * @return The response.
+     */
+    private Response handle(RateLimiter limiter, String address) {
+        Request rq = new Request();
+        rq.getClientInfo().setAddress(address);
+        Response rs = new Response(rq);
+        limiter.handle(rq, rs);
+        return rs;
+    }
+
+    public void testBuckets() {
+        RateLimiter limiter = new RateLimiter(null, new TraceRestlet(null),
+                0.001, 1);
+        limiter.setMaxBuckets(10);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0." + i)
+                    .getStatus());
+        }
+
+        assertEquals(10, limiter.getBucketCount());
+
+        // New keys can't evict the limited buckets and share the overflow one
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.10")
+                .getStatus());
+
+        for (int i = 11; i < 100; i++) {
+            assertEquals(Status.CLIENT_ERROR_TOO_MANY_REQUESTS,
+                    handle(limiter, "10.0.0." + i).getStatus());
+            assertEquals(10, limiter.getBucketCount());
+        }
+
+        // A limited key stays limited
+        assertEquals(Status.CLIENT_ERROR_TOO_MANY_REQUESTS,
+                handle(limiter, "10.0.0.0").getStatus());
+
+        limiter.clear();
+        assertEquals(0, limiter.getBucketCount());
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.0")
+                .getStatus());
+    }
+
+    public void testBucketsEviction() throws Exception {
+        RateLimiter limiter = new RateLimiter(null, new TraceRestlet(null),
+                20, 1);
+        limiter.setMaxBuckets(2);
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.1")
+                .getStatus());
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.2")
+                .getStatus());
+
+        // Once full again, the buckets are evicted to make room
+        Thread.sleep(100);
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.3")
+                .getStatus());
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.4")
+                .getStatus());
+        assertEquals(2, limiter.getBucketCount());
+    }
+
+    public void testConcurrency() {
+        final RateLimiter limiter = new RateLimiter();
+        final Response[] inner = new Response[1];
+        limiter.setMaxConcurrentRequests(1);
+        limiter.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                assertEquals(1, limiter.getConcurrentRequests());
+
+                if (inner[0] == null) {
+                    inner[0] = RateLimiterTestCase.this.handle(limiter,
+                            "10.0.0.1");
+                }
+
+                response.setStatus(Status.SUCCESS_OK);
+            }
+        });
+
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.1")
+                .getStatus());
+        assertEquals(Status.SERVER_ERROR_SERVICE_UNAVAILABLE,
+                inner[0].getStatus());
+        assertNotNull(inner[0].getRetryAfter());
+        assertEquals(0, limiter.getConcurrentRequests());
+
+        // The slot is released
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.1")
+                .getStatus());
+    }
+
+    public void testHeaderKey() {
+        RateLimiter limiter = new RateLimiter(null, new TraceRestlet(null),
+                0.001, 1);
+        limiter.setKeyMode(RateLimiter.KEY_HEADER);
+
+        Status[] statuses = new Status[3];
+        String[] keys = { "a", "b", "a" };
+
+        for (int i = 0; i < keys.length; i++) {
+            Request rq = new Request();
+            rq.getClientInfo().setAddress("10.0.0.1");
+            Series<Header> headers = new Series<Header>(Header.class);
+            headers.add("x-api-key", keys[i]);
+            rq.getAttributes().put(HeaderConstants.ATTRIBUTE_HEADERS, headers);
+            Response rs = new Response(rq);
+            limiter.handle(rq, rs);
+            statuses[i] = rs.getStatus();
+        }
+
+        assertEquals(Status.SUCCESS_OK, statuses[0]);
+        assertEquals(Status.SUCCESS_OK, statuses[1]);
+        assertEquals(Status.CLIENT_ERROR_TOO_MANY_REQUESTS, statuses[2]);
+
+        // Requests without key are limited by address
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.1")
+                .getStatus());
+        assertEquals(Status.CLIENT_ERROR_TOO_MANY_REQUESTS,
+                handle(limiter, "10.0.0.1").getStatus());
+    }
+
+    public void testRate() {
+        RateLimiter limiter = new RateLimiter(null, new TraceRestlet(null),
+                0.5, 2);
+        long start = System.currentTimeMillis();
+
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.1")
+                .getStatus());
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.1")
+                .getStatus());
+        Response rs = handle(limiter, "10.0.0.1");
+        assertEquals(Status.CLIENT_ERROR_TOO_MANY_REQUESTS, rs.getStatus());
+        assertSame(Status.CLIENT_ERROR_TOO_MANY_REQUESTS, Status.valueOf(429));
+        assertNotNull(rs.getRetryAfter());
+
+        // The next token is available in 2 seconds at most
+        long delay = rs.getRetryAfter().getTime() - start;
+        assertTrue(delay >= 1000 && delay <= 3000);
+
+        // Other clients aren't affected
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.2")
+                .getStatus());
+        assertEquals(2, limiter.getBucketCount());
+
+        // Rejected calls don't consume tokens
+        RateLimiter fast = new RateLimiter(null, new TraceRestlet(null), 20,
+                1);
+        assertEquals(Status.SUCCESS_OK, handle(fast, "10.0.0.1").getStatus());
+        assertEquals(Status.CLIENT_ERROR_TOO_MANY_REQUESTS,
+                handle(fast, "10.0.0.1").getStatus());
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            fail();
+        }
+        assertEquals(Status.SUCCESS_OK, handle(fast, "10.0.0.1").getStatus());
+    }
+
+    public void testUserKey() {
+        RateLimiter limiter = new RateLimiter(null, new TraceRestlet(null),
+                0.001, 1);
+        limiter.setKeyMode(RateLimiter.KEY_USER);
+
+        Request rq = new Request();
+        rq.getClientInfo().setAddress("10.0.0.1");
+        rq.getClientInfo().setUser(new User("alice"));
+        Response rs = new Response(rq);
+        limiter.handle(rq, rs);
+        assertEquals(Status.SUCCESS_OK, rs.getStatus());
+
+        rq = new Request();
+        rq.getClientInfo().setAddress("10.0.0.1");
+        rq.getClientInfo().setUser(new User("alice"));
+        rs = new Response(rq);
+        limiter.handle(rq, rs);
+        assertEquals(Status.CLIENT_ERROR_TOO_MANY_REQUESTS, rs.getStatus());
+
+        // Anonymous requests from the same address have their own bucket
+        assertEquals(Status.SUCCESS_OK, handle(limiter, "10.0.0.1")
+                .getStatus());
+    }
+
+}
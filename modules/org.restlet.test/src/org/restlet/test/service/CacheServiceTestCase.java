@@ -0,0 +1,262 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Application;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Range;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.cache.CacheEntry;
+import org.restlet.engine.cache.CacheFilter;
+import org.restlet.engine.cache.DirectCacheStore;
+import org.restlet.engine.cache.MemoryCacheStore;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.resource.ResourceException;
+import org.restlet.resource.ServerResource;
+import org.restlet.routing.Router;
+import org.restlet.service.CacheService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link CacheService} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheServiceTestCase extends RestletTestCase {
+
+    /**
+     * Resource counting the GET requests it answers.
+     */
+    public static class CountedResource extends ServerResource {
+
+        @Override
+        protected Representation get() throws ResourceException {
+            int count = COUNT.incrementAndGet();
+            getResponse().getCacheDirectives().add(CacheDirective.maxAge(60));
+            Representation result = new StringRepresentation("content "
+                    + count, MediaType.TEXT_PLAIN);
+            result.setTag(new Tag("v" + count));
+            return result;
+        }
+    }
+
+    /**
+     * Resource served stale while revalidated, recording the current
+     * application and context.
+     */
+    public static class StaleResource extends ServerResource {
+
+        @Override
+        protected Representation get() throws ResourceException {
+            int count = COUNT.incrementAndGet();
+            APPLICATIONS.add(getApplication());
+            CONTEXTS.add(Context.getCurrent());
+            getResponse().getCacheDirectives().add(CacheDirective.maxAge(0));
+            getResponse().getCacheDirectives().add(
+                    new CacheDirective(
+                            CacheFilter.CACHE_STALE_WHILE_REVALIDATE, "60",
+                            true));
+            Representation result = new StringRepresentation(getApplication()
+                    .getName() + " " + count, MediaType.TEXT_PLAIN);
+            result.setTag(new Tag("v" + count));
+            return result;
+        }
+    }
+
+    private static final List<Application> APPLICATIONS = new CopyOnWriteArrayList<Application>();
+
+    private static final List<Context> CONTEXTS = new CopyOnWriteArrayList<Context>();
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private Application application;
+
+    private Response get(String path) throws Exception {
+        return handle(new Request(Method.GET, "http://localhost" + path));
+    }
+
+    private Response handle(Request request) throws Exception {
+        request.getResourceRef().setBaseRef("http://localhost");
+        Response response = new Response(request);
+        this.application.handle(request, response);
+        return response;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        COUNT.set(0);
+        APPLICATIONS.clear();
+        CONTEXTS.clear();
+        this.application = new Application() {
+            @Override
+            public Restlet createInboundRoot() {
+                Router router = new Router(getContext());
+                router.attach("/data/{id}", CountedResource.class);
+                router.attach("/stale", StaleResource.class);
+                return router;
+            }
+        };
+        this.application.setName("cached");
+        this.application.getCacheService().setEnabled(true);
+        this.application.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.application.stop();
+        super.tearDown();
+    }
+
+    public void testConditions() throws Exception {
+        assertEquals("content 1", get("/data/1").getEntityAsText());
+
+        Request request = new Request(Method.GET, "http://localhost/data/1");
+        request.getConditions().getNoneMatch().add(new Tag("v1"));
+        Response response = handle(request);
+        assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+
+        request = new Request(Method.GET, "http://localhost/data/1");
+        request.getConditions().getNoneMatch().add(new Tag("v0"));
+        response = handle(request);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("content 1", response.getEntityAsText());
+        assertEquals(1, COUNT.get());
+
+        // Conditional miss
+        request = new Request(Method.GET, "http://localhost/data/2");
+        request.getConditions().getNoneMatch().add(new Tag("v2"));
+        response = handle(request);
+        assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+        assertEquals("content 2", get("/data/2").getEntityAsText());
+        assertEquals(2, COUNT.get());
+    }
+
+    public void testDirectStore() throws Exception {
+        DirectCacheStore direct = new DirectCacheStore();
+        this.application.getCacheService().setStore(
+                new MemoryCacheStore(1000, direct));
+        this.application.stop();
+        this.application.start();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("content " + (i + 1), get("/data/" + i)
+                    .getEntityAsText());
+        }
+
+        assertTrue(direct.getCurrentSize() > 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("content " + (i + 1), get("/data/" + i)
+                    .getEntityAsText());
+        }
+
+        assertEquals(10, COUNT.get());
+
+        CacheEntry entry = direct.get("http://localhost/data/9");
+        assertNotNull(entry);
+        assertEquals("content 10", new String(entry.getContent(), "UTF-8"));
+        direct.clear();
+        assertEquals(0, direct.getCurrentSize());
+    }
+
+    public void testHit() throws Exception {
+        assertEquals("content 1", get("/data/1").getEntityAsText());
+        Response response = get("/data/1");
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("content 1", response.getEntityAsText());
+        assertEquals(new Tag("v1"), response.getEntity().getTag());
+        assertEquals(1, COUNT.get());
+    }
+
+    public void testPurge() throws Exception {
+        get("/data/1");
+        get("/data/2");
+        get("/data/3");
+        assertEquals(3, COUNT.get());
+
+        CacheService service = this.application.getCacheService();
+        service.purge("http://localhost/data/1");
+        assertEquals("content 4", get("/data/1").getEntityAsText());
+        assertEquals("content 2", get("/data/2").getEntityAsText());
+
+        service.purgeAll("http://localhost/data/");
+        assertEquals("content 5", get("/data/2").getEntityAsText());
+        assertEquals("content 6", get("/data/3").getEntityAsText());
+
+        service.purgeAll();
+        assertEquals("content 7", get("/data/3").getEntityAsText());
+    }
+
+    public void testStaleWhileRevalidate() throws Exception {
+        assertEquals("cached 1", get("/stale").getEntityAsText());
+        assertEquals("cached 1", get("/stale").getEntityAsText());
+
+        // The background revalidation runs within the application
+        for (int i = 0; (i < 50) && (COUNT.get() < 2); i++) {
+            Thread.sleep(20);
+        }
+
+        Thread.sleep(100);
+        assertEquals(2, COUNT.get());
+        assertSame(this.application, APPLICATIONS.get(1));
+        assertSame(this.application.getContext(), CONTEXTS.get(1));
+        assertEquals("cached 2", get("/stale").getEntityAsText());
+    }
+
+    public void testRange() throws Exception {
+        get("/data/1");
+
+        Request request = new Request(Method.GET, "http://localhost/data/1");
+        request.getRanges().add(new Range(0, 7));
+        Response response = handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("content", response.getEntityAsText());
+        assertEquals(1, COUNT.get());
+    }
+
+}
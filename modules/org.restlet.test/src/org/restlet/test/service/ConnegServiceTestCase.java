@@ -51,6 +51,53 @@ import org.restlet.test.RestletTestCase;
  */
 public class ConnegServiceTestCase extends RestletTestCase {
 
+    public void testCache() {
+        MetadataService metadataService = new MetadataService();
+        ConnegService connegService = new ConnegService();
+
+        List<Variant> variants = new ArrayList<Variant>();
+        variants.add(new Variant(MediaType.APPLICATION_XML));
+        variants.add(new Variant(MediaType.APPLICATION_JSON));
+
+        Request request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_JSON));
+        assertSame(variants.get(1), connegService.getPreferredVariant(
+                variants, request, metadataService));
+        assertEquals(0, connegService.getCache().getHitCount());
+
+        // Same preferences and variants
+        List<Variant> otherVariants = new ArrayList<Variant>();
+        otherVariants.add(new Variant(MediaType.APPLICATION_XML));
+        otherVariants.add(new Variant(MediaType.APPLICATION_JSON));
+        request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_JSON));
+        assertSame(otherVariants.get(1), connegService.getPreferredVariant(
+                otherVariants, request, metadataService));
+        assertEquals(1, connegService.getCache().getHitCount());
+
+        // Different preferences
+        request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_XML));
+        assertSame(variants.get(0), connegService.getPreferredVariant(
+                variants, request, metadataService));
+        assertEquals(1, connegService.getCache().getHitCount());
+
+        // Different algorithm
+        connegService.setStrict(true);
+        request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.TEXT_PLAIN));
+        assertNull(connegService.getPreferredVariant(variants, request,
+                metadataService));
+        assertNull(connegService.getPreferredVariant(variants, request,
+                metadataService));
+        assertEquals(2, connegService.getCache().getHitCount());
+        assertEquals(3, connegService.getCache().size());
+    }
+
     public void testStrict() {
         List<Variant> variants = new ArrayList<Variant>();
         Variant variant = new Variant(MediaType.APPLICATION_XML);
@@ -36,6 +36,8 @@ package org.restlet.data;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -132,13 +134,69 @@ import org.restlet.engine.io.IoUtils;
  */
 public final class ClientInfo {
 
+    // [ifndef gwt] member
+    /**
+     * Cache of the attributes taken from the most recently parsed user-agent
+     * names.
+     * 
+     * @see The {@link ClientInfo#getAgentAttributes()} method.
+     */
+    private static final org.restlet.engine.util.LruCache<String, Map<String, String>> agentAttributesCache = new org.restlet.engine.util.LruCache<String, Map<String, String>>(
+            512);
+
     // [ifndef gwt] member
     /**
      * List of user-agent templates defined in "agent.properties" file.<br>
      * 
      * @see The {@link ClientInfo#getAgentAttributes()} method.
      */
-    private static volatile List<String> userAgentTemplates = null;
+    private static volatile List<org.restlet.routing.Template> userAgentTemplates = null;
+
+    // [ifndef gwt] method
+    /**
+     * Returns the attributes taken from the given user-agent name. The result
+     * is cached as the number of distinct user-agent names is small compared
+     * to the number of requests.
+     * 
+     * @param agent
+     *            The user-agent name.
+     * @return The unmodifiable map of attributes.
+     * @see #getAgentAttributes()
+     */
+    private static Map<String, String> getAgentAttributes(String agent) {
+        Map<String, String> result = null;
+
+        if (agent == null) {
+            result = Collections.emptyMap();
+        } else {
+            result = agentAttributesCache.get(agent);
+
+            if (result == null) {
+                Map<String, Object> map = new HashMap<String, Object>();
+                Map<String, String> attributes = new HashMap<String, String>();
+
+                if (ClientInfo.getUserAgentTemplates() != null) {
+                    for (org.restlet.routing.Template template : ClientInfo
+                            .getUserAgentTemplates()) {
+                        // Parse the template
+                        if (template.parse(agent, map, false) > -1) {
+                            for (String key : map.keySet()) {
+                                attributes.put(key, (String) map.get(key));
+                            }
+                            break;
+                        }
+
+                        map.clear();
+                    }
+                }
+
+                result = Collections.unmodifiableMap(attributes);
+                agentAttributesCache.put(agent, result);
+            }
+        }
+
+        return result;
+    }
 
     // [ifndef gwt] method
     /**
@@ -180,9 +238,9 @@ public final class ClientInfo {
      *         file.
      * @see The {@link ClientInfo#getAgentAttributes()} method.
      */
-    private static List<String> getUserAgentTemplates() {
+    private static List<org.restlet.routing.Template> getUserAgentTemplates() {
         // Lazy initialization with double-check.
-        List<String> u = ClientInfo.userAgentTemplates;
+        List<org.restlet.routing.Template> u = ClientInfo.userAgentTemplates;
         if (u == null) {
             synchronized (ClientInfo.class) {
                 u = ClientInfo.userAgentTemplates;
@@ -191,6 +249,22 @@ public final class ClientInfo {
                     java.net.URL userAgentPropertiesUrl = Engine
                             .getResource("org/restlet/data/agent.properties");
                     if (userAgentPropertiesUrl != null) {
+                        // Predefined variables used in order to catch the
+                        // name, version and optional comment, respectively
+                        // called "agentName", "agentVersion" and
+                        // "agentComment".
+                        org.restlet.routing.Variable agentName = new org.restlet.routing.Variable(
+                                org.restlet.routing.Variable.TYPE_TOKEN);
+                        org.restlet.routing.Variable agentVersion = new org.restlet.routing.Variable(
+                                org.restlet.routing.Variable.TYPE_TOKEN);
+                        org.restlet.routing.Variable agentComment = new org.restlet.routing.Variable(
+                                org.restlet.routing.Variable.TYPE_COMMENT);
+                        org.restlet.routing.Variable agentCommentAttribute = new org.restlet.routing.Variable(
+                                org.restlet.routing.Variable.TYPE_COMMENT_ATTRIBUTE);
+                        org.restlet.routing.Variable facultativeData = new org.restlet.routing.Variable(
+                                org.restlet.routing.Variable.TYPE_ALL, null,
+                                false, false);
+                        org.restlet.routing.Template template = null;
                         BufferedReader reader;
                         try {
                             reader = new BufferedReader(new InputStreamReader(
@@ -202,9 +276,30 @@ public final class ClientInfo {
                                 if ((line.trim().length() > 0)
                                         && !line.trim().startsWith("#")) {
                                     if (u == null) {
-                                        u = new CopyOnWriteArrayList<String>();
+                                        u = new CopyOnWriteArrayList<org.restlet.routing.Template>();
                                     }
-                                    u.add(line);
+
+                                    template = new org.restlet.routing.Template(
+                                            line,
+                                            org.restlet.routing.Template.MODE_EQUALS);
+                                    template.getVariables().put("agentName",
+                                            agentName);
+                                    template.getVariables().put(
+                                            "agentVersion", agentVersion);
+                                    template.getVariables().put(
+                                            "agentComment", agentComment);
+                                    template.getVariables().put("agentOs",
+                                            agentCommentAttribute);
+                                    template.getVariables().put(
+                                            "commentAttribute",
+                                            agentCommentAttribute);
+                                    template.getVariables().put(
+                                            "facultativeData",
+                                            facultativeData);
+
+                                    // Compile the template once for all
+                                    template.match("");
+                                    u.add(template);
                                 }
                             }
                             reader.close();
@@ -542,55 +637,13 @@ public final class ClientInfo {
     public Map<String, String> getAgentAttributes() {
         if (this.agentAttributes == null) {
             this.agentAttributes = new ConcurrentHashMap<String, String>();
-            Map<String, Object> map = new ConcurrentHashMap<String, Object>();
 
             // Loop on a list of user-agent templates until a template match
             // the current user-agent string. The list of templates is
             // located in a file named "agent.properties" available on
-            // the classpath.
-            // Some defined variables are used in order to catch the name,
-            // version and optional comment. Respectively, these
-            // variables are called "agentName", "agentVersion" and
-            // "agentComment".
-            org.restlet.routing.Template template = null;
-            // Predefined variables.
-            org.restlet.routing.Variable agentName = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_TOKEN);
-            org.restlet.routing.Variable agentVersion = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_TOKEN);
-            org.restlet.routing.Variable agentComment = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_COMMENT);
-            org.restlet.routing.Variable agentCommentAttribute = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_COMMENT_ATTRIBUTE);
-            org.restlet.routing.Variable facultativeData = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_ALL, null, false, false);
-
-            if (ClientInfo.getUserAgentTemplates() != null) {
-                for (String string : ClientInfo.getUserAgentTemplates()) {
-                    template = new org.restlet.routing.Template(string,
-                            org.restlet.routing.Template.MODE_EQUALS);
-
-                    // Update the predefined variables.
-                    template.getVariables().put("agentName", agentName);
-                    template.getVariables().put("agentVersion", agentVersion);
-                    template.getVariables().put("agentComment", agentComment);
-                    template.getVariables().put("agentOs",
-                            agentCommentAttribute);
-                    template.getVariables().put("commentAttribute",
-                            agentCommentAttribute);
-                    template.getVariables().put("facultativeData",
-                            facultativeData);
-
-                    // Parse the template
-                    if (template.parse(getAgent(), map) > -1) {
-                        for (String key : map.keySet()) {
-                            this.agentAttributes
-                                    .put(key, (String) map.get(key));
-                        }
-                        break;
-                    }
-                }
-            }
+            // the classpath. The attributes of recent user-agent strings are
+            // cached.
+            this.agentAttributes.putAll(getAgentAttributes(getAgent()));
         }
 
         return this.agentAttributes;
@@ -533,6 +533,9 @@ public class Reference {
     /** The query separator index. */
     private volatile int queryIndex;
 
+    /** The parsed query, lazily computed and reset when the query changes. */
+    private volatile Form queryForm;
+
     /** The scheme separator index. */
     private volatile int schemeIndex;
 
@@ -1467,12 +1470,27 @@ public class Reference {
     }
 
     /**
-     * Returns the optional query component as a form.
+     * Returns the optional query component as a form. The parsed query is
+     * cached until the reference is modified, each call returning a new copy.
      * 
      * @return The optional query component as a form.
      */
     public Form getQueryAsForm() {
-        return new Form(getQuery());
+        Form parsed = this.queryForm;
+
+        if (parsed == null) {
+            parsed = new Form(getQuery());
+            this.queryForm = parsed;
+        }
+
+        // Return a copy as the form and its parameters are modifiable
+        Form result = new Form(parsed.size());
+
+        for (Parameter param : parsed) {
+            result.add(new Parameter(param.getName(), param.getValue()));
+        }
+
+        return result;
     }
 
     /**
@@ -1484,7 +1502,7 @@ public class Reference {
      * @return The optional query component as a form.
      */
     public Form getQueryAsForm(boolean decode) {
-        return new Form(getQuery(), decode);
+        return decode ? getQueryAsForm() : new Form(getQuery(), decode);
     }
 
     /**
@@ -1495,7 +1513,8 @@ public class Reference {
      * @return The optional query component as a form submission.
      */
     public Form getQueryAsForm(CharacterSet characterSet) {
-        return new Form(getQuery(), characterSet);
+        return CharacterSet.UTF_8.equals(characterSet) ? getQueryAsForm()
+                : new Form(getQuery(), characterSet);
     }
 
     /**
@@ -3051,6 +3070,9 @@ public class Reference {
      * Updates internal indexes.
      */
     private void updateIndexes() {
+        // The query might have changed
+        this.queryForm = null;
+
         if (this.internalRef != null) {
             // Compute the indexes
             final int firstSlashIndex = this.internalRef.indexOf('/');
@@ -52,6 +52,8 @@ public final class Status {
             + "/"
             + Edition.CURRENT.getShortName().toLowerCase() + "/api/";
 
+    private static final String BASE_RFC6585 = "http://tools.ietf.org/html/rfc6585";
+
     private static final String BASE_WEBDAV = "http://www.webdav.org/specs/rfc2518.html";
 
     /**
@@ -241,6 +243,16 @@ public final class Status {
     public static final Status CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE = new Status(
             416);
 
+    /**
+     * The user has sent too many requests in a given amount of time ("rate
+     * limiting"). The response may include a Retry-After header indicating how
+     * long to wait before making a new request.
+     * 
+     * @see <a href="http://tools.ietf.org/html/rfc6585#section-4">RFC 6585 -
+     *      4. 429 Too Many Requests</a>
+     */
+    public static final Status CLIENT_ERROR_TOO_MANY_REQUESTS = new Status(429);
+
     /**
      * The request requires user authentication.
      * 
@@ -897,6 +909,9 @@ public final class Status {
         case 424:
             result = CLIENT_ERROR_FAILED_DEPENDENCY;
             break;
+        case 429:
+            result = CLIENT_ERROR_TOO_MANY_REQUESTS;
+            break;
 
         case 500:
             result = SERVER_ERROR_INTERNAL;
@@ -1229,6 +1244,9 @@ public final class Status {
             case 424:
                 result = "The method could not be performed on the resource because the requested action depended on another action and that action failed";
                 break;
+            case 429:
+                result = "The user has sent too many requests in a given amount of time";
+                break;
 
             case 500:
                 result = "The server encountered an unexpected condition which prevented it from fulfilling the request";
@@ -1420,6 +1438,9 @@ public final class Status {
             case 424:
                 result = "Failed Dependency";
                 break;
+            case 429:
+                result = "Too Many Requests";
+                break;
 
             case 500:
                 result = "Internal Server Error";
@@ -1606,6 +1627,9 @@ public final class Status {
             case 424:
                 result = BASE_WEBDAV + "#STATUS_424";
                 break;
+            case 429:
+                result = BASE_RFC6585 + "#section-4";
+                break;
 
             case 500:
                 result = BASE_HTTP + "#sec10.5.1";
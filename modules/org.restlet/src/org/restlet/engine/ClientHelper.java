@@ -58,6 +58,16 @@ import org.restlet.Client;
  */
 public class ClientHelper extends ConnectorHelper<Client> {
 
+    /**
+     * Name of the request attribute set by the connectors that took charge of
+     * an asynchronous call. It indicates that the response will be notified
+     * later to the {@link org.restlet.Request#getOnResponse()} callback, even
+     * if the call returned. Any other handler answering after returning must
+     * set it too, otherwise the response is considered final as soon as the
+     * call returns.
+     */
+    public static final String ATTRIBUTE_ASYNC_PENDING = "org.restlet.engine.asyncPending";
+
     /**
      * Constructor.
      * 
@@ -0,0 +1,414 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Parameter;
+import org.restlet.data.Protocol;
+import org.restlet.engine.log.LoggingThreadFactory;
+import org.restlet.util.Series;
+
+/**
+ * Registry of started client connectors shared by several users such as
+ * standalone client resources. Clients are keyed by protocol and parameters
+ * and reference counted. When a client isn't referenced anymore, it is stopped
+ * after an idle delay unless it is acquired again in the meantime.<br>
+ * <br>
+ * Users obtain a lease via the {@link #createLease(Protocol, Series)} method.
+ * The lease is a Restlet that dispatches calls to the shared client. Starting
+ * the lease acquires a reference to the client and stopping it releases the
+ * reference instead of stopping the client.
+ * 
+ * @author Jerome Louvel
+ */
+public class ClientRegistry {
+
+    /**
+     * Lease of a shared client connector.
+     */
+    private class ClientLease extends Restlet {
+
+        /** The registry key of the shared client. */
+        private final String key;
+
+        /** The protocol of the shared client. */
+        private final Protocol protocol;
+
+        /** The parameters of the shared client. */
+        private final Series<Parameter> parameters;
+
+        /** Indicates if the lease holds a reference to the shared client. */
+        private final AtomicBoolean acquired;
+
+        /** The shared client. */
+        private volatile Client client;
+
+        /**
+         * Constructor.
+         * 
+         * @param key
+         *            The registry key of the shared client.
+         * @param protocol
+         *            The protocol of the shared client.
+         * @param parameters
+         *            The parameters of the shared client.
+         */
+        public ClientLease(String key, Protocol protocol,
+                Series<Parameter> parameters) {
+            this.key = key;
+            this.protocol = protocol;
+            this.parameters = parameters;
+            this.acquired = new AtomicBoolean(false);
+        }
+
+        @Override
+        public void handle(Request request, Response response) {
+            super.handle(request, response);
+            this.client.handle(request, response);
+        }
+
+        @Override
+        public synchronized void start() throws Exception {
+            if (this.acquired.compareAndSet(false, true)) {
+                this.client = acquire(this.key, this.protocol,
+                        this.parameters);
+            }
+
+            super.start();
+        }
+
+        @Override
+        public synchronized void stop() throws Exception {
+            super.stop();
+
+            if (this.acquired.compareAndSet(true, false)) {
+                release(this.key);
+            }
+        }
+    }
+
+    /**
+     * Shared client entry.
+     */
+    private static class Entry {
+
+        /** The shared client. */
+        private final Client client;
+
+        /** The idle shutdown task. */
+        private volatile Future<?> idleTask;
+
+        /** The number of references to the client. */
+        private volatile int references;
+
+        /**
+         * Constructor.
+         * 
+         * @param client
+         *            The shared client.
+         */
+        public Entry(Client client) {
+            this.client = client;
+        }
+    }
+
+    /** The default registry. */
+    private static final ClientRegistry instance = new ClientRegistry();
+
+    /**
+     * Returns the default registry, shared by the whole JVM.
+     * 
+     * @return The default registry.
+     */
+    public static ClientRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the registry key for the given protocol and parameters.
+     * 
+     * @param protocol
+     *            The client protocol.
+     * @param parameters
+     *            The client parameters.
+     * @return The registry key.
+     */
+    private static String getKey(Protocol protocol,
+            Series<Parameter> parameters) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(protocol.getName()).append('/')
+                .append(protocol.getVersion());
+
+        if (parameters != null) {
+            for (Parameter parameter : parameters) {
+                sb.append('&').append(parameter.getName()).append('=')
+                        .append(parameter.getValue());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /** The shared client entries. */
+    private final Map<String, Entry> entries;
+
+    /** The delay in milliseconds before stopping an idle client. */
+    private volatile long idleTimeout;
+
+    /** The scheduler of idle shutdowns, lazily created. */
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor. The default idle timeout is one minute.
+     */
+    public ClientRegistry() {
+        this.entries = new HashMap<String, Entry>();
+        this.idleTimeout = 60000L;
+    }
+
+    /**
+     * Acquires a reference on a shared client, creating and starting it if
+     * needed.
+     * 
+     * @param key
+     *            The registry key.
+     * @param protocol
+     *            The client protocol.
+     * @param parameters
+     *            The client parameters or null.
+     * @return The shared client.
+     */
+    private synchronized Client acquire(String key, Protocol protocol,
+            Series<Parameter> parameters) {
+        Entry entry = this.entries.get(key);
+
+        if (entry == null) {
+            Context context = null;
+
+            if (parameters != null) {
+                context = new Context();
+                context.getParameters().addAll(parameters);
+            }
+
+            Client client = new Client(context, protocol);
+
+            try {
+                client.start();
+            } catch (Exception e) {
+                Context.getCurrentLogger().log(Level.WARNING,
+                        "Unable to start the shared client connector", e);
+            }
+
+            entry = new Entry(client);
+            this.entries.put(key, entry);
+        } else if (entry.idleTask != null) {
+            // Cancel the pending shutdown
+            entry.idleTask.cancel(false);
+            entry.idleTask = null;
+        }
+
+        entry.references++;
+        return entry.client;
+    }
+
+    /**
+     * Creates a lease on a shared client connector for the given protocol,
+     * without parameters.
+     * 
+     * @param protocol
+     *            The client protocol.
+     * @return The client lease.
+     * @see #createLease(Protocol, Series)
+     */
+    public Restlet createLease(Protocol protocol) {
+        return createLease(protocol, null);
+    }
+
+    /**
+     * Creates a lease on a shared client connector for the given protocol and
+     * parameters. When the lease is started, the client is created and started
+     * if needed and a reference is acquired. The lease must be stopped to
+     * release the reference. A lease can be started again after being stopped.
+     * 
+     * @param protocol
+     *            The client protocol.
+     * @param parameters
+     *            The client parameters or null.
+     * @return The client lease.
+     */
+    public Restlet createLease(Protocol protocol, Series<Parameter> parameters) {
+        return new ClientLease(getKey(protocol, parameters), protocol,
+                parameters);
+    }
+
+    /**
+     * Returns the delay in milliseconds before stopping a client which isn't
+     * referenced anymore.
+     * 
+     * @return The delay in milliseconds before stopping an idle client.
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Returns the number of references on the shared client for the given
+     * protocol and parameters.
+     * 
+     * @param protocol
+     *            The client protocol.
+     * @param parameters
+     *            The client parameters or null.
+     * @return The number of references or -1 if no client is registered.
+     */
+    public synchronized int getReferences(Protocol protocol,
+            Series<Parameter> parameters) {
+        Entry entry = this.entries.get(getKey(protocol, parameters));
+        return (entry == null) ? -1 : entry.references;
+    }
+
+    /**
+     * Returns the scheduler of idle shutdowns, lazily created.
+     * 
+     * @return The scheduler of idle shutdowns.
+     */
+    private ScheduledExecutorService getScheduler() {
+        if (this.scheduler == null) {
+            this.scheduler = Executors
+                    .newSingleThreadScheduledExecutor(new LoggingThreadFactory(
+                            Context.getCurrentLogger(), true));
+        }
+
+        return this.scheduler;
+    }
+
+    /**
+     * Releases a reference on a shared client. When the client isn't
+     * referenced anymore, its shutdown is scheduled.
+     * 
+     * @param key
+     *            The registry key.
+     */
+    private synchronized void release(final String key) {
+        final Entry entry = this.entries.get(key);
+
+        if ((entry != null) && (--entry.references == 0)) {
+            if (getIdleTimeout() <= 0) {
+                stopIdle(key, entry);
+            } else {
+                entry.idleTask = getScheduler().schedule(new Runnable() {
+                    public void run() {
+                        stopIdle(key, entry);
+                    }
+                }, getIdleTimeout(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Sets the delay in milliseconds before stopping a client which isn't
+     * referenced anymore. A zero or negative value stops it immediately.
+     * 
+     * @param idleTimeout
+     *            The delay in milliseconds before stopping an idle client.
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Stops all the shared clients, whether they are referenced or not.
+     */
+    public synchronized void stop() {
+        for (Entry entry : this.entries.values()) {
+            if (entry.idleTask != null) {
+                entry.idleTask.cancel(false);
+            }
+
+            stopClient(entry.client);
+        }
+
+        this.entries.clear();
+
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Stops a client.
+     * 
+     * @param client
+     *            The client to stop.
+     */
+    private void stopClient(Client client) {
+        try {
+            client.stop();
+        } catch (Exception e) {
+            Context.getCurrentLogger().log(Level.WARNING,
+                    "Unable to stop the shared client connector", e);
+        }
+    }
+
+    /**
+     * Stops an idle client if it wasn't acquired again in the meantime.
+     * 
+     * @param key
+     *            The registry key.
+     * @param entry
+     *            The idle entry.
+     */
+    private synchronized void stopIdle(String key, Entry entry) {
+        if ((entry.references == 0) && (this.entries.get(key) == entry)) {
+            this.entries.remove(key);
+            stopClient(entry.client);
+        }
+    }
+
+}
@@ -42,6 +42,7 @@ import org.restlet.Response;
 import org.restlet.Uniform;
 import org.restlet.data.Method;
 import org.restlet.data.Status;
+import org.restlet.engine.ClientHelper;
 import org.restlet.engine.Edition;
 import org.restlet.engine.header.Header;
 import org.restlet.engine.header.HeaderConstants;
@@ -85,6 +86,8 @@ public class ClientAdapter extends Adapter {
             // Check if the call is asynchronous
             if (request.isAsynchronous()) {
                 final Uniform userCallback = request.getOnResponse();
+                request.getAttributes().put(
+                        ClientHelper.ATTRIBUTE_ASYNC_PENDING, Boolean.TRUE);
 
                 // Send the request to the client
                 httpCall.sendRequest(request, response, new Uniform() {
@@ -41,6 +41,7 @@ import java.util.logging.Level;
 
 import org.restlet.Context;
 import org.restlet.Request;
+import org.restlet.Response;
 import org.restlet.data.CacheDirective;
 import org.restlet.data.ChallengeResponse;
 import org.restlet.data.ClientInfo;
@@ -91,6 +92,12 @@ public class HttpRequest extends Request {
         }
     }
 
+    /**
+     * The adapter committing the response of a suspended call, or null if the
+     * call isn't suspended.
+     */
+    private volatile ServerAdapter adapter;
+
     /** Indicates if the cache control data was parsed and added. */
     private volatile boolean cacheDirectivesAdded;
 
@@ -203,6 +210,29 @@ public class HttpRequest extends Request {
         return getHttpCall().abort();
     }
 
+    /**
+     * Commits the response. If the call was suspended by the
+     * {@link ServerAdapter#suspend(HttpResponse)} method, the response is
+     * immediately committed by the adapter. Otherwise, the response is only
+     * marked as committed and will be committed by the connector at the end
+     * of the call handling.
+     */
+    @Override
+    public void commit(Response response) {
+        ServerAdapter suspendingAdapter = null;
+
+        synchronized (this) {
+            if ((response != null) && !response.isCommitted()) {
+                response.setCommitted(true);
+                suspendingAdapter = this.adapter;
+            }
+        }
+
+        if ((suspendingAdapter != null) && (response instanceof HttpResponse)) {
+            suspendingAdapter.commit((HttpResponse) response);
+        }
+    }
+
     @Override
     public void flushBuffers() throws IOException {
         getHttpCall().flushBuffers();
@@ -527,6 +557,16 @@ public class HttpRequest extends Request {
         return this.httpCall;
     }
 
+    /**
+     * Sets the adapter committing the response of a suspended call.
+     * 
+     * @param adapter
+     *            The adapter committing the response of a suspended call.
+     */
+    void setAdapter(ServerAdapter adapter) {
+        this.adapter = adapter;
+    }
+
     @Override
     public ChallengeResponse getProxyChallengeResponse() {
         ChallengeResponse result = super.getProxyChallengeResponse();
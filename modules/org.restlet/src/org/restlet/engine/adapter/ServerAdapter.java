@@ -228,6 +228,38 @@ public class ServerAdapter extends Adapter {
         }
     }
 
+    /**
+     * Suspends the HTTP call if its response isn't automatically committed
+     * and wasn't committed yet during the call handling. In this case, the
+     * connector thread is released and the response is committed by this
+     * adapter when {@link org.restlet.Response#commit()} is invoked, typically
+     * by another thread.
+     * 
+     * @param response
+     *            The high-level response.
+     * @return True if the call was suspended, false if the response must be
+     *         committed immediately.
+     * @see ServerCall#suspend()
+     */
+    public boolean suspend(HttpResponse response) {
+        boolean result = false;
+
+        if (!response.isAutoCommitting()
+                && (response.getRequest() instanceof HttpRequest)) {
+            HttpRequest request = (HttpRequest) response.getRequest();
+
+            synchronized (request) {
+                if (!response.isCommitted()
+                        && response.getHttpCall().suspend()) {
+                    request.setAdapter(this);
+                    result = true;
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Converts a low-level HTTP call into a high-level uniform request.
      * 
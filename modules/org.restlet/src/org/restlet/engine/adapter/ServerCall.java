@@ -106,7 +106,8 @@ public abstract class ServerCall extends Call {
     public abstract boolean abort();
 
     /**
-     * Complete the response
+     * Complete the response. In case the call was suspended, this resumes the
+     * underlying connector processing.
      */
     public void complete() {
 
@@ -501,6 +502,17 @@ public abstract class ServerCall extends Call {
                 && !response.getEntity().hasKnownSize();
     }
 
+    /**
+     * Suspends the call so that the connector thread can be released while
+     * the response isn't committed. The {@link #complete()} method is invoked
+     * once the response is sent. By default, calls can't be suspended.
+     * 
+     * @return True if the call was suspended.
+     */
+    public boolean suspend() {
+        return false;
+    }
+
     /**
      * Effectively writes the response body. The entity to write is guaranteed
      * to be non null. Attempts to write the entity on the response channel or
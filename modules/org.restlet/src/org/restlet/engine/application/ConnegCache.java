@@ -0,0 +1,213 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.application;
+
+import java.util.List;
+
+import org.restlet.Request;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.MediaType;
+import org.restlet.data.Metadata;
+import org.restlet.data.Preference;
+import org.restlet.engine.resource.AnnotationInfo;
+import org.restlet.engine.resource.VariantInfo;
+import org.restlet.engine.util.LruCache;
+import org.restlet.representation.Variant;
+import org.restlet.service.MetadataService;
+
+/**
+ * Cache of content negotiation results. The key is a fingerprint of the client
+ * preferences and of the metadata of the available variants, and the value is
+ * the index of the preferred variant in the list of available variants, or -1
+ * if none was preferred. The number of distinct combinations of client
+ * preferences and resource variants is usually small compared to the number
+ * of requests.<br>
+ * <br>
+ * Negotiations depending on the actual URI query, because one of the variants
+ * is annotated with a query constraint, aren't cached.
+ * 
+ * @author Jerome Louvel
+ */
+public class ConnegCache extends LruCache<String, Integer> {
+
+    /** The default maximum number of entries. */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /**
+     * Default constructor.
+     */
+    public ConnegCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of entries.
+     */
+    public ConnegCache(int maxSize) {
+        super(maxSize);
+    }
+
+    /**
+     * Appends the fingerprint of a metadata.
+     * 
+     * @param sb
+     *            The fingerprint to update.
+     * @param metadata
+     *            The metadata to append.
+     */
+    private void append(StringBuilder sb, Metadata metadata) {
+        if (metadata != null) {
+            sb.append(metadata.getName());
+
+            if ((metadata instanceof MediaType)
+                    && !((MediaType) metadata).getParameters().isEmpty()) {
+                sb.append(((MediaType) metadata).getParameters());
+            }
+        }
+
+        sb.append(',');
+    }
+
+    /**
+     * Appends the fingerprint of a list of metadata.
+     * 
+     * @param sb
+     *            The fingerprint to update.
+     * @param metadataList
+     *            The metadata to append.
+     */
+    private void appendAll(StringBuilder sb,
+            List<? extends Metadata> metadataList) {
+        sb.append('[');
+
+        for (Metadata metadata : metadataList) {
+            append(sb, metadata);
+        }
+
+        sb.append(']');
+    }
+
+    /**
+     * Appends the fingerprint of a list of preferences.
+     * 
+     * @param sb
+     *            The fingerprint to update.
+     * @param preferences
+     *            The preferences to append.
+     */
+    private void appendPreferences(StringBuilder sb,
+            List<? extends Preference<? extends Metadata>> preferences) {
+        sb.append('[');
+
+        for (Preference<? extends Metadata> pref : preferences) {
+            append(sb, pref.getMetadata());
+            sb.append(pref.getQuality()).append(',');
+        }
+
+        sb.append(']');
+    }
+
+    /**
+     * Returns the fingerprint of a content negotiation, or null if its result
+     * can't be cached.
+     * 
+     * @param variants
+     *            The list of variants to compare.
+     * @param request
+     *            The request including client preferences.
+     * @param metadataService
+     *            The metadata service used to get default metadata values.
+     * @param strict
+     *            True if the conneg algorithm strictly respects client
+     *            preferences.
+     * @return The fingerprint or null.
+     */
+    public String getKey(List<? extends Variant> variants, Request request,
+            MetadataService metadataService, boolean strict) {
+        StringBuilder sb = new StringBuilder(strict ? "s" : "f");
+        ClientInfo clientInfo = request.getClientInfo();
+
+        if (clientInfo != null) {
+            appendPreferences(sb, clientInfo.getAcceptedLanguages());
+            appendPreferences(sb, clientInfo.getAcceptedMediaTypes());
+            appendPreferences(sb, clientInfo.getAcceptedCharacterSets());
+            appendPreferences(sb, clientInfo.getAcceptedEncodings());
+        }
+
+        if (!strict && (metadataService != null)) {
+            // The flexible algorithm enriches the preferences with defaults
+            append(sb, metadataService.getDefaultLanguage());
+            append(sb, metadataService.getDefaultMediaType());
+            append(sb, metadataService.getDefaultCharacterSet());
+            append(sb, metadataService.getDefaultEncoding());
+        }
+
+        // Annotations without query constraint are scored according to the
+        // presence of a query
+        sb.append(((request.getResourceRef() == null) || (request
+                .getResourceRef().getQuery() == null)) ? '|' : '?');
+
+        boolean cacheable = true;
+
+        for (int i = 0; cacheable && (i < variants.size()); i++) {
+            Variant variant = variants.get(i);
+            append(sb, variant.getMediaType());
+            append(sb, variant.getCharacterSet());
+            appendAll(sb, variant.getLanguages());
+            appendAll(sb, variant.getEncodings());
+
+            if (variant instanceof VariantInfo) {
+                VariantInfo variantInfo = (VariantInfo) variant;
+                AnnotationInfo annotationInfo = variantInfo
+                        .getAnnotationInfo();
+
+                // With a query constraint, the score depends on the actual
+                // query parameters
+                cacheable = (annotationInfo == null)
+                        || (annotationInfo.getQuery() == null);
+                sb.append((annotationInfo == null) ? 'i' : 'a');
+                sb.append(variantInfo.getInputScore());
+            }
+
+            sb.append(';');
+        }
+
+        return cacheable ? sb.toString() : null;
+    }
+
+}
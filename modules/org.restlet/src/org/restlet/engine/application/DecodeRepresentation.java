@@ -43,8 +43,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipInputStream;
 
 import org.restlet.data.Encoding;
@@ -108,7 +106,9 @@ public class DecodeRepresentation extends WrapperRepresentation {
     }
 
     /**
-     * Returns a decoded stream for a given encoding and coded stream.
+     * Returns a decoded stream for a given encoding and coded stream. The
+     * GZIP and deflate inflaters are taken from a pool and returned when the
+     * decoded stream is closed.
      * 
      * @param encoding
      *            The encoding to use.
@@ -123,9 +123,11 @@ public class DecodeRepresentation extends WrapperRepresentation {
 
         if (encodedStream != null) {
             if (encoding.equals(Encoding.GZIP)) {
-                result = new GZIPInputStream(encodedStream);
+                result = new DecoderInputStream(encodedStream,
+                        InflaterPool.getInstance(true), true);
             } else if (encoding.equals(Encoding.DEFLATE)) {
-                result = new InflaterInputStream(encodedStream);
+                result = new DecoderInputStream(encodedStream,
+                        InflaterPool.getInstance(false), false);
             } else if (encoding.equals(Encoding.ZIP)) {
                 @SuppressWarnings("resource")
                 final ZipInputStream stream = new ZipInputStream(encodedStream);
@@ -0,0 +1,272 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.application;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import org.restlet.engine.io.IoUtils;
+
+// [excludes gwt]
+/**
+ * Input stream uncompressing bytes in the GZIP or ZLIB (deflate) format with an
+ * inflater taken from a pool. The inflater is returned to its pool when the
+ * stream is closed. In GZIP mode, only the first member is read.
+ * 
+ * @author Jerome Louvel
+ */
+public class DecoderInputStream extends InflaterInputStream {
+
+    /** GZIP header magic number. */
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    /** GZIP header flag indicating the presence of a header CRC. */
+    private static final int FHCRC = 2;
+
+    /** GZIP header flag indicating the presence of extra fields. */
+    private static final int FEXTRA = 4;
+
+    /** GZIP header flag indicating the presence of a file name. */
+    private static final int FNAME = 8;
+
+    /** GZIP header flag indicating the presence of a comment. */
+    private static final int FCOMMENT = 16;
+
+    /** The checksum of the uncompressed data in GZIP mode. */
+    private final CRC32 crc;
+
+    /** Indicates if the end of the compressed data has been reached. */
+    private volatile boolean eos;
+
+    /** The parent inflater pool. */
+    private final InflaterPool pool;
+
+    /** Indicates if the inflater has been returned to its pool. */
+    private volatile boolean released;
+
+    /**
+     * Constructor.
+     * 
+     * @param inputStream
+     *            The input stream providing the compressed bytes.
+     * @param pool
+     *            The pool providing the inflater. In GZIP mode, the inflater
+     *            shouldn't expect the ZLIB header and checksum fields.
+     * @param gzip
+     *            True if the GZIP format should be read.
+     * @throws IOException
+     */
+    public DecoderInputStream(InputStream inputStream, InflaterPool pool,
+            boolean gzip) throws IOException {
+        super(inputStream, pool.checkout(), IoUtils.BUFFER_SIZE);
+        this.crc = gzip ? new CRC32() : null;
+        this.eos = false;
+        this.pool = pool;
+        this.released = false;
+
+        if (gzip) {
+            try {
+                readHeader();
+            } catch (IOException e) {
+                release();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return this.eos ? 0 : super.available();
+    }
+
+    /**
+     * Closes the underlying stream and returns the inflater to its pool.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.in.close();
+        } finally {
+            this.eos = true;
+            release();
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int result = -1;
+
+        if (!this.eos) {
+            if (this.released) {
+                throw new IOException("Stream closed");
+            }
+
+            result = super.read(b, off, len);
+
+            if (result == -1) {
+                this.eos = true;
+
+                if (this.crc != null) {
+                    readTrailer();
+                }
+            } else if (this.crc != null) {
+                this.crc.update(b, off, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads a byte from the underlying stream.
+     * 
+     * @return The byte read.
+     * @throws IOException
+     */
+    private int readByte() throws IOException {
+        int result = this.in.read();
+
+        if (result == -1) {
+            throw new EOFException("Unexpected end of GZIP stream");
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads and checks the GZIP member header.
+     * 
+     * @throws IOException
+     */
+    private void readHeader() throws IOException {
+        if ((readByte() | (readByte() << 8)) != GZIP_MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+
+        if (readByte() != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+
+        int flags = readByte();
+
+        // Skip the modification time, extra flags and OS fields
+        for (int i = 0; i < 6; i++) {
+            readByte();
+        }
+
+        if ((flags & FEXTRA) == FEXTRA) {
+            int length = readByte() | (readByte() << 8);
+
+            for (int i = 0; i < length; i++) {
+                readByte();
+            }
+        }
+
+        if ((flags & FNAME) == FNAME) {
+            while (readByte() != 0) {
+                // Skip the zero-terminated file name
+            }
+        }
+
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            while (readByte() != 0) {
+                // Skip the zero-terminated comment
+            }
+        }
+
+        if ((flags & FHCRC) == FHCRC) {
+            readByte();
+            readByte();
+        }
+    }
+
+    /**
+     * Reads a 32 bits integer in little-endian order, starting with the bytes
+     * not consumed by the inflater.
+     * 
+     * @return The value read.
+     * @throws IOException
+     */
+    private long readInt() throws IOException {
+        long result = 0;
+        int remaining = this.inf.getRemaining();
+
+        for (int i = 0; i < 4; i++) {
+            int next;
+
+            if (remaining > 0) {
+                next = this.buf[this.len - remaining] & 0xff;
+                remaining--;
+                this.inf.setInput(this.buf, this.len - remaining, remaining);
+            } else {
+                next = readByte();
+            }
+
+            result |= ((long) next) << (8 * i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads and checks the GZIP member trailer.
+     * 
+     * @throws IOException
+     */
+    private void readTrailer() throws IOException {
+        if (readInt() != this.crc.getValue()) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+
+        if (readInt() != (this.inf.getBytesWritten() & 0xffffffffL)) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+    }
+
+    /**
+     * Returns the inflater to its pool, if not done yet.
+     */
+    private void release() {
+        if (!this.released) {
+            this.released = true;
+            this.pool.checkin(this.inf);
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.application;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import org.restlet.engine.util.Pool;
+
+// [excludes gwt]
+/**
+ * Pool of deflaters sharing the same compression settings. Reusing deflaters
+ * avoids allocating a native zlib context for each encoded entity and
+ * releasing it only at finalization time. Deflaters exceeding the maximum
+ * number of idle instances are ended immediately.
+ * 
+ * @author Jerome Louvel
+ */
+public class DeflaterPool extends Pool<Deflater> {
+
+    /** The maximum number of idle deflaters kept by each pool. */
+    public static final int MAX_IDLE = 32;
+
+    /** The shared pools, per compression settings. */
+    private static final ConcurrentMap<String, DeflaterPool> pools = new ConcurrentHashMap<String, DeflaterPool>();
+
+    /**
+     * Returns the shared pool of deflaters for the given settings.
+     * 
+     * @param level
+     *            The compression level, between 0 and 9 or -1 for the default
+     *            level.
+     * @param strategy
+     *            The compression strategy.
+     * @param nowrap
+     *            True if the ZLIB header and checksum fields shouldn't be
+     *            written, as for the GZIP and ZIP formats.
+     * @return The shared pool of deflaters.
+     * @see Deflater#setLevel(int)
+     * @see Deflater#setStrategy(int)
+     */
+    public static DeflaterPool getInstance(int level, int strategy,
+            boolean nowrap) {
+        String key = level + ":" + strategy + ":" + nowrap;
+        DeflaterPool result = pools.get(key);
+
+        if (result == null) {
+            result = new DeflaterPool(level, strategy, nowrap);
+            DeflaterPool existing = pools.putIfAbsent(key, result);
+
+            if (existing != null) {
+                result = existing;
+            }
+        }
+
+        return result;
+    }
+
+    /** The number of idle deflaters. */
+    private final AtomicInteger idleCount;
+
+    /** The compression level. */
+    private final int level;
+
+    /** True if the ZLIB header and checksum fields shouldn't be written. */
+    private final boolean nowrap;
+
+    /** The compression strategy. */
+    private final int strategy;
+
+    /**
+     * Constructor.
+     * 
+     * @param level
+     *            The compression level, between 0 and 9 or -1 for the default
+     *            level.
+     * @param strategy
+     *            The compression strategy.
+     * @param nowrap
+     *            True if the ZLIB header and checksum fields shouldn't be
+     *            written, as for the GZIP and ZIP formats.
+     */
+    public DeflaterPool(int level, int strategy, boolean nowrap) {
+        this.idleCount = new AtomicInteger();
+        this.level = level;
+        this.nowrap = nowrap;
+        this.strategy = strategy;
+    }
+
+    @Override
+    public void checkin(Deflater deflater) {
+        if (deflater != null) {
+            if (this.idleCount.incrementAndGet() > MAX_IDLE) {
+                this.idleCount.decrementAndGet();
+                deflater.end();
+            } else {
+                super.checkin(deflater);
+            }
+        }
+    }
+
+    @Override
+    public Deflater checkout() {
+        Deflater result = getStore().poll();
+
+        if (result == null) {
+            result = createObject();
+        } else {
+            this.idleCount.decrementAndGet();
+        }
+
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        for (Deflater deflater = getStore().poll(); deflater != null; deflater = getStore()
+                .poll()) {
+            this.idleCount.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    @Override
+    protected void clear(Deflater deflater) {
+        deflater.reset();
+    }
+
+    @Override
+    protected Deflater createObject() {
+        Deflater result = new Deflater(getLevel(), isNowrap());
+        result.setStrategy(getStrategy());
+        return result;
+    }
+
+    /**
+     * Returns the compression level.
+     * 
+     * @return The compression level.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the compression strategy.
+     * 
+     * @return The compression strategy.
+     */
+    public int getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Indicates if the ZLIB header and checksum fields shouldn't be written.
+     * 
+     * @return True if the ZLIB header and checksum fields shouldn't be
+     *         written.
+     */
+    public boolean isNowrap() {
+        return nowrap;
+    }
+
+}
@@ -43,14 +43,15 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.restlet.data.Disposition;
 import org.restlet.data.Encoding;
 import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.IoUtils;
 import org.restlet.engine.io.NioUtils;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperList;
@@ -63,6 +64,172 @@ import org.restlet.util.WrapperRepresentation;
  * @author Jerome Louvel
  */
 public class EncodeRepresentation extends WrapperRepresentation {
+
+    /**
+     * Input stream encoding the wrapped representation incrementally, as its
+     * bytes are read, without requiring an additional thread.
+     */
+    private class EncodingStream extends InputStream {
+
+        /** The buffer of encoded bytes not read yet. */
+        private final Sink encodedBytes;
+
+        /** The encoder stream writing into the buffer. */
+        private final DeflaterOutputStream encoderStream;
+
+        /** The buffer of bytes to encode. */
+        private final byte[] rawBytes;
+
+        /** The stream of bytes to encode. */
+        private final InputStream rawStream;
+
+        /**
+         * Constructor.
+         * 
+         * @throws IOException
+         */
+        public EncodingStream() throws IOException {
+            this.encodedBytes = new Sink();
+            this.encoderStream = createEncoderStream(this.encodedBytes);
+            this.rawBytes = new byte[IoUtils.BUFFER_SIZE];
+            this.rawStream = getWrappedRepresentation().getStream();
+        }
+
+        @Override
+        public int available() throws IOException {
+            return this.encodedBytes.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (this.rawStream != null) {
+                    this.rawStream.close();
+                }
+            } finally {
+                release(this.encoderStream);
+            }
+        }
+
+        /**
+         * Encodes bytes until some are available or the end of the wrapped
+         * representation is reached.
+         * 
+         * @return False if the end of the encoded bytes has been reached.
+         * @throws IOException
+         */
+        private boolean fill() throws IOException {
+            while ((this.encodedBytes.available() == 0)
+                    && !this.encodedBytes.isClosed()) {
+                int length = (this.rawStream == null) ? -1 : this.rawStream
+                        .read(this.rawBytes);
+
+                if (length == -1) {
+                    this.encoderStream.finish();
+                    this.encodedBytes.close();
+                } else {
+                    this.encoderStream.write(this.rawBytes, 0, length);
+                }
+            }
+
+            return this.encodedBytes.available() > 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? this.encodedBytes.read() : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = -1;
+
+            if (len == 0) {
+                result = 0;
+            } else if (fill()) {
+                result = this.encodedBytes.read(b, off, len);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Growable buffer receiving encoded bytes and allowing them to be read
+     * back.
+     */
+    private static class Sink extends java.io.ByteArrayOutputStream {
+
+        /** Indicates if no more bytes will be written. */
+        private boolean closed;
+
+        /** The position of the next byte to read. */
+        private int position;
+
+        /**
+         * Returns the number of bytes that can be read.
+         * 
+         * @return The number of bytes that can be read.
+         */
+        public synchronized int available() {
+            return this.count - this.position;
+        }
+
+        @Override
+        public synchronized void close() {
+            this.closed = true;
+        }
+
+        /**
+         * Indicates if no more bytes will be written.
+         * 
+         * @return True if no more bytes will be written.
+         */
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Reads the next byte.
+         * 
+         * @return The next byte.
+         */
+        public synchronized int read() {
+            int result = this.buf[this.position++] & 0xff;
+            recycle();
+            return result;
+        }
+
+        /**
+         * Reads available bytes.
+         * 
+         * @param b
+         *            The target array.
+         * @param off
+         *            The offset in the target array.
+         * @param len
+         *            The maximum number of bytes to read.
+         * @return The number of bytes read.
+         */
+        public synchronized int read(byte[] b, int off, int len) {
+            int result = Math.min(len, available());
+            System.arraycopy(this.buf, this.position, b, off, result);
+            this.position += result;
+            recycle();
+            return result;
+        }
+
+        /**
+         * Reuses the buffer once all the bytes have been read.
+         */
+        private void recycle() {
+            if (this.position == this.count) {
+                this.position = 0;
+                reset();
+            }
+        }
+    }
+
     /**
      * Returns the list of supported encodings.
      * 
@@ -76,14 +243,23 @@ public class EncodeRepresentation extends WrapperRepresentation {
     /** Indicates if the encoding can happen. */
     private volatile boolean canEncode;
 
+    /** The compression level. */
+    private volatile int compressionLevel;
+
+    /** The compression strategy. */
+    private volatile int compressionStrategy;
+
     /** The encoding to apply. */
     private volatile Encoding encoding;
 
     /** The applied encodings. */
     private volatile List<Encoding> encodings;
 
+    /** Indicates if flushing the encoded stream also flushes the deflater. */
+    private volatile boolean syncFlush;
+
     /**
-     * Constructor.
+     * Constructor using the default compression settings.
      * 
      * @param encoding
      *            Encoder algorithm.
@@ -92,10 +268,38 @@ public class EncodeRepresentation extends WrapperRepresentation {
      */
     public EncodeRepresentation(Encoding encoding,
             Representation wrappedRepresentation) {
+        this(encoding, wrappedRepresentation, Deflater.DEFAULT_COMPRESSION,
+                Deflater.DEFAULT_STRATEGY, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param encoding
+     *            Encoder algorithm.
+     * @param wrappedRepresentation
+     *            The wrapped representation.
+     * @param compressionLevel
+     *            The compression level, between 0 and 9 or -1 for the default
+     *            level.
+     * @param compressionStrategy
+     *            The compression strategy.
+     * @param syncFlush
+     *            True if flushing the encoded stream also flushes the
+     *            deflater.
+     * @see Deflater#setLevel(int)
+     * @see Deflater#setStrategy(int)
+     */
+    public EncodeRepresentation(Encoding encoding,
+            Representation wrappedRepresentation, int compressionLevel,
+            int compressionStrategy, boolean syncFlush) {
         super(wrappedRepresentation);
         this.canEncode = getSupportedEncodings().contains(encoding);
+        this.compressionLevel = compressionLevel;
+        this.compressionStrategy = compressionStrategy;
         this.encodings = null;
         this.encoding = encoding;
+        this.syncFlush = syncFlush;
     }
 
     /**
@@ -107,6 +311,51 @@ public class EncodeRepresentation extends WrapperRepresentation {
         return this.canEncode;
     }
 
+    /**
+     * Creates the stream encoding the bytes written to the given output
+     * stream. The deflaters are taken from a pool, except for the ZIP
+     * encoding.
+     * 
+     * @param outputStream
+     *            The output stream receiving the encoded bytes.
+     * @return The encoder stream or null for the identity encoding.
+     * @throws IOException
+     */
+    protected DeflaterOutputStream createEncoderStream(
+            OutputStream outputStream) throws IOException {
+        DeflaterOutputStream result = null;
+
+        if (this.encoding.equals(Encoding.GZIP)) {
+            result = new EncoderOutputStream(outputStream,
+                    DeflaterPool.getInstance(getCompressionLevel(),
+                            getCompressionStrategy(), true), true,
+                    isSyncFlush());
+        } else if (this.encoding.equals(Encoding.DEFLATE)) {
+            result = new EncoderOutputStream(outputStream,
+                    DeflaterPool.getInstance(getCompressionLevel(),
+                            getCompressionStrategy(), false), false,
+                    isSyncFlush());
+        } else if (this.encoding.equals(Encoding.ZIP)) {
+            @SuppressWarnings("resource")
+            final ZipOutputStream stream = new ZipOutputStream(outputStream);
+            String name = "entry";
+
+            if (getWrappedRepresentation().getDisposition() != null) {
+                name = getWrappedRepresentation().getDisposition()
+                        .getParameters()
+                        .getFirstValue(Disposition.NAME_FILENAME, true, name);
+            }
+
+            stream.setLevel(getCompressionLevel());
+            stream.putNextEntry(new ZipEntry(name));
+            result = stream;
+        } else if (this.encoding.equals(Encoding.IDENTITY)) {
+            // Encoder unnecessary for identity encoding
+        }
+
+        return result;
+    }
+
     /**
      * Returns the available size in bytes of the encoded representation if
      * known, UNKNOWN_SIZE (-1) otherwise.
@@ -138,12 +387,31 @@ public class EncodeRepresentation extends WrapperRepresentation {
     @Override
     public ReadableByteChannel getChannel() throws IOException {
         if (canEncode()) {
-            return NioUtils.getChannel(this);
+            return NioUtils.getChannel(getStream());
         } else {
             return getWrappedRepresentation().getChannel();
         }
     }
 
+    /**
+     * Returns the compression level, between 0 and 9 or -1 for the default
+     * level.
+     * 
+     * @return The compression level.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Returns the compression strategy.
+     * 
+     * @return The compression strategy.
+     */
+    public int getCompressionStrategy() {
+        return compressionStrategy;
+    }
+
     /**
      * Returns the applied encodings.
      * 
@@ -247,10 +515,20 @@ public class EncodeRepresentation extends WrapperRepresentation {
         return result;
     }
 
+    /**
+     * Returns a stream with the encoded content. The wrapped representation
+     * is encoded incrementally as the stream is read.
+     * 
+     * @return A stream with the encoded content.
+     */
     @Override
     public InputStream getStream() throws IOException {
         if (canEncode()) {
-            return BioUtils.getStream(this);
+            if (this.encoding.equals(Encoding.IDENTITY)) {
+                return getWrappedRepresentation().getStream();
+            } else {
+                return new EncodingStream();
+            }
         } else {
             return getWrappedRepresentation().getStream();
         }
@@ -265,38 +543,41 @@ public class EncodeRepresentation extends WrapperRepresentation {
         }
     }
 
+    /**
+     * Indicates if flushing the encoded stream also flushes the deflater,
+     * which is useful for streaming and chunked responses.
+     * 
+     * @return True if flushing the encoded stream also flushes the deflater.
+     */
+    public boolean isSyncFlush() {
+        return syncFlush;
+    }
+
+    /**
+     * Returns the deflater of the given encoder stream to its pool, if any.
+     * 
+     * @param encoderStream
+     *            The encoder stream.
+     */
+    private void release(DeflaterOutputStream encoderStream) {
+        if (encoderStream instanceof EncoderOutputStream) {
+            ((EncoderOutputStream) encoderStream).release();
+        }
+    }
+
     @Override
     public void write(OutputStream outputStream) throws IOException {
         if (canEncode()) {
-            DeflaterOutputStream encoderOutputStream = null;
-
-            if (this.encoding.equals(Encoding.GZIP)) {
-                encoderOutputStream = new GZIPOutputStream(outputStream);
-            } else if (this.encoding.equals(Encoding.DEFLATE)) {
-                encoderOutputStream = new DeflaterOutputStream(outputStream);
-            } else if (this.encoding.equals(Encoding.ZIP)) {
-                @SuppressWarnings("resource")
-                final ZipOutputStream stream = new ZipOutputStream(outputStream);
-                String name = "entry";
-                
-                if (getWrappedRepresentation().getDisposition() != null) {
-                    name = getWrappedRepresentation()
-                            .getDisposition()
-                            .getParameters()
-                            .getFirstValue(Disposition.NAME_FILENAME, true,
-                                    name);
-                }
-                
-                stream.putNextEntry(new ZipEntry(name));
-                encoderOutputStream = stream;
-            } else if (this.encoding.equals(Encoding.IDENTITY)) {
-                // Encoder unnecessary for identity encoding
-            }
+            DeflaterOutputStream encoderOutputStream = createEncoderStream(outputStream);
 
             if (encoderOutputStream != null) {
-                getWrappedRepresentation().write(encoderOutputStream);
-                encoderOutputStream.flush();
-                encoderOutputStream.finish();
+                try {
+                    getWrappedRepresentation().write(encoderOutputStream);
+                    encoderOutputStream.finish();
+                    encoderOutputStream.flush();
+                } finally {
+                    release(encoderOutputStream);
+                }
             } else {
                 getWrappedRepresentation().write(outputStream);
             }
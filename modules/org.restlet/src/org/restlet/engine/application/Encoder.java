@@ -33,15 +33,25 @@
 
 package org.restlet.engine.application;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
 
 import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.ClientInfo;
 import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
 import org.restlet.data.Preference;
+import org.restlet.data.Reference;
+import org.restlet.engine.local.CachedRepresentation;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 import org.restlet.service.EncoderService;
@@ -109,7 +119,8 @@ public class Encoder extends Filter {
         if (isEncodingResponse()
                 && getEncoderService().canEncode(response.getEntity())) {
             response.setEntity(encode(request.getClientInfo(),
-                    response.getEntity()));
+                    response.getEntity(), request.getResourceRef(),
+                    !Method.HEAD.equals(request.getMethod())));
         }
     }
 
@@ -147,11 +158,85 @@ public class Encoder extends Filter {
      */
     public Representation encode(ClientInfo client,
             Representation representation) {
+        return encode(client, representation, null);
+    }
+
+    /**
+     * Encodes a given representation if an encoding is supported by the client.
+     * Files compressed at build time and previously encoded representations
+     * are reused when the encoder service allows it.
+     * 
+     * @param client
+     *            The client preferences to use.
+     * @param representation
+     *            The representation to encode.
+     * @param resourceRef
+     *            The URI of the resource, used to identify the cacheable
+     *            representations, or null.
+     * @return The encoded representation or the original one if no encoding
+     *         supported by the client.
+     * @see EncoderService#isPrecompressed()
+     * @see EncoderService#getCache()
+     */
+    public Representation encode(ClientInfo client,
+            Representation representation, Reference resourceRef) {
+        return encode(client, representation, resourceRef, true);
+    }
+
+    /**
+     * Encodes a given representation if an encoding is supported by the client.
+     * Files compressed at build time and previously encoded representations
+     * are reused when the encoder service allows it.
+     * 
+     * @param client
+     *            The client preferences to use.
+     * @param representation
+     *            The representation to encode.
+     * @param resourceRef
+     *            The URI of the resource, used to identify the cacheable
+     *            representations, or null.
+     * @param caching
+     *            Indicates if the encoded content can be added to the cache.
+     *            False when the entity won't be written, like for HEAD
+     *            requests.
+     * @return The encoded representation or the original one if no encoding
+     *         supported by the client.
+     * @see EncoderService#isPrecompressed()
+     * @see EncoderService#getCache()
+     */
+    protected Representation encode(ClientInfo client,
+            Representation representation, Reference resourceRef,
+            boolean caching) {
         Representation result = representation;
         Encoding bestEncoding = getBestEncoding(client);
 
         if (bestEncoding != null) {
-            result = new EncodeRepresentation(bestEncoding, representation);
+            EncoderService encoderService = getEncoderService();
+
+            if (encoderService == null) {
+                result = new EncodeRepresentation(bestEncoding, representation);
+            } else {
+                MediaType mediaType = representation.getMediaType();
+                int level = encoderService.getCompressionLevel(mediaType);
+                int strategy = encoderService.getCompressionStrategy(mediaType);
+                result = encoderService.isPrecompressed() ? getPrecompressed(
+                        bestEncoding, representation) : null;
+
+                if (result == null) {
+                    result = new EncodeRepresentation(bestEncoding,
+                            representation, level, strategy,
+                            encoderService.isSyncFlush());
+                    EncoderCache cache = encoderService.getCache();
+                    String key = (cache == null) ? null : cache.getKey(
+                            representation, resourceRef, bestEncoding, level,
+                            strategy);
+
+                    if (key != null) {
+                        result = getCached(cache, key, bestEncoding,
+                                representation, result, caching);
+                    }
+                }
+            }
         }
 
         return result;
@@ -192,6 +277,52 @@ public class Encoder extends Filter {
         return bestEncoding;
     }
 
+    /**
+     * Returns the representation encoded from the given cache. The
+     * representation is encoded and cached if needed.
+     * 
+     * @param cache
+     *            The cache of encoded representations.
+     * @param key
+     *            The key of the cached encoded content.
+     * @param encoding
+     *            The encoding to apply.
+     * @param representation
+     *            The representation to encode.
+     * @param encodeRepresentation
+     *            The representation encoding on the fly.
+     * @param caching
+     *            Indicates if the encoded content can be added to the cache.
+     * @return The representation encoded from the cache, or the
+     *         representation encoding on the fly if it couldn't be cached.
+     */
+    private Representation getCached(EncoderCache cache, String key,
+            Encoding encoding, Representation representation,
+            Representation encodeRepresentation, boolean caching) {
+        Representation result = encodeRepresentation;
+        byte[] encoded = cache.get(key);
+
+        if ((encoded == null) && caching) {
+            try {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                encodeRepresentation.write(baos);
+                encoded = baos.toByteArray();
+                cache.put(key, encoded);
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING,
+                        "Unable to cache the encoded representation", e);
+            }
+        }
+
+        if (encoded != null) {
+            result = new PreEncodedRepresentation(encoding, representation,
+                    new ByteArrayRepresentation(encoded,
+                            representation.getMediaType(), encoded.length));
+        }
+
+        return result;
+    }
+
     /**
      * Returns the parent encoder service.
      * 
@@ -201,6 +332,43 @@ public class Encoder extends Filter {
         return encoderService;
     }
 
+    /**
+     * Returns the file compressed at build time for the given representation,
+     * if any. The GZIP encoding of a file representation, cached or not, is
+     * looked up as a sibling file with the ".gz" extension that isn't older
+     * than the original file.
+     * 
+     * @param encoding
+     *            The encoding to apply.
+     * @param representation
+     *            The representation to encode.
+     * @return The precompressed representation or null.
+     */
+    protected Representation getPrecompressed(Encoding encoding,
+            Representation representation) {
+        Representation result = null;
+        File file = null;
+
+        if (representation instanceof FileRepresentation) {
+            file = ((FileRepresentation) representation).getFile();
+        } else if (representation instanceof CachedRepresentation) {
+            file = ((CachedRepresentation) representation).getFile();
+        }
+
+        if (Encoding.GZIP.equals(encoding) && (file != null)) {
+            File gzFile = new File(file.getPath() + ".gz");
+
+            if (gzFile.isFile()
+                    && (gzFile.lastModified() >= file.lastModified())) {
+                result = new PreEncodedRepresentation(encoding, representation,
+                        new FileRepresentation(gzFile,
+                                representation.getMediaType()));
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the list of supported encodings. By default it calls
      * {@link EncodeRepresentation#getSupportedEncodings()} static method.
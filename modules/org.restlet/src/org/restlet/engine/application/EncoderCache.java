@@ -0,0 +1,191 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.application;
+
+import java.io.File;
+
+import org.restlet.data.Encoding;
+import org.restlet.data.Reference;
+import org.restlet.engine.util.LruCache;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Cache of encoded representations. The key identifies the content of the
+ * representation, either with the path, modification date and size of its
+ * file or with the URI of its resource and its strong entity tag, as well as
+ * the encoding and compression settings. The value is the encoded content.<br>
+ * <br>
+ * The cache is bounded by a number of entries and by the total size of the
+ * encoded content. Only the representations smaller than a maximum entry size
+ * are cached.
+ * 
+ * @author Jerome Louvel
+ */
+public class EncoderCache extends LruCache<String, byte[]> {
+
+    /** The default maximum number of entries. */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    /** The default maximum size of the representations to cache. */
+    public static final long DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+
+    /** The default maximum total size of the encoded content. */
+    public static final long DEFAULT_MAX_TOTAL_SIZE = 4 * 1024 * 1024;
+
+    /** The maximum size of the representations to cache. */
+    private volatile long maxEntrySize;
+
+    /**
+     * Default constructor.
+     */
+    public EncoderCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRY_SIZE, DEFAULT_MAX_TOTAL_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of entries.
+     * @param maxEntrySize
+     *            The maximum size of the representations to cache, before
+     *            encoding.
+     */
+    public EncoderCache(int maxSize, long maxEntrySize) {
+        this(maxSize, maxEntrySize, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of entries.
+     * @param maxEntrySize
+     *            The maximum size of the representations to cache, before
+     *            encoding.
+     * @param maxTotalSize
+     *            The maximum total size of the encoded content.
+     */
+    public EncoderCache(int maxSize, long maxEntrySize, long maxTotalSize) {
+        super(maxSize, maxTotalSize);
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Returns the key identifying the encoded content of a representation, or
+     * null if it can't be cached.
+     * 
+     * @param representation
+     *            The representation to encode.
+     * @param resourceRef
+     *            The URI of the resource, or null.
+     * @param encoding
+     *            The encoding to apply.
+     * @param compressionLevel
+     *            The compression level.
+     * @param compressionStrategy
+     *            The compression strategy.
+     * @return The key or null.
+     */
+    public String getKey(Representation representation, Reference resourceRef,
+            Encoding encoding, int compressionLevel, int compressionStrategy) {
+        String result = null;
+        long size = representation.getSize();
+
+        if ((size != Representation.UNKNOWN_SIZE)
+                && (size <= getMaxEntrySize())
+                && representation.isAvailable()) {
+            StringBuilder sb = new StringBuilder();
+
+            if (representation instanceof FileRepresentation) {
+                File file = ((FileRepresentation) representation).getFile();
+                sb.append(file.getAbsolutePath()).append('|')
+                        .append(file.lastModified()).append('|')
+                        .append(file.length());
+            } else if ((resourceRef != null)
+                    && (representation.getTag() != null)
+                    && !representation.getTag().isWeak()) {
+                sb.append(resourceRef).append('|')
+                        .append(representation.getTag().getName());
+            } else {
+                sb = null;
+            }
+
+            if (sb != null) {
+                sb.append('|').append(encoding.getName()).append('|')
+                        .append(compressionLevel).append('|')
+                        .append(compressionStrategy);
+                result = sb.toString();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum size of the representations to cache, before
+     * encoding.
+     * 
+     * @return The maximum size of the representations to cache.
+     */
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Returns the size of the encoded content.
+     * 
+     * @param value
+     *            The encoded content.
+     * @return The size of the encoded content.
+     */
+    @Override
+    protected long getWeight(byte[] value) {
+        return value.length;
+    }
+
+    /**
+     * Sets the maximum size of the representations to cache, before encoding.
+     * 
+     * @param maxEntrySize
+     *            The maximum size of the representations to cache.
+     */
+    public void setMaxEntrySize(long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.restlet.engine.io.IoUtils;
+
+// [excludes gwt]
+/**
+ * Output stream compressing the written bytes in the GZIP or ZLIB (deflate)
+ * format with a deflater taken from a pool. The deflater is returned to its
+ * pool as soon as the stream is finished.<br>
+ * <br>
+ * In sync flush mode, flushing the stream also flushes the bytes pending in
+ * the deflater, so that a streaming client can decode all the data written so
+ * far. This requires a Java 7 runtime, otherwise only the underlying stream is
+ * flushed.
+ * 
+ * @author Jerome Louvel
+ */
+public class EncoderOutputStream extends DeflaterOutputStream {
+
+    /** GZIP header magic number. */
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    /** The flush mode of the "deflate(byte[], int, int, int)" method. */
+    private static final int SYNC_FLUSH = 2;
+
+    /** The Java 7 deflate method supporting flush modes, if available. */
+    private static final Method syncDeflateMethod = getSyncDeflateMethod();
+
+    /**
+     * Returns the Java 7 deflate method supporting flush modes, if available.
+     * 
+     * @return The deflate method supporting flush modes or null.
+     */
+    private static Method getSyncDeflateMethod() {
+        Method result = null;
+
+        try {
+            result = Deflater.class.getMethod("deflate", byte[].class,
+                    int.class, int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            // Flush modes not supported
+        }
+
+        return result;
+    }
+
+    /** The checksum of the uncompressed data in GZIP mode. */
+    private final CRC32 crc;
+
+    /** Indicates if the stream has been finished. */
+    private volatile boolean finished;
+
+    /** The parent deflater pool. */
+    private final DeflaterPool pool;
+
+    /** Indicates if the deflater has been returned to its pool. */
+    private volatile boolean released;
+
+    /** Indicates if flushing the stream also flushes the deflater. */
+    private final boolean syncFlush;
+
+    /**
+     * Constructor.
+     * 
+     * @param outputStream
+     *            The output stream receiving the compressed bytes.
+     * @param pool
+     *            The pool providing the deflater. In GZIP mode, the deflater
+     *            shouldn't write the ZLIB header and checksum fields.
+     * @param gzip
+     *            True if the GZIP format should be written.
+     * @param syncFlush
+     *            True if flushing the stream also flushes the deflater.
+     * @throws IOException
+     */
+    public EncoderOutputStream(OutputStream outputStream, DeflaterPool pool,
+            boolean gzip, boolean syncFlush) throws IOException {
+        super(outputStream, pool.checkout(), IoUtils.BUFFER_SIZE);
+        this.crc = gzip ? new CRC32() : null;
+        this.finished = false;
+        this.pool = pool;
+        this.released = false;
+        this.syncFlush = syncFlush;
+
+        if (gzip) {
+            writeHeader();
+        }
+    }
+
+    /**
+     * Finishes the compression and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            release();
+            this.out.close();
+        }
+    }
+
+    /**
+     * Finishes writing the compressed data to the underlying stream, without
+     * closing it, and returns the deflater to its pool.
+     */
+    @Override
+    public void finish() throws IOException {
+        if (!this.finished) {
+            try {
+                super.finish();
+
+                if (this.crc != null) {
+                    writeTrailer();
+                }
+            } finally {
+                this.finished = true;
+                release();
+            }
+        }
+    }
+
+    /**
+     * Flushes the underlying stream. In sync flush mode, the bytes pending in
+     * the deflater are written first.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (isSyncFlush() && !this.finished && (syncDeflateMethod != null)) {
+            try {
+                int length;
+
+                do {
+                    length = (Integer) syncDeflateMethod.invoke(this.def,
+                            this.buf, 0, this.buf.length, SYNC_FLUSH);
+
+                    if (length > 0) {
+                        this.out.write(this.buf, 0, length);
+                    }
+                } while (length == this.buf.length);
+            } catch (IllegalAccessException e) {
+                throw new IOException("Unable to flush the deflater: "
+                        + e.getMessage());
+            } catch (InvocationTargetException e) {
+                throw new IOException("Unable to flush the deflater: "
+                        + e.getCause());
+            }
+        }
+
+        this.out.flush();
+    }
+
+    /**
+     * Indicates if flushing the stream also flushes the deflater.
+     * 
+     * @return True if flushing the stream also flushes the deflater.
+     */
+    public boolean isSyncFlush() {
+        return syncFlush;
+    }
+
+    /**
+     * Returns the deflater to its pool, if not done yet. The stream can't be
+     * written anymore.
+     */
+    public void release() {
+        if (!this.released) {
+            this.released = true;
+            this.finished = true;
+            this.pool.checkin(this.def);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (this.finished) {
+            throw new IOException("Write beyond end of stream");
+        }
+
+        super.write(b, off, len);
+
+        if (this.crc != null) {
+            this.crc.update(b, off, len);
+        }
+    }
+
+    /**
+     * Writes the GZIP member header.
+     * 
+     * @throws IOException
+     */
+    private void writeHeader() throws IOException {
+        this.out.write(new byte[] { (byte) GZIP_MAGIC,
+                (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0,
+                0, 0 });
+    }
+
+    /**
+     * Writes a 32 bits integer in little-endian order.
+     * 
+     * @param value
+     *            The value to write.
+     * @throws IOException
+     */
+    private void writeInt(long value) throws IOException {
+        for (int i = 0; i < 4; i++) {
+            this.out.write((int) (value >> (8 * i)) & 0xff);
+        }
+    }
+
+    /**
+     * Writes the GZIP member trailer.
+     * 
+     * @throws IOException
+     */
+    private void writeTrailer() throws IOException {
+        writeInt(this.crc.getValue());
+        writeInt(this.def.getBytesRead());
+    }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.application;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+import org.restlet.engine.util.Pool;
+
+// [excludes gwt]
+/**
+ * Pool of inflaters. Reusing inflaters avoids allocating a native zlib context
+ * for each decoded entity and releasing it only at finalization time.
+ * Inflaters exceeding the maximum number of idle instances are ended
+ * immediately.
+ * 
+ * @author Jerome Louvel
+ */
+public class InflaterPool extends Pool<Inflater> {
+
+    /** The maximum number of idle inflaters kept by each pool. */
+    public static final int MAX_IDLE = 32;
+
+    /** The shared pool of inflaters for the GZIP and ZIP formats. */
+    private static final InflaterPool nowrapPool = new InflaterPool(true);
+
+    /** The shared pool of inflaters for the ZLIB format. */
+    private static final InflaterPool zlibPool = new InflaterPool(false);
+
+    /**
+     * Returns the shared pool of inflaters.
+     * 
+     * @param nowrap
+     *            True if the ZLIB header and checksum fields aren't present,
+     *            as for the GZIP and ZIP formats.
+     * @return The shared pool of inflaters.
+     */
+    public static InflaterPool getInstance(boolean nowrap) {
+        return nowrap ? nowrapPool : zlibPool;
+    }
+
+    /** The number of idle inflaters. */
+    private final AtomicInteger idleCount;
+
+    /** True if the ZLIB header and checksum fields aren't present. */
+    private final boolean nowrap;
+
+    /**
+     * Constructor.
+     * 
+     * @param nowrap
+     *            True if the ZLIB header and checksum fields aren't present,
+     *            as for the GZIP and ZIP formats.
+     */
+    public InflaterPool(boolean nowrap) {
+        this.idleCount = new AtomicInteger();
+        this.nowrap = nowrap;
+    }
+
+    @Override
+    public void checkin(Inflater inflater) {
+        if (inflater != null) {
+            if (this.idleCount.incrementAndGet() > MAX_IDLE) {
+                this.idleCount.decrementAndGet();
+                inflater.end();
+            } else {
+                super.checkin(inflater);
+            }
+        }
+    }
+
+    @Override
+    public Inflater checkout() {
+        Inflater result = getStore().poll();
+
+        if (result == null) {
+            result = createObject();
+        } else {
+            this.idleCount.decrementAndGet();
+        }
+
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        for (Inflater inflater = getStore().poll(); inflater != null; inflater = getStore()
+                .poll()) {
+            this.idleCount.decrementAndGet();
+            inflater.end();
+        }
+    }
+
+    @Override
+    protected void clear(Inflater inflater) {
+        inflater.reset();
+    }
+
+    @Override
+    protected Inflater createObject() {
+        return new Inflater(isNowrap());
+    }
+
+    /**
+     * Indicates if the ZLIB header and checksum fields aren't present.
+     * 
+     * @return True if the ZLIB header and checksum fields aren't present.
+     */
+    public boolean isNowrap() {
+        return nowrap;
+    }
+
+}
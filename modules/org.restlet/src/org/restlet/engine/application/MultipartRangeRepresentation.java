@@ -0,0 +1,414 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.application;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Digest;
+import org.restlet.data.MediaType;
+import org.restlet.data.Parameter;
+import org.restlet.data.Range;
+import org.restlet.engine.header.ContentType;
+import org.restlet.engine.header.RangeWriter;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.NioUtils;
+import org.restlet.engine.io.RangeInputStream;
+import org.restlet.representation.Representation;
+import org.restlet.util.Series;
+import org.restlet.util.WrapperRepresentation;
+
+// [excludes gwt]
+/**
+ * Representation that exposes several ranges of the content of a wrapped
+ * representation as a "multipart/byteranges" entity. Each part is read from
+ * the wrapped representation only when it is written, so the content is
+ * streamed without being buffered.
+ * 
+ * @author Jerome Louvel
+ */
+public class MultipartRangeRepresentation extends WrapperRepresentation {
+
+    /** The line separator of multipart entities. */
+    private static final String CRLF = "\r\n";
+
+    /**
+     * Returns the list of satisfiable ranges with absolute start indexes and
+     * exact sizes.
+     * 
+     * @param ranges
+     *            The requested ranges.
+     * @param totalSize
+     *            The known size of the complete entity.
+     * @return The list of satisfiable ranges, potentially empty.
+     */
+    public static List<Range> normalize(List<Range> ranges, long totalSize) {
+        List<Range> result = new ArrayList<Range>(ranges.size());
+
+        for (Range range : ranges) {
+            Range normalized = RangeRepresentation.normalize(range, totalSize);
+
+            if (normalized != null) {
+                result.add(normalized);
+            }
+        }
+
+        return result;
+    }
+
+    /** The boundary separating the parts. */
+    private final String boundary;
+
+    /** The multipart media type. */
+    private final MediaType mediaType;
+
+    /** The normalized ranges to expose. */
+    private final List<Range> ranges;
+
+    /** The size of the multipart entity. */
+    private final long size;
+
+    /**
+     * Constructor.
+     * 
+     * @param wrappedRepresentation
+     *            The wrapped representation with a complete content and a
+     *            known size.
+     * @param ranges
+     *            The ranges to expose.
+     */
+    public MultipartRangeRepresentation(Representation wrappedRepresentation,
+            List<Range> ranges) {
+        super(wrappedRepresentation);
+
+        if (!wrappedRepresentation.hasKnownSize()) {
+            throw new IllegalArgumentException(
+                    "The wrapped representation must have a known size.");
+        }
+
+        this.boundary = "restlet-"
+                + Long.toHexString(Double.doubleToLongBits(Math.random()))
+                + Long.toHexString(System.nanoTime());
+        Series<Parameter> parameters = new Series<Parameter>(Parameter.class);
+        parameters.add("boundary", this.boundary);
+        this.mediaType = new MediaType(MediaType.MULTIPART_BYTERANGES.getName(),
+                parameters);
+        this.ranges = Collections.unmodifiableList(normalize(ranges,
+                wrappedRepresentation.getSize()));
+
+        long result = getTrailer().length();
+
+        for (int i = 0; i < this.ranges.size(); i++) {
+            result += getHeader(i).length() + this.ranges.get(i).getSize();
+        }
+
+        this.size = result;
+    }
+
+    @Override
+    public long getAvailableSize() {
+        return getSize();
+    }
+
+    /**
+     * Returns the boundary separating the parts.
+     * 
+     * @return The boundary separating the parts.
+     */
+    public String getBoundary() {
+        return boundary;
+    }
+
+    @Override
+    public java.nio.channels.ReadableByteChannel getChannel()
+            throws IOException {
+        return NioUtils.getChannel(getStream());
+    }
+
+    /**
+     * Returns null as the character set only applies to the parts.
+     * 
+     * @return Null.
+     */
+    @Override
+    public CharacterSet getCharacterSet() {
+        return null;
+    }
+
+    /**
+     * Returns null as the digest of the wrapped representation doesn't match
+     * the multipart content.
+     * 
+     * @return Null.
+     */
+    @Override
+    public Digest getDigest() {
+        return null;
+    }
+
+    /**
+     * Returns the header preceding the content of a given part, including the
+     * delimiter.
+     * 
+     * @param index
+     *            The index of the part.
+     * @return The header of the part.
+     */
+    private String getHeader(int index) {
+        StringBuilder sb = new StringBuilder();
+
+        if (index > 0) {
+            sb.append(CRLF);
+        }
+
+        sb.append("--").append(getBoundary()).append(CRLF);
+
+        if (getWrappedRepresentation().getMediaType() != null) {
+            sb.append("Content-Type: ")
+                    .append(ContentType.writeHeader(getWrappedRepresentation()))
+                    .append(CRLF);
+        }
+
+        sb.append("Content-Range: ")
+                .append(RangeWriter.write(this.ranges.get(index),
+                        getWrappedRepresentation().getSize())).append(CRLF)
+                .append(CRLF);
+        return sb.toString();
+    }
+
+    /**
+     * Returns the "multipart/byteranges" media type with the boundary
+     * parameter.
+     * 
+     * @return The multipart media type.
+     */
+    @Override
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Returns a new stream on the content of a given part.
+     * 
+     * @param index
+     *            The index of the part.
+     * @return A new stream on the content of a given part.
+     * @throws IOException
+     */
+    private InputStream getPartStream(int index) throws IOException {
+        return new RangeInputStream(getWrappedRepresentation().getStream(),
+                getWrappedRepresentation().getSize(), this.ranges.get(index));
+    }
+
+    /**
+     * Returns null as the ranges are described by each part.
+     * 
+     * @return Null.
+     */
+    @Override
+    public Range getRange() {
+        return null;
+    }
+
+    /**
+     * Returns the normalized ranges exposed, in the order of the parts.
+     * 
+     * @return The normalized ranges exposed.
+     */
+    public List<Range> getRanges() {
+        return ranges;
+    }
+
+    @Override
+    public Reader getReader() throws IOException {
+        return BioUtils.getReader(getStream(), getCharacterSet());
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns a stream that successively reads the parts. The content of each
+     * part is only opened once the previous one has been fully read.
+     */
+    @Override
+    public InputStream getStream() throws IOException {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            private int index = 0;
+
+            public boolean hasMoreElements() {
+                return index <= 2 * ranges.size();
+            }
+
+            public InputStream nextElement() {
+                InputStream result = null;
+                int part = index / 2;
+
+                if (part == ranges.size()) {
+                    result = toStream(getTrailer());
+                } else if (index % 2 == 0) {
+                    result = toStream(getHeader(part));
+                } else {
+                    try {
+                        result = getPartStream(part);
+                    } catch (IOException ioe) {
+                        throw new IllegalStateException(
+                                "Unable to read the range of the wrapped representation",
+                                ioe);
+                    }
+                }
+
+                index++;
+                return result;
+            }
+        });
+    }
+
+    @Override
+    public String getText() throws IOException {
+        return BioUtils.getText(this);
+    }
+
+    /**
+     * Returns the closing delimiter.
+     * 
+     * @return The closing delimiter.
+     */
+    private String getTrailer() {
+        return CRLF + "--" + getBoundary() + "--" + CRLF;
+    }
+
+    /**
+     * Does nothing as the ranges are only described by the parts.
+     * 
+     * @param range
+     *            Ignored.
+     */
+    @Override
+    public void setRange(Range range) {
+    }
+
+    /**
+     * Returns a stream on the ASCII bytes of a header.
+     * 
+     * @param header
+     *            The header.
+     * @return A stream on the ASCII bytes of a header.
+     */
+    private InputStream toStream(String header) {
+        return new ByteArrayInputStream(toBytes(header));
+    }
+
+    /**
+     * Returns the ASCII bytes of a header.
+     * 
+     * @param header
+     *            The header.
+     * @return The ASCII bytes of the header.
+     */
+    private byte[] toBytes(String header) {
+        try {
+            return header.getBytes("US-ASCII");
+        } catch (java.io.UnsupportedEncodingException uee) {
+            throw new IllegalStateException(uee);
+        }
+    }
+
+    @Override
+    public void write(java.io.Writer writer) throws IOException {
+        OutputStream os = BioUtils.getStream(writer, getCharacterSet());
+        write(os);
+        os.flush();
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        for (int i = 0; i < this.ranges.size(); i++) {
+            outputStream.write(toBytes(getHeader(i)));
+            BioUtils.copy(getPartStream(i), outputStream);
+        }
+
+        outputStream.write(toBytes(getTrailer()));
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the parts to a byte channel. The content of each part is written
+     * by a {@link RangeRepresentation}, in order to benefit from direct
+     * transfers for files.
+     */
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        for (int i = 0; i < this.ranges.size(); i++) {
+            write(getHeader(i), writableChannel);
+            new RangeRepresentation(getWrappedRepresentation(),
+                    this.ranges.get(i)).write(writableChannel);
+        }
+
+        write(getTrailer(), writableChannel);
+    }
+
+    /**
+     * Fully writes a header to a byte channel.
+     * 
+     * @param header
+     *            The header to write.
+     * @param writableChannel
+     *            The target channel.
+     * @throws IOException
+     */
+    private void write(String header, WritableByteChannel writableChannel)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(toBytes(header));
+
+        while (buffer.hasRemaining()) {
+            writableChannel.write(buffer);
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.application;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.restlet.data.Encoding;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.representation.Representation;
+import org.restlet.util.WrapperRepresentation;
+
+// [excludes gwt]
+/**
+ * Representation whose encoded content is already available, either cached in
+ * memory or stored in a sibling file compressed at build time. The metadata
+ * are taken from the wrapped representation while the content is taken from
+ * the encoded representation.
+ * 
+ * @author Jerome Louvel
+ */
+public class PreEncodedRepresentation extends WrapperRepresentation {
+
+    /** The encoded content. */
+    private final Representation encodedRepresentation;
+
+    /** The applied encodings. */
+    private final List<Encoding> encodings;
+
+    /**
+     * Constructor.
+     * 
+     * @param encoding
+     *            The encoding applied to the encoded content.
+     * @param wrappedRepresentation
+     *            The representation providing the metadata.
+     * @param encodedRepresentation
+     *            The encoded content.
+     */
+    public PreEncodedRepresentation(Encoding encoding,
+            Representation wrappedRepresentation,
+            Representation encodedRepresentation) {
+        super(wrappedRepresentation);
+        this.encodedRepresentation = encodedRepresentation;
+        this.encodings = new ArrayList<Encoding>(
+                wrappedRepresentation.getEncodings());
+        this.encodings.add(encoding);
+    }
+
+    @Override
+    public long getAvailableSize() {
+        return getEncodedRepresentation().getAvailableSize();
+    }
+
+    @Override
+    public ReadableByteChannel getChannel() throws IOException {
+        return getEncodedRepresentation().getChannel();
+    }
+
+    /**
+     * Returns null as the digest of the wrapped representation doesn't apply
+     * to the encoded content.
+     * 
+     * @return Null.
+     */
+    @Override
+    public org.restlet.data.Digest getDigest() {
+        return null;
+    }
+
+    /**
+     * Returns the encoded content.
+     * 
+     * @return The encoded content.
+     */
+    public Representation getEncodedRepresentation() {
+        return encodedRepresentation;
+    }
+
+    @Override
+    public List<Encoding> getEncodings() {
+        return this.encodings;
+    }
+
+    @Override
+    public Reader getReader() throws IOException {
+        return BioUtils.getReader(getStream(), getCharacterSet());
+    }
+
+    @Override
+    public long getSize() {
+        return getEncodedRepresentation().getSize();
+    }
+
+    @Override
+    public InputStream getStream() throws IOException {
+        return getEncodedRepresentation().getStream();
+    }
+
+    @Override
+    public String getText() throws IOException {
+        return BioUtils.toString(getStream(), getCharacterSet());
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return getEncodedRepresentation().isAvailable();
+    }
+
+    @Override
+    public boolean isTransient() {
+        return getEncodedRepresentation().isTransient();
+    }
+
+    @Override
+    public void release() {
+        getEncodedRepresentation().release();
+        super.release();
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        getEncodedRepresentation().write(outputStream);
+    }
+
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        getEncodedRepresentation().write(writableChannel);
+    }
+
+    @Override
+    public void write(Writer writer) throws IOException {
+        OutputStream os = BioUtils.getStream(writer, getCharacterSet());
+        write(os);
+        os.flush();
+    }
+
+}
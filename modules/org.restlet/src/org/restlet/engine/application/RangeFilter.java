@@ -33,11 +33,14 @@
 
 package org.restlet.engine.application;
 
+import java.util.List;
+
 import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.Range;
 import org.restlet.data.Status;
+import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 import org.restlet.service.RangeService;
 
@@ -80,12 +83,13 @@ public class RangeFilter extends Filter {
                             // properly ranged.
                         }
                     } else {
-                        // At this time, list of ranges are not supported.
-                        if (request.getRanges().size() == 1
-                                && (!request.getConditions().hasSomeRange() || request
-                                        .getConditions()
+                        boolean rangeApplies = !request.getConditions()
+                                .hasSomeRange()
+                                || request.getConditions()
                                         .getRangeStatus(response.getEntity())
-                                        .isSuccess())) {
+                                        .isSuccess();
+
+                        if (request.getRanges().size() == 1 && rangeApplies) {
                             Range requestedRange = request.getRanges().get(0);
 
                             if ((!response.getEntity().hasKnownSize())
@@ -116,14 +120,9 @@ public class RangeFilter extends Filter {
                                         response.getEntity(), requestedRange));
                                 response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
                             }
-                        } else if (request.getRanges().size() > 1) {
-                            // Return a server error as this feature isn't
-                            // supported yet
-                            response.setStatus(Status.SERVER_ERROR_NOT_IMPLEMENTED);
-                            getLogger()
-                                    .warning(
-                                            "Multiple ranges are not supported at this time.");
-                            response.setEntity(null);
+                        } else if (request.getRanges().size() > 1
+                                && rangeApplies) {
+                            handleRanges(request, response);
                         }
                     }
                 } else {
@@ -133,6 +132,43 @@ public class RangeFilter extends Filter {
         }
     }
 
+    /**
+     * Serves several ranges of the response entity as a "multipart/byteranges"
+     * entity. The parts are streamed from the original entity, so it must have
+     * a known size and be readable several times. Otherwise, the complete
+     * entity is returned as allowed by the HTTP specification.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param response
+     *            The response to update.
+     */
+    protected void handleRanges(Request request, Response response) {
+        Representation entity = response.getEntity();
+
+        if ((entity.getRange() == null) && entity.hasKnownSize()
+                && !entity.isTransient()) {
+            List<Range> ranges = MultipartRangeRepresentation.normalize(
+                    request.getRanges(), entity.getSize());
+
+            if (ranges.isEmpty()) {
+                response.setStatus(Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setEntity(null);
+            } else if (ranges.size() == 1) {
+                response.setEntity(new RangeRepresentation(entity, ranges
+                        .get(0)));
+                response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
+            } else {
+                response.setEntity(new MultipartRangeRepresentation(entity,
+                        ranges));
+                response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
+            }
+        } else {
+            getLogger()
+                    .fine("Unable to serve multiple ranges for this entity, returning the complete entity.");
+        }
+    }
+
     /**
      * Returns the Range service of the parent application.
      * 
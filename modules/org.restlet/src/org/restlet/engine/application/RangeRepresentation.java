@@ -37,12 +37,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 
 import org.restlet.data.Range;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.engine.io.NioUtils;
 import org.restlet.engine.io.RangeInputStream;
+import org.restlet.engine.local.CachedRepresentation;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperRepresentation;
 
@@ -55,6 +59,47 @@ import org.restlet.util.WrapperRepresentation;
  */
 public class RangeRepresentation extends WrapperRepresentation {
 
+    /**
+     * Returns the given range with an absolute start index and an exact size,
+     * or null if the range can't be satisfied by an entity of the given size.
+     * 
+     * @param range
+     *            The range to normalize.
+     * @param totalSize
+     *            The known size of the complete entity.
+     * @return The normalized range or null.
+     */
+    static Range normalize(Range range, long totalSize) {
+        long start;
+        long size;
+
+        if (range.getIndex() == Range.INDEX_LAST) {
+            if (range.getSize() == Range.SIZE_MAX) {
+                size = totalSize;
+            } else {
+                size = Math.min(range.getSize(), totalSize);
+            }
+
+            start = totalSize - size;
+        } else {
+            start = range.getIndex();
+
+            if (range.getSize() == Range.SIZE_MAX) {
+                size = totalSize - start;
+            } else {
+                size = Math.min(range.getSize(), totalSize - start);
+            }
+        }
+
+        if ((start < 0) || (size <= 0)) {
+            return null;
+        }
+
+        Range result = new Range(start, size);
+        result.setUnitName(range.getUnitName());
+        return result;
+    }
+
     /** The range specific to this wrapper. */
     private volatile Range range;
 
@@ -148,11 +193,54 @@ public class RangeRepresentation extends WrapperRepresentation {
         BioUtils.copy(getStream(), outputStream);
     }
 
+    /**
+     * Writes the range to a byte channel. When the wrapped representation is
+     * a file of known size, the bytes are directly transferred from the file
+     * channel. When it is a cached content, a view of the range is written
+     * from the cached buffer.
+     */
     @Override
     public void write(WritableByteChannel writableChannel) throws IOException {
-        OutputStream os = NioUtils.getStream(writableChannel);
-        write(os);
-        os.flush();
+        Representation wrapped = getWrappedRepresentation();
+        Range normalized = (getRange() == null) || !hasKnownSize() ? null
+                : normalize(getRange(), getSize());
+
+        if ((normalized != null) && (wrapped instanceof FileRepresentation)) {
+            FileChannel fc = ((FileRepresentation) wrapped).getChannel();
+
+            try {
+                long position = normalized.getIndex();
+                long end = position + normalized.getSize();
+
+                while (position < end) {
+                    long written = fc.transferTo(position, end - position,
+                            writableChannel);
+
+                    if (written <= 0) {
+                        throw new IOException(
+                                "Unable to transfer the range of the file");
+                    }
+
+                    position += written;
+                }
+            } finally {
+                fc.close();
+            }
+        } else if ((normalized != null)
+                && (wrapped instanceof CachedRepresentation)) {
+            ByteBuffer content = ((CachedRepresentation) wrapped).getEntry()
+                    .getContent();
+            content.position(content.position() + (int) normalized.getIndex());
+            content.limit(content.position() + (int) normalized.getSize());
+
+            while (content.hasRemaining()) {
+                writableChannel.write(content);
+            }
+        } else {
+            OutputStream os = NioUtils.getStream(writableChannel);
+            write(os);
+            os.flush();
+        }
     }
 
 }
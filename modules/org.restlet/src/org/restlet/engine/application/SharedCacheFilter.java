@@ -0,0 +1,90 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.application;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.engine.cache.CacheEntry;
+import org.restlet.engine.cache.CacheFilter;
+import org.restlet.engine.cache.CacheStore;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.service.CacheService;
+
+// [excludes gwt]
+/**
+ * Filter caching the responses of an application as a shared cache. The
+ * responses are reused for all the clients according to their "s-maxage",
+ * "max-age" and "Expires" freshness information, so that the hits don't reach
+ * the resources of the application.<br>
+ * <br>
+ * When the range service of the application is enabled, requests with ranges
+ * are answered with complete responses that are then ranged by the
+ * {@link RangeFilter}.
+ * 
+ * @author Jerome Louvel
+ * @see CacheService
+ */
+public class SharedCacheFilter extends CacheFilter {
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The parent context.
+     * @param store
+     *            The store of entries.
+     */
+    public SharedCacheFilter(Context context, CacheStore store) {
+        super(context, null, store);
+    }
+
+    @Override
+    protected boolean isCacheable(Request request) {
+        if (!request.getRanges().isEmpty() && (getApplication() != null)
+                && getApplication().getRangeService().isEnabled()) {
+            // The ranges are extracted from the complete response later
+            return CacheEntry.getDirective(request.getCacheDirectives(),
+                    HeaderConstants.CACHE_NO_STORE) == null;
+        }
+
+        return super.isCacheable(request);
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+}
@@ -61,6 +61,7 @@ import org.restlet.engine.header.Header;
 import org.restlet.engine.header.HeaderConstants;
 import org.restlet.engine.header.PreferenceReader;
 import org.restlet.engine.io.IoUtils;
+import org.restlet.engine.util.LruCache;
 import org.restlet.routing.Filter;
 import org.restlet.service.MetadataService;
 import org.restlet.service.TunnelService;
@@ -142,9 +143,20 @@ public class TunnelFilter extends Filter {
 
     }
 
+    /** Marks the user agents that no replacer applies to. */
+    private static final AcceptReplacer NO_REPLACER = new AcceptReplacer(
+            null, null, new HashMap<String, String>());
+
     /** Used to replace accept header values. */
     private final List<AcceptReplacer> acceptReplacers = getAcceptReplacers();
 
+    /**
+     * Cache of the replacers resolved for the most recent user agent names and
+     * accept header values.
+     */
+    private final LruCache<String, AcceptReplacer> resolvedReplacers = new LruCache<String, AcceptReplacer>(
+            512);
+
     /**
      * Constructor.
      * 
@@ -518,52 +530,82 @@ public class TunnelFilter extends Filter {
      *            the request to update.
      */
     private void processUserAgent(Request request) {
-        final Map<String, String> agentAttributes = request.getClientInfo()
-                .getAgentAttributes();
+        if (!this.acceptReplacers.isEmpty()) {
+            // Get the old Accept header value
+            @SuppressWarnings("unchecked")
+            Series<Header> headers = (Series<Header>) request.getAttributes()
+                    .get(HeaderConstants.ATTRIBUTE_HEADERS);
+            String acceptOld = (headers != null) ? headers.getFirstValue(
+                    HeaderConstants.HEADER_ACCEPT, true) : null;
+
+            // Look for a replacer previously resolved for the same user agent
+            // and accept header
+            String key = request.getClientInfo().getAgent() + '\n'
+                    + acceptOld;
+            AcceptReplacer acceptReplacer = this.resolvedReplacers.get(key);
+
+            if (acceptReplacer == null) {
+                acceptReplacer = resolveReplacer(request.getClientInfo()
+                        .getAgentAttributes(), acceptOld);
+                this.resolvedReplacers.put(key, acceptReplacer);
+            }
+
+            if (acceptReplacer != NO_REPLACER) {
+                ClientInfo clientInfo = new ClientInfo();
+                PreferenceReader.addMediaTypes(acceptReplacer.getAcceptNew(),
+                        clientInfo);
+                request.getClientInfo().setAcceptedMediaTypes(
+                        clientInfo.getAcceptedMediaTypes());
+            }
+        }
+    }
+
+    /**
+     * Returns the first replacer whose conditions are filled by the given
+     * agent attributes and old accept header value.
+     * 
+     * @param agentAttributes
+     *            The agent attributes.
+     * @param acceptOld
+     *            The old accept header value.
+     * @return The matching replacer or {@link #NO_REPLACER}.
+     */
+    private AcceptReplacer resolveReplacer(Map<String, String> agentAttributes,
+            String acceptOld) {
+        AcceptReplacer result = NO_REPLACER;
+
         if (agentAttributes != null) {
-            if (!this.acceptReplacers.isEmpty()) {
-                // Get the old Accept header value
-                @SuppressWarnings("unchecked")
-                Series<Header> headers = (Series<Header>) request
-                        .getAttributes().get(HeaderConstants.ATTRIBUTE_HEADERS);
-                String acceptOld = (headers != null) ? headers.getFirstValue(
-                        HeaderConstants.HEADER_ACCEPT, true) : null;
-
-                // Check each replacer
-                for (AcceptReplacer acceptReplacer : this.acceptReplacers) {
-                    // Check the conditions
-                    boolean checked = true;
-
-                    for (String key : acceptReplacer.getAgentAttributes()
-                            .keySet()) {
-                        String attribute = agentAttributes.get(key);
-                        // Check that the agent properties match the properties
-                        // set by the rule.
-                        checked = checked
-                                && (attribute != null && attribute
-                                        .equalsIgnoreCase(acceptReplacer
-                                                .getAgentAttributes().get(key)));
+            // Check each replacer
+            for (AcceptReplacer acceptReplacer : this.acceptReplacers) {
+                // Check the conditions
+                boolean checked = true;
+
+                for (String key : acceptReplacer.getAgentAttributes().keySet()) {
+                    String attribute = agentAttributes.get(key);
+                    // Check that the agent properties match the properties
+                    // set by the rule.
+                    checked = checked
+                            && (attribute != null && attribute
+                                    .equalsIgnoreCase(acceptReplacer
+                                            .getAgentAttributes().get(key)));
+                }
+                if (checked) {
+                    // If the rule defines an acceptOld value, check that it
+                    // is the same than the user agent's "accept" header
+                    // value.
+                    if (acceptReplacer.getAcceptOld() != null) {
+                        checked = acceptReplacer.getAcceptOld().equals(
+                                acceptOld);
                     }
                     if (checked) {
-                        // If the rule defines an acceptOld value, check that it
-                        // is the same than the user agent's "accept" header
-                        // value.
-                        if (acceptReplacer.getAcceptOld() != null) {
-                            checked = acceptReplacer.getAcceptOld().equals(
-                                    acceptOld);
-                        }
-                        if (checked) {
-                            ClientInfo clientInfo = new ClientInfo();
-                            PreferenceReader.addMediaTypes(
-                                    acceptReplacer.getAcceptNew(), clientInfo);
-                            request.getClientInfo().setAcceptedMediaTypes(
-                                    clientInfo.getAcceptedMediaTypes());
-                            break;
-                        }
+                        result = acceptReplacer;
+                        break;
                     }
                 }
             }
         }
+
+        return result;
     }
 
     /**
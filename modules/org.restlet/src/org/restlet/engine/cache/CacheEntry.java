@@ -0,0 +1,666 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Dimension;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.HeaderUtils;
+import org.restlet.engine.header.PreferenceWriter;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.util.Series;
+
+// [excludes gwt]
+/**
+ * Response stored in an HTTP cache. The response is kept as its status code,
+ * its headers and its entity content, so that it can be restored as many
+ * times as needed and persisted by a {@link CacheStore}. The freshness and
+ * age computations follow RFC 7234.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheEntry {
+
+    /** The headers that are never stored. */
+    private static final String[] EXCLUDED_HEADERS = {
+            HeaderConstants.HEADER_AGE,
+            HeaderConstants.HEADER_AUTHENTICATION_INFO,
+            HeaderConstants.HEADER_PROXY_AUTHENTICATE,
+            HeaderConstants.HEADER_SET_COOKIE,
+            HeaderConstants.HEADER_SET_COOKIE2,
+            HeaderConstants.HEADER_WWW_AUTHENTICATE };
+
+    /** Maximum heuristic freshness lifetime, one day. */
+    private static final long MAX_HEURISTIC_LIFETIME = 86400000L;
+
+    /**
+     * Returns the value of a cache directive in a list.
+     * 
+     * @param directives
+     *            The cache directives.
+     * @param name
+     *            The directive name.
+     * @return The directive value, an empty string if the directive has no
+     *         value or null if the directive is absent.
+     */
+    public static String getDirective(List<CacheDirective> directives,
+            String name) {
+        String result = null;
+
+        for (int i = 0; (result == null) && (i < directives.size()); i++) {
+            CacheDirective directive = directives.get(i);
+
+            if (name.equalsIgnoreCase(directive.getName())) {
+                result = (directive.getValue() == null) ? "" : directive
+                        .getValue();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the value in seconds of a cache directive in a list.
+     * 
+     * @param directives
+     *            The cache directives.
+     * @param name
+     *            The directive name.
+     * @param defaultValue
+     *            The value returned if the directive is absent or invalid.
+     * @return The directive value in seconds.
+     */
+    public static long getDirectiveSeconds(List<CacheDirective> directives,
+            String name, long defaultValue) {
+        long result = defaultValue;
+        String value = getDirective(directives, name);
+
+        if (value != null) {
+            try {
+                result = Long.parseLong(value.trim());
+            } catch (NumberFormatException nfe) {
+                // Keep the default value
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the headers of a response that can be stored.
+     * 
+     * @param response
+     *            The response.
+     * @return The headers of the response that can be stored.
+     */
+    private static Series<Header> getHeaders(Response response) {
+        Series<Header> result = new Series<Header>(Header.class);
+        HeaderUtils.addGeneralHeaders(response, result);
+        HeaderUtils.addResponseHeaders(response, result);
+        HeaderUtils.addEntityHeaders(response.getEntity(), result);
+
+        for (String name : EXCLUDED_HEADERS) {
+            result.removeAll(name, true);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the key identifying the variant selected by a request, based on
+     * the request properties that the given dimensions vary upon.
+     * 
+     * @param request
+     *            The request.
+     * @param dimensions
+     *            The dimensions of the response.
+     * @return The variant key or null if the variant can't be identified.
+     */
+    public static String getVaryKey(Request request,
+            Set<Dimension> dimensions) {
+        StringBuilder result = new StringBuilder();
+        ClientInfo clientInfo = request.getClientInfo();
+
+        for (Dimension dimension : Dimension.values()) {
+            if (dimensions.contains(dimension)) {
+                switch (dimension) {
+                case AUTHORIZATION:
+                    result.append((request.getChallengeResponse() == null) ? ""
+                            : request.getChallengeResponse().getScheme()
+                                    .getName()
+                                    + " "
+                                    + request.getChallengeResponse()
+                                            .getIdentifier());
+                    break;
+                case CHARACTER_SET:
+                    result.append(PreferenceWriter.write(clientInfo
+                            .getAcceptedCharacterSets()));
+                    break;
+                case CLIENT_ADDRESS:
+                    result.append(clientInfo.getAddress());
+                    break;
+                case CLIENT_AGENT:
+                    result.append(clientInfo.getAgent());
+                    break;
+                case ENCODING:
+                    result.append(PreferenceWriter.write(clientInfo
+                            .getAcceptedEncodings()));
+                    break;
+                case LANGUAGE:
+                    result.append(PreferenceWriter.write(clientInfo
+                            .getAcceptedLanguages()));
+                    break;
+                case MEDIA_TYPE:
+                    result.append(PreferenceWriter.write(clientInfo
+                            .getAcceptedMediaTypes()));
+                    break;
+                default:
+                    // The variant depends on unknown request properties
+                    return null;
+                }
+
+                result.append('\n');
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Indicates if a status code is cacheable by default, without explicit
+     * freshness information.
+     * 
+     * @param statusCode
+     *            The status code.
+     * @return True if the status code is cacheable by default.
+     */
+    public static boolean isCacheableByDefault(int statusCode) {
+        switch (statusCode) {
+        case 200:
+        case 203:
+        case 204:
+        case 300:
+        case 301:
+        case 404:
+        case 405:
+        case 410:
+        case 414:
+        case 501:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Indicates if a header describes the entity content.
+     * 
+     * @param header
+     *            The header.
+     * @return True if the header describes the entity content.
+     */
+    private static boolean isContentHeader(Header header) {
+        return header.getName().regionMatches(true, 0, "Content-", 0, 8);
+    }
+
+    /**
+     * Reads an entry previously written with the
+     * {@link #write(DataOutputStream)} method.
+     * 
+     * @param input
+     *            The input to read from.
+     * @return The entry read.
+     * @throws IOException
+     */
+    public static CacheEntry read(DataInputStream input) throws IOException {
+        String key = input.readUTF();
+        String varyKey = input.readBoolean() ? input.readUTF() : null;
+        int statusCode = input.readInt();
+        long requestTime = input.readLong();
+        long responseTime = input.readLong();
+        int count = input.readInt();
+        Series<Header> headers = new Series<Header>(Header.class);
+
+        for (int i = 0; i < count; i++) {
+            headers.add(input.readUTF(), input.readUTF());
+        }
+
+        int length = input.readInt();
+        byte[] content = null;
+
+        if (length >= 0) {
+            content = new byte[length];
+            input.readFully(content);
+        }
+
+        return new CacheEntry(key, varyKey, statusCode, headers, content,
+                requestTime, responseTime);
+    }
+
+    /** The value of the Age header received, in seconds. */
+    private final int ageValue;
+
+    /** The entity content or null if the response has no entity. */
+    private final byte[] content;
+
+    /** The date of the response. */
+    private final long date;
+
+    /** The response cache directives. */
+    private final List<CacheDirective> directives;
+
+    /** The dimensions of the response. */
+    private final Set<Dimension> dimensions;
+
+    /** The expiration date of the entity, -1 if unknown. */
+    private final long expirationDate;
+
+    /** The stored headers. */
+    private final Series<Header> headers;
+
+    /** The key of the entry. */
+    private final String key;
+
+    /** The modification date of the entity, null if unknown. */
+    private final Date modificationDate;
+
+    /** The time at which the request was sent. */
+    private final long requestTime;
+
+    /** The time at which the response was received. */
+    private final long responseTime;
+
+    /** The status code. */
+    private final int statusCode;
+
+    /** The entity tag, null if unknown. */
+    private final Tag tag;
+
+    /** The key of the variant selected by the original request. */
+    private final String varyKey;
+
+    /**
+     * Constructor.
+     * 
+     * @param key
+     *            The key of the entry.
+     * @param response
+     *            The response to store, with a fully available entity
+     *            matching the given content.
+     * @param content
+     *            The entity content or null.
+     * @param requestTime
+     *            The time at which the request was sent.
+     * @param responseTime
+     *            The time at which the response was received.
+     */
+    public CacheEntry(String key, Response response, byte[] content,
+            long requestTime, long responseTime) {
+        this(key, getVaryKey(response.getRequest(), response.getDimensions()),
+                response.getStatus().getCode(), getHeaders(response), content,
+                requestTime, responseTime);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param key
+     *            The key of the entry.
+     * @param varyKey
+     *            The key of the variant selected by the original request.
+     * @param statusCode
+     *            The status code.
+     * @param headers
+     *            The stored headers.
+     * @param content
+     *            The entity content or null.
+     * @param requestTime
+     *            The time at which the request was sent.
+     * @param responseTime
+     *            The time at which the response was received.
+     */
+    private CacheEntry(String key, String varyKey, int statusCode,
+            Series<Header> headers, byte[] content, long requestTime,
+            long responseTime) {
+        this.key = key;
+        this.varyKey = varyKey;
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.content = content;
+        this.requestTime = requestTime;
+        this.responseTime = responseTime;
+
+        // Parse the headers once
+        Response view = new Response(null);
+        HeaderUtils.copyResponseTransportHeaders(headers, view);
+        Representation info = HeaderUtils.extractEntityHeaders(headers, null);
+        this.ageValue = view.getAge();
+        this.date = (view.getDate() == null) ? responseTime : view.getDate()
+                .getTime();
+        this.directives = view.getCacheDirectives();
+        this.dimensions = view.getDimensions();
+        this.expirationDate = (info.getExpirationDate() == null) ? -1 : info
+                .getExpirationDate().getTime();
+        this.modificationDate = info.getModificationDate();
+        this.tag = info.getTag();
+    }
+
+    /**
+     * Returns the entity content or null if the response has no entity.
+     * 
+     * @return The entity content or null.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Returns the current age of the response, in milliseconds.
+     * 
+     * @param now
+     *            The current time.
+     * @return The current age of the response.
+     */
+    public long getCurrentAge(long now) {
+        long apparentAge = Math.max(0, this.responseTime - this.date);
+        long correctedAge = (this.ageValue * 1000L)
+                + (this.responseTime - this.requestTime);
+        return Math.max(apparentAge, correctedAge)
+                + Math.max(0, now - this.responseTime);
+    }
+
+    /**
+     * Returns the value of a response cache directive.
+     * 
+     * @param name
+     *            The directive name.
+     * @return The directive value, an empty string if the directive has no
+     *         value or null if the directive is absent.
+     */
+    public String getDirective(String name) {
+        return getDirective(this.directives, name);
+    }
+
+    /**
+     * Returns the value in seconds of a response cache directive.
+     * 
+     * @param name
+     *            The directive name.
+     * @param defaultValue
+     *            The value returned if the directive is absent or invalid.
+     * @return The directive value in seconds.
+     */
+    public long getDirectiveSeconds(String name, long defaultValue) {
+        return getDirectiveSeconds(this.directives, name, defaultValue);
+    }
+
+    /**
+     * Returns the freshness lifetime of the response, in milliseconds. It is
+     * based on the "s-maxage" directive for shared caches, then on the
+     * "max-age" directive and the "Expires" header. Otherwise, a heuristic
+     * lifetime is computed for responses with a modification date and a
+     * status cacheable by default.
+     * 
+     * @param shared
+     *            Indicates if the lifetime is computed for a shared cache.
+     * @return The freshness lifetime of the response.
+     */
+    public long getFreshnessLifetime(boolean shared) {
+        long result = -1;
+
+        if (shared) {
+            result = getDirectiveSeconds(this.directives,
+                    HeaderConstants.CACHE_SHARED_MAX_AGE, -1) * 1000L;
+        }
+
+        if (result < 0) {
+            result = getDirectiveSeconds(this.directives,
+                    HeaderConstants.CACHE_MAX_AGE, -1) * 1000L;
+        }
+
+        if ((result < 0) && (this.expirationDate != -1)) {
+            result = this.expirationDate - this.date;
+        }
+
+        if ((result < 0) && (this.modificationDate != null)
+                && isCacheableByDefault(this.statusCode)) {
+            result = Math.min(MAX_HEURISTIC_LIFETIME,
+                    (this.date - this.modificationDate.getTime()) / 10);
+        }
+
+        return Math.max(0, result);
+    }
+
+    /**
+     * Returns the stored headers.
+     * 
+     * @return The stored headers.
+     */
+    public Series<Header> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Returns the key of the entry.
+     * 
+     * @return The key of the entry.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the modification date of the entity, null if unknown.
+     * 
+     * @return The modification date of the entity.
+     */
+    public Date getModificationDate() {
+        return modificationDate;
+    }
+
+    /**
+     * Returns the approximate memory size of the entry, in bytes.
+     * 
+     * @return The approximate memory size of the entry.
+     */
+    public long getSize() {
+        long result = 128 + (2 * this.key.length());
+
+        for (Header header : this.headers) {
+            result += 64 + (2 * (header.getName().length() + header
+                    .getValue().length()));
+        }
+
+        return result + ((this.content == null) ? 0 : this.content.length);
+    }
+
+    /**
+     * Returns the status code.
+     * 
+     * @return The status code.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns the entity tag, null if unknown.
+     * 
+     * @return The entity tag.
+     */
+    public Tag getTag() {
+        return tag;
+    }
+
+    /**
+     * Indicates if a directive is present in the response.
+     * 
+     * @param name
+     *            The directive name.
+     * @return True if the directive is present in the response.
+     */
+    public boolean hasDirective(String name) {
+        return getDirective(name) != null;
+    }
+
+    /**
+     * Indicates if the entry can be used to answer a request, based on the
+     * request properties the response varies upon.
+     * 
+     * @param request
+     *            The request.
+     * @return True if the entry matches the request.
+     */
+    public boolean matches(Request request) {
+        return (this.varyKey != null)
+                && this.varyKey.equals(getVaryKey(request, this.dimensions));
+    }
+
+    /**
+     * Returns a new entry updated with the headers of a 304 (Not Modified)
+     * response received when validating this entry.
+     * 
+     * @param response
+     *            The 304 (Not Modified) response.
+     * @param requestTime
+     *            The time at which the validation request was sent.
+     * @param responseTime
+     *            The time at which the response was received.
+     * @return The updated entry.
+     */
+    public CacheEntry refresh(Response response, long requestTime,
+            long responseTime) {
+        Series<Header> updated = new Series<Header>(Header.class);
+        Series<Header> received = getHeaders(response);
+
+        for (Header header : this.headers) {
+            if ((received.getFirst(header.getName(), true) == null)
+                    || isContentHeader(header)) {
+                updated.add(header);
+            }
+        }
+
+        for (Header header : received) {
+            if (!isContentHeader(header)) {
+                updated.add(header);
+            }
+        }
+
+        return new CacheEntry(this.key, this.varyKey, this.statusCode,
+                updated, this.content, requestTime, responseTime);
+    }
+
+    /**
+     * Updates a response with the stored status, headers and entity.
+     * 
+     * @param response
+     *            The response to update.
+     * @param now
+     *            The current time, used to set the age of the response.
+     * @param withEntity
+     *            Indicates if the entity content should be set, instead of
+     *            only its metadata.
+     */
+    public void update(Response response, long now, boolean withEntity) {
+        response.setStatus(Status.valueOf(this.statusCode));
+        response.getAllowedMethods().clear();
+        response.getCacheDirectives().clear();
+        response.getDimensions().clear();
+        response.getRecipientsInfo().clear();
+        response.getWarnings().clear();
+        response.getAttributes().remove(HeaderConstants.ATTRIBUTE_HEADERS);
+        HeaderUtils.copyResponseTransportHeaders(this.headers, response);
+        HeaderUtils.copyExtensionHeaders(this.headers, response);
+        response.setAge((int) Math.min(Integer.MAX_VALUE,
+                getCurrentAge(now) / 1000));
+
+        Representation entity = null;
+
+        if (withEntity && (this.content != null)) {
+            entity = new ByteArrayRepresentation(this.content);
+        }
+
+        response.setEntity(HeaderUtils.extractEntityHeaders(this.headers,
+                entity));
+    }
+
+    /**
+     * Writes the entry so that it can be read later with the
+     * {@link #read(DataInputStream)} method.
+     * 
+     * @param output
+     *            The output to write to.
+     * @throws IOException
+     */
+    public void write(DataOutputStream output) throws IOException {
+        output.writeUTF(this.key);
+        output.writeBoolean(this.varyKey != null);
+
+        if (this.varyKey != null) {
+            output.writeUTF(this.varyKey);
+        }
+
+        output.writeInt(this.statusCode);
+        output.writeLong(this.requestTime);
+        output.writeLong(this.responseTime);
+        output.writeInt(this.headers.size());
+
+        for (Header header : this.headers) {
+            output.writeUTF(header.getName());
+            output.writeUTF(header.getValue());
+        }
+
+        if (this.content == null) {
+            output.writeInt(-1);
+        } else {
+            output.writeInt(this.content.length);
+            output.write(this.content);
+        }
+    }
+}
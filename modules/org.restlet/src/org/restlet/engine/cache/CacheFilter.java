@@ -0,0 +1,818 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.restlet.Application;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.Conditions;
+import org.restlet.data.Method;
+import org.restlet.data.Reference;
+import org.restlet.data.Status;
+import org.restlet.engine.Engine;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.log.LoggingThreadFactory;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.InputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.routing.Filter;
+import org.restlet.routing.VirtualHost;
+
+// [excludes gwt]
+/**
+ * Filter implementing a private HTTP cache as defined by RFC 7234. It can be
+ * set as the outbound root of an application or be put in front of a client
+ * connector, so that the responses to GET requests are reused while they are
+ * fresh.<br>
+ * <br>
+ * Stale responses with a validator are revalidated with conditional requests,
+ * the stored response being reused when the origin server replies with a 304
+ * (Not Modified) status. Concurrent requests missing the same entry are
+ * collapsed into a single request sent to the next Restlet. Stale responses
+ * with a "stale-while-revalidate" directive (RFC 5861) are served immediately
+ * while being revalidated in the background. Successful unsafe requests
+ * invalidate the stored responses of their target URI.<br>
+ * <br>
+ * The conditions of the synchronous requests are evaluated against the
+ * complete response, whether it is served from the store or received from the
+ * next Restlet. Requests with ranges are transmitted unchanged.<br>
+ * <br>
+ * The entries are kept in a {@link CacheStore}, by default a
+ * {@link MemoryCacheStore}. A {@link DirectCacheStore} or a
+ * {@link FileCacheStore} can be set as the overflow store of the memory store
+ * to keep more entries outside of the heap or on disk.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheFilter extends Filter {
+
+    /** The "stale-while-revalidate" cache directive name. */
+    public static final String CACHE_STALE_WHILE_REVALIDATE = "stale-while-revalidate";
+
+    /** The default maximum size of the cached entities, 1 MB. */
+    public static final long DEFAULT_MAX_ENTITY_SIZE = 1024 * 1024;
+
+    /** The maximum time to wait for a collapsed request, in milliseconds. */
+    private volatile long collapseTimeout;
+
+    /** The latches of the requests being sent, by key. */
+    private final ConcurrentMap<String, CountDownLatch> inFlight;
+
+    /** The maximum size of the cached entities. */
+    private volatile long maxEntitySize;
+
+    /** The keys of the entries being revalidated in the background. */
+    private final ConcurrentMap<String, Boolean> revalidating;
+
+    /** The service revalidating stale entries in the background. */
+    private volatile ExecutorService revalidationService;
+
+    /** The store of entries. */
+    private volatile CacheStore store;
+
+    /**
+     * Constructor using a memory store of the default size.
+     * 
+     * @param context
+     *            The context.
+     * @param next
+     *            The next Restlet.
+     */
+    public CacheFilter(Context context, Restlet next) {
+        this(context, next, new MemoryCacheStore());
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The context.
+     * @param next
+     *            The next Restlet.
+     * @param store
+     *            The store of entries.
+     */
+    public CacheFilter(Context context, Restlet next, CacheStore store) {
+        super(context, next);
+        this.collapseTimeout = 30000;
+        this.inFlight = new ConcurrentHashMap<String, CountDownLatch>();
+        this.maxEntitySize = DEFAULT_MAX_ENTITY_SIZE;
+        this.revalidating = new ConcurrentHashMap<String, Boolean>();
+        this.store = store;
+    }
+
+    /**
+     * Reads the entity of a response so that it can be stored. If the entity
+     * is too large, the response entity is replaced by an equivalent one
+     * streaming the bytes already read followed by the remaining ones.
+     * 
+     * @param response
+     *            The response.
+     * @return The entity content, an empty array if there is no entity or
+     *         null if the entity is too large.
+     * @throws IOException
+     */
+    protected byte[] buffer(Response response) throws IOException {
+        Representation entity = response.getEntity();
+
+        if ((entity == null) || !entity.isAvailable()) {
+            return new byte[0];
+        }
+
+        if (entity.getSize() > getMaxEntitySize()) {
+            return null;
+        }
+
+        InputStream stream = entity.getStream();
+
+        if (stream == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream(
+                (entity.getSize() > 0) ? (int) entity.getSize() : 8192);
+        byte[] chunk = new byte[8192];
+        int read = 0;
+
+        while ((content.size() <= getMaxEntitySize())
+                && ((read = stream.read(chunk)) != -1)) {
+            content.write(chunk, 0, read);
+        }
+
+        if (read == -1) {
+            stream.close();
+            Representation copy = new ByteArrayRepresentation(
+                    content.toByteArray());
+            copyInfo(entity, copy);
+            response.setEntity(copy);
+            return content.toByteArray();
+        }
+
+        // Too large, restore the entity without caching it
+        Representation copy = new InputRepresentation(new SequenceInputStream(
+                new ByteArrayInputStream(content.toByteArray()), stream));
+        copyInfo(entity, copy);
+        copy.setSize(entity.getSize());
+        response.setEntity(copy);
+        return null;
+    }
+
+    /**
+     * Copies the metadata of a representation.
+     * 
+     * @param source
+     *            The source representation.
+     * @param target
+     *            The target representation.
+     */
+    private void copyInfo(Representation source, Representation target) {
+        target.setCharacterSet(source.getCharacterSet());
+        target.setDigest(source.getDigest());
+        target.setDisposition(source.getDisposition());
+        target.setEncodings(source.getEncodings());
+        target.setExpirationDate(source.getExpirationDate());
+        target.setLanguages(source.getLanguages());
+        target.setLocationRef(source.getLocationRef());
+        target.setMediaType(source.getMediaType());
+        target.setModificationDate(source.getModificationDate());
+        target.setRange(source.getRange());
+        target.setTag(source.getTag());
+    }
+
+    /**
+     * Creates the service revalidating stale entries in the background. By
+     * default, it creates a single daemon thread.
+     * 
+     * @return The revalidation service.
+     */
+    protected ExecutorService createRevalidationService() {
+        return Executors.newSingleThreadExecutor(new LoggingThreadFactory(
+                getLogger(), true));
+    }
+
+    /**
+     * Handles a GET or HEAD request that can be answered from the store.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param response
+     *            The response to update.
+     * @return The continuation status.
+     */
+    private int doCacheHandle(Request request, Response response) {
+        Method method = request.getMethod();
+        List<CacheDirective> directives = request.getCacheDirectives();
+        String key = getKey(request);
+        long now = System.currentTimeMillis();
+        CacheEntry entry = getEntry(key, request);
+        boolean noCache = CacheEntry.getDirective(directives,
+                HeaderConstants.CACHE_NO_CACHE) != null;
+
+        if ((entry != null) && !noCache) {
+            if (isFresh(entry, request, now)) {
+                serve(entry, request, response, now);
+                return CONTINUE;
+            } else if (isStaleWhileRevalidate(entry, now)) {
+                serve(entry, request, response, now);
+                revalidateLater(request, key);
+                return CONTINUE;
+            }
+        }
+
+        if (CacheEntry.getDirective(directives,
+                HeaderConstants.CACHE_ONLY_IF_CACHED) != null) {
+            response.setStatus(Status.SERVER_ERROR_GATEWAY_TIMEOUT);
+            return CONTINUE;
+        }
+
+        if (request.isAsynchronous() || !Method.GET.equals(method)) {
+            return super.doHandle(request, response);
+        }
+
+        if ((entry == null) && !noCache) {
+            // Collapse the concurrent identical misses
+            CountDownLatch latch = new CountDownLatch(1);
+            CountDownLatch current = this.inFlight.putIfAbsent(key, latch);
+
+            if (current != null) {
+                try {
+                    current.await(getCollapseTimeout(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+
+                now = System.currentTimeMillis();
+                entry = getEntry(key, request);
+
+                if ((entry != null) && isFresh(entry, request, now)) {
+                    serve(entry, request, response, now);
+                    return CONTINUE;
+                }
+            } else {
+                try {
+                    return fetch(request, response, key, null);
+                } finally {
+                    this.inFlight.remove(key, latch);
+                    latch.countDown();
+                }
+            }
+        }
+
+        return fetch(request, response, key, entry);
+    }
+
+    @Override
+    protected int doHandle(Request request, Response response) {
+        Method method = request.getMethod();
+
+        if (!Method.GET.equals(method) && !Method.HEAD.equals(method)) {
+            int result = super.doHandle(request, response);
+
+            if (!method.isSafe() && !request.isAsynchronous()
+                    && (response.getStatus().isSuccess() || response
+                            .getStatus().isRedirection())) {
+                invalidate(request, response);
+            }
+
+            return result;
+        }
+
+        Conditions conditions = request.getConditions();
+
+        if (!isCacheable(request)
+                || (conditions.hasSome() && request.isAsynchronous())) {
+            // Let the caller handle the response
+            return super.doHandle(request, response);
+        } else if (!conditions.hasSome()) {
+            return doCacheHandle(request, response);
+        }
+
+        // Get the complete response, then evaluate the conditions
+        Conditions rangeConditions = new Conditions();
+        rangeConditions.setRangeDate(conditions.getRangeDate());
+        rangeConditions.setRangeTag(conditions.getRangeTag());
+        request.setConditions(rangeConditions);
+        int result;
+
+        try {
+            result = doCacheHandle(request, response);
+        } finally {
+            request.setConditions(conditions);
+        }
+
+        if (response.getStatus().isSuccess()) {
+            Status status = conditions.getStatus(method, response.getEntity());
+
+            if (status != null) {
+                if (status.isError()) {
+                    response.setEntity(null);
+                }
+
+                response.setStatus(status);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Transmits a GET request to the next Restlet, validating the given entry
+     * if it has a validator, and stores the response if possible.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response.
+     * @param key
+     *            The entry key.
+     * @param entry
+     *            The stale entry to validate or null.
+     * @return The continuation status.
+     */
+    protected int fetch(Request request, Response response, String key,
+            CacheEntry entry) {
+        boolean validating = (entry != null)
+                && ((entry.getTag() != null) || (entry
+                        .getModificationDate() != null));
+
+        if (validating) {
+            if (entry.getTag() != null) {
+                request.getConditions().getNoneMatch().add(entry.getTag());
+            }
+
+            request.getConditions()
+                    .setModifiedSince(entry.getModificationDate());
+        }
+
+        long requestTime = System.currentTimeMillis();
+        int result = super.doHandle(request, response);
+        long responseTime = System.currentTimeMillis();
+
+        if (validating) {
+            request.getConditions().getNoneMatch().clear();
+            request.getConditions().setModifiedSince(null);
+        }
+
+        if (validating
+                && Status.REDIRECTION_NOT_MODIFIED
+                        .equals(response.getStatus())) {
+            CacheEntry refreshed = entry.refresh(response, requestTime,
+                    responseTime);
+            getStore().put(refreshed);
+            refreshed.update(response, responseTime, true);
+        } else if (isStorable(request, response)) {
+            try {
+                byte[] content = buffer(response);
+
+                if (content != null) {
+                    getStore().put(
+                            new CacheEntry(key, response,
+                                    (response.getEntity() == null) ? null
+                                            : content, requestTime,
+                                    responseTime));
+                }
+            } catch (IOException ioe) {
+                getLogger().log(Level.FINE,
+                        "Unable to cache the response of " + key, ioe);
+                response.setStatus(Status.CONNECTOR_ERROR_COMMUNICATION, ioe);
+            }
+        } else if (entry != null) {
+            getStore().remove(key);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum time to wait for a collapsed request, in
+     * milliseconds. When a request misses an entry already requested, it waits
+     * for the response to the first request to be stored.
+     * 
+     * @return The maximum time to wait for a collapsed request.
+     */
+    public long getCollapseTimeout() {
+        return collapseTimeout;
+    }
+
+    /**
+     * Returns the entry stored for a request, if it matches the request.
+     * 
+     * @param key
+     *            The entry key.
+     * @param request
+     *            The request.
+     * @return The matching entry or null.
+     */
+    private CacheEntry getEntry(String key, Request request) {
+        CacheEntry result = getStore().get(key);
+        return ((result != null) && result.matches(request)) ? result : null;
+    }
+
+    /**
+     * Returns the key of the entry stored for a request. By default, it
+     * returns the target URI of the request.
+     * 
+     * @param request
+     *            The request.
+     * @return The entry key.
+     */
+    protected String getKey(Request request) {
+        return getKey(request.getResourceRef());
+    }
+
+    /**
+     * Returns the key of the entry stored for a URI reference.
+     * 
+     * @param reference
+     *            The URI reference.
+     * @return The entry key.
+     */
+    protected String getKey(Reference reference) {
+        return reference.getTargetRef().toString(true, false);
+    }
+
+    /**
+     * Returns the maximum size of the cached entities. Larger entities are
+     * transmitted without being stored.
+     * 
+     * @return The maximum size of the cached entities.
+     */
+    public long getMaxEntitySize() {
+        return maxEntitySize;
+    }
+
+    /**
+     * Returns the service revalidating stale entries in the background.
+     * 
+     * @return The revalidation service.
+     */
+    public ExecutorService getRevalidationService() {
+        return revalidationService;
+    }
+
+    /**
+     * Returns the store of entries.
+     * 
+     * @return The store of entries.
+     */
+    public CacheStore getStore() {
+        return store;
+    }
+
+    /**
+     * Invalidates the entries of the target URI of an unsafe request, and of
+     * the URIs indicated by the "Location" and "Content-Location" headers of
+     * its response.
+     * 
+     * @param request
+     *            The unsafe request.
+     * @param response
+     *            The response.
+     */
+    protected void invalidate(Request request, Response response) {
+        getStore().remove(getKey(request));
+
+        if (response.getLocationRef() != null) {
+            getStore().remove(getKey(response.getLocationRef()));
+        }
+
+        if ((response.getEntity() != null)
+                && (response.getEntity().getLocationRef() != null)) {
+            getStore().remove(getKey(response.getEntity().getLocationRef()));
+        }
+    }
+
+    /**
+     * Indicates if a GET or HEAD request can be answered from the store. By
+     * default, requests with ranges or with a "no-store" directive are
+     * transmitted unchanged.
+     * 
+     * @param request
+     *            The request.
+     * @return True if the request can be answered from the store.
+     */
+    protected boolean isCacheable(Request request) {
+        return request.getRanges().isEmpty()
+                && (CacheEntry.getDirective(request.getCacheDirectives(),
+                        HeaderConstants.CACHE_NO_STORE) == null);
+    }
+
+    /**
+     * Indicates if an entry can be used to answer a request without
+     * validation, taking into account the "max-age", "min-fresh" and
+     * "max-stale" request directives.
+     * 
+     * @param entry
+     *            The entry.
+     * @param request
+     *            The request.
+     * @param now
+     *            The current time.
+     * @return True if the entry is fresh enough.
+     */
+    protected boolean isFresh(CacheEntry entry, Request request, long now) {
+        if (entry.hasDirective(HeaderConstants.CACHE_NO_CACHE)) {
+            return false;
+        }
+
+        List<CacheDirective> directives = request.getCacheDirectives();
+        long age = entry.getCurrentAge(now);
+        long lifetime = entry.getFreshnessLifetime(isShared());
+        long maxAge = CacheEntry.getDirectiveSeconds(directives,
+                HeaderConstants.CACHE_MAX_AGE, -1);
+
+        if ((maxAge >= 0) && (age > (maxAge * 1000L))) {
+            return false;
+        }
+
+        long minFresh = CacheEntry.getDirectiveSeconds(directives,
+                HeaderConstants.CACHE_MIN_FRESH, 0);
+        long maxStale = 0;
+
+        boolean mustRevalidate = entry
+                .hasDirective(HeaderConstants.CACHE_MUST_REVALIDATE)
+                || (isShared() && entry
+                        .hasDirective(HeaderConstants.CACHE_PROXY_MUST_REVALIDATE));
+
+        if (!mustRevalidate) {
+            String value = CacheEntry.getDirective(directives,
+                    HeaderConstants.CACHE_MAX_STALE);
+
+            if (value != null) {
+                maxStale = (value.length() == 0) ? Long.MAX_VALUE / 2
+                        : CacheEntry.getDirectiveSeconds(directives,
+                                HeaderConstants.CACHE_MAX_STALE, 0) * 1000L;
+            }
+        }
+
+        return (age + (minFresh * 1000L)) < (lifetime + maxStale);
+    }
+
+    /**
+     * Indicates if the cache is shared between several users. Returns false by
+     * default.
+     * 
+     * @return True if the cache is shared between several users.
+     */
+    public boolean isShared() {
+        return false;
+    }
+
+    /**
+     * Indicates if a stale entry can be served while being revalidated in the
+     * background, according to its "stale-while-revalidate" directive.
+     * 
+     * @param entry
+     *            The stale entry.
+     * @param now
+     *            The current time.
+     * @return True if the entry can be served while being revalidated.
+     */
+    protected boolean isStaleWhileRevalidate(CacheEntry entry, long now) {
+        long window = entry.getDirectiveSeconds(CACHE_STALE_WHILE_REVALIDATE,
+                0) * 1000L;
+        return (window > 0)
+                && !entry.hasDirective(HeaderConstants.CACHE_MUST_REVALIDATE)
+                && !entry.hasDirective(HeaderConstants.CACHE_NO_CACHE)
+                && (entry.getCurrentAge(now) < (entry
+                        .getFreshnessLifetime(isShared()) + window));
+    }
+
+    /**
+     * Indicates if the response to a GET request can be stored.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response.
+     * @return True if the response can be stored.
+     */
+    protected boolean isStorable(Request request, Response response) {
+        List<CacheDirective> directives = response.getCacheDirectives();
+        int code = response.getStatus().getCode();
+        boolean explicit = (CacheEntry.getDirective(directives,
+                HeaderConstants.CACHE_MAX_AGE) != null)
+                || (isShared() && (CacheEntry.getDirective(directives,
+                        HeaderConstants.CACHE_SHARED_MAX_AGE) != null))
+                || ((response.getEntity() != null) && (response.getEntity()
+                        .getExpirationDate() != null));
+        boolean validator = (response.getEntity() != null)
+                && ((response.getEntity().getTag() != null) || (response
+                        .getEntity().getModificationDate() != null));
+
+        if (!CacheEntry.isCacheableByDefault(code)
+                && !(explicit && response.getStatus().isSuccess()
+                        && (code != 206))) {
+            return false;
+        }
+
+        if ((CacheEntry.getDirective(directives,
+                HeaderConstants.CACHE_NO_STORE) != null)
+                || (isShared() && (CacheEntry.getDirective(directives,
+                        HeaderConstants.CACHE_PRIVATE) != null))) {
+            return false;
+        }
+
+        if (isShared()
+                && (request.getChallengeResponse() != null)
+                && (CacheEntry.getDirective(directives,
+                        HeaderConstants.CACHE_PUBLIC) == null)
+                && (CacheEntry.getDirective(directives,
+                        HeaderConstants.CACHE_SHARED_MAX_AGE) == null)
+                && (CacheEntry.getDirective(directives,
+                        HeaderConstants.CACHE_MUST_REVALIDATE) == null)) {
+            return false;
+        }
+
+        return (explicit || validator)
+                && (CacheEntry.getVaryKey(request,
+                        response.getDimensions()) != null);
+    }
+
+    /**
+     * Revalidates the entry of a request in the background, unless it is
+     * already being revalidated. The current application, context and virtual
+     * host are propagated to the background thread, like with the
+     * {@link org.restlet.service.TaskService}.
+     * 
+     * @param request
+     *            The request.
+     * @param key
+     *            The entry key.
+     */
+    protected void revalidateLater(Request request, final String key) {
+        if (this.revalidating.putIfAbsent(key, Boolean.TRUE) == null) {
+            final Request copy = new Request(request);
+            copy.setMethod(Method.GET);
+            copy.setOnResponse(null);
+            copy.getCacheDirectives().addAll(request.getCacheDirectives());
+
+            try {
+                ExecutorService service = getRevalidationService();
+
+                if (service == null) {
+                    synchronized (this) {
+                        service = getRevalidationService();
+
+                        if (service == null) {
+                            service = createRevalidationService();
+                            setRevalidationService(service);
+                        }
+                    }
+                }
+
+                // Save the thread local variables
+                final Application currentApplication = Application
+                        .getCurrent();
+                final Context currentContext = Context.getCurrent();
+                final Integer currentVirtualHost = VirtualHost.getCurrent();
+
+                service.execute(new Runnable() {
+                    public void run() {
+                        Response response = new Response(copy);
+
+                        // Copy the thread local variables, the current
+                        // response being the revalidation one
+                        Response.setCurrent(response);
+                        Context.setCurrent(currentContext);
+                        VirtualHost.setCurrent(currentVirtualHost);
+                        Application.setCurrent(currentApplication);
+
+                        try {
+                            fetch(copy, response, key, getEntry(key, copy));
+                        } catch (Throwable t) {
+                            getLogger().log(Level.FINE,
+                                    "Unable to revalidate " + key, t);
+                        } finally {
+                            revalidating.remove(key);
+                            Engine.clearThreadLocalVariables();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                this.revalidating.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Answers a request with a stored entry.
+     * 
+     * @param entry
+     *            The entry.
+     * @param request
+     *            The request.
+     * @param response
+     *            The response to update.
+     * @param now
+     *            The current time.
+     */
+    protected void serve(CacheEntry entry, Request request, Response response,
+            long now) {
+        entry.update(response, now, Method.GET.equals(request.getMethod()));
+
+        if (request.isAsynchronous()) {
+            request.getOnResponse().handle(request, response);
+        }
+    }
+
+    /**
+     * Sets the maximum time to wait for a collapsed request, in milliseconds.
+     * 
+     * @param collapseTimeout
+     *            The maximum time to wait for a collapsed request.
+     */
+    public void setCollapseTimeout(long collapseTimeout) {
+        this.collapseTimeout = collapseTimeout;
+    }
+
+    /**
+     * Sets the maximum size of the cached entities.
+     * 
+     * @param maxEntitySize
+     *            The maximum size of the cached entities.
+     */
+    public void setMaxEntitySize(long maxEntitySize) {
+        this.maxEntitySize = maxEntitySize;
+    }
+
+    /**
+     * Sets the service revalidating stale entries in the background.
+     * 
+     * @param revalidationService
+     *            The revalidation service.
+     */
+    public void setRevalidationService(ExecutorService revalidationService) {
+        this.revalidationService = revalidationService;
+    }
+
+    /**
+     * Sets the store of entries.
+     * 
+     * @param store
+     *            The store of entries.
+     */
+    public void setStore(CacheStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (getRevalidationService() != null) {
+            getRevalidationService().shutdown();
+            setRevalidationService(null);
+        }
+
+        super.stop();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.cache;
+
+// [excludes gwt]
+/**
+ * Storage of the entries of an HTTP cache. Implementations must be thread
+ * safe.
+ * 
+ * @author Jerome Louvel
+ */
+public abstract class CacheStore {
+
+    /**
+     * Removes all the entries.
+     */
+    public abstract void clear();
+
+    /**
+     * Returns the entry stored for a given key.
+     * 
+     * @param key
+     *            The entry key.
+     * @return The entry or null if none is stored.
+     */
+    public abstract CacheEntry get(String key);
+
+    /**
+     * Stores an entry, replacing any entry with the same key.
+     * 
+     * @param entry
+     *            The entry to store.
+     */
+    public abstract void put(CacheEntry entry);
+
+    /**
+     * Removes the entry stored for a given key.
+     * 
+     * @param key
+     *            The entry key.
+     */
+    public abstract void remove(String key);
+
+    /**
+     * Removes the entries whose key starts with a given prefix.
+     * 
+     * @param prefix
+     *            The key prefix.
+     */
+    public abstract void removeAll(String prefix);
+
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+
+// [excludes gwt]
+/**
+ * Off-heap store keeping each entry serialized in a direct byte buffer, so
+ * that large caches don't increase the garbage collection work. The least
+ * recently used entries are evicted so that the total size never exceeds the
+ * configured maximum. Each lookup deserializes the entry, so this store is
+ * typically used as the overflow store of a {@link MemoryCacheStore} holding
+ * the most frequently used entries.
+ * 
+ * @author Jerome Louvel
+ */
+public class DirectCacheStore extends CacheStore {
+
+    /** The default maximum size, 64 MB. */
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    /** The current total size of the buffers. */
+    private long currentSize;
+
+    /** The serialized entries, in access order. */
+    private final LinkedHashMap<String, ByteBuffer> entries;
+
+    /** The maximum total size of the buffers. */
+    private final long maxSize;
+
+    /**
+     * Default constructor, using the default maximum size.
+     */
+    public DirectCacheStore() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum total size of the buffers in bytes.
+     */
+    public DirectCacheStore(long maxSize) {
+        this.entries = new LinkedHashMap<String, ByteBuffer>(16, 0.75f, true);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public synchronized void clear() {
+        this.entries.clear();
+        this.currentSize = 0;
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        byte[] data;
+
+        synchronized (this) {
+            ByteBuffer buffer = this.entries.get(key);
+
+            if (buffer == null) {
+                return null;
+            }
+
+            data = new byte[buffer.capacity()];
+            buffer.duplicate().get(data);
+        }
+
+        try {
+            return CacheEntry.read(new DataInputStream(
+                    new ByteArrayInputStream(data)));
+        } catch (IOException ioe) {
+            Context.getCurrentLogger().log(Level.FINE,
+                    "Unable to read the cache entry " + key, ioe);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the current total size of the buffers.
+     * 
+     * @return The current total size of the buffers.
+     */
+    public synchronized long getCurrentSize() {
+        return this.currentSize;
+    }
+
+    /**
+     * Returns the maximum total size of the buffers.
+     * 
+     * @return The maximum total size of the buffers.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public void put(CacheEntry entry) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(
+                (int) Math.min(Integer.MAX_VALUE, entry.getSize()));
+
+        try {
+            entry.write(new DataOutputStream(output));
+        } catch (IOException ioe) {
+            Context.getCurrentLogger().log(Level.FINE,
+                    "Unable to write the cache entry " + entry.getKey(), ioe);
+            remove(entry.getKey());
+            return;
+        }
+
+        if (output.size() > this.maxSize) {
+            remove(entry.getKey());
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(output.size());
+        buffer.put(output.toByteArray()).flip();
+
+        synchronized (this) {
+            ByteBuffer previous = this.entries.put(entry.getKey(), buffer);
+
+            if (previous != null) {
+                this.currentSize -= previous.capacity();
+            }
+
+            this.currentSize += buffer.capacity();
+            Iterator<ByteBuffer> iter = this.entries.values().iterator();
+
+            while ((this.currentSize > this.maxSize) && iter.hasNext()) {
+                this.currentSize -= iter.next().capacity();
+                iter.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        ByteBuffer removed = this.entries.remove(key);
+
+        if (removed != null) {
+            this.currentSize -= removed.capacity();
+        }
+    }
+
+    @Override
+    public synchronized void removeAll(String prefix) {
+        Iterator<Map.Entry<String, ByteBuffer>> iter = this.entries.entrySet()
+                .iterator();
+
+        while (iter.hasNext()) {
+            Map.Entry<String, ByteBuffer> entry = iter.next();
+
+            if (entry.getKey().startsWith(prefix)) {
+                this.currentSize -= entry.getValue().capacity();
+                iter.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.engine.io.BioUtils;
+
+// [excludes gwt]
+/**
+ * Disk store keeping each entry in a file of a given directory. The least
+ * recently used files are deleted so that the total size never exceeds the
+ * configured maximum. This store is typically used as the overflow store of a
+ * {@link MemoryCacheStore}.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileCacheStore extends CacheStore {
+
+    /** The default maximum size, 256 MB. */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /** The extension of the entry files. */
+    private static final String EXTENSION = ".cache";
+
+    /** The current total size of the entry files. */
+    private long currentSize;
+
+    /** The directory containing the entry files. */
+    private final File directory;
+
+    /** The maximum total size of the entry files. */
+    private final long maxSize;
+
+    /**
+     * Constructor using the default maximum size.
+     * 
+     * @param directory
+     *            The directory containing the entry files.
+     */
+    public FileCacheStore(File directory) {
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param directory
+     *            The directory containing the entry files, created if needed.
+     * @param maxSize
+     *            The maximum total size of the entry files in bytes.
+     */
+    public FileCacheStore(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        directory.mkdirs();
+
+        for (File file : listFiles()) {
+            this.currentSize += file.length();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (File file : listFiles()) {
+            file.delete();
+        }
+
+        this.currentSize = 0;
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        CacheEntry result = null;
+        File file = getFile(key);
+
+        if (file.exists()) {
+            DataInputStream input = null;
+
+            try {
+                input = new DataInputStream(new BufferedInputStream(
+                        new FileInputStream(file)));
+                result = CacheEntry.read(input);
+
+                if (key.equals(result.getKey())) {
+                    // Keep track of the last access
+                    file.setLastModified(System.currentTimeMillis());
+                } else {
+                    result = null;
+                }
+            } catch (IOException ioe) {
+                Context.getCurrentLogger().log(Level.FINE,
+                        "Unable to read the cache file " + file, ioe);
+            } finally {
+                close(input);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Closes a stream, ignoring errors.
+     * 
+     * @param stream
+     *            The stream to close or null.
+     */
+    private void close(Closeable stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ioe) {
+                // Ignore
+            }
+        }
+    }
+
+    /**
+     * Returns the current total size of the entry files.
+     * 
+     * @return The current total size of the entry files.
+     */
+    public synchronized long getCurrentSize() {
+        return this.currentSize;
+    }
+
+    /**
+     * Returns the directory containing the entry files.
+     * 
+     * @return The directory containing the entry files.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the file of an entry, named after the SHA-1 digest of its key.
+     * 
+     * @param key
+     *            The entry key.
+     * @return The file of the entry.
+     */
+    protected File getFile(String key) {
+        String name;
+
+        try {
+            name = BioUtils.toHexString(MessageDigest.getInstance("SHA-1")
+                    .digest(key.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException nsae) {
+            name = Integer.toHexString(key.hashCode());
+        } catch (IOException ioe) {
+            name = Integer.toHexString(key.hashCode());
+        }
+
+        return new File(this.directory, name + EXTENSION);
+    }
+
+    /**
+     * Returns the maximum total size of the entry files.
+     * 
+     * @return The maximum total size of the entry files.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Lists the entry files.
+     * 
+     * @return The entry files.
+     */
+    private File[] listFiles() {
+        File[] result = this.directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.endsWith(EXTENSION);
+            }
+        });
+        return (result == null) ? new File[0] : result;
+    }
+
+    @Override
+    public void put(CacheEntry entry) {
+        File file = getFile(entry.getKey());
+        File temp = new File(this.directory, file.getName() + "."
+                + Thread.currentThread().getId());
+        DataOutputStream output = null;
+        boolean written = false;
+
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(temp)));
+            entry.write(output);
+            output.close();
+            output = null;
+            written = true;
+        } catch (IOException ioe) {
+            Context.getCurrentLogger().log(Level.FINE,
+                    "Unable to write the cache file " + file, ioe);
+        } finally {
+            close(output);
+        }
+
+        synchronized (this) {
+            if (written && (temp.length() <= this.maxSize)) {
+                this.currentSize -= file.length();
+                file.delete();
+
+                if (temp.renameTo(file)) {
+                    this.currentSize += file.length();
+                }
+            }
+
+            temp.delete();
+            trim();
+        }
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        File file = getFile(key);
+        long length = file.length();
+
+        if (file.delete()) {
+            this.currentSize -= length;
+        }
+    }
+
+    @Override
+    public synchronized void removeAll(String prefix) {
+        for (File file : listFiles()) {
+            DataInputStream input = null;
+            boolean matched = false;
+
+            try {
+                input = new DataInputStream(new BufferedInputStream(
+                        new FileInputStream(file)));
+                matched = input.readUTF().startsWith(prefix);
+            } catch (IOException ioe) {
+                Context.getCurrentLogger().log(Level.FINE,
+                        "Unable to read the cache file " + file, ioe);
+            } finally {
+                close(input);
+            }
+
+            long length = file.length();
+
+            if (matched && file.delete()) {
+                this.currentSize -= length;
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the total size doesn't
+     * exceed the maximum size.
+     */
+    private void trim() {
+        if (this.currentSize > this.maxSize) {
+            File[] files = listFiles();
+            Arrays.sort(files, new Comparator<File>() {
+                public int compare(File file1, File file2) {
+                    long diff = file1.lastModified() - file2.lastModified();
+                    return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+                }
+            });
+
+            for (int i = 0; (this.currentSize > this.maxSize)
+                    && (i < files.length); i++) {
+                long length = files[i].length();
+
+                if (files[i].delete()) {
+                    this.currentSize -= length;
+                }
+            }
+        }
+    }
+}
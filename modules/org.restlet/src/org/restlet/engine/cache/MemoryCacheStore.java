@@ -0,0 +1,253 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// [excludes gwt]
+/**
+ * Memory store weighted by the size of its entries in bytes. The least
+ * recently used entries are evicted so that the total size never exceeds the
+ * configured maximum. Evicted entries can be moved to an optional overflow
+ * store, for example a {@link FileCacheStore}, which is also looked up when an
+ * entry isn't found in memory.
+ * 
+ * @author Jerome Louvel
+ */
+public class MemoryCacheStore extends CacheStore {
+
+    /** The default maximum size, 16 MB. */
+    public static final long DEFAULT_MAX_SIZE = 16L * 1024 * 1024;
+
+    /** The current total size of the entries. */
+    private long currentSize;
+
+    /** The entries, in access order. */
+    private final LinkedHashMap<String, CacheEntry> entries;
+
+    /** The maximum total size of the entries. */
+    private final long maxSize;
+
+    /** The optional overflow store. */
+    private final CacheStore overflow;
+
+    /**
+     * Default constructor, using the default maximum size.
+     */
+    public MemoryCacheStore() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum total size of the entries in bytes.
+     */
+    public MemoryCacheStore(long maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum total size of the entries in bytes.
+     * @param overflow
+     *            The optional overflow store.
+     */
+    public MemoryCacheStore(long maxSize, CacheStore overflow) {
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+        this.maxSize = maxSize;
+        this.overflow = overflow;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (this) {
+            this.entries.clear();
+            this.currentSize = 0;
+        }
+
+        if (this.overflow != null) {
+            this.overflow.clear();
+        }
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        CacheEntry result;
+
+        synchronized (this) {
+            result = this.entries.get(key);
+        }
+
+        if ((result == null) && (this.overflow != null)) {
+            result = this.overflow.get(key);
+
+            if (result != null) {
+                // Promote the entry
+                store(result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the current total size of the entries held in memory.
+     * 
+     * @return The current total size of the entries held in memory.
+     */
+    public synchronized long getCurrentSize() {
+        return this.currentSize;
+    }
+
+    /**
+     * Returns the maximum total size of the entries.
+     * 
+     * @return The maximum total size of the entries.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the optional overflow store.
+     * 
+     * @return The optional overflow store.
+     */
+    public CacheStore getOverflow() {
+        return overflow;
+    }
+
+    @Override
+    public void put(CacheEntry entry) {
+        if (!store(entry) && (this.overflow != null)) {
+            this.overflow.put(entry);
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        synchronized (this) {
+            CacheEntry removed = this.entries.remove(key);
+
+            if (removed != null) {
+                this.currentSize -= removed.getSize();
+            }
+        }
+
+        if (this.overflow != null) {
+            this.overflow.remove(key);
+        }
+    }
+
+    @Override
+    public void removeAll(String prefix) {
+        synchronized (this) {
+            Iterator<CacheEntry> iter = this.entries.values().iterator();
+
+            while (iter.hasNext()) {
+                CacheEntry entry = iter.next();
+
+                if (entry.getKey().startsWith(prefix)) {
+                    iter.remove();
+                    this.currentSize -= entry.getSize();
+                }
+            }
+        }
+
+        if (this.overflow != null) {
+            this.overflow.removeAll(prefix);
+        }
+    }
+
+    /**
+     * Stores an entry in memory, evicting the least recently used entries to
+     * the overflow store if needed.
+     * 
+     * @param entry
+     *            The entry to store.
+     * @return False if the entry is too large to be stored in memory.
+     */
+    private boolean store(CacheEntry entry) {
+        long size = entry.getSize();
+
+        if (size > this.maxSize) {
+            remove(entry.getKey());
+            return false;
+        }
+
+        List<CacheEntry> evicted = null;
+
+        synchronized (this) {
+            CacheEntry previous = this.entries.put(entry.getKey(), entry);
+
+            if (previous != null) {
+                this.currentSize -= previous.getSize();
+            }
+
+            this.currentSize += size;
+
+            Iterator<CacheEntry> iter = this.entries.values().iterator();
+
+            while ((this.currentSize > this.maxSize) && iter.hasNext()) {
+                CacheEntry eldest = iter.next();
+                iter.remove();
+                this.currentSize -= eldest.getSize();
+
+                if (this.overflow != null) {
+                    if (evicted == null) {
+                        evicted = new ArrayList<CacheEntry>();
+                    }
+
+                    evicted.add(eldest);
+                }
+            }
+        }
+
+        if (evicted != null) {
+            for (CacheEntry eldest : evicted) {
+                this.overflow.put(eldest);
+            }
+        }
+
+        return true;
+    }
+}
@@ -33,6 +33,7 @@
 
 package org.restlet.engine.component;
 
+import java.util.Locale;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -52,6 +53,134 @@ import org.restlet.routing.VirtualHost;
  * @author Jerome Louvel
  */
 public class HostRoute extends Route {
+
+    /**
+     * Precompiled matcher of a virtual host criterion. Literal values and the
+     * ".*" wildcard are recognized so they are matched without any regular
+     * expression.
+     */
+    private static final class Criterion {
+
+        /** Indicates if any value is matched. */
+        private final boolean any;
+
+        /** The literal value to match, if the regex has no special character. */
+        private final String literal;
+
+        /** The compiled regex pattern, if needed. */
+        private final Pattern pattern;
+
+        /** The source regex. */
+        private final String regex;
+
+        /**
+         * Constructor.
+         * 
+         * @param regex
+         *            The source regex.
+         */
+        public Criterion(String regex) {
+            this.regex = regex;
+            this.any = ".*".equals(regex);
+            this.literal = ((regex == null) || this.any) ? null
+                    : toLiteral(regex);
+
+            if ((regex == null) || this.any || (this.literal != null)) {
+                this.pattern = null;
+            } else {
+                this.pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+            }
+        }
+
+        /**
+         * Returns the literal value matched by a regex, or null if the regex
+         * contains special characters other than escaped ones.
+         * 
+         * @param regex
+         *            The regex to analyze.
+         * @return The literal value matched or null.
+         */
+        private static String toLiteral(String regex) {
+            StringBuilder sb = new StringBuilder(regex.length());
+            char next;
+
+            for (int i = 0; i < regex.length(); i++) {
+                next = regex.charAt(i);
+
+                if (next == '\\') {
+                    // Only escaped punctuation characters are literal
+                    if ((i + 1 < regex.length())
+                            && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                        sb.append(regex.charAt(++i));
+                    } else {
+                        return null;
+                    }
+                } else if ("[](){}.*+?^$|".indexOf(next) != -1) {
+                    return null;
+                } else {
+                    sb.append(next);
+                }
+            }
+
+            return sb.toString();
+        }
+
+        /**
+         * Indicates if the criterion was compiled from the given regex.
+         * 
+         * @param regex
+         *            The regex to compare.
+         * @return True if the criterion was compiled from the given regex.
+         */
+        public boolean isCompiledFrom(String regex) {
+            return (this.regex == regex)
+                    || ((regex != null) && regex.equals(this.regex));
+        }
+
+        /**
+         * Matches a formatted string, in a case insensitive manner.
+         * 
+         * @param formattedString
+         *            The formatted string to match.
+         * @return True if the formatted string matched.
+         */
+        public boolean matches(String formattedString) {
+            if (this.any) {
+                return true;
+            } else if (this.literal != null) {
+                return this.literal.equalsIgnoreCase(formattedString);
+            } else if (this.pattern != null) {
+                return this.pattern.matcher(formattedString).matches();
+            }
+
+            return false;
+        }
+    }
+
+    /** The host domain criterion. */
+    private volatile Criterion hostDomain;
+
+    /** The host port criterion. */
+    private volatile Criterion hostPort;
+
+    /** The host scheme criterion. */
+    private volatile Criterion hostScheme;
+
+    /** The resource domain criterion. */
+    private volatile Criterion resourceDomain;
+
+    /** The resource port criterion. */
+    private volatile Criterion resourcePort;
+
+    /** The resource scheme criterion. */
+    private volatile Criterion resourceScheme;
+
+    /** The server address criterion. */
+    private volatile Criterion serverAddress;
+
+    /** The server port criterion. */
+    private volatile Criterion serverPort;
+
     /**
      * Constructor.
      * 
@@ -62,6 +191,7 @@ public class HostRoute extends Route {
      */
     public HostRoute(Router router, VirtualHost target) {
         super(router, target);
+        compile();
     }
 
     /**
@@ -95,27 +225,62 @@ public class HostRoute extends Route {
     }
 
     /**
-     * Returns the target virtual host.
-     * 
-     * @return The target virtual host.
+     * Compiles the criteria of the target virtual host that changed since the
+     * last compilation.
      */
-    public VirtualHost getVirtualHost() {
-        return (VirtualHost) getNext();
+    private void compile() {
+        VirtualHost host = getVirtualHost();
+
+        if (host != null) {
+            this.hostDomain = compile(this.hostDomain, host.getHostDomain());
+            this.hostPort = compile(this.hostPort, host.getHostPort());
+            this.hostScheme = compile(this.hostScheme, host.getHostScheme());
+            this.resourceDomain = compile(this.resourceDomain,
+                    host.getResourceDomain());
+            this.resourcePort = compile(this.resourcePort,
+                    host.getResourcePort());
+            this.resourceScheme = compile(this.resourceScheme,
+                    host.getResourceScheme());
+            this.serverAddress = compile(this.serverAddress,
+                    host.getServerAddress());
+            this.serverPort = compile(this.serverPort, host.getServerPort());
+        }
     }
 
     /**
-     * Matches a formatted string against a regex pattern, in a case insensitive
-     * manner.
+     * Returns a criterion compiled from the given regex, reusing the current
+     * one if it was compiled from the same regex.
      * 
+     * @param current
+     *            The current criterion or null.
      * @param regex
-     *            The pattern to use.
-     * @param formattedString
-     *            The formatted string to match.
-     * @return True if the formatted string matched the pattern.
+     *            The regex to compile.
+     * @return The compiled criterion.
+     */
+    private Criterion compile(Criterion current, String regex) {
+        return ((current != null) && current.isCompiledFrom(regex)) ? current
+                : new Criterion(regex);
+    }
+
+    /**
+     * Returns the host domain matched by the target virtual host in lower
+     * case, if it is a literal value rather than a pattern.
+     * 
+     * @return The literal host domain or null.
      */
-    private boolean matches(String regex, String formattedString) {
-        return Pattern.compile(regex, Pattern.CASE_INSENSITIVE)
-                .matcher(formattedString).matches();
+    public String getLiteralHostDomain() {
+        compile();
+        return ((this.hostDomain == null) || (this.hostDomain.literal == null)) ? null
+                : this.hostDomain.literal.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Returns the target virtual host.
+     * 
+     * @return The target virtual host.
+     */
+    public VirtualHost getVirtualHost() {
+        return (VirtualHost) getNext();
     }
 
     /**
@@ -195,18 +360,18 @@ public class HostRoute extends Route {
             String serverPort = Integer.toString(response.getServerInfo()
                     .getPort());
 
-            // Check if all the criteria match
-            if (matches(getVirtualHost().getHostDomain(), hostDomain)
-                    && matches(getVirtualHost().getHostPort(), hostPort)
-                    && matches(getVirtualHost().getHostScheme(), hostScheme)
-                    && matches(getVirtualHost().getResourceDomain(),
-                            resourceDomain)
-                    && matches(getVirtualHost().getResourcePort(), resourcePort)
-                    && matches(getVirtualHost().getResourceScheme(),
-                            resourceScheme)
-                    && matches(getVirtualHost().getServerAddress(),
-                            serverAddress)
-                    && matches(getVirtualHost().getServerPort(), serverPort)) {
+            // Check if all the criteria match, after recompiling the ones
+            // that changed
+            compile();
+
+            if (this.hostDomain.matches(hostDomain)
+                    && this.hostPort.matches(hostPort)
+                    && this.hostScheme.matches(hostScheme)
+                    && this.resourceDomain.matches(resourceDomain)
+                    && this.resourcePort.matches(resourcePort)
+                    && this.resourceScheme.matches(resourceScheme)
+                    && this.serverAddress.matches(serverAddress)
+                    && this.serverPort.matches(serverPort)) {
                 result = 1F;
             }
         }
@@ -229,5 +394,6 @@ public class HostRoute extends Route {
      */
     public void setNext(VirtualHost next) {
         super.setNext(next);
+        compile();
     }
 }
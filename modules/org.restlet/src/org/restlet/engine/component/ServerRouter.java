@@ -33,6 +33,11 @@
 
 package org.restlet.engine.component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.restlet.Component;
@@ -40,13 +45,22 @@ import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
 import org.restlet.data.Status;
+import org.restlet.routing.Route;
 import org.restlet.routing.Router;
 import org.restlet.routing.VirtualHost;
+import org.restlet.util.RouteList;
 
 /**
  * Router that collects calls from all server connectors and dispatches them to
  * the appropriate host routers. The host routers then dispatch them to the user
- * applications.
+ * applications.<br>
+ * <br>
+ * The virtual hosts are matched in the order of their routes. Those matching a
+ * literal host domain are indexed by domain name, so only the candidates for
+ * the host domain of a request and the virtual hosts matching a domain pattern
+ * are scored. The index is rebuilt when the list of routes or the host domain
+ * of a virtual host changes.<br>
+ * <br>
  * 
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
@@ -56,9 +70,59 @@ import org.restlet.routing.VirtualHost;
  */
 public class ServerRouter extends Router {
 
+    /**
+     * Index of the routes by literal host domain, built from a snapshot of the
+     * routes.
+     */
+    private static class DomainIndex {
+
+        /** The candidate routes indexed by literal host domain. */
+        private final Map<String, List<Route>> domainRoutes;
+
+        /** The number of host domain changes when the index was built. */
+        private final int hostDomainChanges;
+
+        /** The routes not indexed by literal host domain. */
+        private final List<Route> patternRoutes;
+
+        /** The number of changes of the indexed routes. */
+        private final int routeChanges;
+
+        /** The indexed routes. */
+        private final RouteList routes;
+
+        /**
+         * Constructor.
+         * 
+         * @param routes
+         *            The indexed routes.
+         * @param routeChanges
+         *            The number of changes of the indexed routes.
+         * @param hostDomainChanges
+         *            The number of host domain changes when the index was
+         *            built.
+         * @param domainRoutes
+         *            The candidate routes indexed by literal host domain.
+         * @param patternRoutes
+         *            The routes not indexed by literal host domain.
+         */
+        private DomainIndex(RouteList routes, int routeChanges,
+                int hostDomainChanges, Map<String, List<Route>> domainRoutes,
+                List<Route> patternRoutes) {
+            this.routes = routes;
+            this.routeChanges = routeChanges;
+            this.hostDomainChanges = hostDomainChanges;
+            this.domainRoutes = domainRoutes;
+            this.patternRoutes = patternRoutes;
+        }
+    }
+
     /** The parent component. */
     private volatile Component component;
 
+    /** The index of the routes by literal host domain. */
+    private volatile DomainIndex domainIndex;
+
     /**
      * Constructor.
      * 
@@ -69,7 +133,92 @@ public class ServerRouter extends Router {
         super((component == null) ? null : component.getContext()
                 .createChildContext());
         this.component = component;
-        setRoutingMode(MODE_FIRST_MATCH);
+        setRoutingMode(MODE_CUSTOM);
+    }
+
+    /**
+     * Indexes the current routes by literal host domain. Each index entry
+     * lists, in the original order, the routes matching this literal domain
+     * and the routes matching a domain pattern.
+     * 
+     * @return The new index.
+     */
+    private DomainIndex createIndex() {
+        Map<String, List<Route>> domains = new HashMap<String, List<Route>>();
+        List<Route> patterns = new ArrayList<Route>();
+        String domain;
+
+        // Count the changes first, so those made while indexing are detected
+        RouteList routes = getRoutes();
+        int routeChanges = routes.getChanges();
+        int hostDomainChanges = VirtualHost.getHostDomainChanges();
+
+        for (Route route : routes) {
+            domain = (route instanceof HostRoute) ? ((HostRoute) route)
+                    .getLiteralHostDomain() : null;
+
+            if (domain == null) {
+                // Pattern routes are candidates for all domains
+                patterns.add(route);
+
+                for (List<Route> candidates : domains.values()) {
+                    candidates.add(route);
+                }
+            } else if (!domains.containsKey(domain)) {
+                List<Route> candidates = new ArrayList<Route>(patterns);
+                candidates.add(route);
+                domains.put(domain, candidates);
+            } else {
+                domains.get(domain).add(route);
+            }
+        }
+
+        return new DomainIndex(routes, routeChanges, hostDomainChanges,
+                domains, patterns);
+    }
+
+    /**
+     * Returns the first route matching the call, only scoring the candidate
+     * routes for the host domain of the request. The index is rebuilt first if
+     * the routes or the host domain of a virtual host have changed.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param response
+     *            The response to update.
+     * @return The matched route if available or null.
+     */
+    @Override
+    protected Route getCustom(Request request, Response response) {
+        DomainIndex index = this.domainIndex;
+
+        if ((index == null) || (index.routes != getRoutes())
+                || (index.routeChanges != index.routes.getChanges())
+                || (index.hostDomainChanges != VirtualHost
+                        .getHostDomainChanges())) {
+            index = createIndex();
+            this.domainIndex = index;
+        }
+
+        List<Route> candidates = index.patternRoutes;
+        String hostDomain = (request.getHostRef() == null) ? null : request
+                .getHostRef().getHostDomain();
+        List<Route> domainCandidates = index.domainRoutes
+                .get((hostDomain == null) ? "" : hostDomain
+                        .toLowerCase(Locale.ENGLISH));
+
+        if (domainCandidates != null) {
+            candidates = domainCandidates;
+        }
+
+        for (Route route : candidates) {
+            if (route.score(request, response) >= getRequiredScore()) {
+                return route;
+            }
+        }
+
+        // No match found
+        return null;
     }
 
     /**
@@ -128,12 +277,16 @@ public class ServerRouter extends Router {
         setDefaultRoute(new org.restlet.routing.TemplateRoute(this, "",
                 noHostMatched));
 
+        // Index the virtual hosts by literal host domain
+        this.domainIndex = createIndex();
+
         // Start the router
         super.start();
     }
 
     @Override
     public synchronized void stop() throws Exception {
+        this.domainIndex = null;
         getRoutes().clear();
         super.stop();
     }
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.connector;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache of resolved host addresses used by client connectors to keep name
+ * resolution out of the request path. Entries expire after a time to live and
+ * can optionally rotate between all the addresses resolved for a host.
+ * 
+ * @author Jerome Louvel
+ */
+public class AddressCache {
+
+    /**
+     * Resolved addresses of a host.
+     */
+    private static class Entry {
+
+        /** The resolved addresses. */
+        private final InetAddress[] addresses;
+
+        /** The expiration time in milliseconds. */
+        private final long expirationTime;
+
+        /** The index of the next address to use in round-robin mode. */
+        private final AtomicInteger nextIndex;
+
+        /**
+         * Constructor.
+         * 
+         * @param addresses
+         *            The resolved addresses.
+         * @param expirationTime
+         *            The expiration time in milliseconds.
+         */
+        public Entry(InetAddress[] addresses, long expirationTime) {
+            this.addresses = addresses;
+            this.expirationTime = expirationTime;
+            this.nextIndex = new AtomicInteger();
+        }
+
+        /**
+         * Returns the address to use.
+         * 
+         * @param roundRobin
+         *            Indicates if all the addresses should be used in turn.
+         * @return The address to use.
+         */
+        public InetAddress getAddress(boolean roundRobin) {
+            if (!roundRobin || (this.addresses.length == 1)) {
+                return this.addresses[0];
+            }
+
+            int index = (this.nextIndex.getAndIncrement() & Integer.MAX_VALUE)
+                    % this.addresses.length;
+            return this.addresses[index];
+        }
+
+        /**
+         * Indicates if the entry has expired.
+         * 
+         * @param now
+         *            The current time in milliseconds.
+         * @return True if the entry has expired.
+         */
+        public boolean isExpired(long now) {
+            return now >= this.expirationTime;
+        }
+    }
+
+    /** The cached entries, keyed by host name. */
+    private final ConcurrentMap<String, Entry> entries;
+
+    /** The maximum number of cached hosts. */
+    private final int maxEntries;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxEntries
+     *            The maximum number of cached hosts.
+     */
+    public AddressCache(int maxEntries) {
+        this.entries = new ConcurrentHashMap<String, Entry>();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Makes room for a new entry by removing the expired entries, or all the
+     * entries if none has expired.
+     * 
+     * @param now
+     *            The current time in milliseconds.
+     */
+    private void evict(long now) {
+        for (Iterator<Entry> iter = this.entries.values().iterator(); iter
+                .hasNext();) {
+            if (iter.next().isExpired(now)) {
+                iter.remove();
+            }
+        }
+
+        if (this.entries.size() >= this.maxEntries) {
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * Resolves a host name, using the cached addresses when they haven't
+     * expired. If the resolution of an expired entry fails, the stale addresses
+     * are used until the next expiration.
+     * 
+     * @param hostName
+     *            The host name to resolve.
+     * @param timeToLive
+     *            The time to live of resolved addresses in milliseconds.
+     * @param roundRobin
+     *            Indicates if all the addresses resolved for the host should be
+     *            used in turn.
+     * @return The address to use.
+     * @throws UnknownHostException
+     *             If the host couldn't be resolved.
+     */
+    public InetAddress resolve(String hostName, long timeToLive,
+            boolean roundRobin) throws UnknownHostException {
+        long now = System.currentTimeMillis();
+        Entry entry = this.entries.get(hostName);
+
+        if ((entry == null) || entry.isExpired(now)) {
+            Entry newEntry = null;
+
+            try {
+                newEntry = new Entry(InetAddress.getAllByName(hostName), now
+                        + timeToLive);
+            } catch (UnknownHostException uhe) {
+                if (entry == null) {
+                    throw uhe;
+                }
+
+                // Keep using the stale addresses for a while
+                newEntry = new Entry(entry.addresses, now + timeToLive);
+            }
+
+            if ((entry == null) && (this.entries.size() >= this.maxEntries)) {
+                evict(now);
+            }
+
+            this.entries.put(hostName, newEntry);
+            entry = newEntry;
+        }
+
+        return entry.getAddress(roundRobin);
+    }
+
+}
@@ -116,6 +116,39 @@ import org.restlet.engine.log.LoggingThreadFactory;
  * and the behavior of the {@link ThreadPoolExecutor} configured internally.</td>
  * </tr>
  * <tr>
+ * <td>maxQueuedTimeMs</td>
+ * <td>int</td>
+ * <td>0</td>
+ * <td>Maximum time for a call to wait in the queue of the worker service. On
+ * the server side, calls that waited longer are rejected with a
+ * {@link Status#SERVER_ERROR_SERVICE_UNAVAILABLE} status instead of being
+ * processed late. For an unlimited wait, use '0' as value.</td>
+ * </tr>
+ * <tr>
+ * <td>priorityWeights</td>
+ * <td>String</td>
+ * <td>1</td>
+ * <td>Comma separated weights of the priority classes of the queued calls,
+ * such as "8,2,1". With several classes, each class is a FIFO queue and the
+ * classes are dequeued in a weighted fair way. Requires a "maxQueued" value
+ * different from '0'.</td>
+ * </tr>
+ * <tr>
+ * <td>priorityRule</td>
+ * <td>String</td>
+ * <td>null</td>
+ * <td>Rule classifying the calls into priority classes, such as
+ * "0 GET /health" or "2 POST /reports/{id}". Several rules can be set and the
+ * first matching one applies. See {@link PriorityClassifier#addRule(String)}
+ * for the syntax.</td>
+ * </tr>
+ * <tr>
+ * <td>defaultPriority</td>
+ * <td>int</td>
+ * <td>0</td>
+ * <td>Priority class of the calls matching no priority rule.</td>
+ * </tr>
+ * <tr>
  * <td>maxIoIdleTimeMs</td>
  * <td>int</td>
  * <td>60 000</td>
@@ -198,6 +231,12 @@ public abstract class BaseHelper<T extends Connector> extends
     /** The queue of outbound messages. */
     protected final Queue<Response> outboundMessages;
 
+    /** The classifier of inbound messages into priority classes. */
+    private volatile PriorityClassifier priorityClassifier;
+
+    /** The maximum time in ms for a call to wait in the queue. */
+    private volatile int queueTimeoutMs;
+
     /** The worker service. */
     private volatile ThreadPoolExecutor workerService;
 
@@ -260,6 +299,28 @@ public abstract class BaseHelper<T extends Connector> extends
                 getLogger(), isControllerDaemon()));
     }
 
+    /**
+     * Creates the classifier of inbound messages into priority classes, based
+     * on the "defaultPriority" and "priorityRule" parameters. Invalid rules are
+     * logged and ignored.
+     * 
+     * @return The classifier of inbound messages into priority classes.
+     */
+    protected PriorityClassifier createPriorityClassifier() {
+        PriorityClassifier result = new PriorityClassifier(
+                getDefaultPriority());
+
+        for (String rule : getHelpedParameters().getValuesArray("priorityRule")) {
+            try {
+                result.addRule(rule);
+            } catch (IllegalArgumentException e) {
+                getLogger().warning(e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Creates the request object.
      * 
@@ -282,6 +343,9 @@ public abstract class BaseHelper<T extends Connector> extends
 
         if (getMaxQueued() == 0) {
             queue = new SynchronousQueue<Runnable>();
+        } else if (getPriorityWeights().length > 1) {
+            queue = new WeightedBlockingQueue(getPriorityWeights(),
+                    getMaxQueued());
         } else if (getMaxQueued() < 0) {
             queue = new LinkedBlockingQueue<Runnable>();
         } else {
@@ -406,6 +470,16 @@ public abstract class BaseHelper<T extends Connector> extends
                 "controllerSleepTimeMs", "60000"));
     }
 
+    /**
+     * Returns the priority class of the calls matching no priority rule.
+     * 
+     * @return The priority class of the calls matching no priority rule.
+     */
+    public int getDefaultPriority() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "defaultPriority", "0"));
+    }
+
     /**
      * Returns the size of the content buffer for receiving messages.
      * 
@@ -465,6 +539,20 @@ public abstract class BaseHelper<T extends Connector> extends
                 "maxQueued", "0"));
     }
 
+    /**
+     * Returns the maximum time for a call to wait in the queue of the worker
+     * service. On the server side, calls that waited longer are rejected
+     * instead of being processed late. For an unlimited wait, use '0' as
+     * value.
+     * 
+     * @return The maximum time for a call to wait in the queue of the worker
+     *         service.
+     */
+    public int getMaxQueuedTimeMs() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxQueuedTimeMs", "0"));
+    }
+
     /**
      * Returns the time for an idle thread to wait for an operation before being
      * collected.
@@ -557,6 +645,46 @@ public abstract class BaseHelper<T extends Connector> extends
         return getHelpedParameters().getFirstValue("transport", "TCP");
     }
 
+    /**
+     * Returns the maximum time for a call to wait in the queue of the worker
+     * service, as read from the "maxQueuedTimeMs" parameter when the helper
+     * was started.
+     * 
+     * @return The maximum time for a call to wait in the queue of the worker
+     *         service.
+     * @see #getMaxQueuedTimeMs()
+     */
+    public int getQueueTimeoutMs() {
+        return queueTimeoutMs;
+    }
+
+    /**
+     * Returns the classifier of inbound messages into priority classes.
+     * 
+     * @return The classifier of inbound messages into priority classes.
+     */
+    public PriorityClassifier getPriorityClassifier() {
+        return priorityClassifier;
+    }
+
+    /**
+     * Returns the weights of the priority classes of the queued calls. With a
+     * single class, the calls are queued in FIFO order.
+     * 
+     * @return The weights of the priority classes of the queued calls.
+     */
+    public int[] getPriorityWeights() {
+        String[] values = getHelpedParameters().getFirstValue(
+                "priorityWeights", "1").split(",");
+        int[] result = new int[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            result[i] = Integer.parseInt(values[i].trim());
+        }
+
+        return result;
+    }
+
     /**
      * Returns the connection handler service.
      * 
@@ -587,20 +715,10 @@ public abstract class BaseHelper<T extends Connector> extends
             if (synchronous || !hasWorkerThreads()) {
                 doHandleInbound(response);
             } else {
-                execute(new Runnable() {
-                    public void run() {
-                        try {
-                            doHandleInbound(response);
-                        } finally {
-                            Engine.clearThreadLocalVariables();
-                        }
-                    }
-
-                    @Override
-                    public String toString() {
-                        return "Handle inbound messages";
-                    }
-                });
+                PriorityClassifier classifier = getPriorityClassifier();
+                execute(new InboundTask(this, response,
+                        (classifier == null) ? 0 : classifier.classify(response
+                                .getRequest())));
             }
         }
     }
@@ -730,6 +848,19 @@ public abstract class BaseHelper<T extends Connector> extends
         }
     }
 
+    /**
+     * Called when an inbound message waited longer than the maximum queued
+     * time before being handled by a worker thread. By default, the message is
+     * handled anyway.
+     * 
+     * @param response
+     *            The message that waited too long.
+     * @see #getQueueTimeoutMs()
+     */
+    protected void onInboundTimeout(Response response) {
+        doHandleInbound(response);
+    }
+
     /**
      * Called on error. Unblocks the message.
      * 
@@ -757,6 +888,8 @@ public abstract class BaseHelper<T extends Connector> extends
         this.controllerService = createControllerService();
 
         if (hasWorkerThreads()) {
+            this.priorityClassifier = createPriorityClassifier();
+            this.queueTimeoutMs = getMaxQueuedTimeMs();
             this.workerService = createWorkerService();
         }
 
@@ -34,10 +34,15 @@
 package org.restlet.engine.connector;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.channels.SocketChannel;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 
@@ -46,6 +51,7 @@ import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
+import org.restlet.engine.ClientHelper;
 
 /**
  * Base client helper based on NIO non blocking sockets. Here is the list of
@@ -59,6 +65,35 @@ import org.restlet.data.Status;
  * <th>Description</th>
  * </tr>
  * <tr>
+ * <td>dnsCacheTtlMs</td>
+ * <td>int</td>
+ * <td>30000</td>
+ * <td>Time to live of the resolved host addresses cached by the connector or 0
+ * to resolve the host name of each request.</td>
+ * </tr>
+ * <tr>
+ * <td>dnsRoundRobin</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if the requests should be spread over all the addresses
+ * resolved for a host name.</td>
+ * </tr>
+ * <tr>
+ * <td>maxInFlightPerHost</td>
+ * <td>int</td>
+ * <td>-1</td>
+ * <td>Maximum number of requests sent to the same host and waiting for their
+ * response or -1 for unlimited.</td>
+ * </tr>
+ * <tr>
+ * <td>pipelineDepth</td>
+ * <td>int</td>
+ * <td>8</td>
+ * <td>Maximum number of idempotent requests pipelined on a connection while
+ * waiting for their response. Only used when the "pipeliningConnections"
+ * parameter is enabled.</td>
+ * </tr>
+ * <tr>
  * <td>proxyHost</td>
  * <td>String</td>
  * <td>System property "http.proxyHost"</td>
@@ -84,6 +119,14 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
     protected static final String CONNECTOR_LATCH = "org.restlet.engine.connector.latch";
 
+    protected static final String CONNECTOR_REPLAYED = "org.restlet.engine.connector.replayed";
+
+    /** The cache of resolved host addresses. */
+    private final AddressCache addressCache;
+
+    /** The connections indexed by target socket address. */
+    private final ConcurrentMap<InetSocketAddress, List<Connection<Client>>> hostConnections;
+
     /**
      * Constructor.
      * 
@@ -92,6 +135,61 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
      */
     public ClientConnectionHelper(Client connector) {
         super(connector, true);
+        this.addressCache = new AddressCache(1024);
+        this.hostConnections = new ConcurrentHashMap<InetSocketAddress, List<Connection<Client>>>();
+    }
+
+    /**
+     * Indexes a new connection by target socket address, before the older
+     * connections to the same address.
+     * 
+     * @param socketAddress
+     *            The target socket address.
+     * @param connection
+     *            The new connection.
+     */
+    protected void addHostConnection(InetSocketAddress socketAddress,
+            Connection<Client> connection) {
+        synchronized (this.hostConnections) {
+            List<Connection<Client>> connections = this.hostConnections
+                    .get(socketAddress);
+
+            if (connections == null) {
+                connections = new CopyOnWriteArrayList<Connection<Client>>();
+                this.hostConnections.put(socketAddress, connections);
+            }
+
+            connections.add(0, connection);
+        }
+    }
+
+    /**
+     * Checks in the connection back into the pool, after removing it from the
+     * index of connections per host.
+     * 
+     * @param connection
+     *            The connection to check in.
+     */
+    @Override
+    protected void checkin(Connection<?> connection) {
+        if (connection.getSocketAddress() != null) {
+            List<Connection<Client>> connections = this.hostConnections
+                    .get(connection.getSocketAddress());
+
+            if (connections != null) {
+                synchronized (this.hostConnections) {
+                    connections.remove(connection);
+
+                    // Forget the hosts without connections
+                    if (connections.isEmpty()) {
+                        this.hostConnections.remove(
+                                connection.getSocketAddress(), connections);
+                    }
+                }
+            }
+        }
+
+        super.checkin(connection);
     }
 
     @Override
@@ -234,6 +332,8 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
         int hostConnectionCount = 0;
         int bestScore = Integer.MAX_VALUE;
         boolean foundConn = false;
+        Connection<Client> pipelinedConn = null;
+        int pipelinedScore = Integer.MAX_VALUE;
 
         // Determine the target host domain and port of the request.
         InetSocketAddress socketAddress = getSocketAddress(request);
@@ -244,31 +344,38 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                             "Unable to create a socket address related to the request.");
         } else {
             // Associate the given request to the first available connection
-            // opened on the same host domain and port.
-            for (Iterator<Connection<Client>> iterator = getConnections()
-                    .iterator(); !foundConn && iterator.hasNext();) {
-                Connection<Client> currConn = iterator.next();
-
-                if (socketAddress.equals(currConn.getSocketAddress())) {
-                    if (currConn.isAvailable()) {
+            // opened on the same host domain and port. Only the connections
+            // of this host are inspected, the most recent ones first.
+            List<Connection<Client>> connections = getHostConnections(socketAddress);
+
+            for (Connection<Client> currConn : connections) {
+                if (currConn.isAvailable()) {
+                    result = currConn;
+                    foundConn = true;
+                    break;
+                } else if (currConn.getState().compareTo(
+                        ConnectionState.OPEN) <= 0) {
+                    // Assign the request to the busy connection that
+                    // handles the less number of messages. This is useful
+                    // in case the maximum number of connections has been
+                    // reached. As a drawback, the message will only be
+                    // handled as soon as possible.
+                    int currScore = currConn.getLoadScore();
+
+                    if (bestScore > currScore) {
+                        bestScore = currScore;
                         result = currConn;
-                        foundConn = true;
-                    } else if (currConn.getState().compareTo(
-                            ConnectionState.OPEN) <= 0) {
-                        // Assign the request to the busy connection that
-                        // handles the less number of messages. This is useful
-                        // in case the maximum number of connections has been
-                        // reached. As a drawback, the message will only be
-                        // handled as soon as possible.
-                        int currScore = currConn.getLoadScore();
-
-                        if (bestScore > currScore) {
-                            bestScore = currScore;
-                            result = currConn;
-                        }
-
-                        hostConnectionCount++;
                     }
+
+                    // Look for a connection on which the request can be
+                    // written without waiting for the previous responses.
+                    if ((pipelinedScore > currScore)
+                            && isPipelinable(currConn, request)) {
+                        pipelinedScore = currScore;
+                        pipelinedConn = currConn;
+                    }
+
+                    hostConnectionCount++;
                 }
             }
 
@@ -279,6 +386,17 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                         Level.FINE,
                         "Reusing an existing client connection to: "
                                 + socketAddress);
+            } else if (pipelinedConn != null) {
+                result = pipelinedConn;
+                getLogger().log(
+                        Level.FINE,
+                        "Pipelining request on an existing client connection to: "
+                                + socketAddress);
+            } else if ((result != null) && !isInFlightAllowed(socketAddress)) {
+                getLogger().log(
+                        Level.FINE,
+                        "Enqueue Request to an existing client connection to: "
+                                + socketAddress);
             } else if ((getMaxTotalConnections() != -1)
                     && (getConnections().size() >= getMaxTotalConnections())) {
                 if (result == null) {
@@ -317,12 +435,95 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                         createSocketChannel(request.isConfidential(),
                                 socketAddress), getController(), socketAddress);
                 getConnections().add(result);
+                addHostConnection(socketAddress, result);
             }
         }
 
         return result;
     }
 
+    /**
+     * Returns the time to live of the resolved host addresses cached by the
+     * connector or 0 to resolve the host name of each request.
+     * 
+     * @return The time to live of the cached host addresses.
+     */
+    public int getDnsCacheTtlMs() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "dnsCacheTtlMs", "30000"));
+    }
+
+    /**
+     * Returns the number of requests sent to the given socket address and
+     * waiting for their response, including the requests whose headers are
+     * being written.
+     * 
+     * @param socketAddress
+     *            The target socket address.
+     * @return The number of requests waiting for their response.
+     */
+    protected int getInFlightCount(InetSocketAddress socketAddress) {
+        int result = 0;
+        OutboundWay outboundWay;
+        MessageState state;
+
+        for (Connection<Client> connection : getHostConnections(socketAddress)) {
+            result += connection.getInboundWay().getLoadScore();
+
+            // A request is only expected by the inbound way once its headers
+            // are written
+            outboundWay = connection.getOutboundWay();
+            state = outboundWay.getMessageState();
+
+            if ((outboundWay.getMessage() != null)
+                    && (state != MessageState.BODY)
+                    && (state != MessageState.END)) {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the connections opened to the given socket address, the most
+     * recent ones first.
+     * 
+     * @param socketAddress
+     *            The target socket address.
+     * @return The connections opened to the given socket address or an empty
+     *         list.
+     */
+    protected List<Connection<Client>> getHostConnections(
+            InetSocketAddress socketAddress) {
+        List<Connection<Client>> result = this.hostConnections
+                .get(socketAddress);
+        return (result == null) ? Collections
+                .<Connection<Client>> emptyList() : result;
+    }
+
+    /**
+     * Returns the maximum number of requests sent to the same host and waiting
+     * for their response or -1 for unlimited.
+     * 
+     * @return The maximum number of requests in flight per host.
+     */
+    public int getMaxInFlightPerHost() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxInFlightPerHost", "-1"));
+    }
+
+    /**
+     * Returns the maximum number of idempotent requests pipelined on a
+     * connection while waiting for their response.
+     * 
+     * @return The maximum number of pipelined requests per connection.
+     */
+    public int getPipelineDepth() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "pipelineDepth", "8"));
+    }
+
     /**
      * Returns the host name of the HTTP proxy, if specified.
      * 
@@ -398,10 +599,7 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
         }
 
         if (hostDomain != null) {
-            result = new InetSocketAddress(hostDomain, hostPort);
-            if (result != null && result.getAddress() == null) {
-                throw new UnknownHostException(hostDomain);
-            }
+            result = new InetSocketAddress(resolve(hostDomain), hostPort);
         }
 
         return result;
@@ -443,6 +641,12 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                 // Await on the latch
                 latch.await();
             } else {
+                if ((request != null) && request.isAsynchronous()) {
+                    // The response will be notified to the callback
+                    request.getAttributes().put(
+                            ClientHelper.ATTRIBUTE_ASYNC_PENDING, Boolean.TRUE);
+                }
+
                 // Add the message to the outbound queue for processing
                 addOutboundMessage(response);
             }
@@ -476,6 +680,126 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
         return getProxyHost() != null;
     }
 
+    /**
+     * Indicates if a new request can be sent to the given socket address
+     * without exceeding the maximum number of requests in flight per host.
+     * 
+     * @param socketAddress
+     *            The target socket address.
+     * @return True if a new request can be sent.
+     */
+    public boolean isInFlightAllowed(InetSocketAddress socketAddress) {
+        int maxInFlight = getMaxInFlightPerHost();
+        return (maxInFlight == -1) || (socketAddress == null)
+                || (getInFlightCount(socketAddress) < maxInFlight);
+    }
+
+    /**
+     * Indicates if the request can be pipelined on the given connection, behind
+     * the requests already waiting for their response. The connection must be
+     * pipelining, persistent and open, its pipeline not full and the request
+     * must be replayable.
+     * 
+     * @param connection
+     *            The connection to test.
+     * @param request
+     *            The request to pipeline.
+     * @return True if the request can be pipelined on the connection.
+     */
+    public boolean isPipelinable(Connection<Client> connection, Request request) {
+        return connection.isPipelining() && connection.isPersistent()
+                && (connection.getState() == ConnectionState.OPEN)
+                && (connection.getLoadScore() < getPipelineDepth())
+                && isReplayable(request);
+    }
+
+    /**
+     * Indicates if a request can safely be sent again if its connection is
+     * closed before the response is received. It must be idempotent and its
+     * entity, if any, must not be transient.
+     * 
+     * @param request
+     *            The request to test.
+     * @return True if the request can be sent again.
+     */
+    public boolean isReplayable(Request request) {
+        return (request != null)
+                && request.getMethod().isIdempotent()
+                && (!request.isEntityAvailable() || !request.getEntity()
+                        .isTransient());
+    }
+
+    /**
+     * Indicates if the requests should be spread over all the addresses
+     * resolved for a host name.
+     * 
+     * @return True if the requests should be spread over all the addresses
+     *         resolved for a host name.
+     */
+    public boolean isDnsRoundRobin() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "dnsRoundRobin", "false"));
+    }
+
+    /**
+     * Called back when the connection of a request is closed before its
+     * response is received. A request that was never sent is handled again. A
+     * request that was already sent is handled again only once, and only if it
+     * is replayable.
+     * 
+     * @param response
+     *            The response of the request to replay.
+     * @param sent
+     *            Indicates if the request was already sent.
+     * @return True if the request will be handled again.
+     * @see #isReplayable(Request)
+     */
+    public boolean replay(Response response, boolean sent) {
+        boolean result = false;
+        Request request = response.getRequest();
+
+        if (!sent
+                || (isReplayable(request) && (request.getAttributes().get(
+                        CONNECTOR_REPLAYED) == null))) {
+            if (sent) {
+                request.getAttributes().put(CONNECTOR_REPLAYED, Boolean.TRUE);
+            }
+
+            if (getLogger().isLoggable(Level.FINE)) {
+                getLogger().log(Level.FINE,
+                        "Replaying client request: " + request);
+            }
+
+            getOutboundMessages().add(response);
+            getController().wakeup();
+            result = true;
+        }
+
+        return result;
+    }
+
+    /**
+     * Resolves a host name into an IP address, using the cache of resolved
+     * addresses unless its time to live is 0.
+     * 
+     * @param hostDomain
+     *            The host name to resolve.
+     * @return The resolved IP address.
+     * @throws UnknownHostException
+     *             If the host name couldn't be resolved.
+     */
+    protected InetAddress resolve(String hostDomain)
+            throws UnknownHostException {
+        int timeToLive = getDnsCacheTtlMs();
+
+        if (timeToLive <= 0) {
+            return InetAddress.getByName(hostDomain);
+        }
+
+        return this.addressCache.resolve(hostDomain, timeToLive,
+                isDnsRoundRobin());
+    }
+
     @Override
     public void start() throws Exception {
         getLogger().info("Starting the internal " + getProtocols() + " client");
@@ -486,6 +810,8 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
     public void stop() throws Exception {
         getLogger().info("Stopping the internal " + getProtocols() + " client");
         super.stop();
+        this.hostConnections.clear();
+        this.addressCache.clear();
     }
 
     /**
@@ -34,12 +34,15 @@
 package org.restlet.engine.connector;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.restlet.Client;
+import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.Status;
+import org.restlet.engine.io.Buffer;
 import org.restlet.engine.io.IoState;
 
 /**
@@ -49,6 +52,9 @@ import org.restlet.engine.io.IoState;
  */
 public class HttpClientInboundWay extends ClientInboundWay {
 
+    /** Indicates if bytes of the next pipelined response were buffered. */
+    private volatile boolean buffered;
+
     /** The queue of messages. */
     private final Queue<Response> messages;
 
@@ -63,12 +69,14 @@ public class HttpClientInboundWay extends ClientInboundWay {
      */
     public HttpClientInboundWay(Connection<Client> connection, int bufferSize) {
         super(connection, bufferSize);
+        this.buffered = false;
         this.messages = new ConcurrentLinkedQueue<Response>();
     }
 
     @Override
     public void clear() {
         super.clear();
+        this.buffered = false;
         this.messages.clear();
     }
 
@@ -86,6 +94,38 @@ public class HttpClientInboundWay extends ClientInboundWay {
         return result;
     }
 
+    /**
+     * Registers a request that has just been sent and expects a response. The
+     * responses are received in the order their requests were sent, so the
+     * way only starts reading a new message if it isn't already reading a
+     * previous one.
+     * 
+     * @param response
+     *            The response to receive.
+     */
+    protected synchronized void expect(Response response) {
+        getMessages().add(response);
+        expectNext();
+    }
+
+    /**
+     * Starts reading the next expected response, if any and if the way is
+     * idle. If some bytes of this response were already received, the
+     * controller is woken up so they are processed without waiting for new
+     * bytes to be selected.
+     */
+    protected synchronized void expectNext() {
+        if ((getMessageState() == MessageState.IDLE)
+                && !getMessages().isEmpty()) {
+            setMessageState(MessageState.START);
+
+            if (!getBuffer().isEmpty()) {
+                this.buffered = true;
+                getHelper().getController().wakeup();
+            }
+        }
+    }
+
     @Override
     public int getLoadScore() {
         return getMessages().size();
@@ -112,17 +152,34 @@ public class HttpClientInboundWay extends ClientInboundWay {
         return super.isEmpty() && getMessages().isEmpty();
     }
 
-    @Override
-    public void onMessageCompleted(boolean endDetected) throws IOException {
-        getMessages().remove(getMessage());
-        super.onMessageCompleted(endDetected);
+    /**
+     * Indicates if the request can be sent without waiting for the responses
+     * already expected. The pipeline must not be full and all the pipelined
+     * requests must be replayable.
+     * 
+     * @param request
+     *            The request to send.
+     * @return True if the request can be pipelined.
+     * @see ClientConnectionHelper#isReplayable(Request)
+     */
+    public boolean isPipelinable(Request request) {
+        boolean result = getConnection().isPersistent()
+                && (getMessages().size() < getHelper().getPipelineDepth())
+                && getHelper().isReplayable(request);
+
+        for (Iterator<Response> iter = getMessages().iterator(); result
+                && iter.hasNext();) {
+            result = getHelper().isReplayable(iter.next().getRequest());
+        }
+
+        return result;
     }
 
     @Override
     public void onError(Status status) {
         for (Response rsp : getMessages()) {
-            if (rsp != getMessage()) {
-                getMessages().remove(rsp);
+            if ((rsp != getMessage()) && getMessages().remove(rsp)
+                    && !getHelper().replay(rsp, true)) {
                 getHelper().onInboundError(status, rsp);
             }
         }
@@ -130,6 +187,57 @@ public class HttpClientInboundWay extends ClientInboundWay {
         super.onError(status);
     }
 
+    @Override
+    public int onFill(Buffer buffer, Object... args) throws IOException {
+        int result = super.onFill(buffer, args);
+
+        if (result == -1) {
+            // The server closed the connection, the pipelined requests
+            // won't get a response on this connection
+            replayMessages();
+        }
+
+        return result;
+    }
+
+    @Override
+    public void onMessageCompleted(boolean endDetected) throws IOException {
+        getMessages().remove(getMessage());
+        super.onMessageCompleted(endDetected);
+
+        if (getConnection().getState() == ConnectionState.OPEN) {
+            // Continue with the next pipelined response
+            expectNext();
+        } else {
+            replayMessages();
+        }
+    }
+
+    /**
+     * Replays the requests waiting for a response and the requests not sent
+     * yet, because the connection is closing. The requests that can't be
+     * replayed are unblocked with a communication error. The response being
+     * read, or whose bytes are already buffered, is kept.
+     * 
+     * @see ClientConnectionHelper#replay(Response, boolean)
+     */
+    protected void replayMessages() {
+        Response received = getBuffer().isEmpty() ? getMessage()
+                : getMessages().peek();
+
+        for (Response rsp : getMessages()) {
+            if ((rsp != getMessage()) && (rsp != received)
+                    && getMessages().remove(rsp)
+                    && !getHelper().replay(rsp, true)) {
+                getHelper().onInboundError(
+                        Status.CONNECTOR_ERROR_COMMUNICATION, rsp);
+            }
+        }
+
+        ((HttpClientOutboundWay) getConnection().getOutboundWay())
+                .replayMessages();
+    }
+
     @Override
     public void onTimeOut() {
         for (Response rsp : getMessages()) {
@@ -143,4 +251,23 @@ public class HttpClientInboundWay extends ClientInboundWay {
         super.onTimeOut();
     }
 
+    @Override
+    public void updateState() {
+        if (this.buffered && (getMessageState() == MessageState.START)) {
+            // Process the buffered bytes of the next pipelined response as if
+            // they were just selected
+            this.buffered = false;
+
+            synchronized (getBuffer().getLock()) {
+                onSelected(getRegistration());
+            }
+
+            // Let the controller handle the received response without waiting
+            // for the next NIO selection
+            getHelper().getController().wakeup();
+        }
+
+        super.updateState();
+    }
+
 }
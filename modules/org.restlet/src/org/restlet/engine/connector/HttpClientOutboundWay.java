@@ -34,6 +34,7 @@
 package org.restlet.engine.connector;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -94,6 +95,28 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
         return super.isEmpty() && getMessages().isEmpty();
     }
 
+    /**
+     * Indicates if the given message can be sent now. Either the inbound way
+     * is available or the request can be pipelined behind the ones waiting
+     * for their response. In both cases, the maximum number of requests in
+     * flight for the target host must not be reached.
+     * 
+     * @param message
+     *            The message to send.
+     * @return True if the message can be sent now.
+     */
+    protected boolean isSendable(Response message) {
+        HttpClientInboundWay inboundWay = (HttpClientInboundWay) getConnection()
+                .getInboundWay();
+        boolean result = inboundWay.isAvailable()
+                || (getConnection().isPipelining() && inboundWay
+                        .isPipelinable(message.getRequest()));
+
+        return result
+                && getHelper().isInFlightAllowed(
+                        (InetSocketAddress) getConnection().getSocketAddress());
+    }
+
     @Override
     public void onError(Status status) {
         for (Response rsp : getMessages()) {
@@ -114,11 +137,8 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
             Request request = message.getRequest();
 
             if (request.isExpectingResponse()) {
-                Queue<Response> inboundMessages = ((HttpClientInboundWay) getConnection()
-                        .getInboundWay()).getMessages();
-                inboundMessages.add(message);
-                getConnection().getInboundWay().setMessageState(
-                        MessageState.START);
+                ((HttpClientInboundWay) getConnection().getInboundWay())
+                        .expect(message);
             }
         }
 
@@ -148,12 +168,28 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
         super.onTimeOut();
     }
 
+    /**
+     * Replays the messages not sent yet, except the one currently sent.
+     * 
+     * @see ClientConnectionHelper#replay(Response, boolean)
+     */
+    protected void replayMessages() {
+        for (Response rsp : getMessages()) {
+            if ((rsp != getMessage()) && getMessages().remove(rsp)) {
+                getHelper().replay(rsp, false);
+            }
+        }
+    }
+
     @Override
     public void updateState() {
         // Update the IO state if necessary
-        if (getMessage() == null
-                && getConnection().getInboundWay().isAvailable()) {
-            setMessage(getMessages().peek());
+        if (getMessage() == null) {
+            Response next = getMessages().peek();
+
+            if ((next != null) && isSendable(next)) {
+                setMessage(next);
+            }
         }
 
         super.updateState();
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.connector;
+
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Response;
+import org.restlet.engine.Engine;
+
+/**
+ * Worker task handling an inbound message. It remembers its priority class
+ * and its creation time, so the worker service can schedule it fairly and
+ * drop it if it waited too long in the queue.
+ * 
+ * @author Jerome Louvel
+ * @see WeightedBlockingQueue
+ */
+public class InboundTask implements Runnable {
+
+    /** The creation time in nanoseconds. */
+    private final long creationTime;
+
+    /** The parent helper. */
+    private final BaseHelper<?> helper;
+
+    /** The priority class. */
+    private final int priority;
+
+    /** The message to handle. */
+    private final Response response;
+
+    /**
+     * Constructor.
+     * 
+     * @param helper
+     *            The parent helper.
+     * @param response
+     *            The message to handle.
+     * @param priority
+     *            The priority class.
+     */
+    public InboundTask(BaseHelper<?> helper, Response response, int priority) {
+        this.creationTime = System.nanoTime();
+        this.helper = helper;
+        this.priority = priority;
+        this.response = response;
+    }
+
+    /**
+     * Returns the priority class, 0 being the default one.
+     * 
+     * @return The priority class.
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Returns the time spent since the creation of the task in milliseconds.
+     * 
+     * @return The time spent since the creation of the task in milliseconds.
+     */
+    public long getQueuedTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                - this.creationTime);
+    }
+
+    /**
+     * Returns the message to handle.
+     * 
+     * @return The message to handle.
+     */
+    public Response getResponse() {
+        return response;
+    }
+
+    /**
+     * Handles the message, unless it waited longer than the maximum queued
+     * time of the helper.
+     * 
+     * @see BaseHelper#getQueueTimeoutMs()
+     */
+    public void run() {
+        try {
+            int queueTimeoutMs = this.helper.getQueueTimeoutMs();
+
+            if ((queueTimeoutMs > 0) && (getQueuedTimeMs() > queueTimeoutMs)) {
+                this.helper.onInboundTimeout(this.response);
+            } else {
+                this.helper.doHandleInbound(this.response);
+            }
+        } finally {
+            Engine.clearThreadLocalVariables();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Handle inbound messages";
+    }
+
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.connector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.restlet.Request;
+import org.restlet.data.Method;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.routing.Template;
+import org.restlet.util.Series;
+
+/**
+ * Classifies the inbound requests into priority classes. The rules are
+ * evaluated in order and the first matching one gives the priority class.
+ * Each rule can match the request method, the resource path with a URI
+ * template, and the presence or the value of a header.
+ * 
+ * Concurrency note: instances of this class can be used by several threads at
+ * the same time.
+ * 
+ * @author Jerome Louvel
+ */
+public class PriorityClassifier {
+
+    /**
+     * Classification rule.
+     */
+    private static class Rule {
+
+        /** The header name or null. */
+        private final String headerName;
+
+        /** The header value or null. */
+        private final String headerValue;
+
+        /** The method or null. */
+        private final Method method;
+
+        /** The path template or null. */
+        private final Template pathTemplate;
+
+        /** The priority class. */
+        private final int priority;
+
+        /**
+         * Constructor.
+         * 
+         * @param priority
+         *            The priority class.
+         * @param method
+         *            The method or null.
+         * @param pathTemplate
+         *            The path template or null.
+         * @param headerName
+         *            The header name or null.
+         * @param headerValue
+         *            The header value or null.
+         */
+        public Rule(int priority, Method method, Template pathTemplate,
+                String headerName, String headerValue) {
+            this.priority = priority;
+            this.method = method;
+            this.pathTemplate = pathTemplate;
+            this.headerName = headerName;
+            this.headerValue = headerValue;
+        }
+
+        /**
+         * Indicates if the request matches this rule.
+         * 
+         * @param request
+         *            The request to match.
+         * @return True if the request matches this rule.
+         */
+        @SuppressWarnings("unchecked")
+        public boolean matches(Request request) {
+            boolean result = (this.method == null)
+                    || this.method.equals(request.getMethod());
+
+            if (result && (this.pathTemplate != null)) {
+                String path = (request.getResourceRef() == null) ? null
+                        : request.getResourceRef().getPath();
+                result = (path != null) && (this.pathTemplate.match(path) >= 0);
+            }
+
+            if (result && (this.headerName != null)) {
+                Series<Header> headers = (Series<Header>) request
+                        .getAttributes().get(HeaderConstants.ATTRIBUTE_HEADERS);
+                String value = (headers == null) ? null : headers
+                        .getFirstValue(this.headerName, true);
+                result = (value != null)
+                        && ((this.headerValue == null) || this.headerValue
+                                .equalsIgnoreCase(value.trim()));
+            }
+
+            return result;
+        }
+    }
+
+    /** The priority class of the requests matching no rule. */
+    private final int defaultPriority;
+
+    /** The classification rules. */
+    private final List<Rule> rules;
+
+    /**
+     * Constructor.
+     * 
+     * @param defaultPriority
+     *            The priority class of the requests matching no rule.
+     */
+    public PriorityClassifier(int defaultPriority) {
+        this.defaultPriority = defaultPriority;
+        this.rules = new CopyOnWriteArrayList<Rule>();
+    }
+
+    /**
+     * Adds a classification rule.
+     * 
+     * @param priority
+     *            The priority class of the matching requests.
+     * @param method
+     *            The method to match or null for any method.
+     * @param pathTemplate
+     *            The URI template matching the start of the resource path or
+     *            null for any path.
+     * @param headerName
+     *            The header name that must be present or null.
+     * @param headerValue
+     *            The expected header value, ignoring case, or null for any
+     *            value.
+     */
+    public void addRule(int priority, Method method, String pathTemplate,
+            String headerName, String headerValue) {
+        this.rules.add(new Rule(priority, method,
+                (pathTemplate == null) ? null : new Template(pathTemplate,
+                        Template.MODE_STARTS_WITH), headerName, headerValue));
+    }
+
+    /**
+     * Adds a classification rule described by a string with the following
+     * space separated tokens: the priority class, the method, the path
+     * template and optionally a header name followed by '=' and a value. The
+     * '*' character matches any method or path. For example
+     * "0 GET /health" or "2 * * X-Batch=true".
+     * 
+     * @param rule
+     *            The rule description.
+     * @throws IllegalArgumentException
+     *             If the description can't be parsed.
+     */
+    public void addRule(String rule) {
+        String[] tokens = rule.trim().split("\\s+");
+
+        if ((tokens.length < 3) || (tokens.length > 4)) {
+            throw new IllegalArgumentException("Invalid priority rule: "
+                    + rule);
+        }
+
+        int priority;
+
+        try {
+            priority = Integer.parseInt(tokens[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid priority rule: "
+                    + rule);
+        }
+
+        Method method = "*".equals(tokens[1]) ? null : Method
+                .valueOf(tokens[1]);
+        String path = "*".equals(tokens[2]) ? null : tokens[2];
+        String headerName = null;
+        String headerValue = null;
+
+        if (tokens.length == 4) {
+            int index = tokens[3].indexOf('=');
+
+            if (index == -1) {
+                headerName = tokens[3];
+            } else {
+                headerName = tokens[3].substring(0, index);
+                headerValue = tokens[3].substring(index + 1);
+            }
+        }
+
+        addRule(priority, method, path, headerName, headerValue);
+    }
+
+    /**
+     * Returns the priority class of a request.
+     * 
+     * @param request
+     *            The request to classify.
+     * @return The priority class of the request.
+     */
+    public int classify(Request request) {
+        int result = getDefaultPriority();
+
+        if (request != null) {
+            boolean found = false;
+
+            for (int i = 0; !found && (i < this.rules.size()); i++) {
+                Rule rule = this.rules.get(i);
+
+                if (rule.matches(request)) {
+                    result = rule.priority;
+                    found = true;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the priority class of the requests matching no rule.
+     * 
+     * @return The priority class of the requests matching no rule.
+     */
+    public int getDefaultPriority() {
+        return defaultPriority;
+    }
+
+}
@@ -290,6 +290,26 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
                 "reuseAddress", "true"));
     }
 
+    /**
+     * Rejects the request with a
+     * {@link Status#SERVER_ERROR_SERVICE_UNAVAILABLE} status, as processing it
+     * late would waste the worker threads on a client that probably gave up.
+     * 
+     * @param response
+     *            The message that waited too long.
+     */
+    @Override
+    protected void onInboundTimeout(Response response) {
+        if ((response != null) && (response.getRequest() != null)) {
+            getLogger().fine(
+                    "Request dropped after waiting longer than "
+                            + getQueueTimeoutMs() + " ms in the queue");
+            response.setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+            response.setCommitted(true);
+            addOutboundMessage(response);
+        }
+    }
+
     /**
      * Sets the ephemeral port in the attributes map if necessary.
      * 
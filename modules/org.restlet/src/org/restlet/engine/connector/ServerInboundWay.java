@@ -218,6 +218,18 @@ public abstract class ServerInboundWay extends InboundWay {
     public void updateState() {
         if (getMessageState() == MessageState.IDLE) {
             setMessageState(MessageState.START);
+
+            if (!getBuffer().isEmpty()) {
+                // Process the buffered bytes of the next pipelined request as
+                // if they were just selected
+                synchronized (getBuffer().getLock()) {
+                    onSelected(getRegistration());
+                }
+
+                // Let the controller handle the received request without
+                // waiting for the next NIO selection
+                getHelper().getController().wakeup();
+            }
         }
 
         // Update the registration
@@ -0,0 +1,438 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.connector;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Blocking queue of worker tasks split into several priority classes. Each
+ * class is a FIFO queue and the classes are dequeued in a weighted fair way: a
+ * class with a weight of 4 is dequeued four times more often than a class
+ * with a weight of 1 when both have pending tasks, but no class is starved.
+ * The priority class of a task is given by {@link InboundTask#getPriority()},
+ * other tasks go in the first class.
+ * 
+ * Concurrency note: instances of this class can be used by several threads at
+ * the same time.
+ * 
+ * @author Jerome Louvel
+ */
+public class WeightedBlockingQueue extends AbstractQueue<Runnable> implements
+        BlockingQueue<Runnable> {
+
+    /** The maximum number of tasks. */
+    private final int capacity;
+
+    /** The number of tasks. */
+    private int count;
+
+    /** The current credits of the classes, for smooth weighted round robin. */
+    private final int[] credits;
+
+    /** The lock protecting all accesses. */
+    private final ReentrantLock lock;
+
+    /** Condition for waiting takes. */
+    private final Condition notEmpty;
+
+    /** Condition for waiting puts. */
+    private final Condition notFull;
+
+    /** The FIFO queue of each class. */
+    private final List<ArrayDeque<Runnable>> queues;
+
+    /** The weight of each class. */
+    private final int[] weights;
+
+    /**
+     * Constructor.
+     * 
+     * @param weights
+     *            The weight of each class, the first being the default one.
+     * @param capacity
+     *            The maximum number of tasks, or a negative value for an
+     *            unbounded queue.
+     */
+    public WeightedBlockingQueue(int[] weights, int capacity) {
+        this.capacity = (capacity < 0) ? Integer.MAX_VALUE : capacity;
+        this.count = 0;
+        this.credits = new int[weights.length];
+        this.lock = new ReentrantLock();
+        this.notEmpty = this.lock.newCondition();
+        this.notFull = this.lock.newCondition();
+        this.queues = new ArrayList<ArrayDeque<Runnable>>(weights.length);
+        this.weights = new int[weights.length];
+
+        for (int i = 0; i < weights.length; i++) {
+            this.queues.add(new ArrayDeque<Runnable>());
+            this.weights[i] = Math.max(1, weights[i]);
+        }
+    }
+
+    /**
+     * Dequeues the next task. The lock must be held and the queue must not be
+     * empty.
+     * 
+     * @return The next task.
+     */
+    private Runnable dequeue() {
+        int best = -1;
+        int total = 0;
+
+        for (int i = 0; i < this.weights.length; i++) {
+            if (!this.queues.get(i).isEmpty()) {
+                this.credits[i] += this.weights[i];
+                total += this.weights[i];
+
+                if ((best < 0) || (this.credits[i] > this.credits[best])) {
+                    best = i;
+                }
+            }
+        }
+
+        this.credits[best] -= total;
+        Runnable result = this.queues.get(best).poll();
+
+        if (this.queues.get(best).isEmpty()) {
+            // An idle class doesn't keep its credits
+            this.credits[best] = 0;
+        }
+
+        this.count--;
+        this.notFull.signal();
+        return result;
+    }
+
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+
+        int result = 0;
+        this.lock.lock();
+
+        try {
+            while ((result < maxElements) && (this.count > 0)) {
+                c.add(dequeue());
+                result++;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds a task to its class queue. The lock must be held and the queue
+     * must not be full.
+     * 
+     * @param task
+     *            The task to add.
+     */
+    private void enqueue(Runnable task) {
+        this.queues.get(getPriority(task)).add(task);
+        this.count++;
+        this.notEmpty.signal();
+    }
+
+    /**
+     * Returns the priority class of a task, between 0 and the number of
+     * classes minus one.
+     * 
+     * @param task
+     *            The task.
+     * @return The priority class of the task.
+     */
+    protected int getPriority(Runnable task) {
+        int result = 0;
+
+        if (task instanceof InboundTask) {
+            result = Math.min(Math.max(0, ((InboundTask) task).getPriority()),
+                    this.weights.length - 1);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of tasks pending in a priority class.
+     * 
+     * @param priority
+     *            The priority class.
+     * @return The number of tasks pending in the priority class.
+     */
+    public int size(int priority) {
+        this.lock.lock();
+
+        try {
+            return this.queues.get(priority).size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the tasks. Removing a task
+     * through the iterator removes it from this queue.
+     * 
+     * @return An iterator over a snapshot of the tasks.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final List<Runnable> snapshot = new ArrayList<Runnable>();
+        this.lock.lock();
+
+        try {
+            for (ArrayDeque<Runnable> queue : this.queues) {
+                snapshot.addAll(queue);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        return new Iterator<Runnable>() {
+            private final Iterator<Runnable> iterator = snapshot.iterator();
+
+            private Runnable last;
+
+            public boolean hasNext() {
+                return this.iterator.hasNext();
+            }
+
+            public Runnable next() {
+                this.last = this.iterator.next();
+                return this.last;
+            }
+
+            public void remove() {
+                if (this.last == null) {
+                    throw new IllegalStateException();
+                }
+
+                WeightedBlockingQueue.this.remove(this.last);
+                this.last = null;
+            }
+        };
+    }
+
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+
+        boolean result = false;
+        this.lock.lock();
+
+        try {
+            if (this.count < this.capacity) {
+                enqueue(task);
+                result = true;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        return result;
+    }
+
+    public boolean offer(Runnable task, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.count >= this.capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+
+                nanos = this.notFull.awaitNanos(nanos);
+            }
+
+            enqueue(task);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public Runnable peek() {
+        Runnable result = null;
+        this.lock.lock();
+
+        try {
+            for (int i = 0; (result == null) && (i < this.queues.size()); i++) {
+                result = this.queues.get(i).peek();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        return result;
+    }
+
+    public Runnable poll() {
+        Runnable result = null;
+        this.lock.lock();
+
+        try {
+            if (this.count > 0) {
+                result = dequeue();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        return result;
+    }
+
+    public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+
+            return dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public void put(Runnable task) throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.count >= this.capacity) {
+                this.notFull.await();
+            }
+
+            enqueue(task);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int remainingCapacity() {
+        this.lock.lock();
+
+        try {
+            return this.capacity - this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        boolean result = false;
+        this.lock.lock();
+
+        try {
+            for (int i = 0; !result && (i < this.queues.size()); i++) {
+                result = this.queues.get(i).remove(o);
+            }
+
+            if (result) {
+                this.count--;
+                this.notFull.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        return result;
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+
+        try {
+            return this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public Runnable take() throws InterruptedException {
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.count == 0) {
+                this.notEmpty.await();
+            }
+
+            return dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+}
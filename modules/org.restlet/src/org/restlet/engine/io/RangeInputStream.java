@@ -33,9 +33,11 @@
 
 package org.restlet.engine.io;
 
+import java.io.FileInputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 import org.restlet.data.Range;
 import org.restlet.representation.Representation;
@@ -139,6 +141,7 @@ public class RangeInputStream extends FilterInputStream {
 
     @Override
     public int read() throws IOException {
+        seek();
         int result = super.read();
 
         while ((result != -1) && !this.range.isIncluded(position++, totalSize)) {
@@ -155,16 +158,7 @@ public class RangeInputStream extends FilterInputStream {
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
         // Reach the start index.
-        while (!(position >= startIndex)) {
-            long skipped = skip(startIndex - position);
-
-            if (skipped <= 0) {
-                throw new IOException("Cannot skip ahead in FilterInputStream");
-            }
-
-            position += skipped;
-        }
-
+        seek();
         int result = -1;
 
         if (endIndex != -1) {
@@ -195,4 +189,32 @@ public class RangeInputStream extends FilterInputStream {
 
         return result;
     }
+
+    /**
+     * Moves the cursor of the source stream to the start index, if not
+     * reached yet. When the source stream is backed by a file, its channel is
+     * directly positioned instead of reading and discarding the leading bytes.
+     * 
+     * @throws IOException
+     */
+    private void seek() throws IOException {
+        if (position < startIndex) {
+            if (in instanceof FileInputStream) {
+                FileChannel channel = ((FileInputStream) in).getChannel();
+                channel.position(channel.position() + startIndex - position);
+                position = startIndex;
+            }
+
+            while (position < startIndex) {
+                long skipped = skip(startIndex - position);
+
+                if (skipped <= 0) {
+                    throw new IOException(
+                            "Cannot skip ahead in FilterInputStream");
+                }
+
+                position += skipped;
+            }
+        }
+    }
 }
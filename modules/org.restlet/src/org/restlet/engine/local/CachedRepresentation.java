@@ -0,0 +1,248 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Date;
+
+import org.restlet.data.MediaType;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.representation.Representation;
+
+/**
+ * Representation of a content held by a {@link ContentCache}. Each read or
+ * write uses a new view of the cached buffer, so the content is never copied
+ * before reaching its destination and the representation can be read several
+ * times. When the content is held by a file, it is exposed like with a
+ * {@link org.restlet.representation.FileRepresentation} so that precompressed
+ * variants, file tags and range transfers still apply.
+ * 
+ * @author Jerome Louvel
+ */
+public class CachedRepresentation extends Representation {
+
+    /** The cached content. */
+    private final ContentCache.Entry entry;
+
+    /** The file holding the content, if any. */
+    private final File file;
+
+    /**
+     * Constructor. The content isn't held by a known file.
+     * 
+     * @param entry
+     *            The cached content.
+     * @param mediaType
+     *            The representation's media type.
+     * @param timeToLive
+     *            The time to live before it expires (in seconds).
+     * @see #CachedRepresentation(ContentCache.Entry, File, MediaType, int)
+     */
+    public CachedRepresentation(ContentCache.Entry entry, MediaType mediaType,
+            int timeToLive) {
+        this(entry, null, mediaType, timeToLive);
+    }
+
+    /**
+     * Constructor. If a positive "timeToLive" parameter is given, then the
+     * expiration date is set accordingly. If "timeToLive" is equal to zero,
+     * then the expiration date is set to the current date, meaning that it will
+     * immediately expire on the client. If -1 is given, then no expiration date
+     * is set.
+     * 
+     * @param entry
+     *            The cached content.
+     * @param file
+     *            The file holding the content, if any.
+     * @param mediaType
+     *            The representation's media type.
+     * @param timeToLive
+     *            The time to live before it expires (in seconds).
+     */
+    public CachedRepresentation(ContentCache.Entry entry, File file,
+            MediaType mediaType, int timeToLive) {
+        super(mediaType);
+        this.entry = entry;
+        this.file = file;
+        setSize(entry.getSize());
+        setTag(entry.getTag());
+
+        if (entry.getModificationDate() > 0) {
+            setModificationDate(new Date(entry.getModificationDate()));
+        }
+
+        if (timeToLive == 0) {
+            setExpirationDate(null);
+        } else if (timeToLive > 0) {
+            setExpirationDate(new Date(System.currentTimeMillis()
+                    + (1000L * timeToLive)));
+        }
+    }
+
+    @Override
+    public ReadableByteChannel getChannel() throws IOException {
+        final ByteBuffer content = getEntry().getContent();
+
+        return new ReadableByteChannel() {
+            private volatile boolean open = true;
+
+            public void close() throws IOException {
+                this.open = false;
+            }
+
+            public boolean isOpen() {
+                return this.open;
+            }
+
+            public int read(ByteBuffer dst) throws IOException {
+                if (!content.hasRemaining()) {
+                    return -1;
+                }
+
+                int length = Math.min(dst.remaining(), content.remaining());
+                ByteBuffer slice = content.duplicate();
+                slice.limit(slice.position() + length);
+                dst.put(slice);
+                content.position(content.position() + length);
+                return length;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached content.
+     * 
+     * @return The cached content.
+     */
+    public ContentCache.Entry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Returns the file holding the content, if any.
+     * 
+     * @return The file holding the content or null.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public Reader getReader() throws IOException {
+        return BioUtils.getReader(getStream(), getCharacterSet());
+    }
+
+    @Override
+    public InputStream getStream() throws IOException {
+        final ByteBuffer content = getEntry().getContent();
+
+        return new InputStream() {
+            @Override
+            public int available() throws IOException {
+                return content.remaining();
+            }
+
+            @Override
+            public int read() throws IOException {
+                return content.hasRemaining() ? (content.get() & 0xFF) : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                } else if (!content.hasRemaining()) {
+                    return -1;
+                }
+
+                int length = Math.min(len, content.remaining());
+                content.get(b, off, length);
+                return length;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                int length = (int) Math.max(0,
+                        Math.min(n, content.remaining()));
+                content.position(content.position() + length);
+                return length;
+            }
+        };
+    }
+
+    @Override
+    public void write(java.io.Writer writer) throws IOException {
+        OutputStream os = BioUtils.getStream(writer, getCharacterSet());
+        write(os);
+        os.flush();
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        ByteBuffer content = getEntry().getBuffer();
+
+        if (content.hasArray()) {
+            outputStream.write(content.array(), content.arrayOffset()
+                    + content.position(), content.remaining());
+        } else {
+            byte[] chunk = new byte[8192];
+
+            while (content.hasRemaining()) {
+                int length = Math.min(chunk.length, content.remaining());
+                content.get(chunk, 0, length);
+                outputStream.write(chunk, 0, length);
+            }
+        }
+
+        outputStream.flush();
+    }
+
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        ByteBuffer content = getEntry().getContent();
+
+        while (content.hasRemaining()) {
+            writableChannel.write(content);
+        }
+    }
+
+}
@@ -35,8 +35,12 @@ package org.restlet.engine.local;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.JarURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.Date;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 
 import org.restlet.Client;
@@ -61,6 +65,13 @@ import org.restlet.service.MetadataService;
  * @author Jerome Louvel
  */
 public class ClapClientHelper extends LocalClientHelper {
+
+    /** The unique identifiers of the class loaders used as cache keys. */
+    private final Map<ClassLoader, Long> classLoaderIds;
+
+    /** The next class loader identifier. */
+    private long nextClassLoaderId;
+
     /**
      * Constructor.
      * 
@@ -70,6 +81,28 @@ public class ClapClientHelper extends LocalClientHelper {
     public ClapClientHelper(Client client) {
         super(client);
         getProtocols().add(Protocol.CLAP);
+        this.classLoaderIds = new WeakHashMap<ClassLoader, Long>();
+        this.nextClassLoaderId = 0;
+    }
+
+    /**
+     * Returns the identifier of a class loader, unique for the life of the
+     * connector. Unlike identity hash codes, these identifiers are never
+     * shared by two class loaders, even after one is garbage collected.
+     * 
+     * @param classLoader
+     *            The class loader.
+     * @return The identifier of the class loader.
+     */
+    private synchronized long getClassLoaderId(ClassLoader classLoader) {
+        Long result = this.classLoaderIds.get(classLoader);
+
+        if (result == null) {
+            result = Long.valueOf(this.nextClassLoaderId++);
+            this.classLoaderIds.put(classLoader, result);
+        }
+
+        return result.longValue();
     }
 
     /**
@@ -89,14 +122,25 @@ public class ClapClientHelper extends LocalClientHelper {
             String path = request.getResourceRef().getPath();
             URL url = null;
             Date modificationDate = null;
+            File file = null;
+            ContentCache.Entry entry = null;
+            String key = null;
 
             // Prepare a classloader URI, removing the leading slash
             if ((path != null) && path.startsWith("/")) {
                 path = path.substring(1);
             }
 
+            // Look for a cached content, without resolving the resource
+            if ((getContentCache() != null) && (classLoader != null)) {
+                key = getClassLoaderId(classLoader) + "/" + path;
+                entry = getContentCache().get(key);
+            }
+
             // Get the URL to the classloader 'resource'
-            if (classLoader != null) {
+            if (entry != null) {
+                // Already cached
+            } else if (classLoader != null) {
                 // As the path may be percent-encoded, it has to be
                 // percent-decoded.
                 url = classLoader.getResource(Reference.decode(path));
@@ -111,7 +155,7 @@ public class ClapClientHelper extends LocalClientHelper {
             // of the CLAP client, so we have to ignore them.
             if (url != null) {
                 if (url.getProtocol().equals("file")) {
-                    File file = new File(url.getFile());
+                    file = new File(url.getFile());
                     modificationDate = new Date(file.lastModified());
 
                     if (file.isDirectory()) {
@@ -120,13 +164,43 @@ public class ClapClientHelper extends LocalClientHelper {
                 }
             }
 
-            if (url != null) {
+            if ((entry != null) || (url != null)) {
                 try {
-                    Representation output = new InputRepresentation(
-                            url.openStream(),
-                            metadataService.getDefaultMediaType());
+                    Representation output = null;
+
+                    if ((entry == null) && (key != null)) {
+                        // Try to cache the content of the resource
+                        URLConnection connection = url.openConnection();
+                        File source = file;
+
+                        if (connection instanceof JarURLConnection) {
+                            // Revalidate against the archive
+                            URL jarUrl = ((JarURLConnection) connection)
+                                    .getJarFileURL();
+
+                            if (jarUrl.getProtocol().equals("file")) {
+                                source = new File(jarUrl.getFile());
+                            }
+                        }
+
+                        entry = getContentCache().put(
+                                key,
+                                connection.getInputStream(),
+                                connection.getContentLength(),
+                                (modificationDate == null) ? 0
+                                        : modificationDate.getTime(), source);
+                    }
+
+                    if (entry != null) {
+                        output = new CachedRepresentation(entry,
+                                metadataService.getDefaultMediaType(), -1);
+                    } else {
+                        output = new InputRepresentation(url.openStream(),
+                                metadataService.getDefaultMediaType());
+                        output.setModificationDate(modificationDate);
+                    }
+
                     output.setLocationRef(request.getResourceRef());
-                    output.setModificationDate(modificationDate);
 
                     // Update the expiration date
                     long timeToLive = getTimeToLive();
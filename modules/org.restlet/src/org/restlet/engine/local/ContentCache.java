@@ -0,0 +1,547 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+import org.restlet.data.Tag;
+
+/**
+ * Cache of the content of small static resources, weighted by their size in
+ * bytes. The least recently used entries are evicted so that the total size
+ * never exceeds the configured maximum.<br>
+ * <br>
+ * The content is held in heap or direct buffers, or in memory-mapped regions
+ * for files larger than a configurable threshold. The length, modification
+ * date and tag are computed once when the content is loaded. When the source
+ * file or archive is known, an entry is revalidated against its modification
+ * date and length once its time to live has expired.
+ * 
+ * @author Jerome Louvel
+ */
+public class ContentCache {
+
+    /**
+     * Cached content of a resource.
+     */
+    public static class Entry {
+
+        /** The time of the last check against the source file. */
+        private volatile long checkTime;
+
+        /** The content, never modified once cached. */
+        private final ByteBuffer content;
+
+        /** The modification date, 0 if unknown. */
+        private final long modificationDate;
+
+        /** The optional source file used for revalidation. */
+        private final File source;
+
+        /** The modification date of the source file when loaded. */
+        private final long sourceModificationDate;
+
+        /** The length of the source file when loaded. */
+        private final long sourceSize;
+
+        /** The tag computed from the content. */
+        private final Tag tag;
+
+        /**
+         * Constructor.
+         * 
+         * @param content
+         *            The content.
+         * @param modificationDate
+         *            The modification date, 0 if unknown.
+         * @param source
+         *            The optional source file used for revalidation.
+         * @param sourceModificationDate
+         *            The modification date of the source file when loaded.
+         * @param sourceSize
+         *            The length of the source file when loaded.
+         * @param checkTime
+         *            The time of the load.
+         */
+        private Entry(ByteBuffer content, long modificationDate, File source,
+                long sourceModificationDate, long sourceSize, long checkTime) {
+            this.content = content;
+            this.modificationDate = modificationDate;
+            this.source = source;
+            this.sourceModificationDate = sourceModificationDate;
+            this.sourceSize = sourceSize;
+            this.checkTime = checkTime;
+            this.tag = new Tag(Long.toHexString(checksum(this.content)) + "-"
+                    + Integer.toHexString(this.content.remaining()), false);
+        }
+
+        /**
+         * Returns a new view of the content, sharing the cached bytes and
+         * their backing array if any. The content must not be modified.
+         * 
+         * @return A new view of the content.
+         */
+        ByteBuffer getBuffer() {
+            return content.duplicate();
+        }
+
+        /**
+         * Returns a new read-only view of the content, sharing the cached
+         * bytes.
+         * 
+         * @return A new read-only view of the content.
+         */
+        public ByteBuffer getContent() {
+            return content.asReadOnlyBuffer();
+        }
+
+        /**
+         * Returns the modification date, 0 if unknown.
+         * 
+         * @return The modification date.
+         */
+        public long getModificationDate() {
+            return modificationDate;
+        }
+
+        /**
+         * Returns the size of the content.
+         * 
+         * @return The size of the content.
+         */
+        public int getSize() {
+            return content.remaining();
+        }
+
+        /**
+         * Returns the optional source file used for revalidation. It is either
+         * the file holding the content or the archive containing it.
+         * 
+         * @return The optional source file.
+         */
+        public File getSource() {
+            return source;
+        }
+
+        /**
+         * Returns the tag computed from the content.
+         * 
+         * @return The tag computed from the content.
+         */
+        public Tag getTag() {
+            return tag;
+        }
+
+        /**
+         * Indicates if the entry still matches its source file.
+         * 
+         * @return True if the entry still matches its source file.
+         */
+        private boolean isValid() {
+            if (this.source == null) {
+                return true;
+            }
+
+            return (this.source.lastModified() == this.sourceModificationDate)
+                    && (this.source.length() == this.sourceSize);
+        }
+    }
+
+    /**
+     * Computes the CRC-32 checksum of a buffer.
+     * 
+     * @param buffer
+     *            The buffer, whose position isn't modified.
+     * @return The checksum.
+     */
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+
+        if (buffer.hasArray()) {
+            crc.update(buffer.array(),
+                    buffer.arrayOffset() + buffer.position(),
+                    buffer.remaining());
+        } else {
+            ByteBuffer view = buffer.duplicate();
+            byte[] chunk = new byte[8192];
+
+            while (view.hasRemaining()) {
+                int length = Math.min(chunk.length, view.remaining());
+                view.get(chunk, 0, length);
+                crc.update(chunk, 0, length);
+            }
+        }
+
+        return crc.getValue();
+    }
+
+    /** The current total size of the cached content. */
+    private long currentSize;
+
+    /** Indicates if copies are held in direct buffers instead of the heap. */
+    private volatile boolean direct;
+
+    /** The cached entries, in access order. */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /** The size from which files are memory-mapped instead of copied. */
+    private volatile long mapThreshold;
+
+    /** The maximum size of a cached content. */
+    private final long maxEntrySize;
+
+    /** The maximum total size of the cached content. */
+    private final long maxSize;
+
+    /** The time during which an entry is trusted without check (in ms). */
+    private final long timeToLive;
+
+    /**
+     * Constructor. Contents are copied in heap buffers and never
+     * memory-mapped.
+     * 
+     * @param maxSize
+     *            The maximum total size of the cached content.
+     * @param maxEntrySize
+     *            The maximum size of a cached content.
+     * @param timeToLive
+     *            The time during which an entry is trusted without checking
+     *            its source file (in milliseconds).
+     */
+    public ContentCache(long maxSize, long maxEntrySize, long timeToLive) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        this.maxSize = maxSize;
+        this.maxEntrySize = Math.min(maxEntrySize, maxSize);
+        this.timeToLive = timeToLive;
+        this.currentSize = 0;
+        this.direct = false;
+        this.mapThreshold = Long.MAX_VALUE;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.currentSize = 0;
+    }
+
+    /**
+     * Returns the up-to-date cached content of a file, loading it if needed.
+     * Returns null if the file isn't a normal file or is too large.
+     * 
+     * @param file
+     *            The file.
+     * @return The cached content or null.
+     * @throws IOException
+     */
+    public Entry get(File file) throws IOException {
+        String key = file.getPath();
+        Entry result = get(key);
+
+        if (result == null) {
+            long size = file.length();
+
+            if (file.isFile() && (size <= getMaxEntrySize())) {
+                long modificationDate = file.lastModified();
+                FileInputStream fis = new FileInputStream(file);
+
+                try {
+                    FileChannel fc = fis.getChannel();
+                    ByteBuffer content;
+
+                    if (size >= getMapThreshold()) {
+                        content = fc.map(FileChannel.MapMode.READ_ONLY, 0,
+                                size);
+                    } else {
+                        content = allocate((int) size);
+
+                        while (content.hasRemaining()
+                                && (fc.read(content) != -1)) {
+                        }
+
+                        content.flip();
+                    }
+
+                    result = put(key, new Entry(content, modificationDate,
+                            file, modificationDate, size,
+                            System.currentTimeMillis()));
+                } finally {
+                    fis.close();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the up-to-date cached content for a key, or null if missing or
+     * outdated.
+     * 
+     * @param key
+     *            The key.
+     * @return The cached content or null.
+     */
+    public Entry get(String key) {
+        Entry result;
+
+        synchronized (this) {
+            result = this.entries.get(key);
+        }
+
+        if (result != null) {
+            long now = System.currentTimeMillis();
+
+            if ((now - result.checkTime) >= this.timeToLive) {
+                if (result.isValid()) {
+                    result.checkTime = now;
+                } else {
+                    remove(key, result);
+                    result = null;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Allocates a buffer for a copy of a content.
+     * 
+     * @param size
+     *            The size of the content.
+     * @return The new buffer.
+     */
+    private ByteBuffer allocate(int size) {
+        return isDirect() ? ByteBuffer.allocateDirect(size) : ByteBuffer
+                .allocate(size);
+    }
+
+    /**
+     * Returns the current total size of the cached content.
+     * 
+     * @return The current total size of the cached content.
+     */
+    public synchronized long getCurrentSize() {
+        return currentSize;
+    }
+
+    /**
+     * Returns the size from which files are memory-mapped instead of copied.
+     * 
+     * @return The size from which files are memory-mapped.
+     */
+    public long getMapThreshold() {
+        return mapThreshold;
+    }
+
+    /**
+     * Returns the maximum size of a cached content.
+     * 
+     * @return The maximum size of a cached content.
+     */
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Returns the maximum total size of the cached content.
+     * 
+     * @return The maximum total size of the cached content.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the time during which an entry is trusted without checking its
+     * source file (in milliseconds).
+     * 
+     * @return The time during which an entry is trusted.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Indicates if copies are held in direct buffers instead of the heap.
+     * 
+     * @return True if copies are held in direct buffers.
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Adds an entry, evicting the least recently used ones if needed.
+     * 
+     * @param key
+     *            The key.
+     * @param entry
+     *            The entry to add.
+     * @return The entry added.
+     */
+    private synchronized Entry put(String key, Entry entry) {
+        Entry previous = this.entries.remove(key);
+
+        if (previous != null) {
+            this.currentSize -= previous.getSize();
+        }
+
+        for (Iterator<Entry> iter = this.entries.values().iterator(); iter
+                .hasNext()
+                && ((this.currentSize + entry.getSize()) > getMaxSize());) {
+            this.currentSize -= iter.next().getSize();
+            iter.remove();
+        }
+
+        this.entries.put(key, entry);
+        this.currentSize += entry.getSize();
+        return entry;
+    }
+
+    /**
+     * Caches the content read from a stream, which is always closed. Returns
+     * null if the content is too large or shorter than expected.
+     * 
+     * @param key
+     *            The key.
+     * @param inputStream
+     *            The stream to read.
+     * @param size
+     *            The expected size of the content.
+     * @param modificationDate
+     *            The modification date, 0 if unknown.
+     * @param source
+     *            The optional source file used for revalidation, either the
+     *            file holding the content or the archive containing it.
+     * @return The cached content or null.
+     * @throws IOException
+     */
+    public Entry put(String key, InputStream inputStream, int size,
+            long modificationDate, File source) throws IOException {
+        Entry result = null;
+
+        // Capture the state of the source before reading the content
+        long sourceModificationDate = (source == null) ? 0 : source
+                .lastModified();
+        long sourceSize = (source == null) ? 0 : source.length();
+
+        try {
+            if ((size >= 0) && (size <= getMaxEntrySize())) {
+                byte[] content = new byte[size];
+                int offset = 0;
+                int read = 0;
+
+                while ((offset < size)
+                        && ((read = inputStream.read(content, offset, size
+                                - offset)) != -1)) {
+                    offset += read;
+                }
+
+                if (offset == size) {
+                    ByteBuffer buffer = ByteBuffer.wrap(content);
+
+                    if (isDirect()) {
+                        buffer = allocate(size).put(buffer);
+                        buffer.flip();
+                    }
+
+                    result = put(key, new Entry(buffer, modificationDate,
+                            source, sourceModificationDate, sourceSize,
+                            System.currentTimeMillis()));
+                }
+            }
+        } finally {
+            inputStream.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes an entry if it is still cached.
+     * 
+     * @param key
+     *            The key.
+     * @param entry
+     *            The entry to remove.
+     */
+    private synchronized void remove(String key, Entry entry) {
+        if (this.entries.get(key) == entry) {
+            this.entries.remove(key);
+            this.currentSize -= entry.getSize();
+        }
+    }
+
+    /**
+     * Indicates if copies are held in direct buffers instead of the heap.
+     * 
+     * @param direct
+     *            True if copies are held in direct buffers.
+     */
+    public void setDirect(boolean direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * Sets the size from which files are memory-mapped instead of copied.
+     * 
+     * @param mapThreshold
+     *            The size from which files are memory-mapped.
+     */
+    public void setMapThreshold(long mapThreshold) {
+        this.mapThreshold = mapThreshold;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     * 
+     * @return The number of cached entries.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+}
@@ -90,6 +90,22 @@ import org.restlet.representation.Variant;
  * <td>Indicates if a failed upload can be resumed. This will prevent the
  * deletion of the temporary file created.</td>
  * </tr>
+ * <tr>
+ * <td>metadataCacheSize</td>
+ * <td>int</td>
+ * <td>1024</td>
+ * <td>Maximum number of files and directories whose metadata (existence,
+ * type, modification date and child names) are cached. The value '0'
+ * disables the cache.</td>
+ * </tr>
+ * <tr>
+ * <td>metadataCacheTimeToLive</td>
+ * <td>long</td>
+ * <td>0</td>
+ * <td>Time during which cached metadata are trusted without polling the file
+ * system (in milliseconds). Once expired, the modification date of the file is
+ * polled to validate them. With the value '0', each access is validated.</td>
+ * </tr>
  * </table>
  * 
  * @author Jerome Louvel
@@ -97,6 +113,9 @@ import org.restlet.representation.Variant;
  */
 public class FileClientHelper extends EntityClientHelper {
 
+    /** The cache of file system metadata. */
+    private volatile FileMetadataCache metadataCache;
+
     /**
      * Constructor.
      * 
@@ -179,7 +198,55 @@ public class FileClientHelper extends EntityClientHelper {
         // Take care of the file separator.
         return new FileEntity(
                 new File(LocalReference.localizePath(decodedPath)),
-                getMetadataService());
+                getMetadataService(), getMetadataCache(), getContentCache());
+    }
+
+    /**
+     * Returns the cache of file system metadata, or null if disabled. It is
+     * created on the first call, based on the "metadataCacheSize" and
+     * "metadataCacheTimeToLive" parameters.
+     * 
+     * @return The cache of file system metadata.
+     */
+    public FileMetadataCache getMetadataCache() {
+        FileMetadataCache result = this.metadataCache;
+
+        if ((result == null) && (getMetadataCacheSize() > 0)) {
+            synchronized (this) {
+                result = this.metadataCache;
+
+                if (result == null) {
+                    result = new FileMetadataCache(getMetadataCacheSize(),
+                            getMetadataCacheTimeToLive());
+                    this.metadataCache = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of files and directories whose metadata are
+     * cached. Defaults to 1024, the value '0' disables the cache.
+     * 
+     * @return The maximum number of files and directories cached.
+     */
+    public int getMetadataCacheSize() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "metadataCacheSize",
+                Integer.toString(FileMetadataCache.DEFAULT_MAX_SIZE)));
+    }
+
+    /**
+     * Returns the time during which cached metadata are trusted without
+     * polling the file system (in milliseconds). Defaults to 0.
+     * 
+     * @return The time during which cached metadata are trusted.
+     */
+    public long getMetadataCacheTimeToLive() {
+        return Long.parseLong(getHelpedParameters().getFirstValue(
+                "metadataCacheTimeToLive", "0"));
     }
 
     /**
@@ -214,8 +281,10 @@ public class FileClientHelper extends EntityClientHelper {
             handleEntityGet(request, response, getEntity(decodedPath));
         } else if (Method.PUT.equals(request.getMethod())) {
             handleFilePut(request, response, decodedPath, new File(decodedPath));
+            invalidateMetadata();
         } else if (Method.DELETE.equals(request.getMethod())) {
             handleFileDelete(response, new File(decodedPath));
+            invalidateMetadata();
         } else {
             response.setStatus(Status.CLIENT_ERROR_METHOD_NOT_ALLOWED);
             response.getAllowedMethods().add(Method.GET);
@@ -663,6 +732,20 @@ public class FileClientHelper extends EntityClientHelper {
         }
     }
 
+    /**
+     * Invalidates the cached file system metadata and file contents, after a
+     * modification.
+     */
+    protected void invalidateMetadata() {
+        if (this.metadataCache != null) {
+            this.metadataCache.clear();
+        }
+
+        if (getContentCache() != null) {
+            getContentCache().clear();
+        }
+    }
+
     /**
      * Indicates if a failed upload can be resumed. This will prevent the
      * deletion of the temporary file created. Defaults to "false".
@@ -34,9 +34,13 @@
 package org.restlet.engine.local;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
 
+import org.restlet.Context;
+import org.restlet.data.Disposition;
 import org.restlet.data.MediaType;
 import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
@@ -50,6 +54,12 @@ public class FileEntity extends Entity {
     /** The underlying regular file. */
     private final File file;
 
+    /** The optional cache of file contents. */
+    private final ContentCache contentCache;
+
+    /** The optional cache of file system metadata. */
+    private final FileMetadataCache metadataCache;
+
     /**
      * Constructor.
      * 
@@ -59,12 +69,50 @@ public class FileEntity extends Entity {
      *            The metadata service to use.
      */
     public FileEntity(File file, MetadataService metadataService) {
+        this(file, metadataService, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            The underlying file.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param metadataCache
+     *            The optional cache of file system metadata.
+     */
+    public FileEntity(File file, MetadataService metadataService,
+            FileMetadataCache metadataCache) {
+        this(file, metadataService, metadataCache, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            The underlying file.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param metadataCache
+     *            The optional cache of file system metadata.
+     * @param contentCache
+     *            The optional cache of file contents.
+     */
+    public FileEntity(File file, MetadataService metadataService,
+            FileMetadataCache metadataCache, ContentCache contentCache) {
         super(metadataService);
         this.file = file;
+        this.metadataCache = metadataCache;
+        this.contentCache = contentCache;
     }
 
     @Override
     public boolean exists() {
+        if (getMetadataCache() != null) {
+            return getMetadataCache().get(getFile()).isExisting();
+        }
+
         // [ifndef gae] instruction
         return getFile().exists();
         // [ifdef gae] uncomment
@@ -80,7 +128,19 @@ public class FileEntity extends Entity {
     public List<Entity> getChildren() {
         List<Entity> result = null;
 
-        if (isDirectory()) {
+        if (getMetadataCache() != null) {
+            String[] names = getMetadataCache().getChildNames(getFile());
+
+            if (names != null) {
+                result = new ArrayList<Entity>(names.length);
+
+                for (String name : names) {
+                    result.add(new FileEntity(new File(getFile(), name),
+                            getMetadataService(), getMetadataCache(),
+                            getContentCache()));
+                }
+            }
+        } else if (isDirectory()) {
             result = new ArrayList<Entity>();
 
             // [ifdef gae] uncomment
@@ -98,6 +158,15 @@ public class FileEntity extends Entity {
         return result;
     }
 
+    /**
+     * Returns the optional cache of file contents.
+     * 
+     * @return The optional cache of file contents.
+     */
+    public ContentCache getContentCache() {
+        return contentCache;
+    }
+
     /**
      * Returns the underlying regular file.
      * 
@@ -107,6 +176,15 @@ public class FileEntity extends Entity {
         return file;
     }
 
+    /**
+     * Returns the optional cache of file system metadata.
+     * 
+     * @return The optional cache of file system metadata.
+     */
+    public FileMetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
     @Override
     public String getName() {
         return getFile().getName();
@@ -116,17 +194,46 @@ public class FileEntity extends Entity {
     public Entity getParent() {
         File parentFile = getFile().getParentFile();
         return (parentFile == null) ? null : new FileEntity(parentFile,
-                getMetadataService());
+                getMetadataService(), getMetadataCache(), getContentCache());
     }
 
     @Override
     public Representation getRepresentation(MediaType defaultMediaType,
             int timeToLive) {
-        return new FileRepresentation(getFile(), defaultMediaType, timeToLive);
+        if (getContentCache() != null) {
+            try {
+                ContentCache.Entry entry = getContentCache().get(getFile());
+
+                if (entry != null) {
+                    Representation result = new CachedRepresentation(entry,
+                            getFile(), defaultMediaType, timeToLive);
+                    Disposition disposition = new Disposition();
+                    disposition.setFilename(getName());
+                    result.setDisposition(disposition);
+                    return result;
+                }
+            } catch (IOException ioe) {
+                Context.getCurrentLogger().log(Level.FINE,
+                        "Unable to cache the content of " + getFile(), ioe);
+            }
+        }
+
+        Representation result = new FileRepresentation(getFile(),
+                defaultMediaType, timeToLive);
+
+        if (getMetadataCache() != null) {
+            result.setSize(getMetadataCache().get(getFile()).getSize());
+        }
+
+        return result;
     }
 
     @Override
     public boolean isDirectory() {
+        if (getMetadataCache() != null) {
+            return getMetadataCache().get(getFile()).isDirectory();
+        }
+
         // [ifndef gae] instruction
         return getFile().isDirectory();
         // [ifdef gae] uncomment
@@ -141,6 +248,10 @@ public class FileEntity extends Entity {
 
     @Override
     public boolean isNormal() {
+        if (getMetadataCache() != null) {
+            return getMetadataCache().get(getFile()).isNormal();
+        }
+
         // [ifndef gae] instruction
         return getFile().isFile();
         // [ifdef gae] uncomment
@@ -0,0 +1,298 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.local;
+
+import java.io.File;
+
+import org.restlet.engine.util.LruCache;
+
+/**
+ * Cache of file system metadata, keyed by file path. It holds the existence,
+ * type, size, modification date and child names of the files and directories
+ * accessed, so that serving static files doesn't cost several "stat" and
+ * "readdir" system calls per request. Variants aren't cached as they are
+ * inferred from the file names by the metadata service, without accessing the
+ * file system.<br>
+ * <br>
+ * Each entry is trusted during a configurable time to live. Once expired, it
+ * is revalidated by polling the modification date of the file, which is a
+ * single system call. As the modification date of a directory changes when
+ * children are added or removed, this also validates the cached child
+ * names.<br>
+ * <br>
+ * As file systems store modification dates with a limited precision, a change
+ * made just after an entry was read may not update the date. Entries read
+ * less than {@link #MODIFICATION_GRANULARITY} after the modification date are
+ * therefore never trusted and read again on each access.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileMetadataCache extends
+        LruCache<String, FileMetadataCache.Entry> {
+
+    /**
+     * Cached metadata of a file or directory.
+     */
+    public static class Entry {
+
+        /** The time of the last check against the file system. */
+        private volatile long checkTime;
+
+        /** The child names, if the file is a directory and they were listed. */
+        private volatile String[] childNames;
+
+        /** Indicates if the file is a directory. */
+        private final boolean directory;
+
+        /** Indicates if the file exists. */
+        private final boolean existing;
+
+        /** The modification date, 0 if the file doesn't exist. */
+        private final long lastModified;
+
+        /** Indicates if the file is a normal file. */
+        private final boolean normal;
+
+        /** The size of a normal file, 0 otherwise. */
+        private final long size;
+
+        /**
+         * Constructor.
+         * 
+         * @param file
+         *            The file to describe.
+         * @param lastModified
+         *            The modification date already polled.
+         * @param checkTime
+         *            The time of the check.
+         */
+        private Entry(File file, long lastModified, long checkTime) {
+            boolean directory = false;
+            boolean normal = false;
+            boolean existing = false;
+            long size = 0;
+
+            // [ifdef gae] uncomment
+            // try {
+            // [enddef]
+            directory = file.isDirectory();
+            normal = !directory && file.isFile();
+            existing = directory || normal || file.exists();
+            size = normal ? file.length() : 0;
+            // [ifdef gae] uncomment
+            // } catch (java.security.AccessControlException ace) {
+            // }
+            // [enddef]
+
+            this.checkTime = checkTime;
+            this.lastModified = lastModified;
+            this.directory = directory;
+            this.normal = normal;
+            this.existing = existing;
+            this.size = size;
+        }
+
+        /**
+         * Returns the child names of the given directory, listing them on the
+         * first call only.
+         * 
+         * @param file
+         *            The directory described by this entry.
+         * @return The child names or null if the file isn't a directory.
+         */
+        private String[] getChildNames(File file) {
+            String[] result = this.childNames;
+
+            if ((result == null) && this.directory) {
+                // [ifdef gae] uncomment
+                // try {
+                // [enddef]
+                result = file.list();
+                // [ifdef gae] uncomment
+                // } catch (java.security.AccessControlException ace) {
+                // }
+                // [enddef]
+                this.childNames = result;
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns the modification date, 0 if the file doesn't exist.
+         * 
+         * @return The modification date.
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Returns the size of a normal file, 0 otherwise.
+         * 
+         * @return The size of a normal file.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Indicates if the file is a directory.
+         * 
+         * @return True if the file is a directory.
+         */
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * Indicates if the file exists.
+         * 
+         * @return True if the file exists.
+         */
+        public boolean isExisting() {
+            return existing;
+        }
+
+        /**
+         * Indicates if the file is a normal file.
+         * 
+         * @return True if the file is a normal file.
+         */
+        public boolean isNormal() {
+            return normal;
+        }
+
+        /**
+         * Indicates if the file may have changed since the check without
+         * updating its modification date, because it was checked within the
+         * granularity of the modification dates.
+         * 
+         * @return True if the entry can't be validated by its modification
+         *         date.
+         */
+        private boolean isRacy() {
+            long age = this.checkTime - this.lastModified;
+            return (this.lastModified != 0) && (age < MODIFICATION_GRANULARITY);
+        }
+    }
+
+    /** The default maximum number of entries. */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /**
+     * The coarsest precision of the modification dates among the common file
+     * systems, 2 seconds on FAT (in ms).
+     */
+    public static final long MODIFICATION_GRANULARITY = 2000;
+
+    /** The time during which an entry is trusted without check (in ms). */
+    private final long timeToLive;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of entries.
+     * @param timeToLive
+     *            The time during which an entry is trusted without polling the
+     *            file system (in milliseconds). With 0, each access is
+     *            validated by polling the modification date.
+     */
+    public FileMetadataCache(int maxSize, long timeToLive) {
+        super(maxSize);
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the up-to-date metadata of the given file.
+     * 
+     * @param file
+     *            The file.
+     * @return The metadata of the file.
+     */
+    public Entry get(File file) {
+        String key = file.getPath();
+        long now = System.currentTimeMillis();
+        Entry result = get(key);
+
+        if ((result == null) || result.isRacy()
+                || ((now - result.checkTime) >= this.timeToLive)) {
+            // Poll the file system
+            long lastModified = 0;
+
+            // [ifdef gae] uncomment
+            // try {
+            // [enddef]
+            lastModified = file.lastModified();
+            // [ifdef gae] uncomment
+            // } catch (java.security.AccessControlException ace) {
+            // }
+            // [enddef]
+
+            if ((result != null) && !result.isRacy()
+                    && (result.lastModified == lastModified)) {
+                result.checkTime = now;
+            } else {
+                result = new Entry(file, lastModified, now);
+                put(key, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the child names of the given directory.
+     * 
+     * @param directory
+     *            The directory.
+     * @return The child names or null if the file isn't a directory.
+     */
+    public String[] getChildNames(File directory) {
+        return get(directory).getChildNames(directory);
+    }
+
+    /**
+     * Returns the time during which an entry is trusted without polling the
+     * file system (in milliseconds).
+     * 
+     * @return The time during which an entry is trusted.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+}
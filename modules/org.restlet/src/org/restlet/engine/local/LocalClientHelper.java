@@ -65,6 +65,42 @@ import org.restlet.engine.ClientHelper;
  * parent application), falls back on this default language. To indicate that no
  * default language should be set, "" can be used.</td>
  * </tr>
+ * <tr>
+ * <td>contentCacheSize</td>
+ * <td>long</td>
+ * <td>0</td>
+ * <td>Maximum total size in bytes of the cached content of static resources.
+ * The least recently used contents are evicted first. The value '0' disables
+ * the cache.</td>
+ * </tr>
+ * <tr>
+ * <td>contentCacheMaxEntrySize</td>
+ * <td>long</td>
+ * <td>1048576</td>
+ * <td>Maximum size in bytes of a cached content. Larger resources are always
+ * read from their source.</td>
+ * </tr>
+ * <tr>
+ * <td>contentCacheMapThreshold</td>
+ * <td>long</td>
+ * <td>65536</td>
+ * <td>Size in bytes from which cached files are memory-mapped instead of
+ * copied.</td>
+ * </tr>
+ * <tr>
+ * <td>contentCacheDirect</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if cached copies are held in direct buffers, outside of the
+ * heap.</td>
+ * </tr>
+ * <tr>
+ * <td>contentCacheTimeToLive</td>
+ * <td>long</td>
+ * <td>0</td>
+ * <td>Time during which a cached content is trusted without checking the
+ * modification date and length of its source file (in milliseconds).</td>
+ * </tr>
  * </table>
  * 
  * @see org.restlet.data.LocalReference
@@ -72,6 +108,10 @@ import org.restlet.engine.ClientHelper;
  * @author Thierry Boileau
  */
 public abstract class LocalClientHelper extends ClientHelper {
+
+    /** The cache of static resources content. */
+    private volatile ContentCache contentCache;
+
     /**
      * Constructor. Note that the common list of metadata associations based on
      * extensions is added, see the addCommonExtensions() method.
@@ -83,6 +123,49 @@ public abstract class LocalClientHelper extends ClientHelper {
         super(client);
     }
 
+    /**
+     * Returns the cache of static resources content, or null if disabled. It
+     * is created on the first call, based on the "contentCache*" parameters.
+     * 
+     * @return The cache of static resources content.
+     */
+    public ContentCache getContentCache() {
+        ContentCache result = this.contentCache;
+
+        if ((result == null) && (getContentCacheSize() > 0)) {
+            synchronized (this) {
+                result = this.contentCache;
+
+                if (result == null) {
+                    result = new ContentCache(getContentCacheSize(),
+                            Long.parseLong(getHelpedParameters().getFirstValue(
+                                    "contentCacheMaxEntrySize", "1048576")),
+                            Long.parseLong(getHelpedParameters().getFirstValue(
+                                    "contentCacheTimeToLive", "0")));
+                    result.setMapThreshold(Long.parseLong(getHelpedParameters()
+                            .getFirstValue("contentCacheMapThreshold",
+                                    "65536")));
+                    result.setDirect(Boolean.parseBoolean(getHelpedParameters()
+                            .getFirstValue("contentCacheDirect", "false")));
+                    this.contentCache = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum total size in bytes of the cached content of static
+     * resources. Defaults to 0, which disables the cache.
+     * 
+     * @return The maximum total size of the cached content.
+     */
+    public long getContentCacheSize() {
+        return Long.parseLong(getHelpedParameters().getFirstValue(
+                "contentCacheSize", "0"));
+    }
+
     /**
      * Returns the default language. When no metadata service is available
      * (simple client connector with no parent application), falls back on this
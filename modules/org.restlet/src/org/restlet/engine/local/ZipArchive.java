@@ -0,0 +1,215 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Open Zip archive shared between calls, with an index of its entries by name
+ * and of the descendants of its directories. The archive is closed once it has
+ * been evicted from its cache and it isn't read anymore.
+ * 
+ * @author Jerome Louvel
+ */
+public class ZipArchive {
+
+    /** The descendants of the directories already listed. */
+    private final Map<String, List<ZipEntry>> descendants;
+
+    /** The entries by name, in the order of the archive. */
+    private final Map<String, ZipEntry> entries;
+
+    /** Indicates if the archive was evicted from its cache. */
+    private boolean evicted;
+
+    /** The archive file. */
+    private final File file;
+
+    /** The modification date of the archive file when opened. */
+    private final long lastModified;
+
+    /** The length of the archive file when opened. */
+    private final long length;
+
+    /** The number of representations reading the archive. */
+    private int readers;
+
+    /** The open Zip file. */
+    private final ZipFile zipFile;
+
+    /**
+     * Constructor. Opens the archive and indexes its entries.
+     * 
+     * @param file
+     *            The archive file.
+     * @throws IOException
+     */
+    public ZipArchive(File file) throws IOException {
+        this.file = file;
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+        this.zipFile = new ZipFile(file);
+        this.entries = new LinkedHashMap<String, ZipEntry>();
+        this.descendants = new ConcurrentHashMap<String, List<ZipEntry>>();
+        this.evicted = false;
+        this.readers = 0;
+
+        for (Enumeration<? extends ZipEntry> iter = this.zipFile.entries(); iter
+                .hasMoreElements();) {
+            ZipEntry entry = iter.nextElement();
+            this.entries.put(entry.getName(), entry);
+        }
+    }
+
+    /**
+     * Registers a new reader of the archive, which must call
+     * {@link #release()} when done.
+     */
+    public synchronized void acquire() {
+        this.readers++;
+    }
+
+    /**
+     * Closes the archive if it was evicted and isn't read anymore.
+     */
+    private void closeIfUnused() {
+        if (this.evicted && (this.readers == 0)) {
+            try {
+                this.zipFile.close();
+            } catch (IOException e) {
+                // Nothing more can be done
+            }
+        }
+    }
+
+    /**
+     * Indicates that the archive was evicted from its cache. It is closed as
+     * soon as it isn't read anymore.
+     */
+    public synchronized void evict() {
+        this.evicted = true;
+        closeIfUnused();
+    }
+
+    /**
+     * Returns the entries whose name starts with the given directory name,
+     * excluding the directory itself.
+     * 
+     * @param directoryName
+     *            The directory name, ending with a slash or empty for the root.
+     * @return The descendant entries.
+     */
+    public List<ZipEntry> getDescendants(String directoryName) {
+        List<ZipEntry> result = this.descendants.get(directoryName);
+
+        if (result == null) {
+            result = new ArrayList<ZipEntry>();
+
+            for (ZipEntry entry : this.entries.values()) {
+                if (entry.getName().startsWith(directoryName)
+                        && (entry.getName().length() != directoryName
+                                .length())) {
+                    result.add(entry);
+                }
+            }
+
+            result = Collections.unmodifiableList(result);
+            this.descendants.put(directoryName, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the entry with the given name.
+     * 
+     * @param name
+     *            The entry name.
+     * @return The entry or null if not found.
+     */
+    public ZipEntry getEntry(String name) {
+        return this.entries.get(name);
+    }
+
+    /**
+     * Returns the archive file.
+     * 
+     * @return The archive file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the open Zip file.
+     * 
+     * @return The open Zip file.
+     */
+    public ZipFile getZipFile() {
+        return zipFile;
+    }
+
+    /**
+     * Indicates if the archive file wasn't modified since it was opened.
+     * 
+     * @return True if the archive file wasn't modified.
+     */
+    public boolean isValid() {
+        return (this.file.lastModified() == this.lastModified)
+                && (this.file.length() == this.length);
+    }
+
+    /**
+     * Unregisters a reader of the archive.
+     */
+    public synchronized void release() {
+        if (this.readers > 0) {
+            this.readers--;
+        }
+
+        closeIfUnused();
+    }
+
+}
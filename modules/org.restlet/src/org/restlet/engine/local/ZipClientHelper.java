@@ -41,6 +41,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -62,12 +65,34 @@ import org.restlet.service.MetadataService;
  * files.<br>
  * <br>
  * Handles GET, HEAD and PUT request on resources referenced as :
- * zip:file://<file path>
+ * zip:file://<file path><br>
+ * <br>
+ * The archives are kept open between calls, with an index of their entries,
+ * until they are modified or evicted by more recently used archives. Here is
+ * the list of parameters that are supported. They should be set in the
+ * Client's context before it is started:
+ * <table>
+ * <tr>
+ * <th>Parameter name</th>
+ * <th>Value type</th>
+ * <th>Default value</th>
+ * <th>Description</th>
+ * </tr>
+ * <tr>
+ * <td>archiveCacheSize</td>
+ * <td>int</td>
+ * <td>16</td>
+ * <td>Maximum number of archives kept open.</td>
+ * </tr>
+ * </table>
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
 public class ZipClientHelper extends LocalClientHelper {
 
+    /** The open archives by file path, in access order. */
+    private final Map<String, ZipArchive> archives;
+
     /**
      * Constructor.
      * 
@@ -78,6 +103,61 @@ public class ZipClientHelper extends LocalClientHelper {
         super(client);
         getProtocols().add(Protocol.ZIP);
         getProtocols().add(Protocol.JAR);
+        this.archives = new LinkedHashMap<String, ZipArchive>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the open archive for the given file. It is reused as long as the
+     * file isn't modified. The archive is acquired while the cache is locked,
+     * so that a concurrent eviction can't close it, and the caller must
+     * {@link ZipArchive#release()} it when done.
+     * 
+     * @param file
+     *            The Zip archive file.
+     * @return The open and acquired archive.
+     * @throws IOException
+     */
+    protected ZipArchive getArchive(File file) throws IOException {
+        String key = file.getAbsolutePath();
+
+        synchronized (this.archives) {
+            ZipArchive result = this.archives.get(key);
+
+            if ((result != null) && !result.isValid()) {
+                this.archives.remove(key);
+                result.evict();
+                result = null;
+            }
+
+            if (result == null) {
+                result = new ZipArchive(file);
+                this.archives.put(key, result);
+
+                for (Iterator<ZipArchive> iter = this.archives.values()
+                        .iterator(); iter.hasNext()
+                        && (this.archives.size() > getArchiveCacheSize());) {
+                    ZipArchive eldest = iter.next();
+
+                    if (eldest != result) {
+                        iter.remove();
+                        eldest.evict();
+                    }
+                }
+            }
+
+            result.acquire();
+            return result;
+        }
+    }
+
+    /**
+     * Returns the maximum number of archives kept open. Defaults to 16.
+     * 
+     * @return The maximum number of archives kept open.
+     */
+    public int getArchiveCacheSize() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "archiveCacheSize", "16"));
     }
 
     /**
@@ -114,6 +194,7 @@ public class ZipClientHelper extends LocalClientHelper {
                         getMetadataService());
             } else if (Method.PUT.equals(request.getMethod())) {
                 handlePut(request, response, file, entryName);
+                invalidate(file);
             } else {
                 response.setStatus(Status.CLIENT_ERROR_METHOD_NOT_ALLOWED);
                 response.getAllowedMethods().add(Method.GET);
@@ -146,54 +227,76 @@ public class ZipClientHelper extends LocalClientHelper {
         if (!file.exists()) {
             response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
         } else {
-            ZipFile zipFile;
+            ZipArchive archive;
 
             try {
-                zipFile = new ZipFile(file);
+                archive = getArchive(file);
             } catch (Exception e) {
                 response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
                 return;
             }
 
-            Entity entity = new ZipEntryEntity(zipFile, entryName,
-                    metadataService);
-            if (!entity.exists()) {
-                response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
-            } else {
-                final Representation output;
-
-                if (entity.isDirectory()) {
-                    // Return the directory listing
-                    final Collection<Entity> children = entity.getChildren();
-                    final ReferenceList rl = new ReferenceList(children.size());
-                    String fileUri = LocalReference.createFileReference(file)
-                            .toString();
-                    String scheme = request.getResourceRef().getScheme();
-                    String baseUri = scheme + ":" + fileUri + "!/";
-
-                    for (final Entity entry : children) {
-                        rl.add(baseUri + entry.getName());
-                    }
+            try {
+                handleGet(request, response, file, archive, entryName,
+                        metadataService);
+            } finally {
+                // The representation returned holds its own lease
+                archive.release();
+            }
+        }
+    }
+
+    /**
+     * Handles a GET call on an acquired archive.
+     * 
+     * @param request
+     *            The request to answer.
+     * @param response
+     *            The response to update.
+     * @param file
+     *            The Zip archive file.
+     * @param archive
+     *            The acquired archive.
+     * @param entryName
+     *            The Zip archive entry name.
+     * @param metadataService
+     *            The metadata service.
+     */
+    private void handleGet(Request request, Response response, File file,
+            ZipArchive archive, String entryName,
+            MetadataService metadataService) {
+        Entity entity = new ZipEntryEntity(archive, entryName, metadataService);
 
-                    output = rl.getTextRepresentation();
+        if (!entity.exists()) {
+            response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+        } else {
+            final Representation output;
 
-                    try {
-                        zipFile.close();
-                    } catch (IOException e) {
-                        // Do something ???
-                    }
-                } else {
-                    // Return the file content
-                    output = entity.getRepresentation(metadataService
-                            .getDefaultMediaType(), getTimeToLive());
-                    output.setLocationRef(request.getResourceRef());
-                    Entity.updateMetadata(entity.getName(), output, true,
-                            getMetadataService());
+            if (entity.isDirectory()) {
+                // Return the directory listing
+                final Collection<Entity> children = entity.getChildren();
+                final ReferenceList rl = new ReferenceList(children.size());
+                String fileUri = LocalReference.createFileReference(file)
+                        .toString();
+                String scheme = request.getResourceRef().getScheme();
+                String baseUri = scheme + ":" + fileUri + "!/";
+
+                for (final Entity entry : children) {
+                    rl.add(baseUri + entry.getName());
                 }
 
-                response.setStatus(Status.SUCCESS_OK);
-                response.setEntity(output);
+                output = rl.getTextRepresentation();
+            } else {
+                // Return the file content
+                output = entity.getRepresentation(metadataService
+                        .getDefaultMediaType(), getTimeToLive());
+                output.setLocationRef(request.getResourceRef());
+                Entity.updateMetadata(entity.getName(), output, true,
+                        getMetadataService());
             }
+
+            response.setStatus(Status.SUCCESS_OK);
+            response.setEntity(output);
         }
     }
 
@@ -227,6 +330,10 @@ public class ZipClientHelper extends LocalClientHelper {
         boolean canAppend = !zipExists;
         boolean isDirectory = entryName.endsWith("/");
         boolean wrongReplace = false;
+
+        // Close the shared archive before rewriting it
+        invalidate(file);
+
         try {
             if (zipExists) {
                 ZipFile zipFile = new ZipFile(file);
@@ -342,6 +449,38 @@ public class ZipClientHelper extends LocalClientHelper {
         }
     }
 
+    /**
+     * Evicts the open archive of the given file, if any. It is closed as soon
+     * as it isn't read anymore.
+     * 
+     * @param file
+     *            The Zip archive file.
+     */
+    protected void invalidate(File file) {
+        ZipArchive archive;
+
+        synchronized (this.archives) {
+            archive = this.archives.remove(file.getAbsolutePath());
+        }
+
+        if (archive != null) {
+            archive.evict();
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        synchronized (this.archives) {
+            for (ZipArchive archive : this.archives.values()) {
+                archive.evict();
+            }
+
+            this.archives.clear();
+        }
+
+        super.stop();
+    }
+
     /**
      * Writes an entity to a given ZIP output stream with a given ZIP entry
      * name.
@@ -50,6 +50,36 @@ import org.restlet.service.MetadataService;
  */
 public class ZipEntryEntity extends Entity {
 
+    /**
+     * Returns the entry of a shared archive with the given name, preferring a
+     * directory entry with the same name if any.
+     * 
+     * @param archive
+     *            The shared archive.
+     * @param entryName
+     *            The Zip entry name.
+     * @return The entry found or a new entry if not found.
+     */
+    private static ZipEntry getEntry(ZipArchive archive, String entryName) {
+        ZipEntry result = archive.getEntry(entryName);
+
+        if (result == null) {
+            result = new ZipEntry(entryName);
+        } else {
+            // Checking we don't have a directory
+            ZipEntry entryDir = archive.getEntry(entryName + "/");
+
+            if (entryDir != null) {
+                result = entryDir;
+            }
+        }
+
+        return result;
+    }
+
+    /** The optional shared archive. */
+    protected final ZipArchive archive;
+
     /** The Zip file. */
     protected final ZipFile zipFile;
 
@@ -69,6 +99,7 @@ public class ZipEntryEntity extends Entity {
     public ZipEntryEntity(ZipFile zipFile, String entryName,
             MetadataService metadataService) {
         super(metadataService);
+        this.archive = null;
         this.zipFile = zipFile;
         ZipEntry entry = zipFile.getEntry(entryName);
         if (entry == null)
@@ -83,6 +114,40 @@ public class ZipEntryEntity extends Entity {
         }
     }
 
+    /**
+     * Constructor based on a shared archive, whose indexes are used for the
+     * lookups.
+     * 
+     * @param archive
+     *            The shared archive.
+     * @param entryName
+     *            The Zip entry name.
+     * @param metadataService
+     *            The metadata service to use.
+     */
+    public ZipEntryEntity(ZipArchive archive, String entryName,
+            MetadataService metadataService) {
+        this(archive, getEntry(archive, entryName), metadataService);
+    }
+
+    /**
+     * Constructor based on a shared archive.
+     * 
+     * @param archive
+     *            The shared archive.
+     * @param entry
+     *            The Zip entry.
+     * @param metadataService
+     *            The metadata service to use.
+     */
+    public ZipEntryEntity(ZipArchive archive, ZipEntry entry,
+            MetadataService metadataService) {
+        super(metadataService);
+        this.archive = archive;
+        this.zipFile = archive.getZipFile();
+        this.entry = entry;
+    }
+
     /**
      * Constructor.
      * 
@@ -96,6 +161,7 @@ public class ZipEntryEntity extends Entity {
     public ZipEntryEntity(ZipFile zipFile, ZipEntry entry,
             MetadataService metadataService) {
         super(metadataService);
+        this.archive = null;
         this.zipFile = zipFile;
         this.entry = entry;
     }
@@ -113,7 +179,14 @@ public class ZipEntryEntity extends Entity {
     public List<Entity> getChildren() {
         List<Entity> result = null;
 
-        if (isDirectory()) {
+        if (isDirectory() && (this.archive != null)) {
+            result = new ArrayList<Entity>();
+
+            for (ZipEntry e : this.archive.getDescendants(entry.getName())) {
+                result.add(new ZipEntryEntity(this.archive, e,
+                        getMetadataService()));
+            }
+        } else if (isDirectory()) {
             result = new ArrayList<Entity>();
             Enumeration<? extends ZipEntry> entries = zipFile.entries();
             String n = entry.getName();
@@ -141,6 +214,12 @@ public class ZipEntryEntity extends Entity {
 
         String n = entry.getName();
         String pn = n.substring(0, n.lastIndexOf('/') + 1);
+
+        if (this.archive != null) {
+            return new ZipEntryEntity(this.archive, this.archive.getEntry(pn),
+                    getMetadataService());
+        }
+
         return new ZipEntryEntity(zipFile, zipFile.getEntry(pn),
                 getMetadataService());
     }
@@ -148,6 +227,11 @@ public class ZipEntryEntity extends Entity {
     @Override
     public Representation getRepresentation(MediaType defaultMediaType,
             int timeToLive) {
+        if (this.archive != null) {
+            return new ZipEntryRepresentation(defaultMediaType, this.archive,
+                    entry);
+        }
+
         return new ZipEntryRepresentation(defaultMediaType, zipFile, entry);
     }
 
@@ -55,6 +55,12 @@ import org.restlet.representation.StreamRepresentation;
  */
 public class ZipEntryRepresentation extends StreamRepresentation {
 
+    /** The optional shared archive. */
+    protected final ZipArchive archive;
+
+    /** Indicates if the representation was released. */
+    private boolean released;
+
     /** The Zip file. */
     protected final ZipFile zipFile;
 
@@ -73,7 +79,43 @@ public class ZipEntryRepresentation extends StreamRepresentation {
      */
     public ZipEntryRepresentation(MediaType mediaType, ZipFile zipFile,
             ZipEntry entry) {
+        this(mediaType, null, zipFile, entry);
+    }
+
+    /**
+     * Constructor. The shared archive is kept open until the representation
+     * is released. The caller must hold its own lease on the archive while
+     * calling this constructor.
+     * 
+     * @param mediaType
+     *            The entry media type.
+     * @param archive
+     *            The shared archive.
+     * @param entry
+     *            The Zip entry.
+     */
+    public ZipEntryRepresentation(MediaType mediaType, ZipArchive archive,
+            ZipEntry entry) {
+        this(mediaType, archive, archive.getZipFile(), entry);
+        archive.acquire();
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param mediaType
+     *            The entry media type.
+     * @param archive
+     *            The optional shared archive.
+     * @param zipFile
+     *            The parent Zip archive file.
+     * @param entry
+     *            The Zip entry.
+     */
+    private ZipEntryRepresentation(MediaType mediaType, ZipArchive archive,
+            ZipFile zipFile, ZipEntry entry) {
         super(mediaType);
+        this.archive = archive;
         this.zipFile = zipFile;
         this.entry = entry;
         Disposition disposition = new Disposition();
@@ -84,10 +126,17 @@ public class ZipEntryRepresentation extends StreamRepresentation {
     }
 
     @Override
-    public void release() {
-        try {
-            zipFile.close();
-        } catch (IOException e) {
+    public synchronized void release() {
+        if (archive != null) {
+            if (!released) {
+                released = true;
+                archive.release();
+            }
+        } else {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+            }
         }
     }
 
@@ -0,0 +1,294 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.resource;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.resource.ClientResource;
+import org.restlet.resource.Result;
+
+// [excludes gwt]
+/**
+ * Future result of an asynchronous call issued by a {@link ClientResource}.
+ * The future is completed only once, either with a result, a failure or a
+ * cancellation, and the optional {@link Result} callback is then invoked.
+ * Pending tasks such as scheduled retries or timeouts are cancelled as soon as
+ * the future is done.
+ * 
+ * @author Jerome Louvel
+ * 
+ * @param <T>
+ *            The class of the result object.
+ */
+public class ClientFuture<T> implements Future<T> {
+
+    /** The optional callback. */
+    private final Result<T> callback;
+
+    /** Indicates if the future was cancelled. */
+    private volatile boolean cancelled;
+
+    /** Indicates if the future is done. */
+    private final AtomicBoolean done;
+
+    /** The failure caught, if any. */
+    private volatile Throwable failure;
+
+    /** The latch released when the future is done. */
+    private final CountDownLatch latch;
+
+    /** The pending task, such as a scheduled retry. */
+    private volatile Future<?> pendingTask;
+
+    /** The result object. */
+    private volatile T result;
+
+    /** The timeout task. */
+    private volatile Future<?> timeoutTask;
+
+    /**
+     * Constructor.
+     * 
+     * @param callback
+     *            The optional callback.
+     */
+    public ClientFuture(Result<T> callback) {
+        this.callback = callback;
+        this.done = new AtomicBoolean(false);
+        this.latch = new CountDownLatch(1);
+    }
+
+    /**
+     * Cancels the call. Scheduled retries are cancelled and the response
+     * received later, if any, is ignored.
+     * 
+     * @param mayInterruptIfRunning
+     *            Ignored as the call isn't bound to a thread.
+     * @return True if the future was cancelled.
+     */
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean result = this.done.compareAndSet(false, true);
+
+        if (result) {
+            this.cancelled = true;
+            this.failure = new CancellationException("Call cancelled");
+            terminate();
+        }
+
+        return result;
+    }
+
+    /**
+     * Completes the future with the given result.
+     * 
+     * @param result
+     *            The result object.
+     * @return True if the future was completed by this call.
+     */
+    public boolean complete(T result) {
+        boolean completed = this.done.compareAndSet(false, true);
+
+        if (completed) {
+            this.result = result;
+            terminate();
+        }
+
+        return completed;
+    }
+
+    /**
+     * Completes the future with the given failure.
+     * 
+     * @param failure
+     *            The failure caught.
+     * @return True if the future was completed by this call.
+     */
+    public boolean fail(Throwable failure) {
+        boolean completed = this.done.compareAndSet(false, true);
+
+        if (completed) {
+            this.failure = failure;
+            terminate();
+        }
+
+        return completed;
+    }
+
+    /**
+     * Waits if necessary for the call to complete, and then retrieves its
+     * result.
+     * 
+     * @return The result object.
+     */
+    public T get() throws InterruptedException, ExecutionException {
+        this.latch.await();
+        return getResult();
+    }
+
+    /**
+     * Waits if necessary for at most the given time for the call to complete,
+     * and then retrieves its result, if available.
+     * 
+     * @param timeout
+     *            The maximum time to wait.
+     * @param unit
+     *            The time unit of the timeout argument.
+     * @return The result object.
+     */
+    public T get(long timeout, TimeUnit unit) throws InterruptedException,
+            ExecutionException, TimeoutException {
+        if (!this.latch.await(timeout, unit)) {
+            throw new TimeoutException("The call didn't complete within "
+                    + timeout + " " + unit);
+        }
+
+        return getResult();
+    }
+
+    /**
+     * Returns the failure caught, if any.
+     * 
+     * @return The failure caught.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the result or throws the failure caught.
+     * 
+     * @return The result object.
+     */
+    private T getResult() throws ExecutionException {
+        if (this.cancelled) {
+            throw (CancellationException) this.failure;
+        } else if (this.failure != null) {
+            throw new ExecutionException(this.failure);
+        }
+
+        return this.result;
+    }
+
+    /**
+     * Indicates if the call was cancelled.
+     * 
+     * @return True if the call was cancelled.
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Indicates if the call is done, either completed, failed or cancelled.
+     * 
+     * @return True if the call is done.
+     */
+    public boolean isDone() {
+        return this.done.get();
+    }
+
+    /**
+     * Sets the pending task, such as a scheduled retry. It is cancelled if the
+     * future is done in the meantime.
+     * 
+     * @param pendingTask
+     *            The pending task.
+     */
+    public void setPendingTask(Future<?> pendingTask) {
+        this.pendingTask = pendingTask;
+
+        if (isDone()) {
+            pendingTask.cancel(false);
+        }
+    }
+
+    /**
+     * Sets the timeout task. It is cancelled when the future is done.
+     * 
+     * @param timeoutTask
+     *            The timeout task.
+     */
+    public void setTimeoutTask(Future<?> timeoutTask) {
+        this.timeoutTask = timeoutTask;
+
+        if (isDone()) {
+            timeoutTask.cancel(false);
+        }
+    }
+
+    /**
+     * Cancels the pending tasks, invokes the callback and releases the waiting
+     * threads.
+     */
+    private void terminate() {
+        Future<?> task = this.pendingTask;
+
+        if (task != null) {
+            task.cancel(false);
+        }
+
+        task = this.timeoutTask;
+
+        if (task != null) {
+            task.cancel(false);
+        }
+
+        if (this.callback != null) {
+            try {
+                if (this.failure == null) {
+                    this.callback.onSuccess(this.result);
+                } else {
+                    this.callback.onFailure(this.failure);
+                }
+            } catch (Throwable t) {
+                Context.getCurrentLogger()
+                        .log(Level.WARNING,
+                                "Unexpected error or exception inside the user call back",
+                                t);
+            }
+        }
+
+        this.latch.countDown();
+    }
+
+}
@@ -38,10 +38,10 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import org.restlet.Request;
 import org.restlet.Response;
-import org.restlet.Uniform;
 import org.restlet.data.ClientInfo;
 import org.restlet.data.Form;
 import org.restlet.representation.Representation;
@@ -105,6 +105,29 @@ public class ClientInvocationHandler<T> implements InvocationHandler {
                 .getAnnotations(resourceInterface);
     }
 
+    /**
+     * Returns the class of the first type argument of a parameterized type,
+     * such as {@link Result} or {@link Future}.
+     * 
+     * @param genericType
+     *            The generic type.
+     * @return The class of the first type argument or null.
+     */
+    private Class<?> getActualType(Type genericType) {
+        Class<?> result = null;
+
+        if (genericType instanceof ParameterizedType) {
+            Type actualType = ((ParameterizedType) genericType)
+                    .getActualTypeArguments()[0];
+
+            if (actualType instanceof Class<?>) {
+                result = (Class<?>) actualType;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the annotations of the resource interface.
      * 
@@ -133,7 +156,7 @@ public class ClientInvocationHandler<T> implements InvocationHandler {
     /**
      * Effectively invokes a Java method on the given proxy object.
      */
-    @SuppressWarnings("rawtypes")
+    @SuppressWarnings({ "rawtypes", "unchecked" })
     public Object invoke(Object proxy, java.lang.reflect.Method javaMethod,
             Object[] args) throws Throwable {
         Object result = null;
@@ -150,7 +173,8 @@ public class ClientInvocationHandler<T> implements InvocationHandler {
 
             if (annotationInfo != null) {
                 Representation requestEntity = null;
-                boolean isSynchronous = true;
+                Result rCallback = null;
+                Class<?> actualType = null;
 
                 if ((args != null) && args.length > 0) {
                     // Checks if the user has defined its own
@@ -163,56 +187,12 @@ public class ClientInvocationHandler<T> implements InvocationHandler {
                         } else if (Result.class.isAssignableFrom(o.getClass())) {
                             // Asynchronous mode where a callback
                             // object is to be called.
-                            isSynchronous = false;
+                            rCallback = (Result) o;
 
                             // Get the kind of result expected.
-                            final Result rCallback = (Result) o;
                             Type[] genericParameterTypes = javaMethod
                                     .getGenericParameterTypes();
-                            Type genericParameterType = genericParameterTypes[i];
-                            ParameterizedType parameterizedType = (genericParameterType instanceof java.lang.reflect.ParameterizedType) ? (java.lang.reflect.ParameterizedType) genericParameterType
-                                    : null;
-                            final Class<?> actualType = (parameterizedType
-                                    .getActualTypeArguments()[0] instanceof Class<?>) ? (Class<?>) parameterizedType
-                                    .getActualTypeArguments()[0] : null;
-
-                            // Define the callback
-                            Uniform callback = new Uniform() {
-                                @SuppressWarnings("unchecked")
-                                public void handle(Request request,
-                                        Response response) {
-                                    if (response.getStatus().isError()) {
-                                        rCallback
-                                                .onFailure(new ResourceException(
-                                                        response.getStatus()));
-                                    } else {
-                                        if (actualType != null) {
-                                            Object result = null;
-                                            boolean serializationError = false;
-
-                                            try {
-                                                result = getClientResource()
-                                                        .toObject(
-                                                                response.getEntity(),
-                                                                actualType);
-                                            } catch (Exception e) {
-                                                serializationError = true;
-                                                rCallback
-                                                        .onFailure(new ResourceException(
-                                                                e));
-                                            }
-
-                                            if (!serializationError) {
-                                                rCallback.onSuccess(result);
-                                            }
-                                        } else {
-                                            rCallback.onSuccess(null);
-                                        }
-                                    }
-                                }
-                            };
-
-                            getClientResource().setOnResponse(callback);
+                            actualType = getActualType(genericParameterTypes[i]);
                         } else {
                             requestEntity = getClientResource()
                                     .toRepresentation(args[i], null);
@@ -220,6 +200,19 @@ public class ClientInvocationHandler<T> implements InvocationHandler {
                     }
                 }
 
+                // Asynchronous mode where a future object is to be returned.
+                boolean isFuture = Future.class.equals(javaMethod
+                        .getReturnType());
+
+                if (isFuture && (rCallback == null)) {
+                    actualType = getActualType(javaMethod
+                            .getGenericReturnType());
+                }
+
+                if (Void.class.equals(actualType)) {
+                    actualType = null;
+                }
+
                 // Clone the prototype request
                 Request request = getRequest(javaMethod, args);
 
@@ -255,11 +248,21 @@ public class ClientInvocationHandler<T> implements InvocationHandler {
                     }
                 }
 
-                // Effectively handle the call
-                Response response = getClientResource().handleOutbound(request);
+                if (isFuture || (rCallback != null)) {
+                    // Effectively handle the call without blocking
+                    ClientFuture future = new ClientFuture(rCallback);
+                    getClientResource().handleAsync(request, actualType,
+                            future);
+
+                    if (isFuture) {
+                        result = future;
+                    }
+                } else {
+                    // Effectively handle the call
+                    Response response = getClientResource().handleOutbound(
+                            request);
 
-                // Handle the response
-                if (isSynchronous) {
+                    // Handle the response
                     if (response.getStatus().isError()) {
                         getClientResource().doError(response.getStatus());
                     }
@@ -0,0 +1,511 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Digest;
+import org.restlet.data.Method;
+import org.restlet.data.MediaType;
+import org.restlet.data.Tag;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.NioUtils;
+import org.restlet.engine.util.LruCache;
+import org.restlet.representation.Representation;
+import org.restlet.representation.RepresentationInfo;
+import org.restlet.resource.ServerResource;
+import org.restlet.util.WrapperRepresentation;
+
+// [excludes gwt]
+/**
+ * Tag strategy creating strong tags from a hash of the content. The hash is
+ * computed in a streaming pass, while the representation is written or read
+ * by the connector, so the content is never read twice. As the response
+ * headers are already sent at this point, the tag computed is remembered and
+ * used for the next requests on the same resource.<br>
+ * <br>
+ * A remembered tag is only reused to tag a returned representation when it
+ * can be validated: either the representation has a modification date equal
+ * to the one of the tagged representation, or a time to live is set and
+ * hasn't expired. Otherwise, the digest is computed again. The conditional
+ * requests are only evaluated before invoking the resource when a time to
+ * live is set, as the content can't be validated at this point. A remembered
+ * tag is also discarded when a non-safe method succeeds on the resource. For
+ * negotiated resources, the tags are remembered separately for each set of
+ * client preferences.<br>
+ * <br>
+ * Concurrency note: instances of this class can be shared by several
+ * resources at the same time.
+ * 
+ * @author Jerome Louvel
+ */
+public class DigestTagStrategy extends TagStrategy {
+
+    /**
+     * Tag remembered for a resource.
+     */
+    private static class Entry {
+
+        /** The time when the tag was remembered. */
+        private final long checkTime;
+
+        /** The modification date of the tagged representation. */
+        private final Date modificationDate;
+
+        /** The tag. */
+        private final Tag tag;
+
+        /**
+         * Constructor.
+         * 
+         * @param tag
+         *            The tag.
+         * @param modificationDate
+         *            The modification date of the tagged representation.
+         */
+        public Entry(Tag tag, Date modificationDate) {
+            this.checkTime = System.currentTimeMillis();
+            this.modificationDate = modificationDate;
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Representation computing the digest of the wrapped content while it is
+     * written or read, then remembering the resulting tag.
+     */
+    private class TaggingRepresentation extends WrapperRepresentation {
+
+        /** The digest being computed. */
+        private final MessageDigest digest;
+
+        /** The resource key. */
+        private final String key;
+
+        /** The variant key. */
+        private final String variantKey;
+
+        /** Indicates if the tag was already remembered. */
+        private volatile boolean remembered;
+
+        /**
+         * Constructor.
+         * 
+         * @param representation
+         *            The wrapped representation.
+         * @param key
+         *            The resource key.
+         * @param variantKey
+         *            The variant key.
+         * @throws NoSuchAlgorithmException
+         */
+        public TaggingRepresentation(Representation representation,
+                String key, String variantKey) throws NoSuchAlgorithmException {
+            super(representation);
+            this.digest = MessageDigest.getInstance(getAlgorithm());
+            this.key = key;
+            this.variantKey = variantKey;
+            this.remembered = false;
+        }
+
+        /**
+         * Remembers the tag of the content entirely digested.
+         */
+        private void digested() {
+            if (!this.remembered) {
+                this.remembered = true;
+                Tag tag = new Tag(BioUtils.toHexString(this.digest.digest()),
+                        false);
+
+                if ((getModificationDate() != null) || (getTimeToLive() > 0L)) {
+                    remember(this.key, this.variantKey, tag,
+                            getModificationDate());
+                }
+            }
+        }
+
+        @Override
+        public ReadableByteChannel getChannel() throws IOException {
+            return NioUtils.getChannel(getStream());
+        }
+
+        @Override
+        public Reader getReader() throws IOException {
+            return BioUtils.getReader(getStream(), getCharacterSet());
+        }
+
+        @Override
+        public InputStream getStream() throws IOException {
+            return new DigestInputStream(getWrappedRepresentation()
+                    .getStream(), this.digest) {
+                @Override
+                public int read() throws IOException {
+                    int result = super.read();
+
+                    if (result == -1) {
+                        digested();
+                    }
+
+                    return result;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len)
+                        throws IOException {
+                    int result = super.read(b, off, len);
+
+                    if (result == -1) {
+                        digested();
+                    }
+
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        public String getText() throws IOException {
+            String result = null;
+
+            if (isEmpty()) {
+                result = "";
+            } else if (isAvailable()) {
+                result = BioUtils.toString(getStream(), getCharacterSet());
+            }
+
+            return result;
+        }
+
+        @Override
+        public void write(OutputStream outputStream) throws IOException {
+            OutputStream dos = new DigestOutputStream(outputStream,
+                    this.digest);
+            getWrappedRepresentation().write(dos);
+            dos.flush();
+            digested();
+        }
+
+        @Override
+        public void write(WritableByteChannel writableChannel)
+                throws IOException {
+            OutputStream os = NioUtils.getStream(writableChannel);
+            write(os);
+            os.flush();
+        }
+
+        @Override
+        public void write(Writer writer) throws IOException {
+            BioUtils.copy(getReader(), writer);
+        }
+    }
+
+    /** The default maximum number of tags remembered. */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /** The digest algorithm. */
+    private final String algorithm;
+
+    /** The remembered tags, per resource and per variant. */
+    private final LruCache<String, ConcurrentMap<String, Entry>> entries;
+
+    /** The time to live of the remembered tags in milliseconds. */
+    private volatile long timeToLive;
+
+    /**
+     * Constructor. Relies on the {@link Digest#ALGORITHM_MD5} algorithm and
+     * remembers up to {@link #DEFAULT_MAX_SIZE} tags.
+     */
+    public DigestTagStrategy() {
+        this(Digest.ALGORITHM_MD5, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param algorithm
+     *            The digest algorithm.
+     * @param maxSize
+     *            The maximum number of tags remembered.
+     */
+    public DigestTagStrategy(String algorithm, int maxSize) {
+        this.algorithm = algorithm;
+        this.entries = new LruCache<String, ConcurrentMap<String, Entry>>(
+                maxSize);
+        this.timeToLive = 0L;
+    }
+
+    /**
+     * Forgets all the remembered tags.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Returns the digest algorithm.
+     * 
+     * @return The digest algorithm.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the remembered entry of the given resource variant, if it is
+     * still valid.
+     * 
+     * @param key
+     *            The resource key.
+     * @param variantKey
+     *            The variant key.
+     * @return The remembered entry or null.
+     */
+    private Entry getEntry(String key, String variantKey) {
+        Map<String, Entry> variants = this.entries.get(key);
+        Entry result = (variants == null) ? null : variants.get(variantKey);
+
+        if ((result != null) && (getTimeToLive() > 0L)) {
+            long age = System.currentTimeMillis() - result.checkTime;
+
+            if (age >= getTimeToLive()) {
+                variants.remove(variantKey);
+                result = null;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the remembered tag if a time to live is set and hasn't expired.
+     * Otherwise, the content can't be validated without invoking the resource
+     * and null is returned.
+     */
+    @Override
+    public RepresentationInfo getInfo(ServerResource resource) {
+        RepresentationInfo result = null;
+        Entry entry = (getTimeToLive() > 0L) ? getEntry(getKey(resource),
+                getVariantKey(resource)) : null;
+
+        if (entry != null) {
+            result = new RepresentationInfo((MediaType) null,
+                    entry.modificationDate, entry.tag);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the key identifying the given resource. By default, it returns
+     * the target URI, including the query.
+     * 
+     * @param resource
+     *            The resource.
+     * @return The resource key.
+     */
+    protected String getKey(ServerResource resource) {
+        return resource.getReference().getTargetRef().toString(true, false);
+    }
+
+    /**
+     * Returns the number of resources with remembered tags.
+     * 
+     * @return The number of resources with remembered tags.
+     */
+    public int getSize() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the remembered tag if the given representation has the same
+     * modification date as the tagged one, or if it has no modification date
+     * and a time to live is set and hasn't expired.
+     */
+    @Override
+    public Tag getTag(ServerResource resource, Representation representation) {
+        Tag result = null;
+        Entry entry = getEntry(getKey(resource), getVariantKey(resource));
+
+        if (entry != null) {
+            Date modificationDate = representation.getModificationDate();
+
+            if (modificationDate == null) {
+                if ((entry.modificationDate == null)
+                        && (getTimeToLive() > 0L)) {
+                    result = entry.tag;
+                }
+            } else if (modificationDate.equals(entry.modificationDate)) {
+                result = entry.tag;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the time to live of the remembered tags in milliseconds. A zero
+     * value indicates that tags are kept until the representation
+     * modification date changes or a non-safe method succeeds, but that they
+     * are only reused for representations having a modification date.
+     * 
+     * @return The time to live of the remembered tags in milliseconds.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Returns the key identifying the variant of the given resource that is
+     * returned. By default, it returns the client preferences for negotiated
+     * resources and an empty string otherwise.
+     * 
+     * @param resource
+     *            The resource.
+     * @return The variant key.
+     */
+    protected String getVariantKey(ServerResource resource) {
+        String result = "";
+
+        if (resource.isNegotiated()) {
+            ClientInfo clientInfo = resource.getClientInfo();
+            result = clientInfo.getAcceptedMediaTypes() + " "
+                    + clientInfo.getAcceptedLanguages() + " "
+                    + clientInfo.getAcceptedCharacterSets() + " "
+                    + clientInfo.getAcceptedEncodings();
+        }
+
+        return result;
+    }
+
+    /**
+     * Remembers the tag of a resource variant.
+     * 
+     * @param key
+     *            The resource key.
+     * @param variantKey
+     *            The variant key.
+     * @param tag
+     *            The tag.
+     * @param modificationDate
+     *            The modification date of the tagged representation.
+     */
+    private void remember(String key, String variantKey, Tag tag,
+            Date modificationDate) {
+        ConcurrentMap<String, Entry> variants = this.entries.get(key);
+
+        if (variants == null) {
+            variants = new ConcurrentHashMap<String, Entry>();
+            this.entries.put(key, variants);
+        }
+
+        variants.put(variantKey, new Entry(tag, modificationDate));
+    }
+
+    /**
+     * Sets the time to live of the remembered tags in milliseconds.
+     * 
+     * @param timeToLive
+     *            The time to live of the remembered tags in milliseconds.
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public Representation update(ServerResource resource,
+            Representation representation) {
+        Representation result = representation;
+        String key = getKey(resource);
+        String variantKey = getVariantKey(resource);
+
+        if (!resource.getMethod().isSafe()) {
+            if ((resource.getStatus() == null)
+                    || resource.getStatus().isSuccess()) {
+                // The state of the resource has probably changed, for all
+                // its variants
+                this.entries.remove(key);
+            }
+        } else if ((representation != null)
+                && !(representation instanceof TaggingRepresentation)
+                && (Method.GET.equals(resource.getMethod()) || Method.HEAD
+                        .equals(resource.getMethod()))) {
+            Tag tag = representation.getTag();
+
+            if (tag != null) {
+                // Remember the tag supplied by the resource
+                Entry entry = getEntry(key, variantKey);
+
+                if ((entry == null) || !tag.equals(entry.tag)) {
+                    remember(key, variantKey, tag,
+                            representation.getModificationDate());
+                }
+            } else if (representation.isAvailable()) {
+                tag = getTag(resource, representation);
+
+                if (tag != null) {
+                    representation.setTag(tag);
+                } else if (Method.GET.equals(resource.getMethod())) {
+                    try {
+                        result = new TaggingRepresentation(representation,
+                                key, variantKey);
+                    } catch (NoSuchAlgorithmException e) {
+                        Context.getCurrentLogger().log(Level.WARNING,
+                                "Unable to compute the tag of the entity", e);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+}
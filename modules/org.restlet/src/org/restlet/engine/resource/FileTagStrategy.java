@@ -0,0 +1,141 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.resource;
+
+import java.io.File;
+import java.util.Date;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Tag;
+import org.restlet.engine.local.CachedRepresentation;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.RepresentationInfo;
+import org.restlet.resource.ServerResource;
+
+// [excludes gwt]
+/**
+ * Tag strategy creating weak tags from the modification time and the size of
+ * files. The pre-invocation descriptor only requires a file system metadata
+ * lookup. Resources not backed by a single file can override the
+ * {@link #getFile(ServerResource)} method in order to map their state to a
+ * file. Returned representations are tagged from their file if they are file
+ * based, from the file backing the resource otherwise, or as a last resort from
+ * their declared modification date and size.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileTagStrategy extends TagStrategy {
+
+    /** The file backing the resource. */
+    private final File file;
+
+    /**
+     * Constructor. The {@link #getFile(ServerResource)} method should be
+     * overridden.
+     */
+    public FileTagStrategy() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            The file backing the resource.
+     */
+    public FileTagStrategy(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the file backing the given resource. By default, it returns the
+     * file given to the constructor.
+     * 
+     * @param resource
+     *            The resource.
+     * @return The file backing the given resource or null.
+     */
+    protected File getFile(ServerResource resource) {
+        return this.file;
+    }
+
+    @Override
+    public RepresentationInfo getInfo(ServerResource resource) {
+        RepresentationInfo result = null;
+        File target = getFile(resource);
+
+        if (target != null) {
+            long lastModified = target.lastModified();
+
+            // A zero value indicates a missing or unreadable file
+            if (lastModified != 0L) {
+                Date modificationDate = new Date(lastModified);
+                result = new RepresentationInfo((MediaType) null,
+                        modificationDate, createWeakTag(modificationDate,
+                                target.length()));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Tag getTag(ServerResource resource, Representation representation) {
+        Tag result = null;
+        File target = null;
+
+        if (representation instanceof FileRepresentation) {
+            target = ((FileRepresentation) representation).getFile();
+        } else if (representation instanceof CachedRepresentation) {
+            target = ((CachedRepresentation) representation).getFile();
+        }
+
+        if (target == null) {
+            target = getFile(resource);
+        }
+
+        if (target != null) {
+            result = createWeakTag(new Date(target.lastModified()),
+                    target.length());
+        } else {
+            result = createWeakTag(representation.getModificationDate(),
+                    representation.getSize());
+        }
+
+        return result;
+    }
+
+}
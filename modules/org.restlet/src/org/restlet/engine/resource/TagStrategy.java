@@ -0,0 +1,138 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.resource;
+
+import java.util.Date;
+
+import org.restlet.data.Tag;
+import org.restlet.representation.Representation;
+import org.restlet.representation.RepresentationInfo;
+import org.restlet.resource.ServerResource;
+
+// [excludes gwt]
+/**
+ * Strategy computing the entity tags of the representations returned by a
+ * server resource. It has two complementary roles. First, it can describe the
+ * current state of a resource from cheap metadata, before the resource is
+ * invoked, so that conditional requests can be answered with a 304 (Not
+ * modified) or 412 (Precondition failed) status without building any
+ * representation. Second, it can complete the representations that are
+ * effectively returned with an entity tag.
+ * 
+ * @see ServerResource#setTagStrategy(TagStrategy)
+ * @author Jerome Louvel
+ */
+public abstract class TagStrategy {
+
+    /**
+     * Creates a weak tag based on a modification time and a size. Such tags are
+     * cheap to compute but only indicate a semantic equivalence of the
+     * representations.
+     * 
+     * @param modificationDate
+     *            The modification date.
+     * @param size
+     *            The size in bytes.
+     * @return The weak tag or null if the date or the size are unknown.
+     */
+    public static Tag createWeakTag(Date modificationDate, long size) {
+        Tag result = null;
+
+        if ((modificationDate != null)
+                && (size != Representation.UNKNOWN_SIZE)) {
+            result = new Tag(Long.toHexString(modificationDate.getTime()) + "-"
+                    + Long.toHexString(size), true);
+        }
+
+        return result;
+    }
+
+    /**
+     * Constructor.
+     */
+    public TagStrategy() {
+        super();
+    }
+
+    /**
+     * Returns a descriptor of the current state of the resource, computed from
+     * cheap metadata and without building any representation. It is used to
+     * evaluate the request conditions before invoking the resource. By
+     * default, it returns null.
+     * 
+     * @param resource
+     *            The resource to describe.
+     * @return The resource state descriptor or null if it isn't available
+     *         without invoking the resource.
+     */
+    public RepresentationInfo getInfo(ServerResource resource) {
+        return null;
+    }
+
+    /**
+     * Returns the tag of a representation returned by the resource. By
+     * default, it returns null.
+     * 
+     * @param resource
+     *            The parent resource.
+     * @param representation
+     *            The representation to tag.
+     * @return The tag or null if it can't be computed.
+     */
+    public Tag getTag(ServerResource resource, Representation representation) {
+        return null;
+    }
+
+    /**
+     * Updates the result of a resource invocation. By default, if the
+     * representation has no tag yet, the one returned by
+     * {@link #getTag(ServerResource, Representation)} is set.
+     * 
+     * @param resource
+     *            The parent resource.
+     * @param representation
+     *            The representation returned by the resource or null.
+     * @return The updated representation, usually the same instance.
+     */
+    public Representation update(ServerResource resource,
+            Representation representation) {
+        if ((representation != null) && (representation.getTag() == null)) {
+            representation.setTag(getTag(resource, representation));
+        }
+
+        return representation;
+    }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.resource;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Tag;
+import org.restlet.representation.Representation;
+import org.restlet.representation.RepresentationInfo;
+import org.restlet.resource.ServerResource;
+
+// [excludes gwt]
+/**
+ * Tag strategy relying on a version supplied by the application, such as a
+ * revision number or an update counter maintained by the domain layer. As the
+ * version is usually available without loading the state of the resource,
+ * conditional requests are fully evaluated before invoking the resource.
+ * 
+ * @author Jerome Louvel
+ */
+public abstract class VersionTagStrategy extends TagStrategy {
+
+    /** Indicates if the tags created are weak. */
+    private final boolean weak;
+
+    /**
+     * Constructor creating strong tags.
+     */
+    public VersionTagStrategy() {
+        this(false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param weak
+     *            Indicates if the tags created are weak.
+     */
+    public VersionTagStrategy(boolean weak) {
+        this.weak = weak;
+    }
+
+    @Override
+    public RepresentationInfo getInfo(ServerResource resource) {
+        RepresentationInfo result = null;
+        Tag tag = getTag(resource, null);
+
+        if (tag != null) {
+            result = new RepresentationInfo((MediaType) null, tag);
+        }
+
+        return result;
+    }
+
+    @Override
+    public Tag getTag(ServerResource resource, Representation representation) {
+        Object version = getVersion(resource);
+        return (version == null) ? null : new Tag(version.toString(),
+                isWeak());
+    }
+
+    /**
+     * Returns the current version of the given resource.
+     * 
+     * @param resource
+     *            The resource.
+     * @return The current version or null if the resource doesn't exist.
+     */
+    protected abstract Object getVersion(ServerResource resource);
+
+    /**
+     * Indicates if the tags created are weak.
+     * 
+     * @return True if the tags created are weak.
+     */
+    public boolean isWeak() {
+        return weak;
+    }
+
+}
@@ -0,0 +1,424 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.util;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+import org.restlet.Context;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Parameter;
+import org.restlet.util.Series;
+
+/**
+ * Single-pass decoder of URL encoded parameters. Contrary to
+ * {@link FormReader}, the parameters are directly read from a byte or a
+ * character buffer, percent-decoded and added to the target series without
+ * going through intermediary streams and string copies. Names and values made
+ * of ASCII characters only and without any escaped octet are directly
+ * converted.
+ * 
+ * @author Jerome Louvel
+ */
+public class FormDecoder {
+
+    /**
+     * Returns the value of an hexadecimal digit or -1 if the character isn't
+     * a valid digit.
+     * 
+     * @param character
+     *            The character to convert.
+     * @return The digit value or -1.
+     */
+    private static int digit(int character) {
+        if ((character >= '0') && (character <= '9')) {
+            return character - '0';
+        } else if ((character >= 'a') && (character <= 'f')) {
+            return character - 'a' + 10;
+        } else if ((character >= 'A') && (character <= 'F')) {
+            return character - 'A' + 10;
+        }
+
+        return -1;
+    }
+
+    /** The character set used to decode escaped octets. */
+    private final Charset charset;
+
+    /** Indicates if the parameters should be decoded. */
+    private final boolean decode;
+
+    /** Scratch buffer used to accumulate decoded octets. */
+    private byte[] octets;
+
+    /** The separator character used between parameters. */
+    private final char separator;
+
+    /**
+     * Constructor.
+     * 
+     * @param characterSet
+     *            The supported character encoding. Set to null to leave the
+     *            data encoded.
+     * @param separator
+     *            The separator character used between parameters.
+     * @param decode
+     *            Indicates if the parameters should be decoded using the given
+     *            character set.
+     * @throws IOException
+     *             If the character set isn't supported.
+     */
+    public FormDecoder(CharacterSet characterSet, char separator,
+            boolean decode) throws IOException {
+        this.decode = decode && (characterSet != null);
+        this.separator = separator;
+
+        if (this.decode) {
+            try {
+                this.charset = Charset.forName(characterSet.getName());
+            } catch (IllegalCharsetNameException icne) {
+                throw new IOException(
+                        "Unsupported encoding. Please contact the administrator");
+            } catch (UnsupportedCharsetException uce) {
+                throw new IOException(
+                        "Unsupported encoding. Please contact the administrator");
+            }
+        } else {
+            this.charset = null;
+        }
+    }
+
+    /**
+     * Parses the parameters contained in a byte buffer and adds them to the
+     * given series.
+     * 
+     * @param buffer
+     *            The source buffer.
+     * @param offset
+     *            The index of the first byte to read.
+     * @param length
+     *            The number of bytes to read.
+     * @param parameters
+     *            The target parameter series.
+     * @throws IOException
+     *             If an empty parameter name is followed by a value.
+     */
+    public void addParameters(byte[] buffer, int offset, int length,
+            Series<Parameter> parameters) throws IOException {
+        int end = offset + length;
+        int start = offset;
+        int equalIndex = -1;
+
+        for (int i = offset; i <= end; i++) {
+            int b = (i < end) ? (buffer[i] & 0xFF) : -1;
+
+            if ((b == '=') && (equalIndex == -1)) {
+                if (i == start) {
+                    throw new IOException(
+                            "Empty parameter name detected. Please check your form data");
+                }
+
+                equalIndex = i;
+            } else if ((b == this.separator) || (b == -1)) {
+                if (equalIndex != -1) {
+                    parameters.add(new Parameter(decode(buffer, start,
+                            equalIndex), decode(buffer, equalIndex + 1, i)));
+                } else if (i > start) {
+                    parameters.add(new Parameter(decode(buffer, start, i),
+                            null));
+                } else if (b != -1) {
+                    Context.getCurrentLogger()
+                            .fine("Empty parameter name detected. Please check your form data");
+                }
+
+                start = i + 1;
+                equalIndex = -1;
+            }
+        }
+    }
+
+    /**
+     * Parses the parameters contained in a character sequence and adds them to
+     * the given series.
+     * 
+     * @param parametersString
+     *            The parameters string.
+     * @param parameters
+     *            The target parameter series.
+     * @throws IOException
+     *             If an empty parameter name is followed by a value.
+     */
+    public void addParameters(CharSequence parametersString,
+            Series<Parameter> parameters) throws IOException {
+        int end = parametersString.length();
+        int start = 0;
+        int equalIndex = -1;
+
+        for (int i = 0; i <= end; i++) {
+            int c = (i < end) ? parametersString.charAt(i) : -1;
+
+            if ((c == '=') && (equalIndex == -1)) {
+                if (i == start) {
+                    throw new IOException(
+                            "Empty parameter name detected. Please check your form data");
+                }
+
+                equalIndex = i;
+            } else if ((c == this.separator) || (c == -1)) {
+                if (equalIndex != -1) {
+                    parameters.add(new Parameter(decode(parametersString,
+                            start, equalIndex), decode(parametersString,
+                            equalIndex + 1, i)));
+                } else if (i > start) {
+                    parameters.add(new Parameter(decode(parametersString,
+                            start, i), null));
+                } else if (c != -1) {
+                    Context.getCurrentLogger()
+                            .fine("Empty parameter name detected. Please check your form data");
+                }
+
+                start = i + 1;
+                equalIndex = -1;
+            }
+        }
+    }
+
+    /**
+     * Decodes a range of bytes. Bytes above the ASCII range are considered as
+     * already encoded with the character set and decoded like escaped octets.
+     * 
+     * @param buffer
+     *            The source buffer.
+     * @param start
+     *            The index of the first byte.
+     * @param end
+     *            The index after the last byte.
+     * @return The decoded string.
+     */
+    private String decode(byte[] buffer, int start, int end) {
+        boolean plain = true;
+
+        for (int i = start; plain && (i < end); i++) {
+            int b = buffer[i];
+            plain = (b > 0) && (!this.decode || ((b != '%') && (b != '+')));
+        }
+
+        if (plain) {
+            // Fast path for ASCII, no character decoding needed
+            char[] chars = new char[end - start];
+
+            for (int i = start; i < end; i++) {
+                chars[i - start] = (char) buffer[i];
+            }
+
+            return new String(chars);
+        } else if (!this.decode) {
+            char[] chars = new char[end - start];
+
+            for (int i = start; i < end; i++) {
+                chars[i - start] = (char) (buffer[i] & 0xFF);
+            }
+
+            return new String(chars);
+        }
+
+        StringBuilder sb = new StringBuilder(end - start);
+        int octetCount = 0;
+        int i = start;
+
+        while (i < end) {
+            int b = buffer[i] & 0xFF;
+            int escaped = (b == '%') ? escapedOctet(buffer, i, end) : -1;
+
+            if ((escaped != -1) || (b > 0x7F)) {
+                octetCount = appendOctet((escaped != -1) ? escaped : b,
+                        octetCount, end - start);
+                i += (escaped != -1) ? 3 : 1;
+            } else {
+                octetCount = flushOctets(sb, octetCount);
+                sb.append((b == '+') ? ' ' : (char) b);
+                i++;
+            }
+        }
+
+        flushOctets(sb, octetCount);
+        return sb.toString();
+    }
+
+    /**
+     * Decodes a range of characters. Characters outside the ASCII range are
+     * kept as is.
+     * 
+     * @param source
+     *            The source characters.
+     * @param start
+     *            The index of the first character.
+     * @param end
+     *            The index after the last character.
+     * @return The decoded string.
+     */
+    private String decode(CharSequence source, int start, int end) {
+        boolean plain = true;
+
+        if (this.decode) {
+            for (int i = start; plain && (i < end); i++) {
+                char c = source.charAt(i);
+                plain = (c != '%') && (c != '+');
+            }
+        }
+
+        if (plain) {
+            return source.subSequence(start, end).toString();
+        }
+
+        StringBuilder sb = new StringBuilder(end - start);
+        int octetCount = 0;
+        int i = start;
+
+        while (i < end) {
+            char c = source.charAt(i);
+            int escaped = (c == '%') ? escapedOctet(source, i, end) : -1;
+
+            if (escaped != -1) {
+                octetCount = appendOctet(escaped, octetCount, end - start);
+                i += 3;
+            } else {
+                octetCount = flushOctets(sb, octetCount);
+                sb.append((c == '+') ? ' ' : c);
+                i++;
+            }
+        }
+
+        flushOctets(sb, octetCount);
+        return sb.toString();
+    }
+
+    /**
+     * Appends an octet to the scratch buffer.
+     * 
+     * @param octet
+     *            The octet to append.
+     * @param octetCount
+     *            The current number of pending octets.
+     * @param maxLength
+     *            The maximum number of octets that may be pending.
+     * @return The new number of pending octets.
+     */
+    private int appendOctet(int octet, int octetCount, int maxLength) {
+        if ((this.octets == null) || (this.octets.length < maxLength)) {
+            byte[] newOctets = new byte[Math.max(maxLength, 64)];
+
+            if (this.octets != null) {
+                System.arraycopy(this.octets, 0, newOctets, 0, octetCount);
+            }
+
+            this.octets = newOctets;
+        }
+
+        this.octets[octetCount] = (byte) octet;
+        return octetCount + 1;
+    }
+
+    /**
+     * Returns the octet escaped at the given position or -1 if the escape
+     * sequence is invalid.
+     * 
+     * @param buffer
+     *            The source buffer.
+     * @param index
+     *            The index of the '%' character.
+     * @param end
+     *            The index after the last byte.
+     * @return The escaped octet or -1.
+     */
+    private int escapedOctet(byte[] buffer, int index, int end) {
+        if (index + 2 < end) {
+            int high = digit(buffer[index + 1]);
+            int low = digit(buffer[index + 2]);
+
+            if ((high != -1) && (low != -1)) {
+                return (high << 4) + low;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the octet escaped at the given position or -1 if the escape
+     * sequence is invalid.
+     * 
+     * @param source
+     *            The source characters.
+     * @param index
+     *            The index of the '%' character.
+     * @param end
+     *            The index after the last character.
+     * @return The escaped octet or -1.
+     */
+    private int escapedOctet(CharSequence source, int index, int end) {
+        if (index + 2 < end) {
+            int high = digit(source.charAt(index + 1));
+            int low = digit(source.charAt(index + 2));
+
+            if ((high != -1) && (low != -1)) {
+                return (high << 4) + low;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Decodes the pending octets with the character set and appends the
+     * result to the given builder.
+     * 
+     * @param sb
+     *            The target string builder.
+     * @param octetCount
+     *            The number of pending octets.
+     * @return The new number of pending octets, always 0.
+     */
+    private int flushOctets(StringBuilder sb, int octetCount) {
+        if (octetCount > 0) {
+            sb.append(new String(this.octets, 0, octetCount, this.charset));
+        }
+
+        return 0;
+    }
+
+}
@@ -61,6 +61,10 @@ public class FormReader {
     /** Indicates if the parameters should be decoded. */
     private volatile boolean decode;
 
+    // [ifndef gwt] member
+    /** The parameters string, parsed without going through the stream. */
+    private volatile String parametersString;
+
     /** The separator character used between parameters. */
     private volatile char separator;
 
@@ -153,7 +157,7 @@ public class FormReader {
             char separator, boolean decode) {
         this.decode = decode;
         // [ifndef gwt] instruction
-        this.stream = new ByteArrayInputStream(parametersString.getBytes());
+        this.parametersString = parametersString;
         // [ifdef gwt] instruction uncomment
         // this.stream = new
         // org.restlet.engine.io.StringInputStream(parametersString);
@@ -169,23 +173,10 @@ public class FormReader {
      *            The target parameter series.
      */
     public void addParameters(Series<Parameter> parameters) {
-        boolean readNext = true;
-        Parameter param = null;
-
-        if (this.stream != null) {
-            // Let's read all form parameters
+        // [ifndef gwt]
+        if ((this.parametersString != null) || (this.stream != null)) {
             try {
-                while (readNext) {
-                    param = readNextParameter();
-
-                    if (param != null) {
-                        // Add parsed parameter to the form
-                        parameters.add(param);
-                    } else {
-                        // Last parameter parsed
-                        readNext = false;
-                    }
-                }
+                addAllParameters(parameters);
             } catch (IOException ioe) {
                 Context.getCurrentLogger()
                         .log(Level.WARNING,
@@ -193,6 +184,83 @@ public class FormReader {
                                 ioe);
             }
 
+            closeStream();
+        }
+        // [enddef]
+        // [ifdef gwt] uncomment
+        // boolean readNext = true;
+        // Parameter param = null;
+        //
+        // if (this.stream != null) {
+        // // Let's read all form parameters
+        // try {
+        // while (readNext) {
+        // param = readNextParameter();
+        //
+        // if (param != null) {
+        // // Add parsed parameter to the form
+        // parameters.add(param);
+        // } else {
+        // // Last parameter parsed
+        // readNext = false;
+        // }
+        // }
+        // } catch (IOException ioe) {
+        // Context.getCurrentLogger()
+        // .log(Level.WARNING,
+        // "Unable to parse a form parameter. Skipping the remaining parameters.",
+        // ioe);
+        // }
+        //
+        // closeStream();
+        // }
+        // [enddef]
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Adds all the parameters into a given series in a single pass, using a
+     * {@link FormDecoder}. The parameters string is directly decoded while the
+     * content of the stream is first fully read into a byte buffer.
+     * 
+     * @param parameters
+     *            The target parameter series.
+     * @throws IOException
+     *             If the parameters could not be read.
+     */
+    private void addAllParameters(Series<Parameter> parameters)
+            throws IOException {
+        FormDecoder decoder = new FormDecoder(this.characterSet,
+                this.separator, this.decode);
+
+        if (this.stream == null) {
+            decoder.addParameters(this.parametersString, parameters);
+        } else {
+            byte[] buffer = new byte[1024];
+            int length = 0;
+            int read = this.stream.read(buffer, 0, buffer.length);
+
+            while (read != -1) {
+                length += read;
+
+                if (length == buffer.length) {
+                    byte[] newBuffer = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, newBuffer, 0, length);
+                    buffer = newBuffer;
+                }
+
+                read = this.stream.read(buffer, length, buffer.length - length);
+            }
+
+            decoder.addParameters(buffer, 0, length, parameters);
+        }
+    }
+
+    /**
+     * Closes the form stream if it was opened.
+     */
+    private void closeStream() {
+        if (this.stream != null) {
             try {
                 this.stream.close();
             } catch (IOException ioe) {
@@ -202,6 +270,22 @@ public class FormReader {
         }
     }
 
+    /**
+     * Returns the form stream. When the reader was created from a parameters
+     * string, the stream is lazily created.
+     * 
+     * @return The form stream.
+     */
+    private InputStream getStream() {
+        // [ifndef gwt]
+        if ((this.stream == null) && (this.parametersString != null)) {
+            this.stream = new ByteArrayInputStream(
+                    this.parametersString.getBytes());
+        }
+        // [enddef]
+        return this.stream;
+    }
+
     /**
      * Reads all the parameters.
      * 
@@ -212,16 +296,24 @@ public class FormReader {
     public Form read() throws IOException {
         Form result = new Form();
 
-        if (this.stream != null) {
-            Parameter param = readNextParameter();
-
-            while (param != null) {
-                result.add(param);
-                param = readNextParameter();
-            }
-
-            this.stream.close();
+        // [ifndef gwt]
+        if ((this.parametersString != null) || (this.stream != null)) {
+            addAllParameters(result);
+            closeStream();
         }
+        // [enddef]
+        // [ifdef gwt] uncomment
+        // if (this.stream != null) {
+        // Parameter param = readNextParameter();
+        //
+        // while (param != null) {
+        // result.add(param);
+        // param = readNextParameter();
+        // }
+        //
+        // this.stream.close();
+        // }
+        // [enddef]
 
         return result;
     }
@@ -237,7 +329,7 @@ public class FormReader {
     public Parameter readFirstParameter(String name) throws IOException {
         Parameter result = null;
 
-        if (this.stream != null) {
+        if (getStream() != null) {
             Parameter param = readNextParameter();
 
             while ((param != null) && (result == null)) {
@@ -264,7 +356,7 @@ public class FormReader {
     public Parameter readNextParameter() throws IOException {
         Parameter result = null;
 
-        if (this.stream != null) {
+        if (getStream() != null) {
             try {
                 boolean readingName = true;
                 boolean readingValue = false;
@@ -273,7 +365,7 @@ public class FormReader {
                 int nextChar = 0;
 
                 while ((result == null) && (nextChar != -1)) {
-                    nextChar = this.stream.read();
+                    nextChar = getStream().read();
 
                     if (readingName) {
                         if (nextChar == '=') {
@@ -330,7 +422,7 @@ public class FormReader {
     public Object readParameter(String name) throws IOException {
         Object result = null;
 
-        if (this.stream != null) {
+        if (getStream() != null) {
             Parameter param = readNextParameter();
 
             while (param != null) {
@@ -385,7 +477,7 @@ public class FormReader {
     @SuppressWarnings("unchecked")
     public void readParameters(Map<String, Object> parameters)
             throws IOException {
-        if (this.stream != null) {
+        if (getStream() != null) {
             Parameter param = readNextParameter();
             Object currentValue = null;
 
@@ -0,0 +1,282 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache evicting the least recently used entries first. The cache can
+ * be bounded by a number of entries and by a total weight of the values, as
+ * computed by {@link #getWeight(Object)}. Hits and misses are counted in order
+ * to monitor the efficiency of the cache. Null keys and values aren't
+ * supported.
+ * 
+ * Concurrency note: instances of this class can be used by several threads at
+ * the same time.
+ * 
+ * @author Jerome Louvel
+ * 
+ * @param <K>
+ *            The type of keys.
+ * @param <V>
+ *            The type of values.
+ */
+public class LruCache<K, V> {
+
+    /** The number of lookups that found a value. */
+    private final AtomicLong hitCount;
+
+    /** The cached entries, in access order. */
+    private final Map<K, V> map;
+
+    /** The maximum number of entries. */
+    private final int maxSize;
+
+    /** The maximum total weight of the values. */
+    private final long maxWeight;
+
+    /** The number of lookups that didn't find a value. */
+    private final AtomicLong missCount;
+
+    /** The current total weight of the values. */
+    private long weight;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of entries.
+     */
+    public LruCache(final int maxSize) {
+        this(maxSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of entries.
+     * @param maxWeight
+     *            The maximum total weight of the values.
+     */
+    public LruCache(final int maxSize, long maxWeight) {
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.weight = 0;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                boolean result = size() > maxSize;
+
+                if (result) {
+                    weight -= getWeight(eldest.getValue());
+                }
+
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Removes all the entries and resets the statistics.
+     */
+    public synchronized void clear() {
+        this.map.clear();
+        this.weight = 0;
+        this.hitCount.set(0);
+        this.missCount.set(0);
+    }
+
+    /**
+     * Returns the value cached for the given key and marks it as the most
+     * recently used.
+     * 
+     * @param key
+     *            The key.
+     * @return The cached value or null.
+     */
+    public V get(K key) {
+        V result;
+
+        synchronized (this) {
+            result = this.map.get(key);
+        }
+
+        if (result == null) {
+            this.missCount.incrementAndGet();
+        } else {
+            this.hitCount.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     * 
+     * @return The number of lookups that found a value.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Returns the ratio of lookups that found a value, between 0 and 1.
+     * 
+     * @return The ratio of lookups that found a value.
+     */
+    public float getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return (total == 0) ? 0F : (float) hits / total;
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     * 
+     * @return The maximum number of entries.
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the maximum total weight of the values.
+     * 
+     * @return The maximum total weight of the values.
+     */
+    public long getMaxWeight() {
+        return this.maxWeight;
+    }
+
+    /**
+     * Returns the number of lookups that didn't find a value.
+     * 
+     * @return The number of lookups that didn't find a value.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Returns the current total weight of the values.
+     * 
+     * @return The current total weight of the values.
+     */
+    public synchronized long getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * Returns the weight of a value, counted against the maximum total weight.
+     * Returns 1 by default.
+     * 
+     * @param value
+     *            The value.
+     * @return The weight of the value.
+     */
+    protected long getWeight(V value) {
+        return 1;
+    }
+
+    /**
+     * Caches a value, evicting the least recently used entries if the cache is
+     * full. A value heavier than the maximum total weight isn't cached.
+     * 
+     * @param key
+     *            The key.
+     * @param value
+     *            The value.
+     * @return The value previously cached for this key or null.
+     */
+    public synchronized V put(K key, V value) {
+        long valueWeight = getWeight(value);
+
+        if (valueWeight > this.maxWeight) {
+            return remove(key);
+        }
+
+        V result = this.map.remove(key);
+
+        if (result != null) {
+            this.weight -= getWeight(result);
+        }
+
+        // Make room for the new value
+        for (Iterator<V> iter = this.map.values().iterator(); iter.hasNext()
+                && (this.weight + valueWeight > this.maxWeight);) {
+            this.weight -= getWeight(iter.next());
+            iter.remove();
+        }
+
+        this.weight += valueWeight;
+        this.map.put(key, value);
+        return result;
+    }
+
+    /**
+     * Removes the value cached for the given key.
+     * 
+     * @param key
+     *            The key.
+     * @return The removed value or null.
+     */
+    public synchronized V remove(K key) {
+        V result = this.map.remove(key);
+
+        if (result != null) {
+            this.weight -= getWeight(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the current number of entries.
+     * 
+     * @return The current number of entries.
+     */
+    public synchronized int size() {
+        return this.map.size();
+    }
+
+}
@@ -37,7 +37,12 @@ package org.restlet.resource;
  * Marker interface for RESTful resource proxies. This allows you to retrieve
  * and manipulate the underlying {@link ClientResource} of a dynamic client
  * proxy generated by the {@link ClientResource#create(String, Class)} method
- * for example, or by {@link ClientResource#getChild(String, Class)}.
+ * for example, or by {@link ClientResource#getChild(String, Class)}.<br>
+ * <br>
+ * Methods of the proxied interface can be invoked asynchronously, either by
+ * declaring a {@link Result} parameter or a {@link java.util.concurrent.Future}
+ * return type. In both cases, the calling thread isn't blocked and failed
+ * calls are retried according to the settings of the client resource.
  * 
  * @author Jerome Louvel
  */
@@ -83,6 +83,13 @@ import org.restlet.util.Series;
  */
 public class ClientResource extends Resource {
 
+    // [ifndef gwt] member
+    /**
+     * Scheduler of asynchronous retries and timeouts, shared by the resources
+     * whose context doesn't provide an executor service.
+     */
+    private static volatile java.util.concurrent.ScheduledExecutorService defaultAsyncExecutorService;
+
     // [ifndef gwt] method
     /**
      * Creates a client resource that proxy calls to the given Java interface
@@ -137,6 +144,40 @@ public class ClientResource extends Resource {
         return create(null, new Reference(uri), resourceInterface);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Returns the scheduler shared by the resources whose context doesn't
+     * provide an executor service. It is lazily created and relies on a
+     * single daemon thread.
+     * 
+     * @return The default scheduler of asynchronous retries and timeouts.
+     */
+    private static java.util.concurrent.ScheduledExecutorService getDefaultAsyncExecutorService() {
+        java.util.concurrent.ScheduledExecutorService result = defaultAsyncExecutorService;
+
+        if (result == null) {
+            synchronized (ClientResource.class) {
+                result = defaultAsyncExecutorService;
+
+                if (result == null) {
+                    result = java.util.concurrent.Executors
+                            .newSingleThreadScheduledExecutor(new org.restlet.engine.log.LoggingThreadFactory(
+                                    Context.getCurrentLogger(), true));
+                    defaultAsyncExecutorService = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    // [ifndef gwt] member
+    /**
+     * Maximum time in milliseconds that an asynchronous call can take, 0
+     * meaning no limit.
+     */
+    private volatile long asyncTimeout;
+
     // [ifndef gwt] member
     /** Indicates if redirections should be automatically followed. */
     private volatile boolean followingRedirects;
@@ -198,6 +239,7 @@ public class ClientResource extends Resource {
         this.retryAttempts = resource.getRetryAttempts();
 
         // [ifndef gwt]
+        this.asyncTimeout = resource.getAsyncTimeout();
         this.followingRedirects = resource.isFollowingRedirects();
         this.requestEntityBuffering = resource.isRequestEntityBuffering();
         this.responseEntityBuffering = resource.isResponseEntityBuffering();
@@ -501,8 +543,11 @@ public class ClientResource extends Resource {
     }
 
     /**
-     * Creates a next Restlet is no one is set. By default, it creates a new
-     * {@link Client} based on the protocol of the resource's URI reference.
+     * Creates a next Restlet is no one is set. By default, it relies on a
+     * {@link Client} based on the protocol of the resource's URI reference and
+     * shared with the other client resources via the
+     * {@link org.restlet.engine.ClientRegistry}. Releasing the resource
+     * releases the reference to the shared client.
      * 
      * @return The created next Restlet or null.
      */
@@ -539,7 +584,8 @@ public class ClientResource extends Resource {
                 // [ifndef gwt]
                 org.restlet.engine.TemplateDispatcher dispatcher = new org.restlet.engine.TemplateDispatcher();
                 dispatcher.setContext(getContext());
-                dispatcher.setNext(new Client(protocol));
+                dispatcher.setNext(org.restlet.engine.ClientRegistry
+                        .getInstance().createLease(protocol));
                 result = dispatcher;
                 // [enddef]
                 // [ifdef gwt] uncomment
@@ -561,6 +607,55 @@ public class ClientResource extends Resource {
         return new Request(getRequest());
     }
 
+    // [ifndef gwt] method
+    /**
+     * Creates a new request by cloning the one wrapped by this class, setting
+     * the method and converting the object entity. Automatically serializes
+     * the object using the {@link org.restlet.service.ConverterService}.
+     * 
+     * @param method
+     *            The request method to use.
+     * @param entity
+     *            The object entity to send.
+     * @param resultClass
+     *            The class of the response entity, used to update the client
+     *            preferences if needed.
+     * @return The new request.
+     * @throws ResourceException
+     */
+    protected Request createRequest(Method method, Object entity,
+            Class<?> resultClass) throws ResourceException {
+        org.restlet.service.ConverterService cs = getConverterService();
+        ClientInfo clientInfo = getClientInfo();
+
+        if (clientInfo.getAcceptedMediaTypes().isEmpty()) {
+            cs.updatePreferences(clientInfo.getAcceptedMediaTypes(),
+                    resultClass);
+        }
+
+        // Prepare the request by cloning the prototype request
+        Request request = createRequest();
+        request.setMethod(method);
+        request.setClientInfo(clientInfo);
+
+        if (entity != null) {
+            List<? extends Variant> entityVariants;
+            try {
+                entityVariants = cs.getVariants(entity.getClass(), null);
+                request.setEntity(toRepresentation(
+                        entity,
+                        getConnegService().getPreferredVariant(entityVariants,
+                                request, getMetadataService())));
+            } catch (IOException e) {
+                throw new ResourceException(e);
+            }
+        } else {
+            request.setEntity(null);
+        }
+
+        return request;
+    }
+
     /**
      * Creates a new response for the given request.
      * 
@@ -619,6 +714,42 @@ public class ClientResource extends Resource {
         return handle(Method.DELETE, mediaType);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously deletes the target resource and all its representations.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @return The future response entity object.
+     * @see #delete(Class)
+     * @see #handleAsync(Method, Object, Class, Result)
+     */
+    public <T> java.util.concurrent.Future<T> deleteAsync(
+            Class<T> resultClass) {
+        return deleteAsync(resultClass, null);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Asynchronously deletes the target resource and all its representations.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @param callback
+     *            The optional callback invoked when the call is done.
+     * @return The future response entity object.
+     * @see #delete(Class)
+     * @see #handleAsync(Method, Object, Class, Result)
+     */
+    public <T> java.util.concurrent.Future<T> deleteAsync(
+            Class<T> resultClass, Result<T> callback) {
+        return handleAsync(Method.DELETE, null, resultClass, callback);
+    }
+
     /**
      * By default, it throws a new resource exception. This can be overridden to
      * provide a different behavior.
@@ -717,6 +848,71 @@ public class ClientResource extends Resource {
         return handle(Method.GET, mediaType);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously represents the resource using content negotiation to
+     * select the best variant based on the client preferences.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @return The future response entity object.
+     * @see #get(Class)
+     * @see #handleAsync(Method, Object, Class, Result)
+     */
+    public <T> java.util.concurrent.Future<T> getAsync(Class<T> resultClass) {
+        return getAsync(resultClass, null);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Asynchronously represents the resource using content negotiation to
+     * select the best variant based on the client preferences.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @param callback
+     *            The optional callback invoked when the call is done.
+     * @return The future response entity object.
+     * @see #get(Class)
+     * @see #handleAsync(Method, Object, Class, Result)
+     */
+    public <T> java.util.concurrent.Future<T> getAsync(Class<T> resultClass,
+            Result<T> callback) {
+        return handleAsync(Method.GET, null, resultClass, callback);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Returns the executor service used to schedule asynchronous retries and
+     * timeouts. By default, it returns the executor service of the context if
+     * available or a scheduler shared by all client resources otherwise.
+     * 
+     * @return The executor service used to schedule asynchronous tasks.
+     */
+    protected java.util.concurrent.ScheduledExecutorService getAsyncExecutorService() {
+        java.util.concurrent.ScheduledExecutorService result = (getContext() == null) ? null
+                : getContext().getExecutorService();
+        return (result == null) ? getDefaultAsyncExecutorService() : result;
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Returns the maximum time in milliseconds that an asynchronous call can
+     * take, 0 meaning no limit. When the limit is reached, the future fails
+     * with a {@link Status#CONNECTOR_ERROR_COMMUNICATION} status. The default
+     * value is 0.
+     * 
+     * @return The maximum time in milliseconds that an asynchronous call can
+     *         take.
+     */
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
     /**
      * Returns the attribute value by looking up the given name in the response
      * attributes maps. The toString() method is then invoked on the attribute
@@ -1019,33 +1215,7 @@ public class ClientResource extends Resource {
      */
     protected <T> T handle(Method method, Object entity, Class<T> resultClass)
             throws ResourceException {
-        org.restlet.service.ConverterService cs = getConverterService();
-        ClientInfo clientInfo = getClientInfo();
-
-        if (clientInfo.getAcceptedMediaTypes().isEmpty()) {
-            cs.updatePreferences(clientInfo.getAcceptedMediaTypes(),
-                    resultClass);
-        }
-
-        // Prepare the request by cloning the prototype request
-        Request request = createRequest();
-        request.setMethod(method);
-        request.setClientInfo(clientInfo);
-
-        if (entity != null) {
-            List<? extends Variant> entityVariants;
-            try {
-                entityVariants = cs.getVariants(entity.getClass(), null);
-                request.setEntity(toRepresentation(
-                        entity,
-                        getConnegService().getPreferredVariant(entityVariants,
-                                request, getMetadataService())));
-            } catch (IOException e) {
-                throw new ResourceException(e);
-            }
-        } else {
-            request.setEntity(null);
-        }
+        Request request = createRequest(method, entity, resultClass);
 
         // Actually handle the call
         Response response = handleOutbound(request);
@@ -1149,33 +1319,8 @@ public class ClientResource extends Resource {
                 retry(request, response, references, retryAttempt, next);
             }
             // [ifndef gwt]
-            else if (isFollowingRedirects()
-                    && response.getStatus().isRedirection()
-                    && (response.getLocationRef() != null)) {
-                boolean doRedirection = false;
-
-                if (request.getMethod().isSafe()) {
-                    doRedirection = true;
-                } else {
-                    if (Status.REDIRECTION_SEE_OTHER.equals(response
-                            .getStatus())) {
-                        // The user agent is redirected using the GET method
-                        request.setMethod(Method.GET);
-                        request.setEntity(null);
-                        doRedirection = true;
-                    } else if (Status.REDIRECTION_USE_PROXY.equals(response
-                            .getStatus())) {
-                        doRedirection = true;
-                    }
-                }
-
-                if (doRedirection) {
-                    redirect(request, response, references, retryAttempt, next);
-                } else {
-                    getLogger().fine(
-                            "Unable to redirect the client call after a response"
-                                    + response);
-                }
+            else if (isRedirectable(request, response)) {
+                redirect(request, response, references, retryAttempt, next);
             }
 
             // Check if response entity buffering must be done
@@ -1189,6 +1334,237 @@ public class ClientResource extends Resource {
         }
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously handles the call by cloning the prototype request,
+     * setting the method and entity. The calling thread isn't blocked, the
+     * call relying on the asynchronous support of the next handler via the
+     * {@link Request#setOnResponse(Uniform)} callback. Retries are scheduled
+     * using the {@link #getAsyncExecutorService()} instead of sleeping.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param method
+     *            The request method to use.
+     * @param entity
+     *            The object entity to send.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @param callback
+     *            The optional callback invoked when the call is done.
+     * @return The future response entity object.
+     */
+    protected <T> java.util.concurrent.Future<T> handleAsync(Method method,
+            Object entity, Class<T> resultClass, Result<T> callback) {
+        org.restlet.engine.resource.ClientFuture<T> result = new org.restlet.engine.resource.ClientFuture<T>(
+                callback);
+
+        try {
+            handleAsync(createRequest(method, entity, resultClass),
+                    resultClass, result);
+        } catch (ResourceException re) {
+            result.fail(re);
+        }
+
+        return result;
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Asynchronously handles the given request. The optional timeout is
+     * scheduled before invoking the next handler.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param request
+     *            The request to send.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @param future
+     *            The future to complete.
+     */
+    public <T> void handleAsync(Request request, Class<T> resultClass,
+            final org.restlet.engine.resource.ClientFuture<T> future) {
+        Uniform next = getNext();
+
+        if (next == null) {
+            future.fail(new ResourceException(
+                    Status.CONNECTOR_ERROR_INTERNAL,
+                    "Unable to process the call for a client resource. No next Restlet has been provided."));
+        } else {
+            final long timeout = getAsyncTimeout();
+
+            if (timeout > 0) {
+                future.setTimeoutTask(getAsyncExecutorService().schedule(
+                        new Runnable() {
+                            public void run() {
+                                future.fail(new ResourceException(
+                                        Status.CONNECTOR_ERROR_COMMUNICATION,
+                                        "The call didn't complete within "
+                                                + timeout + " ms"));
+                            }
+                        }, timeout,
+                        java.util.concurrent.TimeUnit.MILLISECONDS));
+            }
+
+            handleAsync(request, resultClass, future, null, 0, next);
+        }
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Asynchronously handles the given request by invoking the next handler.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param request
+     *            The request to send.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @param future
+     *            The future to complete.
+     * @param references
+     *            The references that caused a redirection to prevent infinite
+     *            loops.
+     * @param retryAttempt
+     *            The number of attempts already made.
+     * @param next
+     *            The next handler handling the call.
+     */
+    protected <T> void handleAsync(final Request request,
+            final Class<T> resultClass,
+            final org.restlet.engine.resource.ClientFuture<T> future,
+            final List<Reference> references, final int retryAttempt,
+            final Uniform next) {
+        if (future.isDone()) {
+            return;
+        }
+
+        final java.util.concurrent.atomic.AtomicBoolean responded = new java.util.concurrent.atomic.AtomicBoolean();
+
+        try {
+            if (isRequestEntityBuffering()) {
+                request.bufferEntity();
+            }
+
+            Response response = createResponse(request);
+            request.getAttributes().remove(
+                    org.restlet.engine.ClientHelper.ATTRIBUTE_ASYNC_PENDING);
+            request.setOnResponse(new Uniform() {
+                public void handle(Request request, Response response) {
+                    if (!response.getStatus().isInformational()
+                            && responded.compareAndSet(false, true)) {
+                        handleAsyncResponse(response, resultClass, future,
+                                references, retryAttempt, next);
+                    }
+                }
+            });
+
+            next.handle(request, response);
+
+            if (isAnswered(request, response)
+                    && responded.compareAndSet(false, true)) {
+                // Local connectors and plain Restlets answer synchronously
+                // without invoking the callback
+                handleAsyncResponse(response, resultClass, future,
+                        references, retryAttempt, next);
+            }
+        } catch (Throwable t) {
+            if (responded.compareAndSet(false, true)) {
+                future.fail(t);
+            }
+        }
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Handles a response received asynchronously. Recoverable errors are
+     * retried after the retry delay without blocking any thread, other errors
+     * fail the future and successful responses complete it with the converted
+     * response entity.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param response
+     *            The response received.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @param future
+     *            The future to complete.
+     * @param references
+     *            The references that caused a redirection to prevent infinite
+     *            loops.
+     * @param retryAttempt
+     *            The number of attempts already made.
+     * @param next
+     *            The next handler handling the call.
+     */
+    protected <T> void handleAsyncResponse(final Response response,
+            final Class<T> resultClass,
+            final org.restlet.engine.resource.ClientFuture<T> future,
+            final List<Reference> references, final int retryAttempt,
+            final Uniform next) {
+        final Request request = response.getRequest();
+
+        if (future.isDone()) {
+            // Cancelled or timed out in the meantime
+            response.release();
+        } else if (isRetryOnError()
+                && response.getStatus().isRecoverableError()
+                && request.getMethod().isIdempotent()
+                && (retryAttempt < getRetryAttempts())
+                && ((request.getEntity() == null) || request.getEntity()
+                        .isAvailable())) {
+            getLogger().log(
+                    Level.INFO,
+                    "A recoverable error was detected ("
+                            + response.getStatus().getCode()
+                            + "), attempting again in " + getRetryDelay()
+                            + " ms.");
+            response.release();
+
+            Runnable retry = new Runnable() {
+                public void run() {
+                    handleAsync(request, resultClass, future, references,
+                            retryAttempt + 1, next);
+                }
+            };
+
+            if (getRetryDelay() > 0) {
+                future.setPendingTask(getAsyncExecutorService().schedule(
+                        retry, getRetryDelay(),
+                        java.util.concurrent.TimeUnit.MILLISECONDS));
+            } else {
+                retry.run();
+            }
+        } else if (isRedirectable(request, response)
+                && isRedirectionAllowed(request, response, references)) {
+            List<Reference> redirections = (references == null) ? new ArrayList<Reference>()
+                    : references;
+            redirections.add(request.getResourceRef());
+            request.setResourceRef(response.getLocationRef());
+            response.release();
+            handleAsync(request, resultClass, future, redirections, 0, next);
+        } else {
+            setResponse(response);
+
+            if (response.getStatus().isError()) {
+                future.fail(new ResourceException(response.getStatus()));
+            } else {
+                try {
+                    if (isResponseEntityBuffering()) {
+                        response.bufferEntity();
+                    }
+
+                    future.complete((resultClass == null) ? null : toObject(
+                            response.getEntity(), resultClass));
+                } catch (Throwable t) {
+                    future.fail(t);
+                }
+            }
+        }
+    }
+
     /**
      * Handles the inbound call. Note that only synchronous calls are processed.
      * 
@@ -1291,6 +1667,30 @@ public class ClientResource extends Resource {
         return handle(Method.HEAD, mediaType);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Indicates if the next handler answered an asynchronous call before
+     * returning, without invoking the response callback. This is the case of
+     * the local connectors and of plain Restlets, whatever the status and
+     * entity of the response. The connectors that will invoke the callback
+     * later set the
+     * {@link org.restlet.engine.ClientHelper#ATTRIBUTE_ASYNC_PENDING} request
+     * attribute, except when reporting a connector error.
+     * 
+     * @param request
+     *            The request handled.
+     * @param response
+     *            The response updated.
+     * @return True if the response is final.
+     */
+    private boolean isAnswered(Request request, Response response) {
+        Status status = response.getStatus();
+
+        return ((status != null) && status.isConnectorError())
+                || !request.getAttributes().containsKey(
+                        org.restlet.engine.ClientHelper.ATTRIBUTE_ASYNC_PENDING);
+    }
+
     // [ifndef gwt] method
     /**
      * Indicates if redirections are followed.
@@ -1301,6 +1701,84 @@ public class ClientResource extends Resource {
         return followingRedirects;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Indicates if the call should be redirected, based on the
+     * {@link #isFollowingRedirects()} property, the response status and the
+     * request method. When a 303 (See other) status is received for a non-safe
+     * method, the request is updated to use the GET method without entity.
+     * 
+     * @param request
+     *            The request handled.
+     * @param response
+     *            The response received.
+     * @return True if the call should be redirected.
+     */
+    private boolean isRedirectable(Request request, Response response) {
+        boolean result = false;
+
+        if (isFollowingRedirects() && response.getStatus().isRedirection()
+                && (response.getLocationRef() != null)) {
+            if (request.getMethod().isSafe()) {
+                result = true;
+            } else if (Status.REDIRECTION_SEE_OTHER
+                    .equals(response.getStatus())) {
+                // The user agent is redirected using the GET method
+                request.setMethod(Method.GET);
+                request.setEntity(null);
+                result = true;
+            } else if (Status.REDIRECTION_USE_PROXY.equals(response
+                    .getStatus())) {
+                result = true;
+            }
+
+            if (!result) {
+                getLogger().fine(
+                        "Unable to redirect the client call after a response"
+                                + response);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if a redirection can be followed without looping, exceeding
+     * the maximum number of redirections or losing the request entity.
+     * 
+     * @param request
+     *            The request handled.
+     * @param response
+     *            The redirection response.
+     * @param references
+     *            The references that already caused a redirection.
+     * @return True if the redirection can be followed.
+     */
+    private boolean isRedirectionAllowed(Request request, Response response,
+            List<Reference> references) {
+        boolean result = false;
+        Reference newTargetRef = response.getLocationRef();
+
+        if ((references != null) && references.contains(newTargetRef)) {
+            getLogger().warning(
+                    "Infinite redirection loop detected with URI: "
+                            + newTargetRef);
+        } else if (request.getEntity() != null && !request.isEntityAvailable()) {
+            getLogger()
+                    .warning(
+                            "Unable to follow the redirection because the request entity isn't available anymore.");
+        } else if ((references != null)
+                && (references.size() >= getMaxRedirects())) {
+            getLogger()
+                    .warning(
+                            "Unable to follow the redirection because the request the maximum number of redirections for a single call has been reached.");
+        } else {
+            result = true;
+        }
+
+        return result;
+    }
+
     // [ifndef gwt] method
     /**
      * Indicates if transient or unknown size response entities should be
@@ -1544,6 +2022,48 @@ public class ClientResource extends Resource {
         return handle(Method.POST, entity);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously posts an object entity. Automatically serializes the
+     * object using the {@link org.restlet.service.ConverterService}.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param entity
+     *            The object entity to post.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @return The future response entity object.
+     * @see #post(Object, Class)
+     * @see #handleAsync(Method, Object, Class, Result)
+     */
+    public <T> java.util.concurrent.Future<T> postAsync(Object entity,
+            Class<T> resultClass) {
+        return postAsync(entity, resultClass, null);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Asynchronously posts an object entity. Automatically serializes the
+     * object using the {@link org.restlet.service.ConverterService}.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param entity
+     *            The object entity to post.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @param callback
+     *            The optional callback invoked when the call is done.
+     * @return The future response entity object.
+     * @see #post(Object, Class)
+     * @see #handleAsync(Method, Object, Class, Result)
+     */
+    public <T> java.util.concurrent.Future<T> postAsync(Object entity,
+            Class<T> resultClass, Result<T> callback) {
+        return handleAsync(Method.POST, entity, resultClass, callback);
+    }
+
     /**
      * Puts an object entity. Automatically serializes the object using the
      * {@link org.restlet.service.ConverterService}.
@@ -1624,6 +2144,48 @@ public class ClientResource extends Resource {
         return handle(Method.PUT, entity);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously puts an object entity. Automatically serializes the
+     * object using the {@link org.restlet.service.ConverterService}.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param entity
+     *            The object entity to put.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @return The future response entity object.
+     * @see #put(Object, Class)
+     * @see #handleAsync(Method, Object, Class, Result)
+     */
+    public <T> java.util.concurrent.Future<T> putAsync(Object entity,
+            Class<T> resultClass) {
+        return putAsync(entity, resultClass, null);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Asynchronously puts an object entity. Automatically serializes the
+     * object using the {@link org.restlet.service.ConverterService}.
+     * 
+     * @param <T>
+     *            The expected type for the response entity.
+     * @param entity
+     *            The object entity to put.
+     * @param resultClass
+     *            The expected class for the response entity object.
+     * @param callback
+     *            The optional callback invoked when the call is done.
+     * @return The future response entity object.
+     * @see #put(Object, Class)
+     * @see #handleAsync(Method, Object, Class, Result)
+     */
+    public <T> java.util.concurrent.Future<T> putAsync(Object entity,
+            Class<T> resultClass, Result<T> callback) {
+        return handleAsync(Method.PUT, entity, resultClass, callback);
+    }
+
     /**
      * Effectively redirects a client call. By default, it checks for infinite
      * loops and unavailable entities, the references list is updated and the
@@ -1643,32 +2205,16 @@ public class ClientResource extends Resource {
      */
     protected void redirect(Request request, Response response,
             List<Reference> references, int retryAttempt, Uniform next) {
-        Reference newTargetRef = response.getLocationRef();
-
-        if ((references != null) && references.contains(newTargetRef)) {
-            getLogger().warning(
-                    "Infinite redirection loop detected with URI: "
-                            + newTargetRef);
-        } else if (request.getEntity() != null && !request.isEntityAvailable()) {
-            getLogger()
-                    .warning(
-                            "Unable to follow the redirection because the request entity isn't available anymore.");
-        } else {
+        if (isRedirectionAllowed(request, response, references)) {
             if (references == null) {
                 references = new ArrayList<Reference>();
             }
 
-            if (references.size() >= getMaxRedirects()) {
-                getLogger()
-                        .warning(
-                                "Unable to follow the redirection because the request the maximum number of redirections for a single call has been reached.");
-            } else {
-                // Add to the list of redirection reference
-                // to prevent infinite loops
-                references.add(request.getResourceRef());
-                request.setResourceRef(newTargetRef);
-                handle(request, response, references, 0, next);
-            }
+            // Add to the list of redirection reference
+            // to prevent infinite loops
+            references.add(request.getResourceRef());
+            request.setResourceRef(response.getLocationRef());
+            handle(request, response, references, 0, next);
         }
     }
 
@@ -1719,6 +2265,19 @@ public class ClientResource extends Resource {
         handle(request, response, references, ++retryAttempt, next);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Sets the maximum time in milliseconds that an asynchronous call can
+     * take, 0 meaning no limit.
+     * 
+     * @param asyncTimeout
+     *            The maximum time in milliseconds that an asynchronous call
+     *            can take.
+     */
+    public void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
     /**
      * Sets the request attribute value.
      * 
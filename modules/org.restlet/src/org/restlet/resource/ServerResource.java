@@ -58,7 +58,10 @@ import org.restlet.data.ServerInfo;
 import org.restlet.data.Status;
 import org.restlet.engine.resource.AnnotationInfo;
 import org.restlet.engine.resource.AnnotationUtils;
+import org.restlet.engine.resource.DigestTagStrategy;
+import org.restlet.engine.resource.TagStrategy;
 import org.restlet.engine.resource.VariantInfo;
+import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.RepresentationInfo;
 import org.restlet.representation.Variant;
@@ -115,6 +118,9 @@ public abstract class ServerResource extends Resource {
     /** Indicates if content negotiation of response entities is enabled. */
     private volatile boolean negotiated;
 
+    /** The strategy computing the entity tags. */
+    private volatile TagStrategy tagStrategy;
+
     /** Modifiable list of variants. */
     private volatile List<Variant> variants;
 
@@ -127,6 +133,7 @@ public abstract class ServerResource extends Resource {
         this.conditional = true;
         this.existing = true;
         this.negotiated = true;
+        this.tagStrategy = null;
         this.variants = null;
     }
 
@@ -275,7 +282,10 @@ public abstract class ServerResource extends Resource {
 
     /**
      * Handles a call by first verifying the optional request conditions and
-     * continue the processing if possible. Note that in order to evaluate those
+     * continue the processing if possible. Those conditions are first
+     * evaluated against the cheap metadata returned by
+     * {@link #getConditionalInfo()}, if available, so that the resource isn't
+     * invoked at all when they fail. Otherwise, in order to evaluate those
      * conditions, {@link #getInfo()} or {@link #getInfo(Variant)} methods might
      * be invoked.
      * 
@@ -284,8 +294,35 @@ public abstract class ServerResource extends Resource {
      */
     protected Representation doConditionalHandle() throws ResourceException {
         Representation result = null;
+        RepresentationInfo conditionalInfo = null;
+
+        if (existing && getConditions().hasSome()) {
+            conditionalInfo = getConditionalInfo();
+        }
 
-        if (getConditions().hasSome()) {
+        if (conditionalInfo != null) {
+            Status status = getConditions().getStatus(getMethod(),
+                    conditionalInfo);
+
+            if (status == null) {
+                // Conditions were passed successfully, continue the normal
+                // processing.
+                if (isNegotiated()) {
+                    result = doNegotiatedHandle();
+                } else {
+                    result = doHandle();
+                }
+            } else if (status.isError()) {
+                doError(status);
+            } else {
+                // Only convey the metadata of the unmodified entity
+                setStatus(status);
+                result = new EmptyRepresentation();
+                result.setModificationDate(conditionalInfo
+                        .getModificationDate());
+                result.setTag(conditionalInfo.getTag());
+            }
+        } else if (getConditions().hasSome()) {
             RepresentationInfo resultInfo = null;
 
             if (existing) {
@@ -313,6 +350,13 @@ public abstract class ServerResource extends Resource {
                         // a special status like 'method not authorized'.
                     }
                 } else {
+                    if ((getTagStrategy() != null)
+                            && (resultInfo.getTag() == null)
+                            && (resultInfo instanceof Representation)) {
+                        resultInfo.setTag(getTagStrategy().getTag(this,
+                                (Representation) resultInfo));
+                    }
+
                     Status status = getConditions().getStatus(getMethod(),
                             resultInfo);
 
@@ -809,6 +853,28 @@ public abstract class ServerResource extends Resource {
         return (value == null) ? null : value.toString();
     }
 
+    /**
+     * Returns a descriptor of the current state of the resource, computed from
+     * cheap metadata such as a version number or a file modification time. It
+     * is used to evaluate the request conditions before invoking the resource,
+     * so that a 304 (Not modified) or 412 (Precondition failed) status can be
+     * returned without building any representation. When the conditions are
+     * satisfied, the call is directly handled.<br>
+     * <br>
+     * The default behavior is to return the descriptor provided by the tag
+     * strategy, if any. Returning null means that the conditions must be
+     * evaluated against the representation returned by {@link #getInfo()} or
+     * {@link #getInfo(Variant)}.
+     * 
+     * @return The resource state descriptor or null.
+     * @throws ResourceException
+     * @see #getTagStrategy()
+     */
+    protected RepresentationInfo getConditionalInfo() throws ResourceException {
+        return (getTagStrategy() == null) ? null : getTagStrategy().getInfo(
+                this);
+    }
+
     /**
      * Returns information about the resource's representation. Those metadata
      * are important for conditional method processing. The advantage over the
@@ -893,6 +959,16 @@ public abstract class ServerResource extends Resource {
         return Role.get(getApplication(), name);
     }
 
+    /**
+     * Returns the strategy computing the entity tags of the returned
+     * representations.
+     * 
+     * @return The tag strategy or null.
+     */
+    public TagStrategy getTagStrategy() {
+        return tagStrategy;
+    }
+
     /**
      * Returns a modifiable list of exposed variants for the current request
      * method. You can declare variants manually by updating the result list ,
@@ -1019,6 +1095,10 @@ public abstract class ServerResource extends Resource {
                     result = doHandle();
                 }
 
+                if (getTagStrategy() != null) {
+                    result = getTagStrategy().update(this, result);
+                }
+
                 if (!getResponse().isEntityAvailable()) {
                     // If the user manually set the entity, keep it
                     getResponse().setEntity(result);
@@ -1752,6 +1832,22 @@ public abstract class ServerResource extends Resource {
         }
     }
 
+    /**
+     * Sets the strategy computing the entity tags of the returned
+     * representations. It is also used to evaluate the request conditions
+     * before invoking the resource. As resources are usually created for each
+     * call, strategies remembering state, such as {@link DigestTagStrategy},
+     * should be shared by the resource instances, for example from the
+     * {@link #doInit()} method.
+     * 
+     * @param tagStrategy
+     *            The tag strategy or null.
+     * @see #getConditionalInfo()
+     */
+    public void setTagStrategy(TagStrategy tagStrategy) {
+        this.tagStrategy = tagStrategy;
+    }
+
     /**
      * Invoked when the list of allowed methods needs to be updated. The
      * {@link #getAllowedMethods()} or the {@link #setAllowedMethods(Set)}
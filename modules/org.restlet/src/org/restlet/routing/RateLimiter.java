@@ -0,0 +1,583 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.routing;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Status;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.util.Series;
+
+/**
+ * Filter rejecting the calls exceeding a request rate or a number of
+ * concurrent requests, before they reach the next Restlet. This allows the
+ * excess traffic to be shed early instead of waiting in the queue of the
+ * server connector's worker service.<br>
+ * <br>
+ * The request rate is limited for each client key with a token bucket that
+ * holds up to {@link #getBurstSize()} tokens and is refilled at
+ * {@link #getRate()} tokens per second. The key is extracted from the request
+ * depending on the key mode ({@link #KEY_CLIENT_ADDRESS}, {@link #KEY_USER}
+ * or {@link #KEY_HEADER}) or by overriding the {@link #getKey(Request)}
+ * method. The buckets are updated without locking and the number of buckets
+ * kept in memory is bounded by {@link #getMaxBuckets()}. Only the full buckets
+ * are evicted, as they are equivalent to new ones, so a limited key stays
+ * limited. When no bucket can be evicted, the new keys share a single overflow
+ * bucket until some room is available again.<br>
+ * <br>
+ * The number of concurrent requests handled by the next Restlet can also be
+ * limited, typically for the expensive resources of a route.<br>
+ * <br>
+ * Calls exceeding the rate are rejected with a
+ * {@link Status#CLIENT_ERROR_TOO_MANY_REQUESTS} status and calls exceeding
+ * the concurrency limit with a {@link Status#SERVER_ERROR_SERVICE_UNAVAILABLE}
+ * status. In both cases the response indicates when the client can retry and
+ * the error representation is provided by the application's
+ * {@link org.restlet.service.StatusService}.<br>
+ * <br>
+ * Concurrency note: instances of this class or its subclasses can be invoked by
+ * several threads at the same time and therefore must be thread-safe. You
+ * should be especially careful when storing state in member variables.
+ * 
+ * @author Jerome Louvel
+ */
+public class RateLimiter extends Filter {
+
+    /** The default maximum number of buckets kept in memory. */
+    public static final int DEFAULT_MAX_BUCKETS = 10000;
+
+    /**
+     * Key mode based on the upstream address of the client.
+     * 
+     * @see org.restlet.data.ClientInfo#getUpstreamAddress()
+     */
+    public static final int KEY_CLIENT_ADDRESS = 1;
+
+    /**
+     * Key mode based on the value of a request header such as an API key. The
+     * requests without this header are keyed by the client address.
+     * 
+     * @see #getKeyHeaderName()
+     */
+    public static final int KEY_HEADER = 3;
+
+    /**
+     * Key mode based on the identifier of the authenticated user. The
+     * anonymous requests are keyed by the client address.
+     * 
+     * @see org.restlet.data.ClientInfo#getUser()
+     */
+    public static final int KEY_USER = 2;
+
+    /**
+     * The token buckets, holding the theoretical arrival time of the next
+     * request in nanoseconds for each key.
+     */
+    private final ConcurrentMap<String, AtomicLong> buckets;
+
+    /** The maximum number of tokens of each bucket. */
+    private volatile int burstSize;
+
+    /** The current number of concurrent requests. */
+    private final AtomicInteger concurrentRequests;
+
+    /**
+     * The time in nanoseconds before which no bucket can be evicted, as none
+     * of them is full.
+     */
+    private volatile long evictionTime;
+
+    /** The name of the header holding the key. */
+    private volatile String keyHeaderName;
+
+    /** The key mode. */
+    private volatile int keyMode;
+
+    /** The maximum number of buckets kept in memory. */
+    private volatile int maxBuckets;
+
+    /** The maximum number of concurrent requests. */
+    private volatile int maxConcurrentRequests;
+
+    /** The bucket shared by the new keys when no room is available. */
+    private final AtomicLong overflowBucket;
+
+    /** The number of tokens added to each bucket per second. */
+    private volatile double rate;
+
+    /**
+     * Constructor. The request rate and concurrency aren't limited.
+     */
+    public RateLimiter() {
+        this(null);
+    }
+
+    /**
+     * Constructor. The request rate and concurrency aren't limited.
+     * 
+     * @param context
+     *            The context.
+     */
+    public RateLimiter(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Constructor. The request rate and concurrency aren't limited.
+     * 
+     * @param context
+     *            The context.
+     * @param next
+     *            The next Restlet.
+     */
+    public RateLimiter(Context context, Restlet next) {
+        this(context, next, 0, 1);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The context.
+     * @param next
+     *            The next Restlet.
+     * @param rate
+     *            The number of requests per second allowed for each key.
+     * @param burstSize
+     *            The number of requests that can be accepted at once for each
+     *            key.
+     */
+    public RateLimiter(Context context, Restlet next, double rate,
+            int burstSize) {
+        super(context, next);
+        this.buckets = new ConcurrentHashMap<String, AtomicLong>();
+        this.burstSize = burstSize;
+        this.concurrentRequests = new AtomicInteger();
+        this.evictionTime = System.nanoTime();
+        this.keyHeaderName = "X-API-Key";
+        this.keyMode = KEY_CLIENT_ADDRESS;
+        this.maxBuckets = DEFAULT_MAX_BUCKETS;
+        this.maxConcurrentRequests = 0;
+        this.overflowBucket = new AtomicLong(this.evictionTime);
+        this.rate = rate;
+    }
+
+    /**
+     * Checks that the client key hasn't exceeded its request rate. Otherwise,
+     * the call is rejected.
+     * 
+     * @param request
+     *            The request to filter.
+     * @param response
+     *            The response to filter.
+     * @return The continuation status. Either {@link #CONTINUE} or
+     *         {@link #STOP}.
+     */
+    @Override
+    protected int beforeHandle(Request request, Response response) {
+        int result = CONTINUE;
+
+        if (getRate() > 0) {
+            String key = getKey(request);
+
+            if (key != null) {
+                long delay = consume(key, System.nanoTime());
+
+                if (delay > 0) {
+                    reject(request, response,
+                            Status.CLIENT_ERROR_TOO_MANY_REQUESTS, delay);
+                    result = STOP;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes all the buckets.
+     */
+    public void clear() {
+        this.buckets.clear();
+        this.overflowBucket.set(System.nanoTime());
+        this.evictionTime = this.overflowBucket.get();
+    }
+
+    /**
+     * Consumes a token from the bucket of the given key. The bucket is
+     * implemented as a generic cell rate algorithm, which is equivalent to a
+     * token bucket but only needs to atomically update the theoretical arrival
+     * time of the next request.
+     * 
+     * @param key
+     *            The client key.
+     * @param now
+     *            The current time in nanoseconds.
+     * @return Zero if a token was available, or the delay in nanoseconds before
+     *         the next token is available.
+     */
+    protected long consume(String key, long now) {
+        long result = 0;
+        long interval = (long) (1000000000L / getRate());
+        long tolerance = interval * (Math.max(1, getBurstSize()) - 1);
+        AtomicLong bucket = getBucket(key, now);
+        boolean done = false;
+
+        while (!done) {
+            long arrival = bucket.get();
+            long start = (arrival - now > 0) ? arrival : now;
+            long excess = start - now - tolerance;
+
+            if (excess > 0) {
+                result = excess;
+                done = true;
+            } else {
+                done = bucket.compareAndSet(arrival, start + interval);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Handles the call with the next Restlet if the maximum number of
+     * concurrent requests isn't reached. Otherwise, the call is rejected.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param response
+     *            The response to update.
+     * @return The continuation status. Either {@link #CONTINUE} or
+     *         {@link #STOP}.
+     */
+    @Override
+    protected int doHandle(Request request, Response response) {
+        int result = CONTINUE;
+        int max = getMaxConcurrentRequests();
+
+        if ((this.concurrentRequests.incrementAndGet() > max) && (max > 0)) {
+            this.concurrentRequests.decrementAndGet();
+            reject(request, response, Status.SERVER_ERROR_SERVICE_UNAVAILABLE,
+                    1000000000L);
+            result = STOP;
+        } else {
+            try {
+                result = super.doHandle(request, response);
+            } finally {
+                this.concurrentRequests.decrementAndGet();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Evicts the full buckets in order to make room for new ones. The limited
+     * buckets are kept so that their keys can't reset their rate by flooding
+     * the table with new keys. The time when the first remaining bucket will
+     * be full is remembered in order to avoid useless scans.
+     * 
+     * @param now
+     *            The current time in nanoseconds.
+     */
+    private void evictBuckets(long now) {
+        long next = now;
+        boolean found = false;
+
+        for (Iterator<AtomicLong> iter = this.buckets.values().iterator(); iter
+                .hasNext();) {
+            long arrival = iter.next().get();
+
+            if (arrival - now <= 0) {
+                iter.remove();
+            } else if (!found || (arrival - next < 0)) {
+                next = arrival;
+                found = true;
+            }
+        }
+
+        this.evictionTime = next;
+    }
+
+    /**
+     * Returns the bucket of the given key, creating it if necessary. When the
+     * maximum number of buckets is reached and none of them is full, the
+     * shared overflow bucket is returned.
+     * 
+     * @param key
+     *            The client key.
+     * @param now
+     *            The current time in nanoseconds.
+     * @return The bucket of the given key.
+     */
+    private AtomicLong getBucket(String key, long now) {
+        AtomicLong result = this.buckets.get(key);
+
+        if (result == null) {
+            if ((this.buckets.size() >= getMaxBuckets())
+                    && (now - this.evictionTime >= 0)) {
+                evictBuckets(now);
+            }
+
+            if (this.buckets.size() < getMaxBuckets()) {
+                AtomicLong bucket = new AtomicLong(now);
+                result = this.buckets.putIfAbsent(key, bucket);
+
+                if (result == null) {
+                    result = bucket;
+                }
+            } else {
+                result = this.overflowBucket;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the current number of buckets kept in memory.
+     * 
+     * @return The current number of buckets kept in memory.
+     */
+    public int getBucketCount() {
+        return this.buckets.size();
+    }
+
+    /**
+     * Returns the maximum number of tokens of each bucket, which is the number
+     * of requests that can be accepted at once for each key.
+     * 
+     * @return The maximum number of tokens of each bucket.
+     */
+    public int getBurstSize() {
+        return burstSize;
+    }
+
+    /**
+     * Returns the current number of concurrent requests handled by the next
+     * Restlet.
+     * 
+     * @return The current number of concurrent requests.
+     */
+    public int getConcurrentRequests() {
+        return this.concurrentRequests.get();
+    }
+
+    /**
+     * Returns the client key of a request, whose rate is limited. By default,
+     * it depends on the key mode. If the user or the header is missing, the
+     * client address is used.
+     * 
+     * @param request
+     *            The request to key.
+     * @return The client key or null if the request rate isn't limited.
+     */
+    @SuppressWarnings("unchecked")
+    protected String getKey(Request request) {
+        String result = null;
+
+        if (getKeyMode() == KEY_USER) {
+            if (request.getClientInfo().getUser() != null) {
+                result = request.getClientInfo().getUser().getIdentifier();
+            }
+        } else if (getKeyMode() == KEY_HEADER) {
+            Series<Header> headers = (Series<Header>) request.getAttributes()
+                    .get(HeaderConstants.ATTRIBUTE_HEADERS);
+
+            if (headers != null) {
+                result = headers.getFirstValue(getKeyHeaderName(), true);
+            }
+        }
+
+        if (result == null) {
+            result = request.getClientInfo().getUpstreamAddress();
+        } else {
+            // Prevent collisions with client addresses
+            result = getKeyMode() + ":" + result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the name of the header holding the key. By default, it is
+     * "X-API-Key".
+     * 
+     * @return The name of the header holding the key.
+     * @see #KEY_HEADER
+     */
+    public String getKeyHeaderName() {
+        return keyHeaderName;
+    }
+
+    /**
+     * Returns the key mode. By default, it is {@link #KEY_CLIENT_ADDRESS}.
+     * 
+     * @return The key mode.
+     */
+    public int getKeyMode() {
+        return keyMode;
+    }
+
+    /**
+     * Returns the maximum number of buckets kept in memory, not counting the
+     * overflow bucket shared by the new keys when all of them are limited. By
+     * default, it is {@link #DEFAULT_MAX_BUCKETS}.
+     * 
+     * @return The maximum number of buckets kept in memory.
+     */
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    /**
+     * Returns the maximum number of concurrent requests handled by the next
+     * Restlet. Zero or a negative value means no limit, which is the default.
+     * 
+     * @return The maximum number of concurrent requests.
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Returns the number of tokens added to each bucket per second, which is
+     * the number of requests per second allowed for each key. Zero or a
+     * negative value means no limit.
+     * 
+     * @return The number of tokens added to each bucket per second.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Rejects a call. By default, it sets the response status and the date
+     * after which the client can retry, rounded up to the second. The error
+     * representation is left to the status service.
+     * 
+     * @param request
+     *            The request to reject.
+     * @param response
+     *            The response to update.
+     * @param status
+     *            The error status.
+     * @param delay
+     *            The delay in nanoseconds before the client can retry.
+     */
+    protected void reject(Request request, Response response, Status status,
+            long delay) {
+        long seconds = (delay + 999999999L) / 1000000000L;
+        response.setStatus(status);
+        response.setRetryAfter(new Date(System.currentTimeMillis() + seconds
+                * 1000L));
+    }
+
+    /**
+     * Sets the maximum number of tokens of each bucket, which is the number of
+     * requests that can be accepted at once for each key.
+     * 
+     * @param burstSize
+     *            The maximum number of tokens of each bucket.
+     */
+    public void setBurstSize(int burstSize) {
+        this.burstSize = burstSize;
+    }
+
+    /**
+     * Sets the name of the header holding the key.
+     * 
+     * @param keyHeaderName
+     *            The name of the header holding the key.
+     * @see #KEY_HEADER
+     */
+    public void setKeyHeaderName(String keyHeaderName) {
+        this.keyHeaderName = keyHeaderName;
+    }
+
+    /**
+     * Sets the key mode.
+     * 
+     * @param keyMode
+     *            The key mode.
+     */
+    public void setKeyMode(int keyMode) {
+        this.keyMode = keyMode;
+    }
+
+    /**
+     * Sets the maximum number of buckets kept in memory.
+     * 
+     * @param maxBuckets
+     *            The maximum number of buckets kept in memory.
+     */
+    public void setMaxBuckets(int maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Sets the maximum number of concurrent requests handled by the next
+     * Restlet. Zero or a negative value means no limit.
+     * 
+     * @param maxConcurrentRequests
+     *            The maximum number of concurrent requests.
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * Sets the number of tokens added to each bucket per second, which is the
+     * number of requests per second allowed for each key. Zero or a negative
+     * value means no limit.
+     * 
+     * @param rate
+     *            The number of tokens added to each bucket per second.
+     */
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+}
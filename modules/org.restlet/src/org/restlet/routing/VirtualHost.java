@@ -35,6 +35,7 @@ package org.restlet.routing;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.restlet.Context;
 import org.restlet.Request;
@@ -79,6 +80,9 @@ import org.restlet.resource.ServerResource;
 public class VirtualHost extends Router {
     private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<Integer>();
 
+    /** The number of host domain changes of all the virtual hosts. */
+    private static final AtomicInteger HOST_DOMAIN_CHANGES = new AtomicInteger();
+
     /**
      * Returns the virtual host code associated to the current thread.
      * 
@@ -91,6 +95,17 @@ public class VirtualHost extends Router {
         return CURRENT.get();
     }
 
+    /**
+     * Returns the number of host domain changes of all the virtual hosts. This
+     * lets the routers indexing virtual hosts by host domain detect the changes
+     * without checking each virtual host.
+     * 
+     * @return The number of host domain changes.
+     */
+    public static int getHostDomainChanges() {
+        return HOST_DOMAIN_CHANGES.get();
+    }
+
     /**
      * Returns the IP address of a given domain name.
      * 
@@ -455,6 +470,7 @@ public class VirtualHost extends Router {
      */
     public void setHostDomain(String hostDomain) {
         this.hostDomain = hostDomain;
+        HOST_DOMAIN_CHANGES.incrementAndGet();
     }
 
     /**
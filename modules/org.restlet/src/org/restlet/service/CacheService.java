@@ -0,0 +1,175 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.service;
+
+import org.restlet.Context;
+import org.restlet.data.Reference;
+import org.restlet.engine.application.SharedCacheFilter;
+import org.restlet.engine.cache.CacheFilter;
+import org.restlet.engine.cache.CacheStore;
+import org.restlet.engine.cache.DirectCacheStore;
+import org.restlet.engine.cache.MemoryCacheStore;
+import org.restlet.routing.Filter;
+
+/**
+ * Application service caching the responses to GET and HEAD requests. The
+ * responses are stored according to their cache directives, their expiration
+ * date and the dimensions they vary upon. While they are fresh, they are
+ * reused without invoking the resources of the application. Stale responses
+ * are revalidated with conditional requests and concurrent misses of the same
+ * response are collapsed into a single call.<br>
+ * <br>
+ * The responses are kept by default in a {@link MemoryCacheStore} of limited
+ * size. A store keeping its least used entries outside of the heap can be set
+ * by combining it with a {@link DirectCacheStore}. The stored responses can
+ * be explicitly purged, for example when the state of resources is changed
+ * outside of the application. This service is disabled by default.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheService extends Service {
+
+    /** The maximum size of the cached entities. */
+    private volatile long maxEntitySize;
+
+    /** The store of responses. */
+    private volatile CacheStore store;
+
+    /**
+     * Constructor.
+     */
+    public CacheService() {
+        this(true);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param enabled
+     *            True if the service has been enabled.
+     */
+    public CacheService(boolean enabled) {
+        super(enabled);
+        this.maxEntitySize = CacheFilter.DEFAULT_MAX_ENTITY_SIZE;
+        this.store = new MemoryCacheStore();
+    }
+
+    @Override
+    public Filter createInboundFilter(Context context) {
+        SharedCacheFilter result = new SharedCacheFilter(context, getStore());
+        result.setMaxEntitySize(getMaxEntitySize());
+        return result;
+    }
+
+    /**
+     * Returns the maximum size of the cached entities. Larger entities are
+     * returned without being stored. Default value is 1 MB.
+     * 
+     * @return The maximum size of the cached entities.
+     */
+    public long getMaxEntitySize() {
+        return maxEntitySize;
+    }
+
+    /**
+     * Returns the store of responses.
+     * 
+     * @return The store of responses.
+     */
+    public CacheStore getStore() {
+        return store;
+    }
+
+    /**
+     * Purges the response stored for a given URI.
+     * 
+     * @param uri
+     *            The absolute URI of the resource.
+     */
+    public void purge(Reference uri) {
+        getStore().remove(uri.getTargetRef().toString(true, false));
+    }
+
+    /**
+     * Purges the response stored for a given URI.
+     * 
+     * @param uri
+     *            The absolute URI of the resource.
+     */
+    public void purge(String uri) {
+        purge(new Reference(uri));
+    }
+
+    /**
+     * Purges all the stored responses.
+     */
+    public void purgeAll() {
+        getStore().clear();
+    }
+
+    /**
+     * Purges the responses stored for all the URIs starting with a given
+     * prefix, for example the URI of a parent resource.
+     * 
+     * @param uriPrefix
+     *            The absolute URI prefix.
+     */
+    public void purgeAll(String uriPrefix) {
+        getStore().removeAll(uriPrefix);
+    }
+
+    /**
+     * Sets the maximum size of the cached entities. This must be set before
+     * the application is started.
+     * 
+     * @param maxEntitySize
+     *            The maximum size of the cached entities.
+     */
+    public void setMaxEntitySize(long maxEntitySize) {
+        this.maxEntitySize = maxEntitySize;
+    }
+
+    /**
+     * Sets the store of responses. This must be set before the application is
+     * started.
+     * 
+     * @param store
+     *            The store of responses.
+     */
+    public void setStore(CacheStore store) {
+        this.store = store;
+    }
+
+}
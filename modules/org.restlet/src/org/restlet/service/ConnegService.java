@@ -37,6 +37,7 @@ import java.util.List;
 
 import org.restlet.Request;
 import org.restlet.engine.application.Conneg;
+import org.restlet.engine.application.ConnegCache;
 import org.restlet.engine.application.FlexibleConneg;
 import org.restlet.engine.application.StrictConneg;
 import org.restlet.representation.Variant;
@@ -50,6 +51,9 @@ import org.restlet.representation.Variant;
  */
 public class ConnegService extends Service {
 
+    /** The cache of negotiation results. */
+    private volatile ConnegCache cache;
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible.
@@ -71,9 +75,20 @@ public class ConnegService extends Service {
      */
     public ConnegService(boolean enabled) {
         super(enabled);
+        this.cache = new ConnegCache();
         this.strict = false;
     }
 
+    /**
+     * Returns the cache of negotiation results. It also exposes hit and miss
+     * statistics. Null if the results aren't cached.
+     * 
+     * @return The cache of negotiation results.
+     */
+    public ConnegCache getCache() {
+        return cache;
+    }
+
     /**
      * Returns the best variant representation for a given resource according
      * the the client preferences.<br>
@@ -93,9 +108,35 @@ public class ConnegService extends Service {
      */
     public Variant getPreferredVariant(List<? extends Variant> variants,
             Request request, MetadataService metadataService) {
-        Conneg conneg = isStrict() ? new StrictConneg(request, metadataService)
-                : new FlexibleConneg(request, metadataService);
-        return conneg.getPreferredVariant(variants);
+        Variant result = null;
+        ConnegCache cache = getCache();
+        String key = ((cache == null) || (variants == null)) ? null : cache
+                .getKey(variants, request, metadataService, isStrict());
+        Integer index = (key == null) ? null : cache.get(key);
+
+        if (index == null) {
+            Conneg conneg = isStrict() ? new StrictConneg(request,
+                    metadataService) : new FlexibleConneg(request,
+                    metadataService);
+            result = conneg.getPreferredVariant(variants);
+
+            if (key != null) {
+                // Remember the position of the preferred variant
+                int i = -1;
+
+                for (int j = 0; (i == -1) && (j < variants.size()); j++) {
+                    if (variants.get(j) == result) {
+                        i = j;
+                    }
+                }
+
+                cache.put(key, i);
+            }
+        } else if (index >= 0) {
+            result = variants.get(index);
+        }
+
+        return result;
     }
 
     /**
@@ -109,6 +150,16 @@ public class ConnegService extends Service {
         return strict;
     }
 
+    /**
+     * Sets the cache of negotiation results. Null to disable caching.
+     * 
+     * @param cache
+     *            The cache of negotiation results.
+     */
+    public void setCache(ConnegCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible.
@@ -37,11 +37,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
 
 import org.restlet.Context;
 import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
 import org.restlet.engine.application.Encoder;
+import org.restlet.engine.application.EncoderCache;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 
@@ -93,6 +97,31 @@ public class EncoderService extends Service {
      */
     private volatile List<MediaType> acceptedMediaTypes;
 
+    /**
+     * The cache of encoded representations.
+     */
+    private volatile EncoderCache cache;
+
+    /**
+     * The default compression level.
+     */
+    private volatile int compressionLevel;
+
+    /**
+     * The compression levels specific to some media types.
+     */
+    private final Map<MediaType, Integer> compressionLevels;
+
+    /**
+     * The default compression strategy.
+     */
+    private volatile int compressionStrategy;
+
+    /**
+     * The compression strategies specific to some media types.
+     */
+    private final Map<MediaType, Integer> compressionStrategies;
+
     /**
      * The media types that should be ignored.
      */
@@ -103,6 +132,16 @@ public class EncoderService extends Service {
      */
     private volatile long mininumSize;
 
+    /**
+     * Indicates if files compressed at build time should be served.
+     */
+    private volatile boolean precompressed;
+
+    /**
+     * Indicates if flushing an encoded entity also flushes the compressor.
+     */
+    private volatile boolean syncFlush;
+
     /**
      * Constructor.
      */
@@ -121,6 +160,13 @@ public class EncoderService extends Service {
         this.mininumSize = DEFAULT_MINIMUM_SIZE;
         this.acceptedMediaTypes = getDefaultAcceptedMediaTypes();
         this.ignoredMediaTypes = getDefaultIgnoredMediaTypes();
+        this.cache = new EncoderCache();
+        this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        this.compressionLevels = new ConcurrentHashMap<MediaType, Integer>();
+        this.compressionStrategy = Deflater.DEFAULT_STRATEGY;
+        this.compressionStrategies = new ConcurrentHashMap<MediaType, Integer>();
+        this.precompressed = false;
+        this.syncFlush = false;
     }
 
     /**
@@ -201,6 +247,92 @@ public class EncoderService extends Service {
         return this.acceptedMediaTypes;
     }
 
+    /**
+     * Returns the cache of encoded representations. File representations and
+     * representations with a strong entity tag are only encoded once for
+     * each encoding, unless the request method is HEAD. The cache is bounded
+     * by the total size of the encoded content. It also exposes hit and miss
+     * statistics. Null if the encoded representations aren't cached.
+     * 
+     * @return The cache of encoded representations.
+     */
+    public EncoderCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Returns the default compression level, between 0 and 9 or -1 for the
+     * zlib default level. Default value is -1.
+     * 
+     * @return The default compression level.
+     * @see Deflater#setLevel(int)
+     */
+    public int getCompressionLevel() {
+        return this.compressionLevel;
+    }
+
+    /**
+     * Returns the compression level for a given media type. The most specific
+     * media type including the given one in the map of specific levels wins,
+     * otherwise the default level is returned.
+     * 
+     * @param mediaType
+     *            The media type of the entity to encode.
+     * @return The compression level.
+     * @see #getCompressionLevels()
+     */
+    public int getCompressionLevel(MediaType mediaType) {
+        Integer result = getSpecificValue(getCompressionLevels(), mediaType);
+        return (result == null) ? getCompressionLevel() : result;
+    }
+
+    /**
+     * Returns the modifiable map of compression levels specific to some media
+     * types.
+     * 
+     * @return The map of compression levels specific to some media types.
+     */
+    public Map<MediaType, Integer> getCompressionLevels() {
+        return this.compressionLevels;
+    }
+
+    /**
+     * Returns the default compression strategy. Default value is
+     * {@link Deflater#DEFAULT_STRATEGY}.
+     * 
+     * @return The default compression strategy.
+     * @see Deflater#setStrategy(int)
+     */
+    public int getCompressionStrategy() {
+        return this.compressionStrategy;
+    }
+
+    /**
+     * Returns the compression strategy for a given media type. The most
+     * specific media type including the given one in the map of specific
+     * strategies wins, otherwise the default strategy is returned.
+     * 
+     * @param mediaType
+     *            The media type of the entity to encode.
+     * @return The compression strategy.
+     * @see #getCompressionStrategies()
+     */
+    public int getCompressionStrategy(MediaType mediaType) {
+        Integer result = getSpecificValue(getCompressionStrategies(),
+                mediaType);
+        return (result == null) ? getCompressionStrategy() : result;
+    }
+
+    /**
+     * Returns the modifiable map of compression strategies specific to some
+     * media types.
+     * 
+     * @return The map of compression strategies specific to some media types.
+     */
+    public Map<MediaType, Integer> getCompressionStrategies() {
+        return this.compressionStrategies;
+    }
+
     /**
      * Returns the media types that should be ignored.
      * 
@@ -221,6 +353,95 @@ public class EncoderService extends Service {
         return this.mininumSize;
     }
 
+    /**
+     * Returns the value of the most specific media type including the given
+     * one.
+     * 
+     * @param values
+     *            The values specific to some media types.
+     * @param mediaType
+     *            The media type to look up.
+     * @return The matching value or null.
+     */
+    private Integer getSpecificValue(Map<MediaType, Integer> values,
+            MediaType mediaType) {
+        Integer result = null;
+
+        if ((mediaType != null) && !values.isEmpty()) {
+            result = values.get(mediaType);
+
+            if (result == null) {
+                MediaType best = null;
+
+                for (Map.Entry<MediaType, Integer> entry : values.entrySet()) {
+                    if (entry.getKey().includes(mediaType)
+                            && ((best == null) || best.includes(entry
+                                    .getKey()))) {
+                        best = entry.getKey();
+                        result = entry.getValue();
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if files compressed at build time should be served. When the
+     * client accepts the GZIP encoding, a file representation is replaced by
+     * its sibling file with the ".gz" extension, if it exists and isn't older.
+     * Default value is false.
+     * 
+     * @return True if files compressed at build time should be served.
+     */
+    public boolean isPrecompressed() {
+        return this.precompressed;
+    }
+
+    /**
+     * Indicates if flushing an encoded entity also flushes the compressor, so
+     * that a streaming client can decode all the data written so far. This is
+     * useful for streaming and chunked responses but slightly degrades the
+     * compression ratio. Default value is false.
+     * 
+     * @return True if flushing an encoded entity also flushes the compressor.
+     */
+    public boolean isSyncFlush() {
+        return this.syncFlush;
+    }
+
+    /**
+     * Sets the cache of encoded representations. Null to disable caching.
+     * 
+     * @param cache
+     *            The cache of encoded representations.
+     */
+    public void setCache(EncoderCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the default compression level, between 0 and 9 or -1 for the zlib
+     * default level.
+     * 
+     * @param compressionLevel
+     *            The default compression level.
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Sets the default compression strategy.
+     * 
+     * @param compressionStrategy
+     *            The default compression strategy.
+     */
+    public void setCompressionStrategy(int compressionStrategy) {
+        this.compressionStrategy = compressionStrategy;
+    }
+
     /**
      * Sets the minimum size a representation must have before compression is
      * done.
@@ -233,4 +454,25 @@ public class EncoderService extends Service {
         this.mininumSize = mininumSize;
     }
 
+    /**
+     * Indicates if files compressed at build time should be served.
+     * 
+     * @param precompressed
+     *            True if files compressed at build time should be served.
+     */
+    public void setPrecompressed(boolean precompressed) {
+        this.precompressed = precompressed;
+    }
+
+    /**
+     * Indicates if flushing an encoded entity also flushes the compressor.
+     * 
+     * @param syncFlush
+     *            True if flushing an encoded entity also flushes the
+     *            compressor.
+     */
+    public void setSyncFlush(boolean syncFlush) {
+        this.syncFlush = syncFlush;
+    }
+
 }
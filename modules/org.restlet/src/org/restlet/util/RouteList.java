@@ -33,10 +33,12 @@
 
 package org.restlet.util;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.restlet.Request;
 import org.restlet.Response;
@@ -50,13 +52,17 @@ import org.restlet.routing.Route;
  * {@link List}, in particular all the helper methods in {@link Collections}.<br>
  * <br>
  * Note that structural changes to this list are thread-safe, using an
- * underlying {@link CopyOnWriteArrayList}.
+ * underlying {@link CopyOnWriteArrayList}. They are also counted, so routers
+ * indexing the routes can detect them cheaply.
  * 
  * @author Jerome Louvel
  * @see java.util.Collections
  * @see java.util.List
  */
 public final class RouteList extends WrapperList<Route> {
+    /** The number of structural changes of this list. */
+    private final AtomicInteger changes;
+
     /** The index of the last route used in the round robin mode. */
     private volatile int lastIndex;
 
@@ -65,6 +71,7 @@ public final class RouteList extends WrapperList<Route> {
      */
     public RouteList() {
         super(new CopyOnWriteArrayList<Route>());
+        this.changes = new AtomicInteger();
         this.lastIndex = -1;
     }
 
@@ -76,9 +83,55 @@ public final class RouteList extends WrapperList<Route> {
      */
     public RouteList(List<Route> delegate) {
         super(new CopyOnWriteArrayList<Route>(delegate));
+        this.changes = new AtomicInteger();
         this.lastIndex = -1;
     }
 
+    @Override
+    public boolean add(Route route) {
+        try {
+            return super.add(route);
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void add(int index, Route route) {
+        try {
+            super.add(index, route);
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Route> routes) {
+        try {
+            return super.addAll(routes);
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Route> routes) {
+        try {
+            return super.addAll(index, routes);
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
     /**
      * Returns the best route match for a given call.
      * 
@@ -107,6 +160,17 @@ public final class RouteList extends WrapperList<Route> {
         return result;
     }
 
+    /**
+     * Returns the number of structural changes of this list since its
+     * creation. Routes replaced with {@link #set(int, Route)} are counted as
+     * changes too.
+     * 
+     * @return The number of structural changes.
+     */
+    public int getChanges() {
+        return this.changes.get();
+    }
+
     /**
      * Returns the first route match for a given call.
      * 
@@ -229,6 +293,24 @@ public final class RouteList extends WrapperList<Route> {
         return null;
     }
 
+    @Override
+    public Route remove(int index) {
+        try {
+            return super.remove(index);
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean remove(Object route) {
+        try {
+            return super.remove(route);
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
     /**
      * Removes all routes routing to a given target.
      * 
@@ -243,6 +325,33 @@ public final class RouteList extends WrapperList<Route> {
         }
     }
 
+    @Override
+    public boolean removeAll(Collection<?> routes) {
+        try {
+            return super.removeAll(routes);
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> routes) {
+        try {
+            return super.retainAll(routes);
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Route set(int index, Route route) {
+        try {
+            return super.set(index, route);
+        } finally {
+            this.changes.incrementAndGet();
+        }
+    }
+
     /**
      * Returns a view of the portion of this list between the specified
      * fromIndex, inclusive, and toIndex, exclusive.